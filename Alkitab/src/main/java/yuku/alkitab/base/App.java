@@ -28,6 +28,7 @@ import yuku.alkitab.base.storage.Prefkey;
 import yuku.alkitab.base.sync.Fcm;
 import yuku.alkitab.base.sync.Sync;
 import yuku.alkitab.base.util.AppLog;
+import yuku.alkitab.base.util.SearchEngine;
 import yuku.alkitab.debug.R;
 import yuku.alkitab.reminder.util.DevotionReminder;
 import yuku.alkitab.tracking.Tracker;
@@ -69,6 +70,14 @@ public class App extends yuku.afw.App {
 		}
 	}
 
+	@Override
+	public void onTrimMemory(final int level) {
+		super.onTrimMemory(level);
+
+		// the next search opens them again
+		SearchEngine.closeGrepCopies();
+	}
+
 	/**
 	 * {@link yuku.afw.App#context} must have been set via {@link #initWithAppContext(Context)}
 	 * before calling this method.
@@ -87,6 +87,7 @@ import yuku.alkitab.base.util.OtherAppIntegration
 import yuku.alkitab.base.util.RequestCodes
 import yuku.alkitab.base.util.ShareUrl
 import yuku.alkitab.base.util.Sqlitil
+import yuku.alkitab.base.verses.ChapterLoader
 import yuku.alkitab.base.verses.VerseAttributeLoader
 import yuku.alkitab.base.verses.VersesController
 import yuku.alkitab.base.verses.VersesControllerImpl
@@ -112,8 +113,6 @@ import yuku.alkitab.debug.BuildConfig
 import yuku.alkitab.debug.R
 import yuku.alkitab.model.Book
 import yuku.alkitab.model.Marker
-import yuku.alkitab.model.PericopeBlock
-import yuku.alkitab.model.SingleChapterVerses
 import yuku.alkitab.model.Version
 import yuku.alkitab.ribka.RibkaReportActivity
 import yuku.alkitab.tracking.Tracker
@@ -253,6 +252,11 @@ class IsiActivity : BaseLeftDrawerActivity(), LeftDrawer.Text.Listener {
     private lateinit var bVersion: TextView
     lateinit var floater: Floater
 
+    /**
+     * Prepares the chapters adjacent to the displayed ones of both splits.
+     */
+    private val chapterLoader by lazy { ChapterLoader(contentResolver) }
+
     private var dataSplit0 = VersesDataModel.EMPTY
         set(value) {
             field = value
@@ -1239,6 +1243,8 @@ class IsiActivity : BaseLeftDrawerActivity(), LeftDrawer.Text.Listener {
         App.getLbm().unregisterReceiver(reloadAttributeMapReceiver)
 
         App.getLbm().unregisterReceiver(needsRestartReceiver)
+
+        chapterLoader.invalidate()
     }
 
     /**
@@ -2251,35 +2257,25 @@ class IsiActivity : BaseLeftDrawerActivity(), LeftDrawer.Text.Listener {
         current_chapter_1: Int,
         uncheckAllVerses: Boolean
     ): Boolean {
-        val verses = version.loadChapterText(book, chapter_1) ?: return false
-
-        //# max is set to 30 (one chapter has a max of 30 blocks. Already almost impossible)
-        val max = 30
-        val tmp_pericope_aris = IntArray(max)
-        val tmp_pericope_blocks = arrayOfNulls<PericopeBlock>(max)
-        val nblock = version.loadPericope(book.bookId, chapter_1, tmp_pericope_aris, tmp_pericope_blocks, max)
-        val pericope_aris = tmp_pericope_aris.copyOf(nblock)
-        val pericope_blocks = tmp_pericope_blocks.copyOf(nblock).map { block -> block!! }.toTypedArray()
+        // already built in the background when flipping to an adjacent chapter
+        val newData = chapterLoader.take(versesController, version, versionId, book, chapter_1)
+            ?: ChapterLoader.build(cr, version, versionId, book, chapter_1)
+            ?: return false
 
         val retainSelectedVerses = !uncheckAllVerses && chapter_1 == current_chapter_1
-        setDataWithRetainSelectedVerses(cr, versesController, dataSetter, retainSelectedVerses, Ari.encode(book.bookId, chapter_1, 0), pericope_aris, pericope_blocks, nblock, verses, version, versionId)
+        setDataWithRetainSelectedVerses(versesController, dataSetter, retainSelectedVerses, newData)
+
+        chapterLoader.prefetchAround(versesController, version, versionId, book, chapter_1)
 
         return true
     }
 
     // Moved from the old VersesView method
     private fun setDataWithRetainSelectedVerses(
-        cr: ContentResolver,
         versesController: VersesController,
         dataSetter: (VersesDataModel) -> Unit,
         retainSelectedVerses: Boolean,
-        ariBc: Int,
-        pericope_aris: IntArray,
-        pericope_blocks: Array<PericopeBlock>,
-        nblock: Int,
-        verses: SingleChapterVerses,
-        version: Version,
-        versionId: String
+        newData: VersesDataModel
     ) {
         var selectedVerses_1: IntArrayList? = null
         if (retainSelectedVerses) {
@@ -2289,9 +2285,6 @@ class IsiActivity : BaseLeftDrawerActivity(), LeftDrawer.Text.Listener {
         //# fill adapter with new data. make sure all checked states are reset
         versesController.uncheckAllVerses(true)
 
-        val versesAttributes = VerseAttributeLoader.load(S.getDb(), cr, ariBc, verses)
-
-        val newData = VersesDataModel(ariBc, verses, nblock, pericope_aris, pericope_blocks, version, versionId, versesAttributes)
         dataSetter(newData)
 
         if (selectedVerses_1 != null) {
@@ -2628,6 +2621,9 @@ class IsiActivity : BaseLeftDrawerActivity(), LeftDrawer.Text.Listener {
     }
 
     fun reloadBothAttributeMaps() {
+        // the prepared chapters have the old attributes
+        chapterLoader.invalidate()
+
         val newDataSplit0 = reloadAttributeMapsToVerseDataModel(dataSplit0)
         dataSplit0 = newDataSplit0
 
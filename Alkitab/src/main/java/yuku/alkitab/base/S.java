@@ -20,6 +20,7 @@ import yuku.alkitab.base.storage.SongDb;
 import yuku.alkitab.base.storage.SongDbHelper;
 import yuku.alkitab.base.util.AppLog;
 import yuku.alkitab.base.util.FontManager;
+import yuku.alkitab.base.util.SearchEngine;
 import yuku.alkitab.debug.BuildConfig;
 import yuku.alkitab.debug.R;
 import yuku.alkitab.model.Version;
@@ -120,7 +121,12 @@ public class S {
 	}
 
 	public synchronized static void setActiveVersion(final MVersion mv) {
+		final String oldVersionId = ActiveVersionHolder.activeVersionId;
 		ActiveVersionHolder.setActiveVersion(mv);
+
+		if (!U.equals(oldVersionId, ActiveVersionHolder.activeVersionId)) {
+			SearchEngine.closeGrepCopies();
+		}
 	}
 
 	/**
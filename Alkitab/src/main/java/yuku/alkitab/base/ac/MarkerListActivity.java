@@ -49,6 +49,7 @@ import yuku.alkitab.model.Label;
 import yuku.alkitab.model.Marker;
 import yuku.alkitab.model.Version;
 import yuku.alkitab.util.Ari;
+import yuku.alkitab.util.IntArrayList;
 import yuku.alkitabintegration.display.Launcher;
 import yuku.devoxx.flowlayout.FlowLayout;
 
@@ -517,17 +518,33 @@ public class MarkerListActivity extends BaseActivity {
 			return res;
 		}
 
-		for (final Marker marker : allMarkers) {
+		final int size = allMarkers.size();
+		final boolean[] captionMatches = new boolean[size];
+		final IntArrayList aris = new IntArrayList(size); // of the markers whose caption does not match
+
+		for (int i = 0; i < size; i++) {
+			final Marker marker = allMarkers.get(i);
 			if (filter_kind != Marker.Kind.highlight) { // "caption" in highlights only stores color information, so it's useless to check
 				String caption_lc = marker.caption.toLowerCase(Locale.getDefault());
 				if (SearchEngine.satisfiesTokens(caption_lc, rt)) {
-					res.add(marker);
+					captionMatches[i] = true;
 					continue;
 				}
 			}
+			aris.add(marker.ari);
+		}
+
+		// try the verse text! loaded all at once, so that every chapter is decoded only once
+		final String[] verseTexts = version.loadVerseTexts(aris.toArray());
+
+		for (int i = 0, j = 0; i < size; i++) {
+			final Marker marker = allMarkers.get(i);
+			if (captionMatches[i]) {
+				res.add(marker);
+				continue;
+			}
 
-			// try the verse text!
-			String verseText = version.loadVerseText(marker.ari);
+			String verseText = verseTexts[j++];
 			if (verseText != null) { // this can be null! so beware.
 				String verseText_lc = verseText.toLowerCase(Locale.getDefault());
 				if (SearchEngine.satisfiesTokens(verseText_lc, rt)) {
@@ -56,12 +56,14 @@ import static yuku.alkitab.base.util.Literals.Array;
 import yuku.alkitab.base.util.QueryTokenizer;
 import yuku.alkitab.base.util.SearchEngine;
 import yuku.alkitab.base.util.TextColorUtil;
+import yuku.alkitab.base.util.VersionRevIndex;
 import yuku.alkitab.debug.BuildConfig;
 import yuku.alkitab.debug.R;
 import yuku.alkitab.model.Book;
 import yuku.alkitab.model.Version;
 import yuku.alkitab.util.Ari;
 import yuku.alkitab.util.IntArrayList;
+import yuku.alkitab.yes2.compress.SnappyBlockCache;
 import yuku.alkitabintegration.display.Launcher;
 
 public class SearchActivity extends BaseActivity {
@@ -89,6 +91,7 @@ public class SearchActivity extends BaseActivity {
 	int openedBookId;
 	int filterUserAction = 0; // when it's not user action, set to nonzero
 	SearchAdapter adapter;
+	AsyncTask<Void, IntArrayList, Void> searchTask;
 	Version searchInVersion;
 	String searchInVersionId;
 	float textSizeMult;
@@ -687,38 +690,61 @@ public class SearchActivity extends BaseActivity {
 			.progress(true, 0)
 			.show();
 
-		new AsyncTask<Void, Void, IntArrayList>() {
+		if (searchTask != null) {
+			searchTask.cancel(false);
+		}
+
+		searchTask = new AsyncTask<Void, IntArrayList, Void>() {
+			final IntArrayList result = new IntArrayList();
+			boolean resultShown;
 			boolean debugstats_revIndexUsed;
-			long debugstats_totalTimeMs;
 			long debugstats_cpuTimeMs;
+			SearchEngine.Timing debugstats_timing;
 
-			@Override protected IntArrayList doInBackground(Void... params) {
+			@Override protected Void doInBackground(Void... params) {
 				searchHistoryAdapter.setData(addSearchHistoryEntry(query_string));
 
-				final long totalMs = System.currentTimeMillis();
 				final long cpuMs = SystemClock.currentThreadTimeMillis();
-				final IntArrayList res;
+				final AsyncTask<?, ?, ?> task = this; // to be checked from the sink
+				final SearchEngine.Timing timing = new SearchEngine.Timing("search " + query_string);
+				final SearchEngine.ResultSink sink = new SearchEngine.ResultSink() {
+					@Override
+					public void onResults(@NonNull final IntArrayList aris) {
+						publishProgress(aris);
+					}
+
+					@Override
+					public boolean isCancelled() {
+						return task.isCancelled();
+					}
+				};
 
 				synchronized (SearchActivity.this) {
 					if (usingRevIndex()) {
 						debugstats_revIndexUsed = true;
-						res = SearchEngine.searchByRevIndex(searchInVersion, getQuery());
+						final IntArrayList res = SearchEngine.searchByRevIndex(searchInVersion, getQuery(), timing);
+						if (res != null && res.size() > 0) {
+							publishProgress(res);
+						}
 					} else {
-						debugstats_revIndexUsed = false;
-						res = SearchEngine.searchByGrep(searchInVersion, getQuery());
+						debugstats_revIndexUsed = VersionRevIndex.get(searchInVersion) != null;
+						SearchEngine.searchByVersionRevIndex(searchInVersion, getQuery(), sink, timing);
 					}
 				}
 
-				debugstats_totalTimeMs = System.currentTimeMillis() - totalMs;
+				debugstats_timing = timing;
 				debugstats_cpuTimeMs = SystemClock.currentThreadTimeMillis() - cpuMs;
 
-				return res;
+				return null;
 			}
 
-			@Override protected void onPostExecute(IntArrayList result) {
-				if (result == null) {
-					result = new IntArrayList(); // empty result
-				}
+			/**
+			 * Replaces the previous results with the (still growing) result of this search.
+			 * The first screen of results is shown as soon as they are found, without waiting for the search to finish.
+			 */
+			void showResult() {
+				if (resultShown) return;
+				resultShown = true;
 
 				if (actionMode != null) {
 					actionMode.finish();
@@ -727,6 +753,32 @@ public class SearchActivity extends BaseActivity {
 				uncheckAllVerses();
 				lsSearchResults.setAdapter(adapter = new SearchAdapter(result, tokens));
 
+				pd.setOnDismissListener(null);
+				pd.dismiss();
+			}
+
+			@Override protected void onProgressUpdate(IntArrayList... parts) {
+				for (final IntArrayList part : parts) {
+					for (int i = 0, len = part.size(); i < len; i++) {
+						result.add(part.get(i));
+					}
+				}
+
+				if (resultShown) {
+					adapter.notifyDataSetChanged();
+				} else {
+					showResult();
+				}
+			}
+
+			@Override protected void onCancelled(final Void unused) {
+				pd.setOnDismissListener(null);
+				pd.dismiss();
+			}
+
+			@Override protected void onPostExecute(Void unused) {
+				showResult();
+
 				if (result.size() > 0) {
 					Snackbar.make(lsSearchResults, getString(R.string.size_hasil, result.size()), Snackbar.LENGTH_LONG).show();
 
@@ -771,14 +823,13 @@ public class SearchActivity extends BaseActivity {
 						.content("This msg is shown only on DEBUG build\n\n" +
 							"Search results: " + result.size() + "\n" +
 							"Method: " + (debugstats_revIndexUsed? "revindex": "grep") + "\n" +
-							"Total time: " + debugstats_totalTimeMs + " ms\n" +
-							"CPU (thread) time: " + debugstats_cpuTimeMs + " ms")
+							"Total time: " + debugstats_timing.getTotalMs() + " ms\n" +
+							"CPU (thread) time: " + debugstats_cpuTimeMs + " ms\n\n" +
+							debugstats_timing + "\n\n" +
+							SnappyBlockCache.getInstance())
 						.positiveText(R.string.ok)
 						.show();
 				}
-				
-				pd.setOnDismissListener(null);
-				pd.dismiss();
 			}
 
 			/**
@@ -807,7 +858,8 @@ public class SearchActivity extends BaseActivity {
 
 				return Ari.encode(bookId, chapter_1, verse_1);
 			}
-		}.execute();
+		};
+		searchTask.execute();
 	}
 
 	@NonNull SearchHistory loadSearchHistory() {
@@ -2,6 +2,7 @@ package yuku.alkitab.base.ac;
 
 import android.annotation.SuppressLint;
 import android.content.Intent;
+import android.database.sqlite.SQLiteDatabase;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.SystemClock;
@@ -45,11 +46,13 @@ import yuku.alkitab.base.util.Background;
 import yuku.alkitab.base.util.Highlights;
 import yuku.alkitab.base.util.InstallationUtil;
 import yuku.alkitab.base.util.LabelColorUtil;
+import yuku.alkitab.base.util.Sqlitil;
 import yuku.alkitab.debug.BuildConfig;
 import yuku.alkitab.debug.R;
 import yuku.alkitab.model.Label;
 import yuku.alkitab.model.Marker;
 import yuku.alkitab.model.Marker_Label;
+import yuku.alkitab.model.util.Gid;
 
 public class SecretSyncDebugActivity extends BaseActivity {
 	EditText tServer;
@@ -100,6 +103,7 @@ public class SecretSyncDebugActivity extends BaseActivity {
 		findViewById(R.id.bGenerateDummies).setOnClickListener(bGenerateDummies_click);
 		findViewById(R.id.bGenerateDummies2).setOnClickListener(bGenerateDummies2_click);
 		findViewById(R.id.bMabelMonkey).setOnClickListener(bMabelMonkey_click);
+		findViewById(R.id.bBenchApply).setOnClickListener(bBenchApply_click);
 		findViewById(R.id.bLogout).setOnClickListener(bLogout_click);
 		findViewById(R.id.bSync).setOnClickListener(bSync_click);
 
@@ -111,8 +115,7 @@ public class SecretSyncDebugActivity extends BaseActivity {
 
 	View.OnClickListener bMabelClientState_click = v -> {
 		final StringBuilder sb = new StringBuilder();
-		final Sync.GetClientStateResult<Sync_Mabel.Content> pair = Sync_Mabel.getClientStateAndCurrentEntities();
-		final Sync.ClientState<Sync_Mabel.Content> clientState = pair.clientState;
+		final Sync.ClientState<Sync_Mabel.Content> clientState = Sync_Mabel.getClientState().clientState;
 
 		sb.append("Base revno: ").append(clientState.base_revno).append('\n');
 		sb.append("Delta operations (size ").append(clientState.delta.operations.size()).append("):\n");
@@ -313,6 +316,150 @@ public class SecretSyncDebugActivity extends BaseActivity {
 			.show();
 	};
 
+	static final int BENCH_APPLY_OPERATION_COUNT = 50000;
+
+	/**
+	 * Applies a made-up mabel append delta of {@link #BENCH_APPLY_OPERATION_COUNT} operations,
+	 * once an operation at a time like sync used to do, and once with {@link yuku.alkitab.base.storage.InternalDb#applyMabelOperations(List)}.
+	 * Both are done in a transaction that is rolled back afterwards, so the markers stay as they are.
+	 */
+	final View.OnClickListener bBenchApply_click = v -> {
+		if (!BuildConfig.DEBUG) return;
+
+		final MaterialDialog pd = new MaterialDialog.Builder(this)
+			.progress(true, 0)
+			.content("applying " + BENCH_APPLY_OPERATION_COUNT + " operations twice…")
+			.cancelable(false)
+			.show();
+
+		Background.run(() -> {
+			final List<Sync.Operation<Sync_Mabel.Content>> operations = benchApplyOperations();
+
+			final long eachMillis = timeRolledBack(() -> {
+				for (final Sync.Operation<Sync_Mabel.Content> o : operations) {
+					applyMabelOperationOneByOne(o);
+				}
+			});
+			final long bulkMillis = timeRolledBack(() -> S.getDb().applyMabelOperations(operations));
+
+			pd.dismiss();
+
+			runOnUiThread(() -> new MaterialDialog.Builder(this)
+				.content(String.format(Locale.US, "%d operations\none by one: %d ms (%.0f ops/s)\nbulk: %d ms (%.0f ops/s)",
+					operations.size(),
+					eachMillis, operations.size() * 1000.0 / Math.max(1, eachMillis),
+					bulkMillis, operations.size() * 1000.0 / Math.max(1, bulkMillis)))
+				.positiveText(R.string.ok)
+				.show());
+		});
+	};
+
+	/**
+	 * Mostly new markers, labels and marker-labels, with mods of existing markers and of earlier operations, and some dels.
+	 */
+	List<Sync.Operation<Sync_Mabel.Content>> benchApplyOperations() {
+		final List<Marker> existing = S.getDb().listAllMarkers();
+		final List<String> markerGids = new ArrayList<>();
+		final List<String> labelGids = new ArrayList<>();
+		final List<Sync.Operation<Sync_Mabel.Content>> res = new ArrayList<>(BENCH_APPLY_OPERATION_COUNT);
+		final int now = Sqlitil.nowDateTime();
+
+		while (res.size() < BENCH_APPLY_OPERATION_COUNT) {
+			final int r = rand(100);
+			final Sync_Mabel.Content content = new Sync_Mabel.Content();
+			if (r < 2 || labelGids.isEmpty()) {
+				content.title = randomString("BL_", 1, 3, 8);
+				content.ordering = labelGids.size() + 1;
+				content.backgroundColor = LabelColorUtil.encodeBackground(rand(0xffffff));
+				final String gid = Gid.newGid();
+				labelGids.add(gid);
+				res.add(new Sync.Operation<>(Sync.Opkind.add, Sync.Entity.KIND_LABEL, gid, content));
+			} else if (r < 20 && !markerGids.isEmpty()) {
+				content.marker_gid = markerGids.get(rand(markerGids.size()));
+				content.label_gid = labelGids.get(rand(labelGids.size()));
+				res.add(new Sync.Operation<>(Sync.Opkind.add, Sync.Entity.KIND_MARKER_LABEL, Gid.newGid(), content));
+			} else if (r < 25 && !markerGids.isEmpty()) {
+				res.add(new Sync.Operation<>(Sync.Opkind.del, Sync.Entity.KIND_MARKER, markerGids.get(rand(markerGids.size())), null));
+			} else {
+				content.ari = 0x000101 + rand(30);
+				content.kind = Marker.Kind.values()[rand(3)].code;
+				content.caption = randomString("BM_", rand(2) + 1, 4, 7);
+				content.verseCount = rand(2) + 1;
+				content.createTime = now;
+				content.modifyTime = now;
+				final Sync.Opkind opkind;
+				final String gid;
+				if (r < 35 && !existing.isEmpty()) {
+					opkind = Sync.Opkind.mod;
+					gid = existing.get(rand(existing.size())).gid;
+				} else if (r < 45 && !markerGids.isEmpty()) {
+					opkind = Sync.Opkind.mod;
+					gid = markerGids.get(rand(markerGids.size()));
+				} else {
+					opkind = Sync.Opkind.add;
+					gid = Gid.newGid();
+					markerGids.add(gid);
+				}
+				res.add(new Sync.Operation<>(opkind, Sync.Entity.KIND_MARKER, gid, content));
+			}
+		}
+
+		return res;
+	}
+
+	/**
+	 * What sync did for each operation before {@link yuku.alkitab.base.storage.InternalDb#applyMabelOperations(List)}.
+	 */
+	static void applyMabelOperationOneByOne(final Sync.Operation<Sync_Mabel.Content> o) {
+		switch (o.opkind) {
+			case del:
+				switch (o.kind) {
+					case Sync.Entity.KIND_MARKER:
+						S.getDb().deleteMarkerByGid(o.gid);
+						break;
+					case Sync.Entity.KIND_LABEL:
+						S.getDb().deleteLabelByGid(o.gid);
+						break;
+					case Sync.Entity.KIND_MARKER_LABEL:
+						S.getDb().deleteMarker_LabelByGid(o.gid);
+						break;
+				}
+				break;
+			case add:
+			case mod:
+				switch (o.kind) {
+					case Sync.Entity.KIND_MARKER:
+						S.getDb().insertOrUpdateMarker(Sync_Mabel.updateMarkerWithEntityContent(S.getDb().getMarkerByGid(o.gid), o.gid, o.content));
+						break;
+					case Sync.Entity.KIND_LABEL:
+						S.getDb().insertOrUpdateLabel(Sync_Mabel.updateLabelWithEntityContent(S.getDb().getLabelByGid(o.gid), o.gid, o.content));
+						break;
+					case Sync.Entity.KIND_MARKER_LABEL:
+						S.getDb().insertOrUpdateMarker_Label(Sync_Mabel.updateMarker_LabelWithEntityContent(S.getDb().getMarker_LabelByGid(o.gid), o.gid, o.content));
+						break;
+				}
+				break;
+		}
+	}
+
+	/**
+	 * Runs the apply in a transaction that is rolled back, with sync notifications held off like during a real apply.
+	 * @return elapsed time in milliseconds.
+	 */
+	static long timeRolledBack(final Runnable apply) {
+		final SQLiteDatabase db = S.getDb().getWritableDatabase();
+		db.beginTransactionNonExclusive();
+		Sync.notifySyncUpdatesOngoing(SyncShadow.SYNC_SET_MABEL, true);
+		try {
+			final long startTime = SystemClock.elapsedRealtime();
+			apply.run();
+			return SystemClock.elapsedRealtime() - startTime;
+		} finally {
+			Sync.notifySyncUpdatesOngoing(SyncShadow.SYNC_SET_MABEL, false);
+			db.endTransaction();
+		}
+	}
+
 	private String randomString(final String prefix, final int word_count, final int minwordlen, final int maxwordlen) {
 		final StringBuilder sb = new StringBuilder(prefix);
 		for (int i = 0; i < word_count; i++) {
@@ -352,9 +499,9 @@ public class SecretSyncDebugActivity extends BaseActivity {
 			return;
 		}
 
-		final Sync.GetClientStateResult<Sync_Mabel.Content> pair = Sync_Mabel.getClientStateAndCurrentEntities();
-		final Sync.ClientState<Sync_Mabel.Content> clientState = pair.clientState;
-		final List<Sync.Entity<Sync_Mabel.Content>> entitiesBeforeSync = pair.currentEntities;
+		final Sync.GetClientStateResult<Sync_Mabel.Content> clientStateResult = Sync_Mabel.getClientState();
+		final Sync.ClientState<Sync_Mabel.Content> clientState = clientStateResult.clientState;
+		final long journalSeqBeforeSync = clientStateResult.journalSeq;
 
 		final RequestBody requestBody = new FormBody.Builder()
 			.add("simpleToken", simpleToken)
@@ -410,7 +557,7 @@ public class SecretSyncDebugActivity extends BaseActivity {
 						final int final_revno = debugSyncResponse.final_revno;
 						final Sync.Delta<Sync_Mabel.Content> append_delta = debugSyncResponse.append_delta;
 
-						final Sync.ApplyAppendDeltaResult applyResult = S.getDb().applyMabelAppendDelta(final_revno, pair.shadowEntities, clientState, append_delta, entitiesBeforeSync, simpleToken);
+						final Sync.ApplyAppendDeltaResult applyResult = S.getDb().applyMabelAppendDelta(final_revno, clientState, append_delta, journalSeqBeforeSync, simpleToken);
 						new MaterialDialog.Builder(SecretSyncDebugActivity.this)
 							.content("Final revno: " + final_revno + "\nApply result: " + applyResult + "\nAppend delta: " + append_delta)
 							.positiveText(R.string.ok)
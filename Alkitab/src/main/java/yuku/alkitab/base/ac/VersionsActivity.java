@@ -70,6 +70,7 @@ import yuku.alkitab.base.util.AppLog;
 import yuku.alkitab.base.util.Background;
 import yuku.alkitab.base.util.DownloadMapper;
 import yuku.alkitab.base.util.QueryTokenizer;
+import yuku.alkitab.base.util.VersionRevIndex;
 import yuku.alkitab.debug.BuildConfig;
 import yuku.alkitab.debug.R;
 import yuku.alkitab.io.BibleReader;
@@ -1002,6 +1003,7 @@ public class VersionsActivity extends BaseActivity {
 								App.getLbm().sendBroadcast(new Intent(ACTION_RELOAD));
 								//noinspection ResultOfMethodCallIgnored
 								new File(filename).delete();
+								VersionRevIndex.delete(filename);
 							})
 							.negativeText(R.string.no)
 							.onNegative((dialog1, which1) -> {
@@ -1015,6 +1017,7 @@ public class VersionsActivity extends BaseActivity {
 						App.getLbm().sendBroadcast(new Intent(ACTION_RELOAD));
 						//noinspection ResultOfMethodCallIgnored
 						new File(filename).delete();
+						VersionRevIndex.delete(filename);
 					}
 				});
 			}
@@ -117,7 +117,7 @@ public abstract class DailyVerseData {
 			dailyVerses = new IntArrayList();
 			try {
 				InputStream is = App.context.getResources().openRawResource(R.raw.daily_verses_bt);
-				BintexReader br = new BintexReader(is);
+				BintexReader br = new BintexReader(is, 8192);
 				while (true) {
 					int ari = br.readInt();
 					if (ari == -1) {
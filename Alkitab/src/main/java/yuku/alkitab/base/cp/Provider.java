@@ -18,7 +18,7 @@ import yuku.alkitab.base.util.AppLog;
 import yuku.alkitab.base.util.FormattedVerseText;
 import yuku.alkitab.base.util.LidToAri;
 import yuku.alkitab.model.Book;
-import yuku.alkitab.model.SingleChapterVerses;
+import yuku.alkitab.model.Version;
 import yuku.alkitab.util.Ari;
 import yuku.alkitab.util.IntArrayList;
 import yuku.alkitabintegration.provider.VerseProvider;
@@ -206,90 +206,12 @@ public class Provider extends ContentProvider {
 		return getCursorForRangeVerseAri(aris, formatting);
 	}
 
-	private Cursor getCursorForRangeVerseAri(IntArrayList ariRanges, boolean formatting) {
-		MatrixCursor res = new MatrixCursor(new String[] {"_id", VerseProvider.COLUMN_ari, VerseProvider.COLUMN_bookName, VerseProvider.COLUMN_text});
-
-		int c = 0;
-		for (int i = 0, len = ariRanges.size(); i < len; i+=2) {
-			int ari_start = ariRanges.get(i);
-			int ari_end = ariRanges.get(i + 1);
-			
-			if (ari_start == 0 || ari_end == 0) {
-				continue;
-			}
-			
-			if (ari_start == ari_end) {
-				// case: single verse
-				//noinspection UnnecessaryLocalVariable
-				int ari = ari_start;
-				Book book = S.activeVersion().getBook(Ari.toBook(ari));
-				if (book != null) {
-					String text = S.activeVersion().loadVerseText(ari);
-					if (!formatting) {
-						text = FormattedVerseText.removeSpecialCodes(text);
-					}
-					res.addRow(new Object[] {++c, ari, book.shortName, text});
-				}
-			} else {
-				int ari_start_bc = Ari.toBookChapter(ari_start);
-				int ari_end_bc = Ari.toBookChapter(ari_end);
-				
-				if (ari_start_bc == ari_end_bc) {
-					// case: multiple verses in the same chapter
-					Book book = S.activeVersion().getBook(Ari.toBook(ari_start));
-					if (book != null) {
-						c += resultForOneChapter(res, book, c, ari_start_bc, Ari.toVerse(ari_start), Ari.toVerse(ari_end), formatting);
-					}
-				} else {
-					// case: multiple verses in different chapters
-					for (int ari_bc = ari_start_bc; ari_bc <= ari_end_bc; ari_bc += 0x0100) {
-						Book book = S.activeVersion().getBook(Ari.toBook(ari_bc));
-						int chapter_1 = Ari.toChapter(ari_bc);
-						if (book == null || chapter_1 <= 0 || chapter_1 > book.chapter_count) {
-							continue;
-						}
-						
-						if (ari_bc == ari_start_bc) { // we're at the first requested chapter
-							c += resultForOneChapter(res, book, c, ari_bc, Ari.toVerse(ari_start), 0xff, formatting); 
-						} else if (ari_bc == ari_end_bc) { // we're at the last requested chapter
-							c += resultForOneChapter(res, book, c, ari_bc, 0x01, Ari.toVerse(ari_end), formatting);
-						} else { // we're at the middle, request all verses!
-							c += resultForOneChapter(res, book, c, ari_bc, 0x01, 0xff, formatting);
-						}
-					}
-				}
-			}
-		}
-		
-		return res;
-	}
-	
 	/**
-	 * @return number of verses put into the cursor
+	 * The verses are loaded only when the client reads them, a window of rows at a time.
 	 */
-	private int resultForOneChapter(MatrixCursor cursor, Book book, int last_c, int ari_bc, int v_1_start, int v_1_end, boolean formatting) {
-		final SingleChapterVerses verses = S.activeVersion().loadChapterText(book, Ari.toChapter(ari_bc));
-		if (verses == null) {
-			return 0;
-		}
-
-		int count = 0;
-		for (int v_1 = v_1_start; v_1 <= v_1_end; v_1++) {
-			final int v_0 = v_1 - 1;
-			if (v_0 < verses.getVerseCount()) {
-				int ari = ari_bc | v_1;
-				String text = verses.getVerse(v_0);
-				if (!formatting) {
-					text = FormattedVerseText.removeSpecialCodes(text);
-				}
-				count++;
-				cursor.addRow(new Object[] {last_c + count, ari, book.shortName, text});
-			} else {
-				// we're done with this chapter, no need to loop again
-				break;
-			}
-		}
-		return count;
+	private Cursor getCursorForRangeVerseAri(IntArrayList ariRanges, boolean formatting) {
+		final Version version = S.activeVersion();
+		return new VerseRangeCursor(version, VerseRangeRows.of(version, ariRanges), formatting);
 	}
 	
 	private Cursor getCursorForBibleVersions() {
@@ -0,0 +1,124 @@
+package yuku.alkitab.base.cp;
+
+import android.database.AbstractWindowedCursor;
+import android.database.CursorWindow;
+import androidx.annotation.NonNull;
+import yuku.alkitab.base.util.FormattedVerseText;
+import yuku.alkitab.model.Book;
+import yuku.alkitab.model.SingleChapterVerses;
+import yuku.alkitab.model.Version;
+import yuku.alkitab.util.Ari;
+import yuku.alkitabintegration.provider.VerseProvider;
+
+/**
+ * Cursor of the verses of a range query that decodes chapters only when the cursor moves to them.
+ *
+ * The count comes from {@link VerseRangeRows}, so nothing is loaded when the cursor is created.
+ * When the cursor moves outside its window, the window is cleared and filled again with the rows
+ * from the start of the chapter run that has the new position, for as many rows as fit.
+ * So however large the range is (a whole book, or the whole Bible by lid), only one window of rows is in memory,
+ * and clients in other processes receive the rows one window at a time.
+ *
+ * If a chapter cannot be loaded, its verses have null text.
+ */
+class VerseRangeCursor extends AbstractWindowedCursor {
+	static final String[] COLUMNS = {"_id", VerseProvider.COLUMN_ari, VerseProvider.COLUMN_bookName, VerseProvider.COLUMN_text};
+
+	private final Version version;
+	private final VerseRangeRows rows;
+	private final boolean formatting;
+
+	VerseRangeCursor(@NonNull final Version version, @NonNull final VerseRangeRows rows, final boolean formatting) {
+		this.version = version;
+		this.rows = rows;
+		this.formatting = formatting;
+	}
+
+	@Override public int getCount() {
+		return rows.getCount();
+	}
+
+	@Override public String[] getColumnNames() {
+		return COLUMNS;
+	}
+
+	@Override public boolean onMove(final int oldPosition, final int newPosition) {
+		if (mWindow == null || newPosition < mWindow.getStartPosition() || newPosition >= mWindow.getStartPosition() + mWindow.getNumRows()) {
+			fillWindow(newPosition);
+		}
+		return true;
+	}
+
+	private void fillWindow(final int requiredPosition) {
+		if (mWindow == null) {
+			setWindow(new CursorWindow("VerseRangeCursor"));
+		}
+
+		// start at the chapter run, so moving back a bit within the chapter does not need another fill
+		final int runStart = rows.getRunFirstRow(rows.findRun(requiredPosition));
+		fill(runStart);
+
+		if (requiredPosition >= runStart + mWindow.getNumRows()) { // the run is too long for the window
+			fill(requiredPosition);
+		}
+	}
+
+	/**
+	 * Clears the window and puts rows starting from the position, until the window is full or there are no more rows.
+	 */
+	private void fill(final int startPosition) {
+		final CursorWindow window = mWindow;
+		window.clear();
+		window.setStartPosition(startPosition);
+		window.setNumColumns(COLUMNS.length);
+
+		int position = startPosition;
+		int loadedAri_bc = 0;
+		Book book = null;
+		SingleChapterVerses verses = null;
+
+		for (int run = rows.findRun(startPosition), runCount = rows.getRunCount(); run < runCount; run++) {
+			final int runAri = rows.getRunAri(run);
+			final int ari_bc = Ari.toBookChapter(runAri);
+
+			// runs of single verses are often in the same chapter
+			if (ari_bc != loadedAri_bc) {
+				book = version.getBook(Ari.toBook(ari_bc));
+				verses = book == null ? null : version.loadChapterText(book, Ari.toChapter(ari_bc));
+				loadedAri_bc = ari_bc;
+			}
+
+			final String bookName = book == null ? null : book.shortName;
+			for (int i = position - rows.getRunFirstRow(run), len = rows.getRunVerseCount(run); i < len; i++) {
+				final int ari = runAri + i;
+				final int v_0 = Ari.toVerse(ari) - 1;
+
+				String text = verses != null && v_0 < verses.getVerseCount() ? verses.getVerse(v_0) : null;
+				if (!formatting) {
+					text = FormattedVerseText.removeSpecialCodes(text);
+				}
+
+				if (!putRow(window, position, ari, bookName, text)) {
+					return; // window full
+				}
+				position++;
+			}
+		}
+	}
+
+	private static boolean putRow(final CursorWindow window, final int position, final int ari, final String bookName, final String text) {
+		if (!window.allocRow()) {
+			return false;
+		}
+
+		final boolean ok = window.putLong(position + 1, position, 0)
+			&& window.putLong(ari, position, 1)
+			&& (bookName == null ? window.putNull(position, 2) : window.putString(bookName, position, 2))
+			&& (text == null ? window.putNull(position, 3) : window.putString(text, position, 3));
+
+		if (!ok) {
+			window.freeLastRow();
+		}
+		return ok;
+	}
+}
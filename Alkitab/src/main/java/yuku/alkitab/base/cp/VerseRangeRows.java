@@ -0,0 +1,131 @@
+package yuku.alkitab.base.cp;
+
+import androidx.annotation.NonNull;
+import java.util.Arrays;
+import yuku.alkitab.model.Book;
+import yuku.alkitab.model.Version;
+import yuku.alkitab.util.Ari;
+import yuku.alkitab.util.IntArrayList;
+
+/**
+ * The rows of a verse range query, as runs of consecutive verses in one chapter.
+ * The rows are counted from the chapter and verse counts of the books, without loading any verse text,
+ * so a cursor can tell its count before it decodes any chapter.
+ *
+ * Rows are in the order of the requested ranges, with the verses that do not exist in the version left out.
+ */
+public class VerseRangeRows {
+	private final IntArrayList runs = new IntArrayList(); // [ari of the first verse, verse count] for each run
+	private int[] firstRows = new int[16]; // row position of the first verse of each run
+	private int count;
+
+	/**
+	 * @param ariRanges [start, end, start, end, ...]; a pair where start is 0 or end is 0 is skipped,
+	 * verse 0 at the start means from verse 1 and verse 0xff at the end means to the last verse.
+	 */
+	@NonNull public static VerseRangeRows of(@NonNull final Version version, @NonNull final IntArrayList ariRanges) {
+		final VerseRangeRows res = new VerseRangeRows();
+
+		for (int i = 0, len = ariRanges.size(); i < len; i += 2) {
+			final int ari_start = ariRanges.get(i);
+			final int ari_end = ariRanges.get(i + 1);
+
+			if (ari_start == 0 || ari_end == 0) {
+				continue;
+			}
+
+			if (ari_start == ari_end) {
+				// case: single verse
+				res.addRun(version, ari_start, Ari.toVerse(ari_start), Ari.toVerse(ari_start));
+			} else {
+				final int ari_start_bc = Ari.toBookChapter(ari_start);
+				final int ari_end_bc = Ari.toBookChapter(ari_end);
+
+				for (int ari_bc = ari_start_bc; ari_bc <= ari_end_bc; ari_bc += 0x0100) {
+					final int v_1_start = ari_bc == ari_start_bc ? Ari.toVerse(ari_start) : 0x01;
+					final int v_1_end = ari_bc == ari_end_bc ? Ari.toVerse(ari_end) : 0xff;
+					res.addRun(version, ari_bc, v_1_start, v_1_end);
+				}
+			}
+		}
+
+		return res;
+	}
+
+	private void addRun(final Version version, final int ari_bc, final int v_1_start, final int v_1_end) {
+		final Book book = version.getBook(Ari.toBook(ari_bc));
+		if (book == null) {
+			return;
+		}
+
+		final int chapter_1 = Ari.toChapter(ari_bc);
+		if (chapter_1 <= 0 || chapter_1 > book.chapter_count || chapter_1 > book.verse_counts.length) {
+			return;
+		}
+
+		final int first = Math.max(v_1_start, 1);
+		final int last = Math.min(v_1_end, book.verse_counts[chapter_1 - 1]);
+		if (last < first) {
+			return;
+		}
+
+		final int runIndex = runs.size() / 2;
+		if (runIndex == firstRows.length) {
+			firstRows = Arrays.copyOf(firstRows, runIndex << 1);
+		}
+		firstRows[runIndex] = count;
+		runs.add(Ari.encodeWithBc(ari_bc, first));
+		runs.add(last - first + 1);
+		count += last - first + 1;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public int getRunCount() {
+		return runs.size() / 2;
+	}
+
+	/**
+	 * @return the run that has the row at the position. The position must be between 0 and {@link #getCount()} exclusive.
+	 */
+	public int findRun(final int position) {
+		int low = 0;
+		int high = getRunCount() - 1;
+
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (firstRows[mid] <= position) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+
+		return low;
+	}
+
+	public int getRunFirstRow(final int run) {
+		return firstRows[run];
+	}
+
+	/**
+	 * @return the ari of the first verse of the run. The other verses of the run follow it in the same chapter.
+	 */
+	public int getRunAri(final int run) {
+		return runs.get(run * 2);
+	}
+
+	public int getRunVerseCount(final int run) {
+		return runs.get(run * 2 + 1);
+	}
+
+	/**
+	 * @return the ari of the verse at the row position.
+	 */
+	public int getAri(final int position) {
+		final int run = findRun(position);
+		return getRunAri(run) + position - firstRows[run];
+	}
+}
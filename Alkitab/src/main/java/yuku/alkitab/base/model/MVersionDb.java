@@ -3,6 +3,7 @@ package yuku.alkitab.base.model;
 import yuku.alkitab.base.S;
 import yuku.alkitab.base.storage.YesReaderFactory;
 import yuku.alkitab.base.util.AppLog;
+import yuku.alkitab.base.util.VersionRevIndex;
 import yuku.alkitab.io.BibleReader;
 import yuku.alkitab.model.Version;
 
@@ -79,11 +80,13 @@ public class MVersionDb extends MVersion {
 				return null;
 			}
 
-			final VersionImpl res = new VersionImpl(reader);
+			final VersionImpl res = new VersionImpl(reader, filename);
 
 			// put to cache
 			impl_cache.put(filename, new SoftReference<>(res));
 
+			VersionRevIndex.onVersionOpened(filename, res);
+
 			return res;
 		} else {
 			// clear from cache if any
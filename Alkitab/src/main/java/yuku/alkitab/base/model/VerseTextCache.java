@@ -0,0 +1,100 @@
+package yuku.alkitab.base.model;
+
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Texts of single verses, shared by all versions, so that lists that show the same verses again and again
+ * (marker lists while filtering and scrolling, the verse provider, xref previews) do not decode their chapters again.
+ *
+ * Entries are keyed by a version key (see {@link VersionImpl}) and the ari,
+ * and evicted in least-recently-used order when the total length of the texts exceeds {@link #getMaxChars()}.
+ */
+public class VerseTextCache {
+	public static final int DEFAULT_MAX_CHARS = 256 * 1024;
+
+	private static final VerseTextCache instance = new VerseTextCache(DEFAULT_MAX_CHARS);
+
+	public static VerseTextCache getInstance() {
+		return instance;
+	}
+
+	static class Key {
+		final String versionKey;
+		final int ari;
+
+		Key(final String versionKey, final int ari) {
+			this.versionKey = versionKey;
+			this.ari = ari;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+
+			final Key key = (Key) o;
+			return ari == key.ari && versionKey.equals(key.versionKey);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * versionKey.hashCode() + ari;
+		}
+	}
+
+	private final LinkedHashMap<Key, String> texts = new LinkedHashMap<>(256, 0.75f, true);
+	private int maxChars;
+	private int totalChars;
+
+	public VerseTextCache(final int maxChars) {
+		this.maxChars = maxChars;
+	}
+
+	/**
+	 * @return null if the verse is not cached
+	 */
+	@Nullable
+	public synchronized String get(final String versionKey, final int ari) {
+		return texts.get(new Key(versionKey, ari));
+	}
+
+	public synchronized void put(final String versionKey, final int ari, final String text) {
+		if (text.length() > maxChars) { // would evict everything else
+			return;
+		}
+
+		final String old = texts.put(new Key(versionKey, ari), text);
+		if (old != null) {
+			totalChars -= old.length();
+		}
+		totalChars += text.length();
+		trimTo(maxChars);
+	}
+
+	private void trimTo(final int chars) {
+		final Iterator<Map.Entry<Key, String>> it = texts.entrySet().iterator();
+		while (totalChars > chars && it.hasNext()) {
+			final String eldest = it.next().getValue();
+			it.remove();
+			totalChars -= eldest.length();
+		}
+	}
+
+	public synchronized void setMaxChars(final int maxChars) {
+		this.maxChars = maxChars;
+		trimTo(maxChars);
+	}
+
+	public synchronized int getMaxChars() {
+		return maxChars;
+	}
+
+	public synchronized void clear() {
+		texts.clear();
+		totalChars = 0;
+	}
+}
@@ -4,8 +4,12 @@ import androidx.annotation.Nullable;
 import yuku.alkitab.base.config.AppConfig;
 import yuku.alkitab.base.storage.InternalReader;
 import yuku.alkitab.base.storage.OldVerseTextDecoder;
+import yuku.alkitab.base.storage.YesReaderFactory;
 import yuku.alkitab.base.util.AppLog;
 import yuku.alkitab.io.BibleReader;
+import yuku.alkitab.io.LowercasedTextReader;
+import yuku.alkitab.io.SingleVerseReader;
+import yuku.alkitab.io.Utf8Search;
 import yuku.alkitab.model.Book;
 import yuku.alkitab.model.FootnoteEntry;
 import yuku.alkitab.model.PericopeBlock;
@@ -15,6 +19,9 @@ import yuku.alkitab.model.XrefEntry;
 import yuku.alkitab.util.Ari;
 import yuku.alkitab.util.IntArrayList;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -22,6 +29,9 @@ public class VersionImpl extends Version {
 	static final String TAG = VersionImpl.class.getSimpleName();
 
 	private BibleReader bibleReader;
+	@Nullable private final String yesFilename;
+	/** Identifies the contents of this version in {@link VerseTextCache}. */
+	private final String verseTextCacheKey;
 
 	private Book[] cache_books;
 	private Book[] cache_consecutiveBooks;
@@ -29,8 +39,60 @@ public class VersionImpl extends Version {
 	private static Version internalVersion;
 
 	public VersionImpl(BibleReader bibleReader) {
+		this(bibleReader, null);
+	}
+
+	/**
+	 * @param yesFilename the file the reader reads from, so that {@link #openAnother()} can open it again.
+	 */
+	public VersionImpl(BibleReader bibleReader, @Nullable String yesFilename) {
 		super();
 		this.bibleReader = bibleReader;
+		this.yesFilename = yesFilename;
+
+		if (yesFilename != null) {
+			// a file replaced under the same name must not get the verses of the old one
+			final File file = new File(yesFilename);
+			this.verseTextCacheKey = "file/" + file.getAbsolutePath() + "@" + file.length() + "@" + file.lastModified();
+		} else {
+			this.verseTextCacheKey = "reader/" + System.identityHashCode(bibleReader);
+		}
+	}
+
+	/**
+	 * Opens another instance of this version with its own file handle and decoder state.
+	 * All methods of this class lock the instance, so reading with several threads in parallel needs one instance per thread.
+	 * @return null if this version is not read from a yes file or the file cannot be opened again.
+	 */
+	@Nullable
+	public VersionImpl openAnother() {
+		if (yesFilename == null) return null;
+
+		final BibleReader reader = YesReaderFactory.createYesReader(yesFilename);
+		if (reader == null) return null;
+
+		return new VersionImpl(reader, yesFilename);
+	}
+
+	/**
+	 * @return identifies the file that {@link #openAnother()} opens, including its size and modification time,
+	 * or null if this version cannot be opened again.
+	 */
+	@Nullable public String getFileKey() {
+		return yesFilename == null ? null : verseTextCacheKey;
+	}
+
+	/**
+	 * Closes the file of a version opened with {@link #openAnother()}. The version must not be used afterwards.
+	 */
+	public synchronized void close() {
+		if (bibleReader instanceof Closeable) {
+			try {
+				((Closeable) bibleReader).close();
+			} catch (IOException e) {
+				AppLog.e(TAG, "@@close", e);
+			}
+		}
 	}
 
 	public static synchronized Version getInternalVersion() {
@@ -155,17 +217,89 @@ public class VersionImpl extends Version {
 		if (book == null) {
 			return null;
 		}
-		SingleChapterVerses verses = bibleReader.loadVerseText(book, chapter_1, false, false);
 
-		if (verses == null) {
-			return null;
+		final int ari = Ari.encode(book.bookId, chapter_1, verse_1);
+		final VerseTextCache cache = VerseTextCache.getInstance();
+		String res = cache.get(verseTextCacheKey, ari);
+		if (res != null) {
+			return res;
 		}
 
-		int verse_0 = verse_1 - 1;
-		if (verse_0 >= verses.getVerseCount()) {
-			return null;
+		if (bibleReader instanceof SingleVerseReader) {
+			res = ((SingleVerseReader) bibleReader).loadSingleVerseText(book, chapter_1, verse_1);
+		} else {
+			final SingleChapterVerses verses = bibleReader.loadVerseText(book, chapter_1, false, false);
+
+			final int verse_0 = verse_1 - 1;
+			if (verses == null || verse_0 < 0 || verse_0 >= verses.getVerseCount()) {
+				return null;
+			}
+			res = verses.getVerse(verse_0);
 		}
-		return verses.getVerse(verse_0);
+
+		if (res != null) {
+			cache.put(verseTextCacheKey, ari, res);
+		}
+		return res;
+	}
+
+	/**
+	 * The verses that are not cached are sorted by ari, so that every chapter is decoded only once,
+	 * and all the loaded verses are put to the {@link VerseTextCache}.
+	 */
+	@Override
+	public synchronized String[] loadVerseTexts(int[] aris) {
+		final String[] res = new String[aris.length];
+		final VerseTextCache cache = VerseTextCache.getInstance();
+
+		// ari in the upper 32 bits, index in the lower 32 bits, for the verses not in the cache
+		final long[] misses = new long[aris.length];
+		int missCount = 0;
+		for (int i = 0; i < aris.length; i++) {
+			final String text = cache.get(verseTextCacheKey, aris[i]);
+			if (text != null) {
+				res[i] = text;
+			} else {
+				misses[missCount++] = ((long) aris[i] << 32) | i;
+			}
+		}
+		Arrays.sort(misses, 0, missCount);
+
+		for (int start = 0; start < missCount; ) {
+			final int ari_bc = Ari.toBookChapter((int) (misses[start] >>> 32));
+			int end = start + 1;
+			while (end < missCount && Ari.toBookChapter((int) (misses[end] >>> 32)) == ari_bc) {
+				end++;
+			}
+
+			final Book book = getBook(Ari.toBook(ari_bc));
+			if (book != null) {
+				if (end - start == 1 && bibleReader instanceof SingleVerseReader) {
+					// a reader that can do this does not need to decode the whole chapter for one verse
+					final int ari = (int) (misses[start] >>> 32);
+					res[(int) misses[start]] = loadVerseText(book, Ari.toChapter(ari), Ari.toVerse(ari));
+				} else {
+					final SingleChapterVerses verses = bibleReader.loadVerseText(book, Ari.toChapter(ari_bc), false, false);
+					if (verses != null) {
+						for (int j = start; j < end; j++) {
+							final int ari = (int) (misses[j] >>> 32);
+							final int verse_0 = Ari.toVerse(ari) - 1;
+							if (verse_0 >= 0 && verse_0 < verses.getVerseCount()) {
+								final String text = verses.getVerse(verse_0);
+								if (text != null) {
+									res[(int) misses[j]] = text;
+									cache.put(verseTextCacheKey, ari, text);
+								}
+							}
+						}
+					}
+				}
+			}
+
+			start = end;
+		}
+
+		return res;
 	}
 
 	/**
@@ -181,6 +315,19 @@ public class VersionImpl extends Version {
 		result_aris.clear();
 		result_verses.clear();
 
+		{ // single verses, which is what xrefs mostly have, are loaded in one batch into the cache first
+			final IntArrayList singleAris = new IntArrayList();
+			for (int i = 0, len = ariRanges.size(); i < len; i+=2) {
+				final int ari_start = ariRanges.get(i);
+				if (ari_start != 0 && ari_start == ariRanges.get(i + 1) && Ari.toVerse(ari_start) != 0) {
+					singleAris.add(ari_start);
+				}
+			}
+			if (singleAris.size() > 1) {
+				loadVerseTexts(singleAris.toArray());
+			}
+		}
+
 		for (int i = 0, len = ariRanges.size(); i < len; i+=2) {
 			int ari_start = ariRanges.get(i);
 			int ari_end = ariRanges.get(i + 1);
@@ -322,6 +469,18 @@ public class VersionImpl extends Version {
 		return singleVerse.getVerse(0);
 	}
 
+	/**
+	 * Like {@link #loadChapterTextLowercasedWithoutSplit(Book, int)}, but gives the text as UTF-8 bytes without creating Strings.
+	 * @return false if the chapter is not available or the reader cannot do this; use {@link #loadChapterTextLowercasedWithoutSplit(Book, int)} then.
+	 */
+	public synchronized boolean loadChapterTextLowercasedBytes(Book book, int chapter_1, Utf8Search.Text out) {
+		if (book == null || !(bibleReader instanceof LowercasedTextReader)) {
+			return false;
+		}
+
+		return ((LowercasedTextReader) bibleReader).loadLowercasedText(book, chapter_1, out);
+	}
+
 	/**
 	 * @param arif 24bit ari at the MSB + which xref field at the 8bit LSB (starts from 1)
 	 */
@@ -7,19 +7,27 @@ import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
 import android.os.Build;
+import android.os.SystemClock;
 import android.provider.BaseColumns;
 import android.util.Pair;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.google.gson.reflect.TypeToken;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import yuku.afw.storage.Preferences;
 import yuku.alkitab.base.App;
 import yuku.alkitab.base.ac.DevotionActivity;
@@ -38,8 +46,8 @@ import yuku.alkitab.base.model.ReadingPlan;
 import yuku.alkitab.base.model.SyncLog;
 import yuku.alkitab.base.model.SyncShadow;
 import yuku.alkitab.base.sync.Sync;
-import yuku.alkitab.base.sync.SyncAdapter;
 import yuku.alkitab.base.sync.SyncRecorder;
+import yuku.alkitab.base.sync.SyncUtils;
 import yuku.alkitab.base.sync.Sync_Mabel;
 import yuku.alkitab.base.sync.Sync_Pins;
 import yuku.alkitab.base.sync.Sync_Rp;
@@ -166,6 +174,7 @@ public class InternalDb {
 		} else {
 			marker._id = db.insert(Db.TABLE_Marker, null, markerToContentValues(marker));
 		}
+		markersChanged();
 		Sync.notifySyncNeeded(SyncShadow.SYNC_SET_MABEL);
 	}
 
@@ -174,6 +183,7 @@ public class InternalDb {
 		final SQLiteDatabase db = helper.getWritableDatabase();
 
 		res._id = db.insert(Db.TABLE_Marker, null, markerToContentValues(res));
+		markersChanged();
 		Sync.notifySyncNeeded(SyncShadow.SYNC_SET_MABEL);
 
 		return res;
@@ -182,6 +192,7 @@ public class InternalDb {
 	/** Used in migration from v3 */
 	public static long insertMarker(final SQLiteDatabase db, final Marker marker) {
 		marker._id = db.insert(Db.TABLE_Marker, null, markerToContentValues(marker));
+		markersChanged();
 		Sync.notifySyncNeeded(SyncShadow.SYNC_SET_MABEL);
 
 		return marker._id;
@@ -199,12 +210,14 @@ public class InternalDb {
 		} finally {
 			db.endTransaction();
 		}
+		markersChanged();
 		Sync.notifySyncNeeded(SyncShadow.SYNC_SET_MABEL);
 	}
 
 	public void deleteNonBookmarkMarkerById(long _id) {
 		SQLiteDatabase db = helper.getWritableDatabase();
 		db.delete(Db.TABLE_Marker, "_id=?", new String[]{String.valueOf(_id)});
+		markersChanged();
 		Sync.notifySyncNeeded(SyncShadow.SYNC_SET_MABEL);
 	}
 
@@ -247,75 +260,111 @@ public class InternalDb {
 		return res;
 	}
 
-	private SQLiteStatement stmt_countMarkersForBookChapter = null;
+	private static final AtomicInteger markerGeneration = new AtomicInteger();
 
 	/**
-	 * TODO this is only called together with {@link #putAttributes(int, int[], int[], Highlights.Info[])}, make it private.
+	 * Incremented on every change to the markers or progress marks,
+	 * so that anything derived from them can tell whether it is still current.
 	 */
-	public int countMarkersForBookChapter(int ari_bookchapter) {
-		final int ariMin = ari_bookchapter & 0x00ffff00;
-		final int ariMax = ari_bookchapter | 0x000000ff;
+	public static int getMarkerGeneration() {
+		return markerGeneration.get();
+	}
+
+	public static void markersChanged() {
+		markerGeneration.incrementAndGet();
+	}
 
-		if (stmt_countMarkersForBookChapter == null) {
-			stmt_countMarkersForBookChapter = helper.getReadableDatabase().compileStatement("select count(*) from " + Db.TABLE_Marker + " where " + Db.Marker.ari + ">=? and " + Db.Marker.ari + "<?");
+	/**
+	 * Markers and progress marks of one book, in the form needed to show the verse attributes of its chapters.
+	 */
+	public static class BookAttributes {
+		public static class Row {
+			public final int ari;
+			public final int kind;
+			public final int verseCount;
+			/** Only for highlights. Shared between rows with the same caption; must not be modified. */
+			public final Highlights.Info highlightInfo;
+
+			Row(final int ari, final int kind, final int verseCount, final Highlights.Info highlightInfo) {
+				this.ari = ari;
+				this.kind = kind;
+				this.verseCount = verseCount;
+				this.highlightInfo = highlightInfo;
+			}
 		}
 
-		stmt_countMarkersForBookChapter.bindLong(1, ariMin);
-		stmt_countMarkersForBookChapter.bindLong(2, ariMax);
+		/** Value of {@link #getMarkerGeneration()} before the rows were read. */
+		public final int generation;
 
-		return (int) stmt_countMarkersForBookChapter.simpleQueryForLong();
-	}
+		/** Marker rows grouped by chapter (index is chapter_1), each in modifyTime order. Null for chapters without markers. */
+		public final Row[][] markersByChapter = new Row[256][];
 
+		/** Aris and preset ids of the progress marks in this book. */
+		public final IntArrayList progressMarkAris = new IntArrayList();
+		public final IntArrayList progressMarkPresetIds = new IntArrayList();
+
+		BookAttributes(final int generation) {
+			this.generation = generation;
+		}
+	}
 
 	/**
-	 * Put attributes (bookmark count, note count, and highlight color) for each verse.
+	 * Reads the markers and progress marks of a book with one indexed query each.
+	 * Each highlight caption is decoded once, however many verses and rows it covers.
 	 */
-	public void putAttributes(final int ari_bookchapter, final int[] bookmarkCountMap, final int[] noteCountMap, final Highlights.Info[] highlightColorMap) {
-		final int ariMin = ari_bookchapter & 0x00ffff00;
-		final int ariMax = ari_bookchapter | 0x000000ff;
+	public BookAttributes getBookAttributes(final int bookId) {
+		final BookAttributes res = new BookAttributes(getMarkerGeneration());
 
-		final String[] params = {
-			String.valueOf(ariMin),
-			String.valueOf(ariMax),
-		};
+		final int ariMin = bookId << 16;
+		final int ariMax = (bookId + 1) << 16;
+		final String[] params = ToStringArray(ariMin, ariMax);
+		final SQLiteDatabase db = helper.getReadableDatabase();
 
-		// order by modifyTime, so in case a verse has more than one highlight, the latest one is shown
-		try (Cursor cursor = helper.getReadableDatabase().rawQuery("select * from " + Db.TABLE_Marker + " where " + Db.Marker.ari + ">=? and " + Db.Marker.ari + "<? order by " + Db.Marker.modifyTime, params)) {
-			final int col_kind = cursor.getColumnIndexOrThrow(Db.Marker.kind);
-			final int col_ari = cursor.getColumnIndexOrThrow(Db.Marker.ari);
-			final int col_caption = cursor.getColumnIndexOrThrow(Db.Marker.caption);
-			final int col_verseCount = cursor.getColumnIndexOrThrow(Db.Marker.verseCount);
+		final List<List<BookAttributes.Row>> rows = new ArrayList<>(Collections.nCopies(256, null));
+		final Map<String, Highlights.Info> decoded = new HashMap<>();
 
+		// order by modifyTime, so in case a verse has more than one highlight, the latest one is shown
+		try (Cursor cursor = db.rawQuery("select " + Db.Marker.ari + ", " + Db.Marker.kind + ", " + Db.Marker.verseCount + ", " + Db.Marker.caption + " from " + Db.TABLE_Marker + " where " + Db.Marker.ari + ">=? and " + Db.Marker.ari + "<? order by " + Db.Marker.modifyTime, params)) {
 			while (cursor.moveToNext()) {
-				final int ari = cursor.getInt(col_ari);
-				final int kind = cursor.getInt(col_kind);
-
-				int mapOffset = Ari.toVerse(ari) - 1;
-				if (mapOffset >= bookmarkCountMap.length) {
-					AppLog.e(TAG, "mapOffset too many " + mapOffset + " happens on ari 0x" + Integer.toHexString(ari));
-					continue;
+				final int ari = cursor.getInt(0);
+				final int kind = cursor.getInt(1);
+
+				Highlights.Info info = null;
+				if (kind == Marker.Kind.highlight.code) {
+					final String caption = cursor.getString(3);
+					if (decoded.containsKey(caption)) {
+						info = decoded.get(caption);
+					} else {
+						info = Highlights.decode(caption);
+						decoded.put(caption, info);
+					}
 				}
 
-				if (kind == Marker.Kind.bookmark.code) {
-					bookmarkCountMap[mapOffset] += 1;
-				} else if (kind == Marker.Kind.note.code) {
-					noteCountMap[mapOffset] += 1;
-				} else if (kind == Marker.Kind.highlight.code) {
-					// traverse as far as verseCount
-					final int verseCount = cursor.getInt(col_verseCount);
-
-					for (int i = 0; i < verseCount; i++) {
-						int mapOffset2 = mapOffset + i;
-						if (mapOffset2 >= highlightColorMap.length) break; // do not go past number of verses in this chapter
+				final int chapter_1 = Ari.toChapter(ari);
+				List<BookAttributes.Row> chapterRows = rows.get(chapter_1);
+				if (chapterRows == null) {
+					chapterRows = new ArrayList<>();
+					rows.set(chapter_1, chapterRows);
+				}
+				chapterRows.add(new BookAttributes.Row(ari, kind, cursor.getInt(2), info));
+			}
+		}
 
-						final String caption = cursor.getString(col_caption);
-						final Highlights.Info info = Highlights.decode(caption);
+		for (int i = 0; i < 256; i++) {
+			final List<BookAttributes.Row> chapterRows = rows.get(i);
+			if (chapterRows != null) {
+				res.markersByChapter[i] = chapterRows.toArray(new BookAttributes.Row[0]);
+			}
+		}
 
-						highlightColorMap[mapOffset2] = info;
-					}
-				}
+		try (Cursor cursor = db.rawQuery("select " + Db.ProgressMark.ari + ", " + Db.ProgressMark.preset_id + " from " + Db.TABLE_ProgressMark + " where " + Db.ProgressMark.ari + ">=? and " + Db.ProgressMark.ari + "<?", params)) {
+			while (cursor.moveToNext()) {
+				res.progressMarkAris.add(cursor.getInt(0));
+				res.progressMarkPresetIds.add(cursor.getInt(1));
 			}
 		}
+
+		return res;
 	}
 
 	/**
@@ -354,6 +403,7 @@ public class InternalDb {
 			db.endTransaction();
 		}
 
+		markersChanged();
 		Sync.notifySyncNeeded(SyncShadow.SYNC_SET_MABEL);
 	}
 
@@ -405,6 +455,7 @@ public class InternalDb {
 			db.endTransaction();
 		}
 
+		markersChanged();
 		Sync.notifySyncNeeded(SyncShadow.SYNC_SET_MABEL);
 	}
 
@@ -1082,6 +1133,7 @@ public class InternalDb {
 			db.endTransaction();
 		}
 
+		markersChanged();
 		Sync.notifySyncNeeded(SyncShadow.SYNC_SET_PINS);
 	}
 
@@ -1424,7 +1476,394 @@ public class InternalDb {
 
 	public void deleteSyncShadowBySyncSetName(final String syncSetName) {
 		final SQLiteDatabase db = helper.getWritableDatabase();
-		db.delete(Table.SyncShadow.tableName(), Table.SyncShadow.syncSetName + "=?", Array(syncSetName));
+		db.beginTransactionNonExclusive();
+		try {
+			db.delete(Table.SyncShadow.tableName(), Table.SyncShadow.syncSetName + "=?", Array(syncSetName));
+			db.delete(Table.SyncShadowEntity.tableName(), Table.SyncShadowEntity.syncSetName + "=?", Array(syncSetName));
+			db.delete(Table.SyncJournal.tableName(), Table.SyncJournal.syncSetName + "=?", Array(syncSetName));
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	/**
+	 * Lists the entities of a sync shadow, which are stored one row each.
+	 * A shadow stored as one json blob in {@link Table.SyncShadow#data} (before the entity rows existed)
+	 * is converted to rows first.
+	 * @return null if there is no shadow for the sync set.
+	 */
+	@Nullable public <C> List<Sync.Entity<C>> listSyncShadowEntities(@NonNull final String syncSetName, @NonNull final Class<C> contentClass) {
+		final SQLiteDatabase db = helper.getWritableDatabase();
+		db.beginTransactionNonExclusive();
+		try {
+			final boolean hasBlob;
+			try (Cursor c = db.rawQuery("select " + Table.SyncShadow.data + " is not null from " + Table.SyncShadow.tableName() + " where " + Table.SyncShadow.syncSetName + "=?", Array(syncSetName))) {
+				if (!c.moveToNext()) {
+					return null;
+				}
+				hasBlob = c.getInt(0) != 0;
+			}
+
+			if (hasBlob) {
+				convertSyncShadowBlobToEntities(syncSetName, contentClass);
+			}
+
+			final List<Sync.Entity<C>> res = new ArrayList<>();
+			try (Cursor c = db.query(Table.SyncShadowEntity.tableName(), Array(
+				Table.SyncShadowEntity.kind.name(),
+				Table.SyncShadowEntity.gid.name(),
+				Table.SyncShadowEntity.content.name()
+			), Table.SyncShadowEntity.syncSetName + "=?", Array(syncSetName), null, null, null)) {
+				while (c.moveToNext()) {
+					res.add(new Sync.Entity<>(c.getString(0), c.getString(1), App.getDefaultGson().fromJson(c.getString(2), contentClass)));
+				}
+			}
+
+			db.setTransactionSuccessful();
+			return res;
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	private <C> void convertSyncShadowBlobToEntities(@NonNull final String syncSetName, @NonNull final Class<C> contentClass) {
+		final SyncShadow ss = getSyncShadowBySyncSetName(syncSetName);
+		if (ss == null) return;
+
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(ss.data), Charset.forName("utf-8")));
+		final Sync.SyncShadowDataJson<C> data = App.getDefaultGson().fromJson(reader, TypeToken.getParameterized(Sync.SyncShadowDataJson.class, contentClass).getType());
+		final List<Sync.Entity<C>> entities = data == null || data.entities == null ? Collections.emptyList() : data.entities;
+
+		AppLog.d(TAG, "Converting sync shadow " + syncSetName + " of " + ss.data.length + " bytes to " + entities.size() + " entity rows");
+		replaceSyncShadowEntities(syncSetName, entities, ss.revno);
+	}
+
+	/**
+	 * Patches the entities of a sync shadow with operations, one row for each operation.
+	 * Add and mod overwrite without merge, del deletes. Call {@link #setSyncShadowRevno(String, int)} afterwards.
+	 * @param operations in temporal order (old first then new)
+	 */
+	public <C> void patchSyncShadowEntities(@NonNull final String syncSetName, @NonNull final List<Sync.Operation<C>> operations) {
+		final SQLiteDatabase db = helper.getWritableDatabase();
+		db.beginTransactionNonExclusive();
+		try (SQLiteStatement upsert = compileSyncShadowEntityUpsert(db); SQLiteStatement delete = compileSyncShadowEntityDelete(db)) {
+			for (final Sync.Operation<C> o : operations) {
+				switch (o.opkind) {
+					case del:
+						delete.bindString(1, syncSetName);
+						delete.bindString(2, o.kind);
+						delete.bindString(3, o.gid);
+						delete.executeUpdateDelete();
+						break;
+					case add:
+					case mod:
+						final String json = App.getDefaultGson().toJson(o.content);
+						bindSyncShadowEntityUpsert(upsert, syncSetName, o.kind, o.gid, json);
+						upsert.executeInsert();
+						break;
+				}
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	/**
+	 * Makes the entities of a sync shadow the same as the given ones, and sets the revno.
+	 * Only the rows whose content has changed are written.
+	 */
+	public <C> void replaceSyncShadowEntities(@NonNull final String syncSetName, @NonNull final List<Sync.Entity<C>> entities, final int revno) {
+		final SQLiteDatabase db = helper.getWritableDatabase();
+		db.beginTransactionNonExclusive();
+		try (SQLiteStatement upsert = compileSyncShadowEntityUpsert(db); SQLiteStatement delete = compileSyncShadowEntityDelete(db)) {
+			// (kind, gid) to content hash of the rows that are there now
+			final Map<Pair<String, String>, Long> existing = new HashMap<>();
+			try (Cursor c = db.query(Table.SyncShadowEntity.tableName(), Array(
+				Table.SyncShadowEntity.kind.name(),
+				Table.SyncShadowEntity.gid.name(),
+				Table.SyncShadowEntity.contentHash.name()
+			), Table.SyncShadowEntity.syncSetName + "=?", Array(syncSetName), null, null, null)) {
+				while (c.moveToNext()) {
+					existing.put(Pair.create(c.getString(0), c.getString(1)), c.getLong(2));
+				}
+			}
+
+			for (final Sync.Entity<C> entity : entities) {
+				final String json = App.getDefaultGson().toJson(entity.content);
+				final Long hash = existing.remove(Pair.create(entity.kind, entity.gid));
+				if (hash == null || hash != syncShadowContentHash(json)) {
+					bindSyncShadowEntityUpsert(upsert, syncSetName, entity.kind, entity.gid, json);
+					upsert.executeInsert();
+				}
+			}
+
+			// what is left is not in the entities anymore
+			for (final Pair<String, String> key : existing.keySet()) {
+				delete.bindString(1, syncSetName);
+				delete.bindString(2, key.first);
+				delete.bindString(3, key.second);
+				delete.executeUpdateDelete();
+			}
+
+			setSyncShadowRevno(syncSetName, revno);
+
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	/**
+	 * Creates the sync shadow if it does not exist yet, and sets its revno.
+	 */
+	public void setSyncShadowRevno(@NonNull final String syncSetName, final int revno) {
+		final SyncShadow ss = new SyncShadow();
+		ss.syncSetName = syncSetName;
+		ss.revno = revno;
+		ss.data = null; // the entities are in their own rows
+		insertOrUpdateSyncShadowBySyncSetName(ss);
+	}
+
+	private static SQLiteStatement compileSyncShadowEntityUpsert(final SQLiteDatabase db) {
+		return db.compileStatement("insert or replace into " + Table.SyncShadowEntity.tableName() + " ("
+			+ Table.SyncShadowEntity.syncSetName + ", "
+			+ Table.SyncShadowEntity.kind + ", "
+			+ Table.SyncShadowEntity.gid + ", "
+			+ Table.SyncShadowEntity.contentHash + ", "
+			+ Table.SyncShadowEntity.content
+			+ ") values (?, ?, ?, ?, ?)");
+	}
+
+	private static void bindSyncShadowEntityUpsert(final SQLiteStatement upsert, final String syncSetName, final String kind, final String gid, final String json) {
+		upsert.bindString(1, syncSetName);
+		upsert.bindString(2, kind);
+		upsert.bindString(3, gid);
+		upsert.bindLong(4, syncShadowContentHash(json));
+		upsert.bindString(5, json);
+	}
+
+	private static SQLiteStatement compileSyncShadowEntityDelete(final SQLiteDatabase db) {
+		return db.compileStatement("delete from " + Table.SyncShadowEntity.tableName() + " where "
+			+ Table.SyncShadowEntity.syncSetName + "=? and "
+			+ Table.SyncShadowEntity.kind + "=? and "
+			+ Table.SyncShadowEntity.gid + "=?");
+	}
+
+	/**
+	 * @return null if the shadow has no such entity.
+	 */
+	@Nullable private <C> Sync.Entity<C> getSyncShadowEntity(@NonNull final String syncSetName, @NonNull final String kind, @NonNull final String gid, @NonNull final Class<C> contentClass) {
+		try (Cursor c = helper.getReadableDatabase().query(Table.SyncShadowEntity.tableName(), Array(
+			Table.SyncShadowEntity.content.name()
+		), Table.SyncShadowEntity.syncSetName + "=? and " + Table.SyncShadowEntity.kind + "=? and " + Table.SyncShadowEntity.gid + "=?", Array(syncSetName, kind, gid), null, null, null)) {
+			if (c.moveToNext()) {
+				return new Sync.Entity<>(kind, gid, App.getDefaultGson().fromJson(c.getString(0), contentClass));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Makes the client state of a sync set: the revno of the shadow and the delta from the shadow to the current entities.
+	 * When the shadow is journaled, only the entities in the {@link Table.SyncJournal} are compared with the shadow.
+	 * Otherwise all of them are, and the shadow is journaled from then on.
+	 */
+	@NonNull public <C> Sync.GetClientStateResult<C> getSyncClientState(@NonNull final String syncSetName, @NonNull final Class<C> contentClass, @NonNull final Sync.CurrentEntities<C> current) {
+		final SQLiteDatabase db = helper.getWritableDatabase();
+		// nothing can be journaled between reading the entities and getting the sequence number
+		db.beginTransactionNonExclusive();
+		try {
+			final int revno = getRevnoFromSyncShadowBySyncSetName(syncSetName);
+			final Sync.Delta<C> delta;
+
+			if (isSyncShadowJournaled(syncSetName)) {
+				delta = new Sync.Delta<>();
+				final List<Sync.Operation<C>> dels = new ArrayList<>();
+
+				try (Cursor c = db.query(Table.SyncJournal.tableName(), Array(
+					Table.SyncJournal.kind.name(),
+					Table.SyncJournal.gid.name()
+				), Table.SyncJournal.syncSetName + "=?", Array(syncSetName), null, null, "_id")) {
+					while (c.moveToNext()) {
+						final String kind = c.getString(0);
+						final String gid = c.getString(1);
+						final Sync.Entity<C> shadow = getSyncShadowEntity(syncSetName, kind, gid, contentClass);
+						final Sync.Entity<C> entity = current.get(kind, gid);
+
+						// additions and modifications first, then deletions, like SyncUtils.computeDelta
+						if (entity == null) {
+							if (shadow != null) {
+								dels.add(new Sync.Operation<>(Sync.Opkind.del, kind, gid, null));
+							}
+						} else if (shadow == null) {
+							delta.operations.add(new Sync.Operation<>(Sync.Opkind.add, kind, gid, entity.content));
+						} else if (!SyncUtils.isSameContent(entity, shadow)) {
+							delta.operations.add(new Sync.Operation<>(Sync.Opkind.mod, kind, gid, entity.content));
+						}
+					}
+				}
+
+				delta.operations.addAll(dels);
+			} else {
+				final List<Sync.Entity<C>> shadowEntities = listSyncShadowEntities(syncSetName, contentClass);
+				delta = SyncUtils.computeDelta(shadowEntities == null ? Collections.<Sync.Entity<C>>emptyList() : shadowEntities, current.listAll());
+				startSyncJournal(syncSetName, delta.operations);
+			}
+
+			final long journalSeq = getSyncJournalLatestSeq(syncSetName);
+
+			db.setTransactionSuccessful();
+			return new Sync.GetClientStateResult<>(new Sync.ClientState<>(revno, delta), journalSeq);
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	private boolean isSyncShadowJournaled(@NonNull final String syncSetName) {
+		return DatabaseUtils.queryNumEntries(helper.getReadableDatabase(), Table.SyncShadow.tableName(), Table.SyncShadow.syncSetName + "=? and " + Table.SyncShadow.journaled + "=1", Array(syncSetName)) > 0;
+	}
+
+	/**
+	 * Fills the journal with the entities that differ from the shadow, and marks the shadow as journaled,
+	 * so that the triggers and {@link #insertSyncJournal(String, String, Collection)} record the next changes.
+	 */
+	private <C> void startSyncJournal(@NonNull final String syncSetName, @NonNull final List<Sync.Operation<C>> operations) {
+		final SQLiteDatabase db = helper.getWritableDatabase();
+		db.beginTransactionNonExclusive();
+		try (SQLiteStatement insert = compileSyncJournalInsert(db)) {
+			db.delete(Table.SyncJournal.tableName(), Table.SyncJournal.syncSetName + "=?", Array(syncSetName));
+
+			for (final Sync.Operation<C> o : operations) {
+				insert.bindString(1, syncSetName);
+				insert.bindString(2, o.kind);
+				insert.bindString(3, o.gid);
+				insert.executeInsert();
+			}
+
+			// an empty shadow with revno 0 is the same as no shadow
+			if (DatabaseUtils.queryNumEntries(db, Table.SyncShadow.tableName(), Table.SyncShadow.syncSetName + "=?", Array(syncSetName)) == 0) {
+				setSyncShadowRevno(syncSetName, 0);
+			}
+
+			final ContentValues cv = new ContentValues();
+			cv.put(Table.SyncShadow.journaled.name(), 1);
+			db.update(Table.SyncShadow.tableName(), cv, Table.SyncShadow.syncSetName + "=?", Array(syncSetName));
+
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	private static SQLiteStatement compileSyncJournalInsert(final SQLiteDatabase db) {
+		return db.compileStatement("insert or replace into " + Table.SyncJournal.tableName() + " ("
+			+ Table.SyncJournal.syncSetName + ", "
+			+ Table.SyncJournal.kind + ", "
+			+ Table.SyncJournal.gid
+			+ ") values (?, ?, ?)");
+	}
+
+	/**
+	 * Records that entities have changed, for entities that are not stored in the tables with journal triggers.
+	 * Nothing is written if the shadow of the sync set is not journaled.
+	 */
+	public void insertSyncJournal(@NonNull final String syncSetName, @NonNull final String kind, @NonNull final Collection<String> gids) {
+		if (gids.isEmpty()) {
+			return;
+		}
+
+		final SQLiteDatabase db = helper.getWritableDatabase();
+		db.beginTransactionNonExclusive();
+		try {
+			if (!isSyncShadowJournaled(syncSetName)) {
+				return;
+			}
+
+			try (SQLiteStatement insert = compileSyncJournalInsert(db)) {
+				for (final String gid : gids) {
+					insert.bindString(1, syncSetName);
+					insert.bindString(2, kind);
+					insert.bindString(3, gid);
+					insert.executeInsert();
+				}
+			}
+
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	/**
+	 * @return the sequence number of the latest change in the journal of a sync set, or 0 if there is none.
+	 */
+	public long getSyncJournalLatestSeq(@NonNull final String syncSetName) {
+		try (Cursor c = helper.getReadableDatabase().rawQuery("select max(_id) from " + Table.SyncJournal.tableName() + " where " + Table.SyncJournal.syncSetName + "=?", Array(syncSetName))) {
+			if (c.moveToNext()) {
+				return c.getLong(0); // 0 for null
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return true if any entity of the sync set has changed after the journal had the given sequence number.
+	 */
+	public boolean hasSyncJournalChangesAfter(@NonNull final String syncSetName, final long journalSeq) {
+		return DatabaseUtils.queryNumEntries(helper.getReadableDatabase(), Table.SyncJournal.tableName(), Table.SyncJournal.syncSetName + "=? and _id>?", ToStringArray(syncSetName, journalSeq)) > 0;
+	}
+
+	/**
+	 * Removes the entities that are the same as in the shadow from the journal of a sync set.
+	 * Call after the shadow has been updated. Entities that were not sent (partial sync) or
+	 * that have changed again stay in the journal.
+	 */
+	public <C> void cleanUpSyncJournal(@NonNull final String syncSetName, @NonNull final Class<C> contentClass, @NonNull final Sync.CurrentEntities<C> current) {
+		final SQLiteDatabase db = helper.getWritableDatabase();
+		db.beginTransactionNonExclusive();
+		try (SQLiteStatement delete = db.compileStatement("delete from " + Table.SyncJournal.tableName() + " where _id=?")) {
+			// not deleted while the cursor is open, so that no row is skipped
+			final List<Long> ids = new ArrayList<>();
+			try (Cursor c = db.query(Table.SyncJournal.tableName(), Array(
+				"_id",
+				Table.SyncJournal.kind.name(),
+				Table.SyncJournal.gid.name()
+			), Table.SyncJournal.syncSetName + "=?", Array(syncSetName), null, null, null)) {
+				while (c.moveToNext()) {
+					final String kind = c.getString(1);
+					final String gid = c.getString(2);
+					final Sync.Entity<C> shadow = getSyncShadowEntity(syncSetName, kind, gid, contentClass);
+					final Sync.Entity<C> entity = current.get(kind, gid);
+
+					if (entity == null ? shadow == null : shadow != null && SyncUtils.isSameContent(entity, shadow)) {
+						ids.add(c.getLong(0));
+					}
+				}
+			}
+
+			for (final long id : ids) {
+				delete.bindLong(1, id);
+				delete.executeUpdateDelete();
+			}
+
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	/**
+	 * 64-bit FNV-1a of the json of an entity content, so that unchanged entities can be found without comparing their contents.
+	 */
+	public static long syncShadowContentHash(@NonNull final String json) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0, len = json.length(); i < len; i++) {
+			h ^= json.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
 	}
 
 	/**
@@ -1432,14 +1871,13 @@ public class InternalDb {
 	 * Also updates the shadow (both data and the revno).
 	 * @return {@link yuku.alkitab.base.sync.Sync.ApplyAppendDeltaResult#ok} if database and sync shadow are updated. Otherwise else.
 	 */
-	@NonNull public Sync.ApplyAppendDeltaResult applyMabelAppendDelta(final int final_revno, final List<Sync.Entity<Sync_Mabel.Content>> shadowEntities, final Sync.ClientState<Sync_Mabel.Content> clientState, @NonNull final Sync.Delta<Sync_Mabel.Content> append_delta, @NonNull final List<Sync.Entity<Sync_Mabel.Content>> entitiesBeforeSync, @NonNull final String simpleTokenBeforeSync) {
+	@NonNull public Sync.ApplyAppendDeltaResult applyMabelAppendDelta(final int final_revno, final Sync.ClientState<Sync_Mabel.Content> clientState, @NonNull final Sync.Delta<Sync_Mabel.Content> append_delta, final long journalSeqBeforeSync, @NonNull final String simpleTokenBeforeSync) {
 		final SQLiteDatabase db = helper.getWritableDatabase();
 		db.beginTransactionNonExclusive();
 		Sync.notifySyncUpdatesOngoing(SyncShadow.SYNC_SET_MABEL, true);
 		try {
-			{ // if the current entities are not the same as the ones had when contacting server, reject this append delta.
-				final List<Sync.Entity<Sync_Mabel.Content>> currentEntities = Sync_Mabel.getEntitiesFromCurrent();
-				if (!Sync.entitiesEqual(currentEntities, entitiesBeforeSync)) {
+			{ // if the current entities have changed since contacting server, reject this append delta.
+				if (hasSyncJournalChangesAfter(SyncShadow.SYNC_SET_MABEL, journalSeqBeforeSync)) {
 					return Sync.ApplyAppendDeltaResult.dirty_entities;
 				}
 			}
@@ -1452,56 +1890,18 @@ public class InternalDb {
 			}
 
 			// apply changes, which is server append delta, to current entities
-			for (final Sync.Operation<Sync_Mabel.Content> o : append_delta.operations) {
-				switch (o.opkind) {
-					case del:
-						switch (o.kind) {
-							case Sync.Entity.KIND_MARKER:
-								deleteMarkerByGid(o.gid);
-								break;
-							case Sync.Entity.KIND_LABEL:
-								deleteLabelByGid(o.gid);
-								break;
-							case Sync.Entity.KIND_MARKER_LABEL:
-								deleteMarker_LabelByGid(o.gid);
-								break;
-							default:
-								return Sync.ApplyAppendDeltaResult.unknown_kind;
-						}
-						break;
-					case add:
-					case mod:
-						switch (o.kind) {
-							case Sync.Entity.KIND_MARKER:
-								final Marker marker = getMarkerByGid(o.gid);
-								final Marker newMarker = Sync_Mabel.updateMarkerWithEntityContent(marker, o.gid, o.content);
-								insertOrUpdateMarker(newMarker);
-								break;
-							case Sync.Entity.KIND_LABEL:
-								final Label label = getLabelByGid(o.gid);
-								final Label newLabel = Sync_Mabel.updateLabelWithEntityContent(label, o.gid, o.content);
-								insertOrUpdateLabel(newLabel);
-								break;
-							case Sync.Entity.KIND_MARKER_LABEL:
-								final Marker_Label marker_label = getMarker_LabelByGid(o.gid);
-								final Marker_Label newMarker_label = Sync_Mabel.updateMarker_LabelWithEntityContent(marker_label, o.gid, o.content);
-								insertOrUpdateMarker_Label(newMarker_label);
-								break;
-							default:
-								return Sync.ApplyAppendDeltaResult.unknown_kind;
-						}
-						break;
-				}
+			if (!applyMabelOperations(append_delta.operations)) {
+				return Sync.ApplyAppendDeltaResult.unknown_kind;
 			}
 
 			// if we reach here, the current entities has been updated with the append delta.
 
-			// apply changes, which are client delta, and server append delta, to shadow entities
-			final List<Sync.Entity<Sync_Mabel.Content>> shadowEntitiesPatched1 = SyncAdapter.patchNoConflict(shadowEntities, clientState.delta.operations);
-			final List<Sync.Entity<Sync_Mabel.Content>> shadowEntitiesPatched2 = SyncAdapter.patchNoConflict(shadowEntitiesPatched1, append_delta.operations);
-
-			final SyncShadow ss = Sync_Mabel.shadowFromEntities(shadowEntitiesPatched2, final_revno);
-			insertOrUpdateSyncShadowBySyncSetName(ss);
+			// apply changes, which are client delta, and server append delta, to shadow entities.
+			// Only the rows of the entities in the operations are written.
+			patchSyncShadowEntities(SyncShadow.SYNC_SET_MABEL, clientState.delta.operations);
+			patchSyncShadowEntities(SyncShadow.SYNC_SET_MABEL, append_delta.operations);
+			setSyncShadowRevno(SyncShadow.SYNC_SET_MABEL, final_revno);
+			cleanUpSyncJournal(SyncShadow.SYNC_SET_MABEL, Sync_Mabel.Content.class, Sync_Mabel.currentEntities);
 
 			db.setTransactionSuccessful();
 
@@ -1509,6 +1909,188 @@ public class InternalDb {
 		} finally {
 			Sync.notifySyncUpdatesOngoing(SyncShadow.SYNC_SET_MABEL, false);
 			db.endTransaction();
+			markersChanged(); // again, for readers that read the old rows before the commit
+		}
+	}
+
+	/**
+	 * Number of operations between the {@link SyncRecorder.EventKind#apply_progress} events of {@link #applyMabelOperations(List)}.
+	 */
+	static final int APPLY_PROGRESS_INTERVAL = 10000;
+
+	/**
+	 * Applies operations of a mabel append delta to the markers, labels and marker-label associations,
+	 * in one transaction, with one compiled update, insert and delete statement for each kind.
+	 *
+	 * Since add and mod overwrite without merge and del deletes, only the last operation of each entity
+	 * decides what the row will be, so the operations are grouped by kind, keeping only the last one of each gid,
+	 * and each group is written in one go. An add or mod updates the row that has the gid (keeping its _id)
+	 * or inserts one if there is none, like {@link #insertOrUpdateMarker(Marker)} and friends.
+	 *
+	 * Progress is logged with {@link SyncRecorder} every {@link #APPLY_PROGRESS_INTERVAL} operations.
+	 * @param operations in temporal order (old first then new)
+	 * @return false if an operation has an unknown kind, in which case nothing is written.
+	 */
+	public boolean applyMabelOperations(@NonNull final List<Sync.Operation<Sync_Mabel.Content>> operations) {
+		// gid to the last operation, for each kind
+		final Map<String, Sync.Operation<Sync_Mabel.Content>> markerOps = new LinkedHashMap<>();
+		final Map<String, Sync.Operation<Sync_Mabel.Content>> labelOps = new LinkedHashMap<>();
+		final Map<String, Sync.Operation<Sync_Mabel.Content>> marker_labelOps = new LinkedHashMap<>();
+
+		for (final Sync.Operation<Sync_Mabel.Content> o : operations) {
+			switch (o.kind) {
+				case Sync.Entity.KIND_MARKER:
+					markerOps.put(o.gid, o);
+					break;
+				case Sync.Entity.KIND_LABEL:
+					labelOps.put(o.gid, o);
+					break;
+				case Sync.Entity.KIND_MARKER_LABEL:
+					marker_labelOps.put(o.gid, o);
+					break;
+				default:
+					return false;
+			}
+		}
+
+		final long startTime = SystemClock.elapsedRealtime();
+		final int total = markerOps.size() + labelOps.size() + marker_labelOps.size();
+		int written = 0;
+
+		final SQLiteDatabase db = helper.getWritableDatabase();
+		db.beginTransactionNonExclusive();
+		try {
+			try (SQLiteStatement update = db.compileStatement("update " + Db.TABLE_Marker + " set "
+				+ Db.Marker.ari + "=?, "
+				+ Db.Marker.kind + "=?, "
+				+ Db.Marker.caption + "=?, "
+				+ Db.Marker.verseCount + "=?, "
+				+ Db.Marker.createTime + "=?, "
+				+ Db.Marker.modifyTime + "=? where "
+				+ Db.Marker.gid + "=?");
+				SQLiteStatement insert = db.compileStatement("insert into " + Db.TABLE_Marker + " ("
+					+ Db.Marker.ari + ", "
+					+ Db.Marker.kind + ", "
+					+ Db.Marker.caption + ", "
+					+ Db.Marker.verseCount + ", "
+					+ Db.Marker.createTime + ", "
+					+ Db.Marker.modifyTime + ", "
+					+ Db.Marker.gid
+					+ ") values (?, ?, ?, ?, ?, ?, ?)")
+			) {
+				written += applyMabelOperationsOfKind(db, Db.TABLE_Marker, Db.Marker.gid, markerOps.values(), update, insert, (stmt, o) -> {
+					final Marker marker = Sync_Mabel.updateMarkerWithEntityContent(null, o.gid, o.content);
+					stmt.bindLong(1, marker.ari);
+					stmt.bindLong(2, marker.kind.code);
+					bindStringOrNull(stmt, 3, marker.caption);
+					stmt.bindLong(4, marker.verseCount);
+					stmt.bindLong(5, Sqlitil.toInt(marker.createTime));
+					stmt.bindLong(6, Sqlitil.toInt(marker.modifyTime));
+					stmt.bindString(7, marker.gid);
+				}, 0, total);
+			}
+
+			try (SQLiteStatement update = db.compileStatement("update " + Db.TABLE_Label + " set "
+				+ Db.Label.title + "=?, "
+				+ Db.Label.ordering + "=?, "
+				+ Db.Label.backgroundColor + "=? where "
+				+ Db.Label.gid + "=?");
+				SQLiteStatement insert = db.compileStatement("insert into " + Db.TABLE_Label + " ("
+					+ Db.Label.title + ", "
+					+ Db.Label.ordering + ", "
+					+ Db.Label.backgroundColor + ", "
+					+ Db.Label.gid
+					+ ") values (?, ?, ?, ?)")
+			) {
+				written += applyMabelOperationsOfKind(db, Db.TABLE_Label, Db.Label.gid, labelOps.values(), update, insert, (stmt, o) -> {
+					final Label label = Sync_Mabel.updateLabelWithEntityContent(null, o.gid, o.content);
+					bindStringOrNull(stmt, 1, label.title);
+					stmt.bindLong(2, label.ordering);
+					bindStringOrNull(stmt, 3, label.backgroundColor);
+					stmt.bindString(4, label.gid);
+				}, markerOps.size(), total);
+			}
+
+			try (SQLiteStatement update = db.compileStatement("update " + Db.TABLE_Marker_Label + " set "
+				+ Db.Marker_Label.marker_gid + "=?, "
+				+ Db.Marker_Label.label_gid + "=? where "
+				+ Db.Marker_Label.gid + "=?");
+				SQLiteStatement insert = db.compileStatement("insert into " + Db.TABLE_Marker_Label + " ("
+					+ Db.Marker_Label.marker_gid + ", "
+					+ Db.Marker_Label.label_gid + ", "
+					+ Db.Marker_Label.gid
+					+ ") values (?, ?, ?)")
+			) {
+				written += applyMabelOperationsOfKind(db, Db.TABLE_Marker_Label, Db.Marker_Label.gid, marker_labelOps.values(), update, insert, (stmt, o) -> {
+					final Marker_Label marker_label = Sync_Mabel.updateMarker_LabelWithEntityContent(null, o.gid, o.content);
+					bindStringOrNull(stmt, 1, marker_label.marker_gid);
+					bindStringOrNull(stmt, 2, marker_label.label_gid);
+					stmt.bindString(3, marker_label.gid);
+				}, markerOps.size() + labelOps.size(), total);
+			}
+
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+
+		SyncRecorder.log(SyncRecorder.EventKind.apply_progress, SyncShadow.SYNC_SET_MABEL, "operations", operations.size(), "applied", total, "total", total, "written", written, "elapsed_ms", SystemClock.elapsedRealtime() - startTime);
+
+		if (written > 0) {
+			markersChanged();
+			Sync.notifySyncNeeded(SyncShadow.SYNC_SET_MABEL);
+		}
+
+		return true;
+	}
+
+	interface MabelContentBinder {
+		/**
+		 * Binds the content and the gid of an add or mod operation to an update or insert statement, with the gid last.
+		 */
+		void bind(SQLiteStatement stmt, Sync.Operation<Sync_Mabel.Content> o);
+	}
+
+	/**
+	 * @param appliedBefore number of operations of the other kinds applied before these, for the progress events.
+	 * @return number of rows written.
+	 */
+	private static int applyMabelOperationsOfKind(final SQLiteDatabase db, final String table, final String gidColumn, final Collection<Sync.Operation<Sync_Mabel.Content>> operations, final SQLiteStatement update, final SQLiteStatement insert, final MabelContentBinder binder, final int appliedBefore, final int total) {
+		if (operations.isEmpty()) return 0;
+
+		int applied = appliedBefore;
+		int written = 0;
+		try (SQLiteStatement delete = db.compileStatement("delete from " + table + " where " + gidColumn + "=?")) {
+			for (final Sync.Operation<Sync_Mabel.Content> o : operations) {
+				switch (o.opkind) {
+					case del:
+						delete.bindString(1, o.gid);
+						written += delete.executeUpdateDelete();
+						break;
+					case add:
+					case mod:
+						binder.bind(update, o);
+						if (update.executeUpdateDelete() == 0) {
+							binder.bind(insert, o);
+							insert.executeInsert();
+						}
+						written++;
+						break;
+				}
+
+				if (++applied % APPLY_PROGRESS_INTERVAL == 0 && applied != total) {
+					SyncRecorder.log(SyncRecorder.EventKind.apply_progress, SyncShadow.SYNC_SET_MABEL, "table", table, "applied", applied, "total", total);
+				}
+			}
+		}
+		return written;
+	}
+
+	private static void bindStringOrNull(final SQLiteStatement stmt, final int index, @Nullable final String value) {
+		if (value == null) {
+			stmt.bindNull(index);
+		} else {
+			stmt.bindString(index, value);
 		}
 	}
 
@@ -1517,14 +2099,13 @@ public class InternalDb {
 	 * Also updates the shadow (both data and the revno).
 	 * @return {@link yuku.alkitab.base.sync.Sync.ApplyAppendDeltaResult#ok} if database and sync shadow are updated. Otherwise else.
 	 */
-	@NonNull public Sync.ApplyAppendDeltaResult applyPinsAppendDelta(final int final_revno, @NonNull final Sync.Delta<Sync_Pins.Content> append_delta, @NonNull final List<Sync.Entity<Sync_Pins.Content>> entitiesBeforeSync, @NonNull final String simpleTokenBeforeSync) {
+	@NonNull public Sync.ApplyAppendDeltaResult applyPinsAppendDelta(final int final_revno, @NonNull final Sync.Delta<Sync_Pins.Content> append_delta, final long journalSeqBeforeSync, @NonNull final String simpleTokenBeforeSync) {
 		final SQLiteDatabase db = helper.getWritableDatabase();
 		db.beginTransactionNonExclusive();
 		Sync.notifySyncUpdatesOngoing(SyncShadow.SYNC_SET_PINS, true);
 		try {
-			{ // if the current entities are not the same as the ones had when contacting server, reject this append delta.
-				final List<Sync.Entity<Sync_Pins.Content>> currentEntities = Sync_Pins.getEntitiesFromCurrent();
-				if (!Sync.entitiesEqual(currentEntities, entitiesBeforeSync)) {
+			{ // if the current entities have changed since contacting server, reject this append delta.
+				if (hasSyncJournalChangesAfter(SyncShadow.SYNC_SET_PINS, journalSeqBeforeSync)) {
 					return Sync.ApplyAppendDeltaResult.dirty_entities;
 				}
 			}
@@ -1570,8 +2151,8 @@ public class InternalDb {
 			}
 
 			// if we reach here, the local database has been updated with the append delta.
-			final SyncShadow ss = Sync_Pins.shadowFromEntities(Sync_Pins.getEntitiesFromCurrent(), final_revno);
-			insertOrUpdateSyncShadowBySyncSetName(ss);
+			replaceSyncShadowEntities(SyncShadow.SYNC_SET_PINS, Sync_Pins.getEntitiesFromCurrent(), final_revno);
+			cleanUpSyncJournal(SyncShadow.SYNC_SET_PINS, Sync_Pins.Content.class, Sync_Pins.currentEntities);
 
 			db.setTransactionSuccessful();
 
@@ -1579,6 +2160,7 @@ public class InternalDb {
 		} finally {
 			Sync.notifySyncUpdatesOngoing(SyncShadow.SYNC_SET_PINS, false);
 			db.endTransaction();
+			markersChanged(); // again, for readers that read the old rows before the commit
 		}
 	}
 
@@ -1587,14 +2169,13 @@ public class InternalDb {
 	 * Also updates the shadow (both data and the revno).
 	 * @return {@link yuku.alkitab.base.sync.Sync.ApplyAppendDeltaResult#ok} if database and sync shadow are updated. Otherwise else.
 	 */
-	@NonNull public Sync.ApplyAppendDeltaResult applyRpAppendDelta(final int final_revno, @NonNull final Sync.Delta<Sync_Rp.Content> append_delta, @NonNull final List<Sync.Entity<Sync_Rp.Content>> entitiesBeforeSync, @NonNull final String simpleTokenBeforeSync) {
+	@NonNull public Sync.ApplyAppendDeltaResult applyRpAppendDelta(final int final_revno, @NonNull final Sync.Delta<Sync_Rp.Content> append_delta, final long journalSeqBeforeSync, @NonNull final String simpleTokenBeforeSync) {
 		final SQLiteDatabase db = helper.getWritableDatabase();
 		db.beginTransactionNonExclusive();
 		Sync.notifySyncUpdatesOngoing(SyncShadow.SYNC_SET_RP, true);
 		try {
-			{ // if the current entities are not the same as the ones had when contacting server, reject this append delta.
-				final List<Sync.Entity<Sync_Rp.Content>> currentEntities = Sync_Rp.getEntitiesFromCurrent();
-				if (!Sync.entitiesEqual(currentEntities, entitiesBeforeSync)) {
+			{ // if the current entities have changed since contacting server, reject this append delta.
+				if (hasSyncJournalChangesAfter(SyncShadow.SYNC_SET_RP, journalSeqBeforeSync)) {
 					return Sync.ApplyAppendDeltaResult.dirty_entities;
 				}
 			}
@@ -1667,8 +2248,8 @@ public class InternalDb {
 			}
 
 			// if we reach here, the local database has been updated with the append delta.
-			final SyncShadow ss = Sync_Rp.shadowFromEntities(Sync_Rp.getEntitiesFromCurrent(), final_revno);
-			insertOrUpdateSyncShadowBySyncSetName(ss);
+			replaceSyncShadowEntities(SyncShadow.SYNC_SET_RP, Sync_Rp.getEntitiesFromCurrent(), final_revno);
+			cleanUpSyncJournal(SyncShadow.SYNC_SET_RP, Sync_Rp.Content.class, Sync_Rp.currentEntities);
 
 			db.setTransactionSuccessful();
 
@@ -1686,6 +2267,7 @@ public class InternalDb {
 	public boolean deleteMarkerByGid(final String gid) {
 		final boolean deleted = helper.getWritableDatabase().delete(Db.TABLE_Marker, Db.Marker.gid + "=?", Array(gid)) > 0;
 		if (deleted) {
+			markersChanged();
 			Sync.notifySyncNeeded(SyncShadow.SYNC_SET_MABEL);
 		}
 		return deleted;
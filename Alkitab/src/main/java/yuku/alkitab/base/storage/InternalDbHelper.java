@@ -3,6 +3,7 @@ package yuku.alkitab.base.storage;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.util.SparseArray;
@@ -14,6 +15,9 @@ import yuku.alkitab.base.config.VersionConfig;
 import yuku.alkitab.base.model.MVersionDb;
 import yuku.alkitab.base.model.MVersionPreset;
 import yuku.alkitab.base.model.ReadingPlan;
+import yuku.alkitab.base.model.SyncShadow;
+import yuku.alkitab.base.sync.Sync;
+import yuku.alkitab.base.sync.Sync_Pins;
 import yuku.alkitab.base.util.AddonManager;
 import yuku.alkitab.base.util.AppLog;
 import static yuku.alkitab.base.util.Literals.Array;
@@ -50,6 +54,11 @@ public class InternalDbHelper extends SQLiteOpenHelper {
 		createIndexVersion(db);
 		createTableSyncShadow(db);
 		createIndexSyncShadow(db);
+		createTableSyncShadowEntity(db);
+		createIndexSyncShadowEntity(db);
+		createTableSyncJournal(db);
+		createIndexSyncJournal(db);
+		createTriggersSyncJournal(db);
 		createTableSyncLog(db);
 		createIndexSyncLog(db);
 		createTablePerVersion(db);
@@ -177,6 +186,17 @@ public class InternalDbHelper extends SQLiteOpenHelper {
 			createTablePerVersion(db);
 			createIndexPerVersion(db);
 		}
+
+		// shadows with one row per entity. Existing shadows are converted when they are first read.
+		createTableSyncShadowEntity(db);
+		createIndexSyncShadowEntity(db);
+
+		// journal of changed entities, so that client deltas need not compare all entities with the shadow.
+		// Shadows without the journaled column are not journaled, so their first sync compares everything once.
+		addJournaledColumnToSyncShadowIfNeeded(db);
+		createTableSyncJournal(db);
+		createIndexSyncJournal(db);
+		createTriggersSyncJournal(db);
 	}
 
 	private void createTableMarker(SQLiteDatabase db) {
@@ -285,6 +305,81 @@ public class InternalDbHelper extends SQLiteOpenHelper {
 		db.execSQL("create index if not exists index_SyncShadow_01 on " + Table.SyncShadow.tableName() + " (" + Table.SyncShadow.syncSetName + ")");
 	}
 
+	void createTableSyncShadowEntity(final SQLiteDatabase db) {
+		final StringBuilder sb = new StringBuilder("create table if not exists " + Table.SyncShadowEntity.tableName() + " ( _id integer primary key ");
+		for (Table.SyncShadowEntity field: Table.SyncShadowEntity.values()) {
+			sb.append(',');
+			sb.append(field.name());
+			sb.append(' ');
+			sb.append(field.type.name());
+			if (field.suffix != null) {
+				sb.append(' ');
+				sb.append(field.suffix);
+			}
+		}
+		sb.append(")");
+		db.execSQL(sb.toString());
+	}
+
+	void createIndexSyncShadowEntity(final SQLiteDatabase db) {
+		// unique, so that entities can be written with "insert or replace"
+		db.execSQL("create unique index if not exists index_SyncShadowEntity_01 on " + Table.SyncShadowEntity.tableName() + " (" + Table.SyncShadowEntity.syncSetName + ", " + Table.SyncShadowEntity.kind + ", " + Table.SyncShadowEntity.gid + ")");
+	}
+
+	void createTableSyncJournal(final SQLiteDatabase db) {
+		// autoincrement, so that the _id (sequence number) of a new row is larger than any that has ever been used
+		final StringBuilder sb = new StringBuilder("create table if not exists " + Table.SyncJournal.tableName() + " ( _id integer primary key autoincrement ");
+		for (Table.SyncJournal field: Table.SyncJournal.values()) {
+			sb.append(',');
+			sb.append(field.name());
+			sb.append(' ');
+			sb.append(field.type.name());
+			if (field.suffix != null) {
+				sb.append(' ');
+				sb.append(field.suffix);
+			}
+		}
+		sb.append(")");
+		db.execSQL(sb.toString());
+	}
+
+	void createIndexSyncJournal(final SQLiteDatabase db) {
+		// unique, so that "insert or replace" keeps one row, with the latest sequence number, for each entity
+		db.execSQL("create unique index if not exists index_SyncJournal_01 on " + Table.SyncJournal.tableName() + " (" + Table.SyncJournal.syncSetName + ", " + Table.SyncJournal.kind + ", " + Table.SyncJournal.gid + ")");
+	}
+
+	/**
+	 * Every change to the tables that the entities of the sync sets are made of is written to {@link Table.SyncJournal},
+	 * but only while the shadow of the sync set is journaled. History is not in the database, so {@link yuku.alkitab.base.util.History} writes its own.
+	 */
+	void createTriggersSyncJournal(final SQLiteDatabase db) {
+		createTriggersSyncJournal(db, Db.TABLE_Marker, SyncShadow.SYNC_SET_MABEL, Sync.Entity.KIND_MARKER, "%s." + Db.Marker.gid);
+		createTriggersSyncJournal(db, Db.TABLE_Label, SyncShadow.SYNC_SET_MABEL, Sync.Entity.KIND_LABEL, "%s." + Db.Label.gid);
+		createTriggersSyncJournal(db, Db.TABLE_Marker_Label, SyncShadow.SYNC_SET_MABEL, Sync.Entity.KIND_MARKER_LABEL, "%s." + Db.Marker_Label.gid);
+		// all pins are one entity
+		createTriggersSyncJournal(db, Db.TABLE_ProgressMark, SyncShadow.SYNC_SET_PINS, Sync.Entity.KIND_PINS, DatabaseUtils.sqlEscapeString(Sync_Pins.GID_SPECIAL_PINS));
+		// the start time of a reading plan is in its entity, see ReadingPlan.gidFromName
+		createTriggersSyncJournal(db, Db.TABLE_ReadingPlan, SyncShadow.SYNC_SET_RP, Sync.Entity.KIND_RP_PROGRESS, DatabaseUtils.sqlEscapeString(ReadingPlan.PROGRESS_GID_PREFIX) + " || %s." + Db.ReadingPlan.name);
+		createTriggersSyncJournal(db, Db.TABLE_ReadingPlanProgress, SyncShadow.SYNC_SET_RP, Sync.Entity.KIND_RP_PROGRESS, "%s." + Db.ReadingPlanProgress.reading_plan_progress_gid);
+	}
+
+	/**
+	 * @param gidFormat sql expression of the gid of the changed entity, where %s is replaced by new or old.
+	 */
+	private static void createTriggersSyncJournal(final SQLiteDatabase db, final String table, final String syncSetName, final String kind, final String gidFormat) {
+		final String when = " when exists (select 1 from " + Table.SyncShadow.tableName() + " where " + Table.SyncShadow.syncSetName + "=" + DatabaseUtils.sqlEscapeString(syncSetName) + " and " + Table.SyncShadow.journaled + "=1)";
+		final String insert = "insert or replace into " + Table.SyncJournal.tableName() + " (" + Table.SyncJournal.syncSetName + ", " + Table.SyncJournal.kind + ", " + Table.SyncJournal.gid + ") values (" + DatabaseUtils.sqlEscapeString(syncSetName) + ", " + DatabaseUtils.sqlEscapeString(kind) + ", ";
+
+		db.execSQL("create trigger if not exists SyncJournal_" + table + "_insert after insert on " + table + when + " begin "
+			+ insert + String.format(gidFormat, "new") + "); end");
+		// the gid may change, so both the old and the new entity have changed
+		db.execSQL("create trigger if not exists SyncJournal_" + table + "_update after update on " + table + when + " begin "
+			+ insert + String.format(gidFormat, "old") + "); "
+			+ insert + String.format(gidFormat, "new") + "); end");
+		db.execSQL("create trigger if not exists SyncJournal_" + table + "_delete after delete on " + table + when + " begin "
+			+ insert + String.format(gidFormat, "old") + "); end");
+	}
+
 	void createTableSyncLog(final SQLiteDatabase db) {
 		final StringBuilder sb = new StringBuilder("create table " + Table.SyncLog.tableName() + " ( _id integer primary key ");
 		for (Table.SyncLog field: Table.SyncLog.values()) {
@@ -463,6 +558,17 @@ public class InternalDbHelper extends SQLiteOpenHelper {
 		db.execSQL("create index if not exists index_402 on " + Db.TABLE_Label + " (" + Db.Label.gid + ")");
 	}
 
+	private void addJournaledColumnToSyncShadowIfNeeded(SQLiteDatabase db) {
+		try (Cursor c = db.rawQuery("pragma table_info(" + Table.SyncShadow.tableName() + ")", null)) {
+			while (c.moveToNext()) {
+				if (Table.SyncShadow.journaled.name().equals(c.getString(1 /* "name" column */))) {
+					return;
+				}
+			}
+		}
+		db.execSQL("alter table " + Table.SyncShadow.tableName() + " add column " + Table.SyncShadow.journaled + " " + Table.SyncShadow.journaled.type.name());
+	}
+
 	/**
 	 * Converts Bookmark2 to Marker table
 	 * and Bookmark2_Label to Marker_Label table
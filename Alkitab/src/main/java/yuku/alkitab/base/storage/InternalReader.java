@@ -17,6 +17,7 @@ import yuku.alkitab.yes2.section.FootnotesSection;
 import yuku.alkitab.yes2.section.XrefsSection;
 import yuku.bintex.BintexReader;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -69,7 +70,7 @@ public class InternalReader implements BibleReader {
 		BintexReader br = null;
 		try {
 			final InputStream is = App.context.getAssets().open("internal/" + versionPrefix + "_index_bt.bt");
-			br = new BintexReader(is);
+			br = new BintexReader(is, 8192);
 
 			// uint8 version = 3
 			// uint8 book_count
@@ -211,7 +212,7 @@ public class InternalReader implements BibleReader {
 			return null;
 		}
 
-		BintexReader in = new BintexReader(is);
+		BintexReader in = new BintexReader(is, 65536);
 		try {
 			pericopeIndex_ = Yes1PericopeIndex.read(in);
 			return pericopeIndex_;
@@ -246,7 +247,7 @@ public class InternalReader implements BibleReader {
 
 		BintexReader in = null;
 		try {
-			in = new BintexReader(App.context.getAssets().open("internal/" + versionPrefix + "_pericope_blocks_bt.bt"));
+			in = new BintexReader(App.context.getAssets().open("internal/" + versionPrefix + "_pericope_blocks_bt.bt"), 8192);
 			while (true) {
 				int ari = pericopeIndex.getAri(kini);
 
@@ -325,61 +326,71 @@ public class InternalReader implements BibleReader {
 	}
 }
 
+/**
+ * Assets are usually compressed in the apk, so seeking backwards would mean decompressing from the start again.
+ * The whole asset is read into memory instead, which also lets {@link #readAt(long, byte[], int, int)}
+ * be done without moving the position, by many threads at once.
+ */
 class AssetRandomInputStream extends RandomInputStream {
-	final String assetName;
-	InputStream in;
+	final byte[] data;
 	int pos;
 
-	public AssetRandomInputStream(final String assetName) {
-		this.assetName = assetName;
-		reopen();
-	}
-
-	private void reopen() {
-		try {
-			this.in = App.context.getAssets().open(assetName);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+	public AssetRandomInputStream(final String assetName) throws IOException {
+		try (InputStream in = App.context.getAssets().open(assetName)) {
+			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			final byte[] buf = new byte[4096];
+			while (true) {
+				final int read = in.read(buf);
+				if (read < 0) break;
+				baos.write(buf, 0, read);
+			}
+			this.data = baos.toByteArray();
 		}
-
-		this.pos = 0;
 	}
 
 	@Override public int read() throws IOException {
-		final int res = in.read();
-		if (res >= 0) {
-			pos++;
-		}
-		return res;
+		if (pos >= data.length) return -1;
+		return data[pos++] & 0xff;
 	}
 
 	@Override public int read(byte[] buffer) throws IOException {
-		final int read = in.read(buffer);
-		pos += read;
-		return read;
+		return read(buffer, 0, buffer.length);
 	}
 
 	@Override public int read(byte[] buffer, int offset, int length) throws IOException {
-		final int read = in.read(buffer, offset, length);
-		pos += read;
-		return read;
+		if (length == 0) return 0;
+		if (pos >= data.length) return -1;
+
+		final int will_read = Math.min(length, data.length - pos);
+		System.arraycopy(data, pos, buffer, offset, will_read);
+		pos += will_read;
+		return will_read;
 	}
 
 	@Override public long skip(long n) throws IOException {
-		final long read = in.skip(n);
-		pos += (int) read;
-		return read;
+		if (n <= 0) return 0;
+
+		final int will_skip = (int) Math.min(n, data.length - pos);
+		pos += will_skip;
+		return will_skip;
+	}
+
+	@Override public int available() throws IOException {
+		return data.length - pos;
 	}
 
 	@Override public void seek(long n) throws IOException {
-		if (n >= pos) {
-			//noinspection ResultOfMethodCallIgnored
-			skip(n - pos);
-		} else {
-			reopen();
-			//noinspection ResultOfMethodCallIgnored
-			skip(n);
-		}
+		if (n < 0) throw new IOException("Negative seek offset: " + n);
+		pos = (int) Math.min(n, data.length);
+	}
+
+	@Override public int readAt(long position, byte[] buffer, int offset, int length) throws IOException {
+		if (position < 0) throw new IOException("Negative read position: " + position);
+		if (position >= data.length) return 0;
+
+		final int will_read = (int) Math.min(length, data.length - position);
+		System.arraycopy(data, (int) position, buffer, offset, will_read);
+		return will_read;
 	}
 
 	@Override public long getFilePointer() throws IOException {
@@ -387,7 +398,6 @@ class AssetRandomInputStream extends RandomInputStream {
 	}
 
 	@Override public void close() throws IOException {
-		// NOP, no need to close asset
+		// NOP, nothing to release
 	}
 }
-
@@ -71,6 +71,7 @@ public class SongDb {
 			int col_dataFormatVersion = ih.getColumnIndex(Table.SongInfo.dataFormatVersion.name());
 			int col_data = ih.getColumnIndex(Table.SongInfo.data.name());
 			int col_updateTime = ih.getColumnIndex(Table.SongInfo.updateTime.name());
+			int col_searchText = ih.getColumnIndex(Table.SongInfo.searchText.name());
 
 			for (Song song: songs) {
 				ih.prepareForInsert();
@@ -82,6 +83,7 @@ public class SongDb {
 				ih.bind(col_dataFormatVersion, dataFormatVersion);
 				ih.bind(col_data, marshallSong(song, dataFormatVersion));
 				ih.bind(col_updateTime, Sqlitil.nowDateTime());
+				ih.bind(col_searchText, SongFilter.searchTextOf(song));
 				ih.execute();
 			}
 			
@@ -208,44 +210,106 @@ public class SongDb {
 		return res;
 	}
 
+	/**
+	 * Only the searchText column is looked at: SQLite first picks the songs that contain every filter word,
+	 * then those are matched exactly with {@link SongFilter#matchSearchText(String, CompiledFilter)}.
+	 * Songs stored before the searchText column existed are unmarshalled once to fill it in.
+	 */
 	public List<SongInfo> listSongInfosByBookNameAndDeepFilter(String bookName, String filter_string) {
 		SQLiteDatabase db = helper.getReadableDatabase();
 		
 		List<SongInfo> res = new ArrayList<>();
+		List<Pair<Long, String>> searchTextsToStore = new ArrayList<>();
 
 		String[] columns = { // column indexes!
 		Table.SongInfo.bookName.name(), // 0
 		Table.SongInfo.code.name(), // 1
 		Table.SongInfo.title.name(), // 2
 		Table.SongInfo.title_original.name(), // 3
-		Table.SongInfo.data.name(), // 4
-		Table.SongInfo.dataFormatVersion.name(), // 5
+		Table.SongInfo.searchText.name(), // 4
+		"_id", // 5
 		};
 		
 		CompiledFilter cf = SongFilter.compileFilter(filter_string);
-		
-		Cursor c = querySongs(db, columns, bookName);
+
+		// every filter word must be somewhere in the search text; rows without search text yet are checked below
+		final StringBuilder selection = new StringBuilder();
+		final List<String> selectionArgs = new ArrayList<>();
+		if (bookName != null) {
+			selection.append(Table.SongInfo.bookName).append("=?");
+			selectionArgs.add(bookName);
+		}
+		if (cf.getWords().length > 0) {
+			if (selection.length() > 0) selection.append(" and ");
+			selection.append("(").append(Table.SongInfo.searchText).append(" is null or (");
+			for (int i = 0; i < cf.getWords().length; i++) {
+				if (i > 0) selection.append(" and ");
+				selection.append(Table.SongInfo.searchText).append(" like ? escape '\\'");
+				selectionArgs.add("%" + escapeLike(cf.getWords()[i]) + "%");
+			}
+			selection.append("))");
+		}
+
+		Cursor c = db.query(Table.SongInfo.tableName(),
+			columns,
+			selection.length() == 0 ? null : selection.toString(),
+			selectionArgs.toArray(new String[selectionArgs.size()]),
+			null, null, (bookName == null ? Table.SongInfo.bookName + " asc, " : "") + Table.SongInfo.ordering + " asc");
 		try {
 			while (c.moveToNext()) {
 				String bookName2 = c.getString(0);
 				String code = c.getString(1);
 				String title = c.getString(2);
 				String title_original = c.getString(3);
-				byte[] data = c.getBlob(4);
-				int dataFormatVersion = c.getInt(5);
-				
-				Song song = unmarshallSong(data, dataFormatVersion);
-				if (SongFilter.match(song, cf)) {
+				String searchText = c.getString(4);
+
+				if (searchText == null) {
+					final long _id = c.getLong(5);
+					searchText = SongFilter.searchTextOf(loadSong(db, _id));
+					searchTextsToStore.add(Pair.create(_id, searchText));
+				}
+
+				if (SongFilter.matchSearchText(searchText, cf)) {
 					res.add(new SongInfo(bookName2, code, title, title_original));
 				}
 			}
 		} finally {
 			c.close();
 		}
+
+		if (searchTextsToStore.size() > 0) {
+			storeSearchTexts(searchTextsToStore);
+		}
 		
 		return res;
 	}
 
+	private static Song loadSong(SQLiteDatabase db, long _id) {
+		try (Cursor c = db.query(Table.SongInfo.tableName(), ToStringArray(Table.SongInfo.data, Table.SongInfo.dataFormatVersion), "_id=?", ToStringArray(_id), null, null, null)) {
+			c.moveToNext();
+			return unmarshallSong(c.getBlob(0), c.getInt(1));
+		}
+	}
+
+	private void storeSearchTexts(List<Pair<Long, String>> searchTexts) {
+		final SQLiteDatabase db = helper.getWritableDatabase();
+		db.beginTransactionNonExclusive();
+		try {
+			final ContentValues cv = new ContentValues();
+			for (final Pair<Long, String> pair : searchTexts) {
+				cv.put(Table.SongInfo.searchText.name(), pair.second);
+				db.update(Table.SongInfo.tableName(), cv, "_id=?", ToStringArray(pair.first));
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	private static String escapeLike(String s) {
+		return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+
 	private static Cursor querySongs(SQLiteDatabase db, String[] columns, String bookName) {
 		Cursor c;
 		if (bookName == null) {
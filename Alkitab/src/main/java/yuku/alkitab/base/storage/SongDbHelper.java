@@ -25,6 +25,9 @@ public class SongDbHelper extends SQLiteOpenHelper {
 			setupTableSongBookInfo(db);
 			insertSongBookInfosFromSongInfos(db);
 		}
+
+		// songs stored before this column existed get their search text when they are first deep-filtered
+		addSearchTextColumnIfNeeded(db);
 	}
 
 	/**
@@ -48,6 +51,20 @@ public class SongDbHelper extends SQLiteOpenHelper {
 		db.execSQL("alter table " + Table.SongInfo.tableName() + " add column " + Table.SongInfo.updateTime + " " + Table.SongInfo.updateTime.type);
 	}
 
+	private void addSearchTextColumnIfNeeded(final SQLiteDatabase db) {
+		boolean searchTextColumnExists = false;
+		try (Cursor c = db.rawQuery("pragma table_info(" + Table.SongInfo.tableName() + ")", null)) {
+			while (c.moveToNext()) {
+				if (Table.SongInfo.searchText.name().equals(c.getString(1 /* "name" column */))) {
+					searchTextColumnExists = true;
+				}
+			}
+		}
+		if (!searchTextColumnExists) {
+			db.execSQL("alter table " + Table.SongInfo.tableName() + " add column " + Table.SongInfo.searchText + " " + Table.SongInfo.searchText.type);
+		}
+	}
+
 	private void setupTableSongInfo(final SQLiteDatabase db) {
 		{ // table
 			final StringBuilder sb = new StringBuilder("create table " + Table.SongInfo.tableName() + " ( _id integer primary key ");
@@ -23,6 +23,7 @@ public class Table {
 		dataFormatVersion(integer),
 		data(blob),
 		updateTime(integer),
+		searchText(text), // lowercased text of the fields the song filter looks at, see SongFilter.searchTextOf
 		;
 
 		public final Type type;
@@ -70,7 +71,8 @@ public class Table {
 	public enum SyncShadow {
 		syncSetName(text),
 		revno(integer),
-		data(blob),
+		data(blob), // json of all entities, only in shadows not yet converted to SyncShadowEntity rows
+		journaled(integer), // 1 when every entity that differs from this shadow is in SyncJournal
 		;
 
 		public final Type type;
@@ -90,6 +92,65 @@ public class Table {
 		}
 	}
 
+	/**
+	 * One row for every entity of a sync shadow. The revno of the shadow is kept in {@link SyncShadow}.
+	 */
+	@Keep
+	public enum SyncShadowEntity {
+		syncSetName(text),
+		kind(text),
+		gid(text),
+		contentHash(integer), // see InternalDb.syncShadowContentHash
+		content(text), // json of the entity content
+		;
+
+		public final Type type;
+		public final String suffix;
+
+		SyncShadowEntity(Type type) {
+			this(type, null);
+		}
+
+		SyncShadowEntity(Type type, String suffix) {
+			this.type = type;
+			this.suffix = suffix;
+		}
+
+		public static String tableName() {
+			return "SyncShadowEntity";
+		}
+	}
+
+	/**
+	 * The entities of a sync set that may have changed since the last sync, written by triggers
+	 * (see InternalDbHelper.createTriggersSyncJournal) or by the code that changes the entities.
+	 * One row for each entity; writing it again with "insert or replace" gives it a new _id, so the _id
+	 * (autoincrement, never reused) is the sequence number of the latest change of the entity.
+	 */
+	@Keep
+	public enum SyncJournal {
+		syncSetName(text),
+		kind(text),
+		gid(text),
+		;
+
+		public final Type type;
+		public final String suffix;
+
+		SyncJournal(Type type) {
+			this(type, null);
+		}
+
+		SyncJournal(Type type, String suffix) {
+			this.type = type;
+			this.suffix = suffix;
+		}
+
+		public static String tableName() {
+			return "SyncJournal";
+		}
+	}
+
 	@Keep
 	public enum SyncLog {
 		createTime(integer),
@@ -4,7 +4,9 @@ import yuku.alkitab.base.util.AppLog;
 import yuku.alkitab.io.BibleReader;
 import yuku.alkitab.yes1.Yes1Reader;
 import yuku.alkitab.yes2.Yes2Reader;
+import yuku.alkitab.yes2.io.MappedRandomInputStream;
 import yuku.alkitab.yes2.io.RandomAccessFileRandomInputStream;
+import yuku.alkitab.yes2.io.RandomInputStream;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -39,8 +41,8 @@ public class YesReaderFactory {
 			
 			if (header[7] == 0x01) { // VERSION 1 YES
 				return new Yes1Reader(filename);
-			} else if (header[7] == 0x02) { // VERSION 2 YES
-				return new Yes2Reader(new RandomAccessFileRandomInputStream(filename));
+			} else if (header[7] == 0x02 || header[7] == 0x03) { // VERSION 2 YES, or VERSION 3 YES which has the same layout
+				return new Yes2Reader(openYes2Input(filename));
 			} else {
 				AppLog.e(TAG, "Yes file version unsupported: " + header[7]);
 				return null;
@@ -50,4 +52,17 @@ public class YesReaderFactory {
 			return null;
 		}
 	}
+
+	/**
+	 * Yes2 files are memory-mapped, so that the many small reads of the bintex parsers do not each need a system call.
+	 * Falls back to {@link RandomAccessFile} when the file cannot be mapped.
+	 */
+	private static RandomInputStream openYes2Input(String filename) throws IOException {
+		try {
+			return new MappedRandomInputStream(filename);
+		} catch (IOException e) {
+			AppLog.w(TAG, "Cannot map yes file '" + filename + "', reading it without mapping", e);
+			return new RandomAccessFileRandomInputStream(filename);
+		}
+	}
 }
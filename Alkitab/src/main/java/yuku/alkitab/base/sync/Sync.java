@@ -6,13 +6,13 @@ import android.content.ContentResolver;
 import android.os.Bundle;
 import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.collection.ArrayMap;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
@@ -173,30 +173,32 @@ public class Sync {
 
 	public static class GetClientStateResult<C> {
 		public final ClientState<C> clientState;
-		public final List<Entity<C>> shadowEntities;
-		public final List<Entity<C>> currentEntities;
+		/**
+		 * The sequence number of the latest change in the sync journal when the client state was made.
+		 * A later change means the entities have changed during the sync request.
+		 */
+		public final long journalSeq;
 
-		public GetClientStateResult(final ClientState<C> clientState, final List<Entity<C>> shadowEntities, final List<Entity<C>> currentEntities) {
+		public GetClientStateResult(final ClientState<C> clientState, final long journalSeq) {
 			this.clientState = clientState;
-			this.shadowEntities = shadowEntities;
-			this.currentEntities = currentEntities;
+			this.journalSeq = journalSeq;
 		}
 	}
 
 	/**
-	 * Ignoring order, check if all the entities are the same.
+	 * The current entities of a sync set, which the client delta is made from.
 	 */
-	public static <C> boolean entitiesEqual(@NonNull final List<Entity<C>> a_, @NonNull final List<Entity<C>> b_) {
-		if (a_.size() != b_.size()) return false;
-
-		final ArrayList<Entity<C>> a = new ArrayList<>(a_);
-		final ArrayList<Entity<C>> b = new ArrayList<>(b_);
-
-		final Comparator<Entity<C>> cmp = (lhs, rhs) -> lhs.gid.compareTo(rhs.gid);
-		Collections.sort(a, cmp);
-		Collections.sort(b, cmp);
+	public interface CurrentEntities<C> {
+		/**
+		 * All of the entities, for comparing with a shadow that is not journaled yet.
+		 */
+		@NonNull List<Entity<C>> listAll();
 
-		return a.equals(b);
+		/**
+		 * One entity, for comparing with the shadow when it is in the sync journal.
+		 * @return null if there is no such entity (anymore).
+		 */
+		@Nullable Entity<C> get(@NonNull String kind, @NonNull String gid);
 	}
 
 	private static final ArrayMap<String, AtomicInteger> syncUpdatesOngoingCounters = new ArrayMap<>();
@@ -7,23 +7,19 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SyncResult;
 import android.os.Bundle;
-import android.util.Pair;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
-import com.google.gson.reflect.TypeToken;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 import okhttp3.Call;
-import okhttp3.FormBody;
 import okhttp3.MultipartBody;
 import okhttp3.Request;
 import okhttp3.RequestBody;
+import okhttp3.Response;
 import yuku.afw.storage.Preferences;
 import yuku.alkitab.base.App;
 import yuku.alkitab.base.IsiActivity;
@@ -66,55 +62,6 @@ public class SyncAdapter extends AbstractThreadedSyncAdapter {
 		super(context, autoInitialize, allowParallelSyncs);
 	}
 
-	/**
-	 * Patches entities with operations, returning new set of entities.
-	 * Add and mod overwrites without merge, del deletes immediately
-	 * @param entities before patch
-	 * @param operations patch in temporal order (old first then new)
-	 * @param <C> type of content
-	 * @return after patch
-	 */
-	public static <C> List<Sync.Entity<C>> patchNoConflict(final List<Sync.Entity<C>> entities, final List<Sync.Operation<C>> operations) {
-		/*
-		Ported from server code:
-
-		def patchNoConflict(entities, operations):
-			# convert to map for faster lookup
-			entities_map = {
-				(e.gid, e.kind): e
-				for e in entities
-			}
-
-			for o in operations:
-				if o.opkind == 'del':
-					del entities_map[(o.gid, o.kind)]
-				else: # add and mod are treated the same: just overwrite!
-					entities_map[(o.gid, o.kind)] = Entity(o.kind, o.gid, content=o.content, creator_id=o.creator_id)
-
-			return entities_map.values()
-
-		 */
-
-		final Map<Pair<String, String>, Sync.Entity<C>> entities_map = new HashMap<>();
-		for (final Sync.Entity<C> entity : entities) {
-			entities_map.put(Pair.create(entity.gid, entity.kind), entity);
-		}
-
-		for (final Sync.Operation<C> o : operations) {
-			switch (o.opkind) {
-				case del:
-					entities_map.remove(Pair.create(o.gid, o.kind));
-					break;
-				case add:
-				case mod:
-					entities_map.put(Pair.create(o.gid, o.kind), new Sync.Entity<>(o.kind, o.gid, o.content));
-					break;
-			}
-		}
-
-		return new ArrayList<>(entities_map.values());
-	}
-
 	/*
 	 * Specify the code you want to run in the sync adapter. The entire
 	 * sync adapter runs in a background thread, so you don't have to set
@@ -265,12 +212,11 @@ public class SyncAdapter extends AbstractThreadedSyncAdapter {
 		}
 
 		AppLog.d(TAG, "@@syncMabel step 10: gathering client state");
-		final Sync.GetClientStateResult<Sync_Mabel.Content> pair = Sync_Mabel.getClientStateAndCurrentEntities();
-		final Sync.ClientState<Sync_Mabel.Content> clientState = pair.clientState;
-		final List<Sync.Entity<Sync_Mabel.Content>> shadowEntities = pair.shadowEntities;
-		final List<Sync.Entity<Sync_Mabel.Content>> entitiesBeforeSync = pair.currentEntities;
+		final Sync.GetClientStateResult<Sync_Mabel.Content> clientStateResult = Sync_Mabel.getClientState();
+		final Sync.ClientState<Sync_Mabel.Content> clientState = clientStateResult.clientState;
+		final long journalSeqBeforeSync = clientStateResult.journalSeq;
 
-		SyncRecorder.log(SyncRecorder.EventKind.current_entities_gathered, syncSetName, "base_revno", clientState.base_revno, "client_delta_operations_size", clientState.delta.operations.size(), "client_entities_size", entitiesBeforeSync.size());
+		SyncRecorder.log(SyncRecorder.EventKind.current_entities_gathered, syncSetName, "base_revno", clientState.base_revno, "client_delta_operations_size", clientState.delta.operations.size(), "journal_seq", journalSeqBeforeSync);
 
 		final boolean isPartial = chopClientState(clientState, syncSetName);
 
@@ -281,7 +227,7 @@ public class SyncAdapter extends AbstractThreadedSyncAdapter {
 			.addFormDataPart("simpleToken", simpleToken)
 			.addFormDataPart("syncSetName", syncSetName)
 			.addFormDataPart("installation_id", InstallationUtil.getInstallationId())
-			.addFormDataPart("clientState", App.getDefaultGson().toJson(clientState))
+			.addFormDataPart("clientState", null, SyncCodec.clientStateBody(App.getDefaultGson(), clientState, Sync_Mabel.Content.class))
 			.build();
 
 		final Call call = Connections.getLongTimeoutOkHttpClient().newCall(
@@ -297,9 +243,11 @@ public class SyncAdapter extends AbstractThreadedSyncAdapter {
 			// arbritrary amount of time may pass on the next line. It is possible for the current data to be modified during this operation.
 			SyncRecorder.log(SyncRecorder.EventKind.sync_to_server_pre, syncSetName, "serverPrefix", Sync.getEffectiveServerPrefix());
 			final long startTime = System.currentTimeMillis();
-			final String response_s = call.execute().body().string();
-			AppLog.d(TAG, "@@syncMabel server response string: " + response_s);
-			final Sync.SyncResponseJson<Sync_Mabel.Content> response = App.getDefaultGson().fromJson(response_s, new TypeToken<Sync.SyncResponseJson<Sync_Mabel.Content>>() {}.getType());
+			final Sync.SyncResponseJson<Sync_Mabel.Content> response;
+			try (Response httpResponse = call.execute()) {
+				response = SyncCodec.readSyncResponse(App.getDefaultGson(), httpResponse.body().charStream(), Sync_Mabel.Content.class);
+			}
+			AppLog.d(TAG, "@@syncMabel server response success: " + response.success + " final_revno: " + response.final_revno);
 			SyncRecorder.log(SyncRecorder.EventKind.sync_to_server_post_response_ok, syncSetName, "duration_ms", System.currentTimeMillis() - startTime);
 
 			if (!response.success) {
@@ -321,7 +269,7 @@ public class SyncAdapter extends AbstractThreadedSyncAdapter {
 
 			SyncRecorder.log(SyncRecorder.EventKind.sync_to_server_got_success_data, syncSetName, "final_revno", final_revno, "append_delta_operations_size", append_delta.operations.size());
 
-			final Sync.ApplyAppendDeltaResult applyResult = S.getDb().applyMabelAppendDelta(final_revno, shadowEntities, clientState, append_delta, entitiesBeforeSync, simpleToken);
+			final Sync.ApplyAppendDeltaResult applyResult = S.getDb().applyMabelAppendDelta(final_revno, clientState, append_delta, journalSeqBeforeSync, simpleToken);
 
 			SyncRecorder.log(SyncRecorder.EventKind.apply_result, syncSetName, "apply_result", applyResult.name());
 
@@ -370,19 +318,20 @@ public class SyncAdapter extends AbstractThreadedSyncAdapter {
 		}
 
 		AppLog.d(TAG, "@@syncHistory step 10: gathering client state");
-		final Pair<Sync.ClientState<Sync_History.Content>, List<Sync.Entity<Sync_History.Content>>> pair = Sync_History.getClientStateAndCurrentEntities();
-		final Sync.ClientState<Sync_History.Content> clientState = pair.first;
-		final List<Sync.Entity<Sync_History.Content>> entitiesBeforeSync = pair.second;
+		final Sync.GetClientStateResult<Sync_History.Content> clientStateResult = Sync_History.getClientState();
+		final Sync.ClientState<Sync_History.Content> clientState = clientStateResult.clientState;
+		final long journalSeqBeforeSync = clientStateResult.journalSeq;
 
-		SyncRecorder.log(SyncRecorder.EventKind.current_entities_gathered, syncSetName, "base_revno", clientState.base_revno, "client_delta_operations_size", clientState.delta.operations.size(), "client_entities_size", entitiesBeforeSync.size());
+		SyncRecorder.log(SyncRecorder.EventKind.current_entities_gathered, syncSetName, "base_revno", clientState.base_revno, "client_delta_operations_size", clientState.delta.operations.size(), "journal_seq", journalSeqBeforeSync);
 
 		final String serverPrefix = Sync.getEffectiveServerPrefix();
 		AppLog.d(TAG, "@@syncHistory step 20: building http request. Server prefix: " + serverPrefix);
-		final RequestBody requestBody = new FormBody.Builder()
-			.add("simpleToken", simpleToken)
-			.add("syncSetName", syncSetName)
-			.add("installation_id", InstallationUtil.getInstallationId())
-			.add("clientState", App.getDefaultGson().toJson(clientState))
+		final RequestBody requestBody = new MultipartBody.Builder()
+			.setType(MultipartBody.FORM)
+			.addFormDataPart("simpleToken", simpleToken)
+			.addFormDataPart("syncSetName", syncSetName)
+			.addFormDataPart("installation_id", InstallationUtil.getInstallationId())
+			.addFormDataPart("clientState", null, SyncCodec.clientStateBody(App.getDefaultGson(), clientState, Sync_History.Content.class))
 			.build();
 
 		final Call call = Connections.getLongTimeoutOkHttpClient().newCall(
@@ -398,9 +347,11 @@ public class SyncAdapter extends AbstractThreadedSyncAdapter {
 			// arbritrary amount of time may pass on the next line. It is possible for the current data to be modified during this operation.
 			SyncRecorder.log(SyncRecorder.EventKind.sync_to_server_pre, syncSetName, "serverPrefix", Sync.getEffectiveServerPrefix());
 			final long startTime = System.currentTimeMillis();
-			final String response_s = call.execute().body().string();
-			AppLog.d(TAG, "@@syncHistory server response string: " + response_s);
-			final Sync.SyncResponseJson<Sync_History.Content> response = App.getDefaultGson().fromJson(response_s, new TypeToken<Sync.SyncResponseJson<Sync_History.Content>>() {}.getType());
+			final Sync.SyncResponseJson<Sync_History.Content> response;
+			try (Response httpResponse = call.execute()) {
+				response = SyncCodec.readSyncResponse(App.getDefaultGson(), httpResponse.body().charStream(), Sync_History.Content.class);
+			}
+			AppLog.d(TAG, "@@syncHistory server response success: " + response.success + " final_revno: " + response.final_revno);
 			SyncRecorder.log(SyncRecorder.EventKind.sync_to_server_post_response_ok, syncSetName, "duration_ms", System.currentTimeMillis() - startTime);
 
 			if (!response.success) {
@@ -422,7 +373,7 @@ public class SyncAdapter extends AbstractThreadedSyncAdapter {
 
 			SyncRecorder.log(SyncRecorder.EventKind.sync_to_server_got_success_data, syncSetName, "final_revno", final_revno, "append_delta_operations_size", append_delta.operations.size());
 
-			final Sync.ApplyAppendDeltaResult applyResult = History.getInstance().applyHistoryAppendDelta(final_revno, append_delta, entitiesBeforeSync, simpleToken);
+			final Sync.ApplyAppendDeltaResult applyResult = History.getInstance().applyHistoryAppendDelta(final_revno, append_delta, journalSeqBeforeSync, simpleToken);
 
 			SyncRecorder.log(SyncRecorder.EventKind.apply_result, syncSetName, "apply_result", applyResult.name());
 
@@ -463,19 +414,20 @@ public class SyncAdapter extends AbstractThreadedSyncAdapter {
 		}
 
 		AppLog.d(TAG, "@@syncPins step 10: gathering client state");
-		final Pair<Sync.ClientState<Sync_Pins.Content>, List<Sync.Entity<Sync_Pins.Content>>> pair = Sync_Pins.getClientStateAndCurrentEntities();
-		final Sync.ClientState<Sync_Pins.Content> clientState = pair.first;
-		final List<Sync.Entity<Sync_Pins.Content>> entitiesBeforeSync = pair.second;
+		final Sync.GetClientStateResult<Sync_Pins.Content> clientStateResult = Sync_Pins.getClientState();
+		final Sync.ClientState<Sync_Pins.Content> clientState = clientStateResult.clientState;
+		final long journalSeqBeforeSync = clientStateResult.journalSeq;
 
-		SyncRecorder.log(SyncRecorder.EventKind.current_entities_gathered, syncSetName, "base_revno", clientState.base_revno, "client_delta_operations_size", clientState.delta.operations.size(), "client_entities_size", entitiesBeforeSync.size());
+		SyncRecorder.log(SyncRecorder.EventKind.current_entities_gathered, syncSetName, "base_revno", clientState.base_revno, "client_delta_operations_size", clientState.delta.operations.size(), "journal_seq", journalSeqBeforeSync);
 
 		final String serverPrefix = Sync.getEffectiveServerPrefix();
 		AppLog.d(TAG, "@@syncPins step 20: building http request. Server prefix: " + serverPrefix);
-		final RequestBody requestBody = new FormBody.Builder()
-			.add("simpleToken", simpleToken)
-			.add("syncSetName", syncSetName)
-			.add("installation_id", InstallationUtil.getInstallationId())
-			.add("clientState", App.getDefaultGson().toJson(clientState))
+		final RequestBody requestBody = new MultipartBody.Builder()
+			.setType(MultipartBody.FORM)
+			.addFormDataPart("simpleToken", simpleToken)
+			.addFormDataPart("syncSetName", syncSetName)
+			.addFormDataPart("installation_id", InstallationUtil.getInstallationId())
+			.addFormDataPart("clientState", null, SyncCodec.clientStateBody(App.getDefaultGson(), clientState, Sync_Pins.Content.class))
 			.build();
 
 		final Call call = Connections.getLongTimeoutOkHttpClient().newCall(
@@ -491,9 +443,11 @@ public class SyncAdapter extends AbstractThreadedSyncAdapter {
 			// arbritrary amount of time may pass on the next line. It is possible for the current data to be modified during this operation.
 			SyncRecorder.log(SyncRecorder.EventKind.sync_to_server_pre, syncSetName, "serverPrefix", Sync.getEffectiveServerPrefix());
 			final long startTime = System.currentTimeMillis();
-			final String response_s = call.execute().body().string();
-			AppLog.d(TAG, "@@syncPins server response string: " + response_s);
-			final Sync.SyncResponseJson<Sync_Pins.Content> response = App.getDefaultGson().fromJson(response_s, new TypeToken<Sync.SyncResponseJson<Sync_Pins.Content>>() {}.getType());
+			final Sync.SyncResponseJson<Sync_Pins.Content> response;
+			try (Response httpResponse = call.execute()) {
+				response = SyncCodec.readSyncResponse(App.getDefaultGson(), httpResponse.body().charStream(), Sync_Pins.Content.class);
+			}
+			AppLog.d(TAG, "@@syncPins server response success: " + response.success + " final_revno: " + response.final_revno);
 			SyncRecorder.log(SyncRecorder.EventKind.sync_to_server_post_response_ok, syncSetName, "duration_ms", System.currentTimeMillis() - startTime);
 
 			if (!response.success) {
@@ -515,7 +469,7 @@ public class SyncAdapter extends AbstractThreadedSyncAdapter {
 
 			SyncRecorder.log(SyncRecorder.EventKind.sync_to_server_got_success_data, syncSetName, "final_revno", final_revno, "append_delta_operations_size", append_delta.operations.size());
 
-			final Sync.ApplyAppendDeltaResult applyResult = S.getDb().applyPinsAppendDelta(final_revno, append_delta, entitiesBeforeSync, simpleToken);
+			final Sync.ApplyAppendDeltaResult applyResult = S.getDb().applyPinsAppendDelta(final_revno, append_delta, journalSeqBeforeSync, simpleToken);
 
 			SyncRecorder.log(SyncRecorder.EventKind.apply_result, syncSetName, "apply_result", applyResult.name());
 
@@ -558,19 +512,20 @@ public class SyncAdapter extends AbstractThreadedSyncAdapter {
 		}
 
 		AppLog.d(TAG, "@@syncRp step 10: gathering client state");
-		final Pair<Sync.ClientState<Sync_Rp.Content>, List<Sync.Entity<Sync_Rp.Content>>> pair = Sync_Rp.getClientStateAndCurrentEntities();
-		final Sync.ClientState<Sync_Rp.Content> clientState = pair.first;
-		final List<Sync.Entity<Sync_Rp.Content>> entitiesBeforeSync = pair.second;
+		final Sync.GetClientStateResult<Sync_Rp.Content> clientStateResult = Sync_Rp.getClientState();
+		final Sync.ClientState<Sync_Rp.Content> clientState = clientStateResult.clientState;
+		final long journalSeqBeforeSync = clientStateResult.journalSeq;
 
-		SyncRecorder.log(SyncRecorder.EventKind.current_entities_gathered, syncSetName, "base_revno", clientState.base_revno, "client_delta_operations_size", clientState.delta.operations.size(), "client_entities_size", entitiesBeforeSync.size());
+		SyncRecorder.log(SyncRecorder.EventKind.current_entities_gathered, syncSetName, "base_revno", clientState.base_revno, "client_delta_operations_size", clientState.delta.operations.size(), "journal_seq", journalSeqBeforeSync);
 
 		final String serverPrefix = Sync.getEffectiveServerPrefix();
 		AppLog.d(TAG, "@@syncRp step 20: building http request. Server prefix: " + serverPrefix);
-		final RequestBody requestBody = new FormBody.Builder()
-			.add("simpleToken", simpleToken)
-			.add("syncSetName", syncSetName)
-			.add("installation_id", InstallationUtil.getInstallationId())
-			.add("clientState", App.getDefaultGson().toJson(clientState))
+		final RequestBody requestBody = new MultipartBody.Builder()
+			.setType(MultipartBody.FORM)
+			.addFormDataPart("simpleToken", simpleToken)
+			.addFormDataPart("syncSetName", syncSetName)
+			.addFormDataPart("installation_id", InstallationUtil.getInstallationId())
+			.addFormDataPart("clientState", null, SyncCodec.clientStateBody(App.getDefaultGson(), clientState, Sync_Rp.Content.class))
 			.build();
 
 		final Call call = Connections.getLongTimeoutOkHttpClient().newCall(
@@ -586,9 +541,11 @@ public class SyncAdapter extends AbstractThreadedSyncAdapter {
 			// arbritrary amount of time may pass on the next line. It is possible for the current data to be modified during this operation.
 			SyncRecorder.log(SyncRecorder.EventKind.sync_to_server_pre, syncSetName, "serverPrefix", Sync.getEffectiveServerPrefix());
 			final long startTime = System.currentTimeMillis();
-			final String response_s = call.execute().body().string();
-			AppLog.d(TAG, "@@syncRp server response string: " + response_s);
-			final Sync.SyncResponseJson<Sync_Rp.Content> response = App.getDefaultGson().fromJson(response_s, new TypeToken<Sync.SyncResponseJson<Sync_Rp.Content>>() {}.getType());
+			final Sync.SyncResponseJson<Sync_Rp.Content> response;
+			try (Response httpResponse = call.execute()) {
+				response = SyncCodec.readSyncResponse(App.getDefaultGson(), httpResponse.body().charStream(), Sync_Rp.Content.class);
+			}
+			AppLog.d(TAG, "@@syncRp server response success: " + response.success + " final_revno: " + response.final_revno);
 			SyncRecorder.log(SyncRecorder.EventKind.sync_to_server_post_response_ok, syncSetName, "duration_ms", System.currentTimeMillis() - startTime);
 
 			if (!response.success) {
@@ -610,7 +567,7 @@ public class SyncAdapter extends AbstractThreadedSyncAdapter {
 
 			SyncRecorder.log(SyncRecorder.EventKind.sync_to_server_got_success_data, syncSetName, "final_revno", final_revno, "append_delta_operations_size", append_delta.operations.size());
 
-			final Sync.ApplyAppendDeltaResult applyResult = S.getDb().applyRpAppendDelta(final_revno, append_delta, entitiesBeforeSync, simpleToken);
+			final Sync.ApplyAppendDeltaResult applyResult = S.getDb().applyRpAppendDelta(final_revno, append_delta, journalSeqBeforeSync, simpleToken);
 
 			SyncRecorder.log(SyncRecorder.EventKind.apply_result, syncSetName, "apply_result", applyResult.name());
 
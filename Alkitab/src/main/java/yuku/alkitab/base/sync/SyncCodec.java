@@ -0,0 +1,128 @@
+package yuku.alkitab.base.sync;
+
+import androidx.annotation.NonNull;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+
+/**
+ * Writes the client state of sync requests and reads the responses as json streams,
+ * so that neither is ever held as one string.
+ *
+ * The response is read from the (transparently gunzipped) body one operation at a time,
+ * without the response string and without a json tree of the whole response.
+ */
+public class SyncCodec {
+	static final Charset UTF_8 = Charset.forName("utf-8");
+
+	/**
+	 * The client state as the body of the clientState part of a sync request.
+	 * The json is written to a segmented buffer (not a string), so the body has a length and can be sent more than once.
+	 */
+	@NonNull public static <C> RequestBody clientStateBody(@NonNull final Gson gson, @NonNull final Sync.ClientState<C> clientState, @NonNull final Class<C> contentClass) {
+		final Buffer buffer = new Buffer();
+		try {
+			final JsonWriter out = gson.newJsonWriter(new OutputStreamWriter(buffer.outputStream(), UTF_8));
+			gson.toJson(clientState, TypeToken.getParameterized(Sync.ClientState.class, contentClass).getType(), out);
+			out.flush();
+		} catch (IOException e) {
+			throw new RuntimeException("Writing to a buffer should not fail", e);
+		}
+
+		return new RequestBody() {
+			@Override public MediaType contentType() {
+				return null; // a plain form field, like the other fields of the request
+			}
+
+			@Override public long contentLength() {
+				return buffer.size();
+			}
+
+			@Override public void writeTo(@NonNull final BufferedSink sink) throws IOException {
+				buffer.copyTo(sink.buffer(), 0, buffer.size());
+				sink.emitCompleteSegments();
+			}
+		};
+	}
+
+	/**
+	 * Reads a sync response. Fields other than the ones in {@link Sync.SyncResponseJson} are skipped.
+	 * @throws JsonSyntaxException if the response is not a valid sync response, like {@link Gson#fromJson(Reader, java.lang.reflect.Type)}.
+	 */
+	@NonNull public static <C> Sync.SyncResponseJson<C> readSyncResponse(@NonNull final Gson gson, @NonNull final Reader reader, @NonNull final Class<C> contentClass) throws IOException {
+		@SuppressWarnings("unchecked") final TypeAdapter<Sync.Operation<C>> operationAdapter = (TypeAdapter<Sync.Operation<C>>) gson.getAdapter(TypeToken.getParameterized(Sync.Operation.class, contentClass));
+
+		final JsonReader in = gson.newJsonReader(reader);
+		in.setLenient(true); // as lenient as Gson#fromJson
+
+		try {
+			final Sync.SyncResponseJson<C> res = new Sync.SyncResponseJson<>();
+
+			in.beginObject();
+			while (in.hasNext()) {
+				final String name = in.nextName();
+				if (in.peek() == JsonToken.NULL) {
+					in.nextNull();
+					continue;
+				}
+
+				switch (name) {
+					case "success":
+						res.success = in.nextBoolean();
+						break;
+					case "message":
+						res.message = in.nextString();
+						break;
+					case "final_revno":
+						res.final_revno = in.nextInt();
+						break;
+					case "append_delta":
+						res.append_delta = readDelta(in, operationAdapter);
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+
+			return res;
+		} catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException e) {
+			throw new JsonSyntaxException(e);
+		}
+	}
+
+	@NonNull static <C> Sync.Delta<C> readDelta(@NonNull final JsonReader in, @NonNull final TypeAdapter<Sync.Operation<C>> operationAdapter) throws IOException {
+		final Sync.Delta<C> res = new Sync.Delta<>();
+
+		in.beginObject();
+		while (in.hasNext()) {
+			if (!"operations".equals(in.nextName()) || in.peek() == JsonToken.NULL) {
+				in.skipValue();
+				continue;
+			}
+
+			in.beginArray();
+			while (in.hasNext()) {
+				res.operations.add(operationAdapter.read(in));
+			}
+			in.endArray();
+		}
+		in.endObject();
+
+		return res;
+	}
+}
@@ -54,6 +54,7 @@ public class SyncRecorder {
 		sync_to_server_got_success_data(122, INFO),
 		apply_result(140, INFO),
 		all_succeeded(141, OK),
+		apply_progress(142, INFO),
 		logout_pre(200, INFO),
 		logout_post(201, OK),
 		;
@@ -38,14 +38,53 @@ object SyncUtils {
         return a.content == b.content
     }
 
-    @JvmStatic
-    fun <C> findEntity(list: List<Sync.Entity<C>>, gid: String, kind: String): Sync.Entity<C>? {
+    private data class EntityKey(val kind: String?, val gid: String?)
+
+    /**
+     * Indexes the entities by (kind, gid). When there are duplicates, the first one wins.
+     */
+    private fun <C> indexEntities(list: List<Sync.Entity<C>>): HashMap<EntityKey, Sync.Entity<C>> {
+        val res = HashMap<EntityKey, Sync.Entity<C>>(list.size * 4 / 3 + 1)
         for (entity in list) {
-            if (gid == entity.gid && kind == entity.kind) {
-                return entity
+            val key = EntityKey(entity.kind, entity.gid)
+            if (key !in res) {
+                res[key] = entity
+            }
+        }
+        return res
+    }
+
+    /**
+     * Operations that turn [srcs] (the shadow) into [dsts] (the current entities):
+     * additions and modifications in the order of [dsts], followed by deletions in the order of [srcs].
+     *
+     * Both lists are indexed by (kind, gid) once, so this takes linear time instead of
+     * searching one list for every entity of the other.
+     */
+    @JvmStatic
+    fun <C> computeDelta(srcs: List<Sync.Entity<C>>, dsts: List<Sync.Entity<C>>): Sync.Delta<C> {
+        val delta = Sync.Delta<C>()
+        val srcIndex = indexEntities(srcs)
+        val dstIndex = indexEntities(dsts)
+
+        // additions and modifications
+        for (dst in dsts) {
+            val existing = srcIndex[EntityKey(dst.kind, dst.gid)]
+            if (existing == null) {
+                delta.operations.add(Sync.Operation(Sync.Opkind.add, dst.kind, dst.gid, dst.content))
+            } else if (!isSameContent(dst, existing)) { // only when it changes
+                delta.operations.add(Sync.Operation(Sync.Opkind.mod, dst.kind, dst.gid, dst.content))
             }
         }
-        return null
+
+        // deletions
+        for (src in srcs) {
+            if (EntityKey(src.kind, src.gid) !in dstIndex) {
+                delta.operations.add(Sync.Operation<C>(Sync.Opkind.del, src.kind, src.gid, null))
+            }
+        }
+
+        return delta
     }
 
     interface ThrowEverythingRunnable {
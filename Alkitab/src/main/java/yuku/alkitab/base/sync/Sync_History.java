@@ -1,95 +1,62 @@
 package yuku.alkitab.base.sync;
 
-import android.util.Pair;
 import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
-import com.google.gson.reflect.TypeToken;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.nio.charset.Charset;
+import androidx.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
-import yuku.alkitab.base.App;
 import yuku.alkitab.base.S;
 import yuku.alkitab.base.model.SyncShadow;
 import yuku.alkitab.base.util.History;
-import yuku.alkitab.base.util.Literals;
 
 public class Sync_History {
-	/**
-	 * @return base revno, delta of shadow -> current.
-	 */
-	public static Pair<Sync.ClientState<Content>, List<Sync.Entity<Content>>> getClientStateAndCurrentEntities() {
-		final SyncShadow ss = S.getDb().getSyncShadowBySyncSetName(SyncShadow.SYNC_SET_HISTORY);
-
-		final List<Sync.Entity<Content>> srcs = ss == null? Literals.List(): entitiesFromShadow(ss);
-		final List<Sync.Entity<Content>> dsts = getEntitiesFromCurrent();
-
-		final Sync.Delta<Content> delta = new Sync.Delta<>();
-
-		// additions and modifications (should not happen for history)
-		for (final Sync.Entity<Content> dst : dsts) {
-			final Sync.Entity<Content> existing = SyncUtils.findEntity(srcs, dst.gid, dst.kind);
+	public static final Sync.CurrentEntities<Content> currentEntities = new Sync.CurrentEntities<Content>() {
+		@NonNull @Override public List<Sync.Entity<Content>> listAll() {
+			return getEntitiesFromCurrent();
+		}
 
-			if (existing == null) {
-				delta.operations.add(new Sync.Operation<>(Sync.Opkind.add, dst.kind, dst.gid, dst.content));
-			} else {
-				if (!SyncUtils.isSameContent(dst, existing)) { // only when it changes
-					delta.operations.add(new Sync.Operation<>(Sync.Opkind.mod, dst.kind, dst.gid, dst.content));
-				}
+		@Nullable @Override public Sync.Entity<Content> get(@NonNull final String kind, @NonNull final String gid) {
+			if (!Sync.Entity.KIND_HISTORY_ENTRY.equals(kind)) {
+				return null;
 			}
-		}
 
-		// deletions
-		for (final Sync.Entity<Content> src : srcs) {
-			final Sync.Entity<Content> still_have = SyncUtils.findEntity(dsts, src.gid, src.kind);
-			if (still_have == null) {
-				delta.operations.add(new Sync.Operation<>(Sync.Opkind.del, src.kind, src.gid, null));
+			for (final History.HistoryEntry entry : History.getInstance().listAllEntries()) {
+				if (gid.equals(entry.gid)) {
+					return entityFromHistoryEntry(entry);
+				}
 			}
+			return null;
 		}
+	};
 
-		return Pair.create(new Sync.ClientState<>(ss == null ? 0 : ss.revno, delta), dsts);
-	}
-
-	private static List<Sync.Entity<Content>> entitiesFromShadow(@NonNull final SyncShadow ss) {
-		final BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(ss.data), Charset.forName("utf-8")));
-		final Sync.SyncShadowDataJson<Content> data = App.getDefaultGson().fromJson(reader, new TypeToken<Sync.SyncShadowDataJson<Content>>() {}.getType());
-		return data.entities;
-	}
+	/**
+	 * @return base revno, delta of shadow -> current.
+	 */
+	public static Sync.GetClientStateResult<Content> getClientState() {
+		History.getInstance().journalChanges();
 
-	@NonNull public static SyncShadow shadowFromEntities(@NonNull final List<Sync.Entity<Content>> entities, final int revno) {
-		final Sync.SyncShadowDataJson<Content> data = new Sync.SyncShadowDataJson<>();
-		data.entities = entities;
-		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		final BufferedWriter w = new BufferedWriter(new OutputStreamWriter(baos, Charset.forName("utf-8")));
-		App.getDefaultGson().toJson(data, new TypeToken<Sync.SyncShadowDataJson<Content>>() {}.getType(), w);
-		SyncUtils.wontThrow(w::flush);
-		final SyncShadow res = new SyncShadow();
-		res.data = baos.toByteArray();
-		res.syncSetName = SyncShadow.SYNC_SET_HISTORY;
-		res.revno = revno;
-		return res;
+		// additions and modifications (should not happen for history), and deletions
+		return S.getDb().getSyncClientState(SyncShadow.SYNC_SET_HISTORY, Content.class, currentEntities);
 	}
 
 	@NonNull public static List<Sync.Entity<Content>> getEntitiesFromCurrent() {
 		final List<Sync.Entity<Content>> res = new ArrayList<>();
 
 		for (final History.HistoryEntry entry: History.getInstance().listAllEntries()) {
-			final Content content = new Content();
-			content.ari = entry.ari;
-			content.timestamp = entry.timestamp;
-
-			final Sync.Entity<Content> entity = new Sync.Entity<>(Sync.Entity.KIND_HISTORY_ENTRY, entry.gid, content);
-			res.add(entity);
+			res.add(entityFromHistoryEntry(entry));
 		}
 
 		return res;
 	}
 
+	@NonNull static Sync.Entity<Content> entityFromHistoryEntry(@NonNull final History.HistoryEntry entry) {
+		final Content content = new Content();
+		content.ari = entry.ari;
+		content.timestamp = entry.timestamp;
+
+		return new Sync.Entity<>(Sync.Entity.KIND_HISTORY_ENTRY, entry.gid, content);
+	}
+
 	@Keep
 	public static class Content {
 		public Integer ari;
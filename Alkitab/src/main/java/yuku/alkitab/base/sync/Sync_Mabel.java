@@ -3,122 +3,94 @@ package yuku.alkitab.base.sync;
 import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import com.google.gson.reflect.TypeToken;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
-import yuku.alkitab.base.App;
 import yuku.alkitab.base.S;
 import yuku.alkitab.base.model.SyncShadow;
-import yuku.alkitab.base.util.Literals;
 import yuku.alkitab.base.util.Sqlitil;
 import yuku.alkitab.model.Label;
 import yuku.alkitab.model.Marker;
 import yuku.alkitab.model.Marker_Label;
 
 public class Sync_Mabel {
-	public static Sync.GetClientStateResult<Content> getClientStateAndCurrentEntities() {
-		final SyncShadow ss = S.getDb().getSyncShadowBySyncSetName(SyncShadow.SYNC_SET_MABEL);
-
-		final List<Sync.Entity<Content>> srcs = ss == null? Literals.List(): entitiesFromShadow(ss);
-		final List<Sync.Entity<Content>> dsts = getEntitiesFromCurrent();
-
-		final Sync.Delta<Content> delta = new Sync.Delta<>();
-
-		// additions and modifications
-		for (final Sync.Entity<Content> dst : dsts) {
-			final Sync.Entity<Content> existing = SyncUtils.findEntity(srcs, dst.gid, dst.kind);
-
-			if (existing == null) {
-				delta.operations.add(new Sync.Operation<>(Sync.Opkind.add, dst.kind, dst.gid, dst.content));
-			} else {
-				if (!SyncUtils.isSameContent(dst, existing)) { // only when it changes
-					delta.operations.add(new Sync.Operation<>(Sync.Opkind.mod, dst.kind, dst.gid, dst.content));
-				}
-			}
+	public static final Sync.CurrentEntities<Content> currentEntities = new Sync.CurrentEntities<Content>() {
+		@NonNull @Override public List<Sync.Entity<Content>> listAll() {
+			return getEntitiesFromCurrent();
 		}
 
-		// deletions
-		for (final Sync.Entity<Content> src : srcs) {
-			final Sync.Entity<Content> still_have = SyncUtils.findEntity(dsts, src.gid, src.kind);
-			if (still_have == null) {
-				delta.operations.add(new Sync.Operation<>(Sync.Opkind.del, src.kind, src.gid, null));
+		@Nullable @Override public Sync.Entity<Content> get(@NonNull final String kind, @NonNull final String gid) {
+			switch (kind) {
+				case Sync.Entity.KIND_MARKER: {
+					final Marker marker = S.getDb().getMarkerByGid(gid);
+					return marker == null ? null : entityFromMarker(marker);
+				}
+				case Sync.Entity.KIND_LABEL: {
+					final Label label = S.getDb().getLabelByGid(gid);
+					return label == null ? null : entityFromLabel(label);
+				}
+				case Sync.Entity.KIND_MARKER_LABEL: {
+					final Marker_Label marker_label = S.getDb().getMarker_LabelByGid(gid);
+					return marker_label == null ? null : entityFromMarker_Label(marker_label);
+				}
 			}
+			return null;
 		}
+	};
 
-		return new Sync.GetClientStateResult<>(new Sync.ClientState<>(ss == null ? 0 : ss.revno, delta), srcs, dsts);
-	}
-
-	private static List<Sync.Entity<Content>> entitiesFromShadow(@NonNull final SyncShadow ss) {
-		final BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(ss.data), Charset.forName("utf-8")));
-		final Sync.SyncShadowDataJson<Content> data = App.getDefaultGson().fromJson(reader, new TypeToken<Sync.SyncShadowDataJson<Content>>() {}.getType());
-		return data.entities;
-	}
-
-	@NonNull public static SyncShadow shadowFromEntities(@NonNull final List<Sync.Entity<Content>> entities, final int revno) {
-		final Sync.SyncShadowDataJson<Content> data = new Sync.SyncShadowDataJson<>();
-		data.entities = entities;
-		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		final BufferedWriter w = new BufferedWriter(new OutputStreamWriter(baos, Charset.forName("utf-8")));
-		App.getDefaultGson().toJson(data, new TypeToken<Sync.SyncShadowDataJson<Content>>() {}.getType(), w);
-		SyncUtils.wontThrow(w::flush);
-		final SyncShadow res = new SyncShadow();
-		res.data = baos.toByteArray();
-		res.syncSetName = SyncShadow.SYNC_SET_MABEL;
-		res.revno = revno;
-		return res;
+	/**
+	 * @return base revno, delta of shadow -> current.
+	 */
+	public static Sync.GetClientStateResult<Content> getClientState() {
+		return S.getDb().getSyncClientState(SyncShadow.SYNC_SET_MABEL, Content.class, currentEntities);
 	}
 
 	@NonNull public static List<Sync.Entity<Content>> getEntitiesFromCurrent() {
 		final List<Sync.Entity<Content>> res = new ArrayList<>();
 
-		{ // markers
-			for (final Marker marker : S.getDb().listAllMarkers()) {
-				final Content content = new Content();
-				content.ari = marker.ari;
-				content.caption = marker.caption;
-				content.kind = marker.kind.code;
-				content.verseCount = marker.verseCount;
-				content.createTime = Sqlitil.toInt(marker.createTime);
-				content.modifyTime = Sqlitil.toInt(marker.modifyTime);
-
-				final Sync.Entity<Content> entity = new Sync.Entity<>(Sync.Entity.KIND_MARKER, marker.gid, content);
-				res.add(entity);
-			}
+		for (final Marker marker : S.getDb().listAllMarkers()) {
+			res.add(entityFromMarker(marker));
 		}
 
-		{ // labels
-			for (final Label label : S.getDb().listAllLabels()) {
-				final Content content = new Content();
-				content.title = label.title;
-				content.backgroundColor = label.backgroundColor;
-				content.ordering = label.ordering;
-
-				final Sync.Entity<Content> entity = new Sync.Entity<>(Sync.Entity.KIND_LABEL, label.gid, content);
-				res.add(entity);
-			}
+		for (final Label label : S.getDb().listAllLabels()) {
+			res.add(entityFromLabel(label));
 		}
 
-		{ // marker_labels
-			for (final Marker_Label marker_label : S.getDb().listAllMarker_Labels()) {
-				final Content content = new Content();
-				content.marker_gid = marker_label.marker_gid;
-				content.label_gid = marker_label.label_gid;
-
-				final Sync.Entity<Content> entity = new Sync.Entity<>(Sync.Entity.KIND_MARKER_LABEL, marker_label.gid, content);
-				res.add(entity);
-			}
+		for (final Marker_Label marker_label : S.getDb().listAllMarker_Labels()) {
+			res.add(entityFromMarker_Label(marker_label));
 		}
 
 		return res;
 	}
 
+	@NonNull static Sync.Entity<Content> entityFromMarker(@NonNull final Marker marker) {
+		final Content content = new Content();
+		content.ari = marker.ari;
+		content.caption = marker.caption;
+		content.kind = marker.kind.code;
+		content.verseCount = marker.verseCount;
+		content.createTime = Sqlitil.toInt(marker.createTime);
+		content.modifyTime = Sqlitil.toInt(marker.modifyTime);
+
+		return new Sync.Entity<>(Sync.Entity.KIND_MARKER, marker.gid, content);
+	}
+
+	@NonNull static Sync.Entity<Content> entityFromLabel(@NonNull final Label label) {
+		final Content content = new Content();
+		content.title = label.title;
+		content.backgroundColor = label.backgroundColor;
+		content.ordering = label.ordering;
+
+		return new Sync.Entity<>(Sync.Entity.KIND_LABEL, label.gid, content);
+	}
+
+	@NonNull static Sync.Entity<Content> entityFromMarker_Label(@NonNull final Marker_Label marker_label) {
+		final Content content = new Content();
+		content.marker_gid = marker_label.marker_gid;
+		content.label_gid = marker_label.label_gid;
+
+		return new Sync.Entity<>(Sync.Entity.KIND_MARKER_LABEL, marker_label.gid, content);
+	}
+
 	/**
 	 * Modify or create a label from an entity content. This is called when the server append delta
 	 * asks for an add or a mod operation.
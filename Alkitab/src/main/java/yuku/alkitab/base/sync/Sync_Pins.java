@@ -1,24 +1,14 @@
 package yuku.alkitab.base.sync;
 
-import android.util.Pair;
 import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
-import com.google.gson.reflect.TypeToken;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.nio.charset.Charset;
+import androidx.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import yuku.alkitab.base.App;
 import yuku.alkitab.base.S;
 import yuku.alkitab.base.model.SyncShadow;
-import yuku.alkitab.base.util.Literals;
 import yuku.alkitab.base.util.Sqlitil;
 import yuku.alkitab.base.widget.AttributeView;
 import yuku.alkitab.model.ProgressMark;
@@ -27,61 +17,27 @@ import yuku.alkitab.model.ProgressMark;
  * Pin is the new name for progress mark.
  */
 public class Sync_Pins {
-	private static final String GID_SPECIAL_PINS = "g2:pins";
+	public static final String GID_SPECIAL_PINS = "g2:pins";
 
-	/**
-	 * @return base revno, delta of shadow -> current.
-	 */
-	public static Pair<Sync.ClientState<Content>, List<Sync.Entity<Content>>> getClientStateAndCurrentEntities() {
-		final SyncShadow ss = S.getDb().getSyncShadowBySyncSetName(SyncShadow.SYNC_SET_PINS);
-
-		final List<Sync.Entity<Content>> srcs = ss == null? Literals.List(): entitiesFromShadow(ss);
-		final List<Sync.Entity<Content>> dsts = getEntitiesFromCurrent();
-
-		final Sync.Delta<Content> delta = new Sync.Delta<>();
-
-		// additions and modifications (should not happen at all for pins)
-		for (final Sync.Entity<Content> dst : dsts) {
-			final Sync.Entity<Content> existing = SyncUtils.findEntity(srcs, dst.gid, dst.kind);
-
-			if (existing == null) {
-				delta.operations.add(new Sync.Operation<>(Sync.Opkind.add, dst.kind, dst.gid, dst.content));
-			} else {
-				if (!SyncUtils.isSameContent(dst, existing)) { // only when it changes
-					delta.operations.add(new Sync.Operation<>(Sync.Opkind.mod, dst.kind, dst.gid, dst.content));
-				}
-			}
+	public static final Sync.CurrentEntities<Content> currentEntities = new Sync.CurrentEntities<Content>() {
+		@NonNull @Override public List<Sync.Entity<Content>> listAll() {
+			return getEntitiesFromCurrent();
 		}
 
-		// deletions
-		for (final Sync.Entity<Content> src : srcs) {
-			final Sync.Entity<Content> still_have = SyncUtils.findEntity(dsts, src.gid, src.kind);
-			if (still_have == null) {
-				delta.operations.add(new Sync.Operation<>(Sync.Opkind.del, src.kind, src.gid, null));
+		@Nullable @Override public Sync.Entity<Content> get(@NonNull final String kind, @NonNull final String gid) {
+			if (Sync.Entity.KIND_PINS.equals(kind) && GID_SPECIAL_PINS.equals(gid)) {
+				return getEntitiesFromCurrent().get(0);
 			}
+			return null;
 		}
+	};
 
-		return Pair.create(new Sync.ClientState<>(ss == null ? 0 : ss.revno, delta), dsts);
-	}
-
-	private static List<Sync.Entity<Content>> entitiesFromShadow(@NonNull final SyncShadow ss) {
-		final BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(ss.data), Charset.forName("utf-8")));
-		final Sync.SyncShadowDataJson<Content> data = App.getDefaultGson().fromJson(reader, new TypeToken<Sync.SyncShadowDataJson<Content>>() {}.getType());
-		return data.entities;
-	}
-
-	@NonNull public static SyncShadow shadowFromEntities(@NonNull final List<Sync.Entity<Content>> entities, final int revno) {
-		final Sync.SyncShadowDataJson<Content> data = new Sync.SyncShadowDataJson<>();
-		data.entities = entities;
-		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		final BufferedWriter w = new BufferedWriter(new OutputStreamWriter(baos, Charset.forName("utf-8")));
-		App.getDefaultGson().toJson(data, new TypeToken<Sync.SyncShadowDataJson<Content>>() {}.getType(), w);
-		SyncUtils.wontThrow(w::flush);
-		final SyncShadow res = new SyncShadow();
-		res.data = baos.toByteArray();
-		res.syncSetName = SyncShadow.SYNC_SET_PINS;
-		res.revno = revno;
-		return res;
+	/**
+	 * @return base revno, delta of shadow -> current.
+	 */
+	public static Sync.GetClientStateResult<Content> getClientState() {
+		// additions and modifications (should not happen at all for pins), and deletions
+		return S.getDb().getSyncClientState(SyncShadow.SYNC_SET_PINS, Content.class, currentEntities);
 	}
 
 	@NonNull public static List<Sync.Entity<Content>> getEntitiesFromCurrent() {
@@ -1,85 +1,65 @@
 package yuku.alkitab.base.sync;
 
-import android.util.Pair;
 import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
-import com.google.gson.reflect.TypeToken;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.nio.charset.Charset;
+import androidx.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import yuku.alkitab.base.App;
 import yuku.alkitab.base.S;
 import yuku.alkitab.base.model.ReadingPlan;
 import yuku.alkitab.base.model.SyncShadow;
-import yuku.alkitab.base.util.Literals;
+import yuku.alkitab.util.IntArrayList;
 
 /**
  * Reading plan sync
  */
 public class Sync_Rp {
-	/**
-	 * @return base revno, delta of shadow -> current.
-	 */
-	public static Pair<Sync.ClientState<Content>, List<Sync.Entity<Content>>> getClientStateAndCurrentEntities() {
-		final SyncShadow ss = S.getDb().getSyncShadowBySyncSetName(SyncShadow.SYNC_SET_RP);
-
-		final List<Sync.Entity<Content>> srcs = ss == null? Literals.List(): entitiesFromShadow(ss);
-		final List<Sync.Entity<Content>> dsts = getEntitiesFromCurrent();
-
-		final Sync.Delta<Content> delta = new Sync.Delta<>();
+	public static final Sync.CurrentEntities<Content> currentEntities = new Sync.CurrentEntities<Content>() {
+		@NonNull @Override public List<Sync.Entity<Content>> listAll() {
+			return getEntitiesFromCurrent();
+		}
 
-		// additions and modifications
-		for (final Sync.Entity<Content> dst : dsts) {
-			final Sync.Entity<Content> existing = SyncUtils.findEntity(srcs, dst.gid, dst.kind);
+		@Nullable @Override public Sync.Entity<Content> get(@NonNull final String kind, @NonNull final String gid) {
+			if (!Sync.Entity.KIND_RP_PROGRESS.equals(kind)) {
+				return null;
+			}
 
-			if (existing == null) {
-				delta.operations.add(new Sync.Operation<>(Sync.Opkind.add, dst.kind, dst.gid, dst.content));
-			} else {
-				if (!SyncUtils.isSameContent(dst, existing)) { // only when it changes
-					delta.operations.add(new Sync.Operation<>(Sync.Opkind.mod, dst.kind, dst.gid, dst.content));
+			// the same as in getEntitiesFromCurrent, for one gid
+			boolean planExists = false;
+			Long startTime = null;
+			for (final ReadingPlan.ReadingPlanInfo info : S.getDb().listAllReadingPlanInfo()) {
+				if (ReadingPlan.gidFromName(info.name).equals(gid)) {
+					planExists = true;
+					startTime = info.startTime;
+					break;
 				}
 			}
-		}
 
-		// deletions
-		for (final Sync.Entity<Content> src : srcs) {
-			final Sync.Entity<Content> still_have = SyncUtils.findEntity(dsts, src.gid, src.kind);
-			if (still_have == null) {
-				delta.operations.add(new Sync.Operation<>(Sync.Opkind.del, src.kind, src.gid, null));
+			final IntArrayList readingCodes = S.getDb().getAllReadingCodesByReadingPlanProgressGid(gid);
+			if (!planExists && readingCodes.size() == 0) {
+				return null;
 			}
-		}
 
-		return Pair.create(new Sync.ClientState<>(ss == null ? 0 : ss.revno, delta), dsts);
-	}
+			final Content content = new Content();
+			content.startTime = startTime;
+			final Set<Integer> done = content.done = new LinkedHashSet<>(readingCodes.size());
+			for (int i = 0, len = readingCodes.size(); i < len; i++) {
+				done.add(readingCodes.get(i));
+			}
 
-	private static List<Sync.Entity<Content>> entitiesFromShadow(@NonNull final SyncShadow ss) {
-		final BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(ss.data), Charset.forName("utf-8")));
-		final Sync.SyncShadowDataJson<Content> data = App.getDefaultGson().fromJson(reader, new TypeToken<Sync.SyncShadowDataJson<Content>>() {}.getType());
-		return data.entities;
-	}
+			return new Sync.Entity<>(Sync.Entity.KIND_RP_PROGRESS, gid, content);
+		}
+	};
 
-	@NonNull public static SyncShadow shadowFromEntities(@NonNull final List<Sync.Entity<Content>> entities, final int revno) {
-		final Sync.SyncShadowDataJson<Content> data = new Sync.SyncShadowDataJson<>();
-		data.entities = entities;
-		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		final BufferedWriter w = new BufferedWriter(new OutputStreamWriter(baos, Charset.forName("utf-8")));
-		App.getDefaultGson().toJson(data, new TypeToken<Sync.SyncShadowDataJson<Content>>() {}.getType(), w);
-		SyncUtils.wontThrow(w::flush);
-		final SyncShadow res = new SyncShadow();
-		res.data = baos.toByteArray();
-		res.syncSetName = SyncShadow.SYNC_SET_RP;
-		res.revno = revno;
-		return res;
+	/**
+	 * @return base revno, delta of shadow -> current.
+	 */
+	public static Sync.GetClientStateResult<Content> getClientState() {
+		return S.getDb().getSyncClientState(SyncShadow.SYNC_SET_RP, Content.class, currentEntities);
 	}
 
 	@NonNull public static List<Sync.Entity<Content>> getEntitiesFromCurrent() {
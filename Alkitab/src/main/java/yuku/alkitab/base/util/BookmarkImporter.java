@@ -303,6 +303,7 @@ public class BookmarkImporter {
 			db.endTransaction();
 		}
 
+		InternalDb.markersChanged();
 		App.getLbm().sendBroadcast(new Intent(IsiActivity.ACTION_ATTRIBUTE_MAP_CHANGED));
 	}
 }
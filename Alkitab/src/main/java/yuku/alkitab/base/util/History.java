@@ -16,9 +16,11 @@ import yuku.alkitab.model.util.Gid;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 public class History {
@@ -45,6 +47,12 @@ public class History {
 
 	final List<HistoryEntry> entries;
 
+	/**
+	 * Gids of the entries added or removed since the last {@link #journalChanges()}.
+	 * History is not in the database, so there is no trigger to write them to the sync journal.
+	 */
+	private final Set<String> unjournaledGids = new LinkedHashSet<>();
+
 	private static History instance;
 
 	@NonNull
@@ -66,6 +74,8 @@ public class History {
 	}
 
 	public synchronized void save() {
+		journalChanges();
+
 		final HistoryJson obj = new HistoryJson();
 		obj.entries = this.entries;
 		final String new_json = App.getDefaultGson().toJson(obj);
@@ -90,6 +100,7 @@ public class History {
 			if (entry.ari == ari) {
 				// YES. Remove this.
 				entries.remove(i);
+				unjournaled(entry.gid);
 			}
 		}
 
@@ -100,13 +111,33 @@ public class History {
 		entry.timestamp = timestamp;
 		entry.creator_id = InstallationUtil.getInstallationId();
 		entries.add(0, entry);
+		unjournaled(entry.gid);
 
 		// and remove if overflow
 		while (entries.size() > MAX_HISTORY_ENTRIES) {
-			entries.remove(MAX_HISTORY_ENTRIES);
+			unjournaled(entries.remove(MAX_HISTORY_ENTRIES).gid);
+		}
+	}
+
+	private void unjournaled(final String gid) {
+		if (gid != null) {
+			unjournaledGids.add(gid);
 		}
 	}
 
+	/**
+	 * Writes the entries changed by {@link #add(int)} to the sync journal, all in one transaction.
+	 * This is done when saving instead of on every add, and must be done before the sync reads the journal.
+	 */
+	public synchronized void journalChanges() {
+		if (unjournaledGids.isEmpty()) {
+			return;
+		}
+
+		S.getDb().insertSyncJournal(SyncShadow.SYNC_SET_HISTORY, Sync.Entity.KIND_HISTORY_ENTRY, unjournaledGids);
+		unjournaledGids.clear();
+	}
+
 	public synchronized int getSize() {
 		return entries.size();
 	}
@@ -133,14 +164,16 @@ public class History {
 	 * Also updates the shadow (both data and the revno).
 	 * @return {@link yuku.alkitab.base.sync.Sync.ApplyAppendDeltaResult#ok} if history and sync shadow are updated. Otherwise else.
 	 */
-	@NonNull public Sync.ApplyAppendDeltaResult applyHistoryAppendDelta(final int final_revno, @NonNull final Sync.Delta<Sync_History.Content> append_delta, @NonNull final List<Sync.Entity<Sync_History.Content>> entitiesBeforeSync, @NonNull final String simpleTokenBeforeSync) {
+	@NonNull public Sync.ApplyAppendDeltaResult applyHistoryAppendDelta(final int final_revno, @NonNull final Sync.Delta<Sync_History.Content> append_delta, final long journalSeqBeforeSync, @NonNull final String simpleTokenBeforeSync) {
 		final ArrayList<HistoryEntry> entriesCopy = new ArrayList<>(entries);
 
 		Sync.notifySyncUpdatesOngoing(SyncShadow.SYNC_SET_HISTORY, true);
 		try {
-			{ // if the current entities are not the same as the ones had when contacting server, reject this append delta.
-				final List<Sync.Entity<Sync_History.Content>> currentEntities = Sync_History.getEntitiesFromCurrent();
-				if (!Sync.entitiesEqual(currentEntities, entitiesBeforeSync)) {
+			// entries added since the client state was gathered must be seen as dirty below
+			journalChanges();
+
+			{ // if the current entities have changed since contacting server, reject this append delta.
+				if (S.getDb().hasSyncJournalChangesAfter(SyncShadow.SYNC_SET_HISTORY, journalSeqBeforeSync)) {
 					return Sync.ApplyAppendDeltaResult.dirty_entities;
 				}
 			}
@@ -172,8 +205,8 @@ public class History {
 			this.entries.addAll(new ArrayList<>(entriesCopy));
 
 			// if we reach here, the local database has been updated with the append delta.
-			final SyncShadow ss = Sync_History.shadowFromEntities(Sync_History.getEntitiesFromCurrent(), final_revno);
-			S.getDb().insertOrUpdateSyncShadowBySyncSetName(ss);
+			S.getDb().replaceSyncShadowEntities(SyncShadow.SYNC_SET_HISTORY, Sync_History.getEntitiesFromCurrent(), final_revno);
+			S.getDb().cleanUpSyncJournal(SyncShadow.SYNC_SET_HISTORY, Sync_History.Content.class, Sync_History.currentEntities);
 			this.save();
 
 			// when debugging, print
@@ -32,9 +32,16 @@ public class QueryTokenizer {
 	 * No tokens will be an empty string or "+" (just a plus sign). After the optional '+', there will not be another '+'.
 	 */
 	public static String[] tokenize(String query) {
+		return tokenize(query, Locale.getDefault());
+	}
+
+	/**
+	 * Same as {@link #tokenize(String)}, but lowercases the query with the given locale instead of the default one.
+	 */
+	public static String[] tokenize(String query, Locale locale) {
 		final List<String> raw_tokens = new ArrayList<>();
 
-		final Matcher matcher = QueryTokenizer.oneToken.matcher(query.toLowerCase(Locale.getDefault()));
+		final Matcher matcher = QueryTokenizer.oneToken.matcher(query.toLowerCase(locale));
 		while (matcher.find()) {
 			raw_tokens.add(matcher.group(1) + matcher.group(2));
 		}
@@ -7,7 +7,6 @@ import yuku.alkitab.util.IntArrayList;
 import yuku.bintex.BintexReader;
 import yuku.bintex.ValueMap;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Date;
@@ -22,7 +21,7 @@ public class ReadingPlanManager {
 
 		try {
 			// check the file has correct header and infos
-			final BintexReader reader = new BintexReader(new ByteArrayInputStream(data));
+			final BintexReader reader = new BintexReader(data);
 			final boolean ok = readInfo(info, name, reader);
 			reader.close();
 
@@ -74,7 +73,7 @@ public class ReadingPlanManager {
 		try {
 			ReadingPlan readingPlan = new ReadingPlan();
 
-			final BintexReader reader = new BintexReader(inputStream);
+			final BintexReader reader = new BintexReader(inputStream, 8192);
 			try {
 				if (!readInfo(readingPlan.info, name, reader)) {
 					throw new RuntimeException("Cannot read info");
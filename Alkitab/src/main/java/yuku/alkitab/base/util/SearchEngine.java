@@ -1,8 +1,11 @@
 package yuku.alkitab.base.util;
 
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
 import android.graphics.Typeface;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.text.SpannableStringBuilder;
@@ -10,10 +13,12 @@ import android.text.Spanned;
 import android.text.style.ForegroundColorSpan;
 import android.text.style.StyleSpan;
 import android.util.SparseBooleanArray;
-import android.util.TimingLogger;
 import yuku.alkitab.base.App;
 import yuku.alkitab.base.config.AppConfig;
+import yuku.alkitab.base.model.VersionImpl;
 import yuku.alkitab.debug.BuildConfig;
+import yuku.alkitab.io.RevIndex;
+import yuku.alkitab.io.Utf8Search;
 import yuku.alkitab.model.Book;
 import yuku.alkitab.model.SingleChapterVerses;
 import yuku.alkitab.model.Version;
@@ -21,16 +26,24 @@ import yuku.alkitab.util.Ari;
 import yuku.alkitab.util.IntArrayList;
 import yuku.bintex.BintexReader;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SearchEngine {
 	static final String TAG = SearchEngine.class.getSimpleName();
@@ -62,12 +75,6 @@ public class SearchEngine {
 		};
 	}
 
-	static class RevIndex extends HashMap<String, int[]> {
-		public RevIndex() {
-			super(32768);
-		}
-	}
-
 	/**
 	 * Contains processed tokens that is more efficient to be passed in to methods here such as
 	 * {@link #hilite(CharSequence, ReadyTokens, int)} and {@link #satisfiesTokens(String, ReadyTokens)}.
@@ -105,11 +112,189 @@ public class SearchEngine {
 		}
 	}
 
-	private static SoftReference<RevIndex> cache_revIndex;
+	/**
+	 * Receives the results of a search while it is still running.
+	 */
+	public interface ResultSink {
+		/**
+		 * Called on the searching thread with the next part of the results.
+		 * The parts come in ari order, so appending them gives the whole result in ari order.
+		 * The list is not modified by the search engine afterwards.
+		 */
+		void onResults(@NonNull IntArrayList aris);
+
+		/**
+		 * Checked between books. The search stops without giving more results once this returns true.
+		 */
+		boolean isCancelled();
+	}
+
+	static class AppendingSink implements ResultSink {
+		final IntArrayList res;
+
+		AppendingSink(final IntArrayList res) {
+			this.res = res;
+		}
+
+		@Override
+		public void onResults(@NonNull final IntArrayList aris) {
+			for (int i = 0, len = aris.size(); i < len; i++) {
+				res.add(aris.get(i));
+			}
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+	}
+
+	/**
+	 * Time spent in each phase of a search. Written to the log, and shown in the debug stats of the search screen.
+	 */
+	public static class Timing {
+		final String label;
+		final long startTime = SystemClock.elapsedRealtime();
+		long lastTime = startTime;
+		final StringBuilder splits = new StringBuilder();
+
+		public Timing(final String label) {
+			this.label = label;
+		}
+
+		public synchronized void addSplit(final String splitLabel) {
+			final long now = SystemClock.elapsedRealtime();
+			splits.append(splitLabel).append(": ").append(now - lastTime).append(" ms\n");
+			lastTime = now;
+		}
+
+		public synchronized long getTotalMs() {
+			return lastTime - startTime;
+		}
+
+		public void dumpToLog() {
+			AppLog.d(TAG, toString());
+		}
+
+		@Override
+		public synchronized String toString() {
+			return label + "\n" + splits + "total: " + (lastTime - startTime) + " ms";
+		}
+	}
+
+	/**
+	 * The packed index is mapped from the apk (or, failing that, takes about as much heap as the asset itself),
+	 * so it is kept for the lifetime of the process instead of being reloaded after the GC clears it.
+	 */
+	private static RevIndex cache_revIndex;
 	private static Semaphore revIndexLoading = new Semaphore(1);
 
+	/**
+	 * Grepping whole books is spread over this many threads.
+	 */
+	static final int GREP_THREADS = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * How many chapters are grepped to estimate how selective each token is, when there is no reverse index.
+	 */
+	static final int PLAN_SAMPLE_CHAPTERS = 16;
+	@Nullable static final ExecutorService grepExecutor = GREP_THREADS > 1 ? Executors.newFixedThreadPool(GREP_THREADS) : null;
+
 	public static IntArrayList searchByGrep(final Version version, final Query query) {
-		String[] tokens = QueryTokenizer.tokenize(query.query_string);
+		final String[] tokens = planTokens(version, grepTokens(query.query_string), query.bookIds);
+
+		// really search
+		IntArrayList result = null;
+
+		for (final String token : tokens) {
+			final IntArrayList prev = result;
+
+			{
+				long ms = System.currentTimeMillis();
+				result = searchByGrepInside(version, token, prev, query.bookIds);
+				AppLog.d(TAG, "search token '" + token + "' needed: " + (System.currentTimeMillis() - ms) + " ms");
+			}
+
+			if (prev != null) {
+				AppLog.d(TAG, "Will intersect " + prev.size() + " elements with " + result.size() + " elements...");
+				result = intersect(prev, result);
+				AppLog.d(TAG, "... the result is " + result.size() + " elements");
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gives the same results as {@link #searchByGrep(Version, Query)}, but to the sink one book at a time, in ari order,
+	 * so that the first results can be shown long before the whole version has been read.
+	 * All tokens are matched within a book before moving on to the next book.
+	 */
+	public static void searchByGrep(final Version version, final Query query, final ResultSink sink, final Timing timing) {
+		final String[] tokens = planTokens(version, grepTokens(query.query_string), query.bookIds);
+		timing.addSplit("Tokenize and plan query");
+		if (tokens.length == 0) return;
+
+		final List<Book> books = new ArrayList<>();
+		for (final Book book : version.getConsecutiveBooks()) {
+			if (query.bookIds.get(book.bookId, false)) {
+				books.add(book);
+			}
+		}
+
+		final BookGrep bookGrep = (v, book) -> {
+			IntArrayList bookRes = null;
+			for (final String token : tokens) {
+				if (bookRes == null) {
+					final boolean hasPlus = QueryTokenizer.isPlussedToken(token);
+					bookRes = new IntArrayList();
+					searchByGrepForOneBook(v, book, hasPlus ? QueryTokenizer.tokenWithoutPlus(token) : token, hasPlus, bookRes);
+				} else {
+					bookRes = intersect(bookRes, searchByGrepInside(v, token, bookRes, query.bookIds));
+				}
+				if (bookRes.size() == 0) break;
+			}
+			return bookRes;
+		};
+
+		final int[] count = {0};
+		final ResultSink timedSink = new ResultSink() {
+			@Override
+			public void onResults(@NonNull final IntArrayList aris) {
+				if (count[0] == 0) {
+					timing.addSplit("First results (" + aris.size() + ")");
+				}
+				count[0] += aris.size();
+				sink.onResults(aris);
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return sink.isCancelled();
+			}
+		};
+
+		if (!grepBooksInParallel(version, books, bookGrep, timedSink)) {
+			for (final Book book : books) {
+				if (sink.isCancelled()) break;
+
+				final IntArrayList bookRes = bookGrep.grep(version, book);
+				if (bookRes.size() > 0) {
+					timedSink.onResults(bookRes);
+				}
+			}
+		}
+
+		timing.addSplit((sink.isCancelled() ? "Cancelled grep of " : "Grep ") + books.size() + " books (" + count[0] + ")");
+		timing.dumpToLog();
+	}
+
+	/**
+	 * Tokens of the query without duplicates, longest first, which is the order they are grepped
+	 * when nothing better is known (see {@link #planTokens(Version, String[], SparseBooleanArray)}).
+	 */
+	private static String[] grepTokens(final String query_string) {
+		String[] tokens = QueryTokenizer.tokenize(query_string);
 
 		// sort by word length, then alphabetically
 		Arrays.sort(tokens, (object1, object2) -> {
@@ -137,26 +322,168 @@ public class SearchEngine {
 			AppLog.d(TAG, "tokens = " + Arrays.toString(tokens));
 		}
 
-		// really search
-		IntArrayList result = null;
+		return tokens;
+	}
+
+	/**
+	 * Orders the tokens so that the one that matches the fewest verses is grepped first.
+	 * Every later token is then grepped only in the chapters where all tokens before it matched,
+	 * so the fewer candidates the first tokens leave, the fewer chapters have to be loaded again.
+	 *
+	 * The number of matching verses comes from the {@link VersionRevIndex} of the version when it is ready,
+	 * otherwise it is estimated by grepping a small sample of the searched chapters.
+	 * Tokens with the same estimate keep their order.
+	 */
+	static String[] planTokens(final Version version, final String[] tokens, final SparseBooleanArray bookIds) {
+		if (tokens.length < 2) return tokens;
+
+		final long[] estimates = new long[tokens.length];
+		final RevIndex revIndex = VersionRevIndex.get(version);
+		if (revIndex != null) {
+			for (int i = 0; i < tokens.length; i++) {
+				estimates[i] = estimateByRevIndex(revIndex, tokens[i]);
+			}
+		} else {
+			estimateBySample(version, tokens, bookIds, estimates);
+		}
+
+		// stable sort, so equal estimates keep the longest-first order
+		final Integer[] order = new Integer[tokens.length];
+		for (int i = 0; i < order.length; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> Long.compare(estimates[a], estimates[b]));
+
+		final String[] res = new String[tokens.length];
+		for (int i = 0; i < order.length; i++) {
+			res[i] = tokens[order[i]];
+		}
+		AppLog.d(TAG, "planned tokens = " + Arrays.toString(res) + " estimates = " + Arrays.toString(estimates));
+		return res;
+	}
+
+	/**
+	 * @return the number of verses containing a word that contains the rarest piece of the token,
+	 * which is never less than the number of verses matching the token.
+	 */
+	private static long estimateByRevIndex(final RevIndex revIndex, final String token) {
+		long res = Long.MAX_VALUE;
+		final IntArrayList ordinals = new IntArrayList();
+		for (final byte[] key : VersionRevIndex.keysForToken(QueryTokenizer.tokenWithoutPlus(token))) {
+			ordinals.clear();
+			revIndex.findContaining(key, ordinals);
+
+			long docFreq = 0;
+			for (int i = 0, len = ordinals.size(); i < len; i++) {
+				docFreq += revIndex.docFreq(ordinals.get(i));
+			}
+			res = Math.min(res, docFreq);
+		}
+		return res;
+	}
+
+	/**
+	 * Counts the verses matching each token in about {@link #PLAN_SAMPLE_CHAPTERS} chapters spread evenly over the searched books.
+	 * Each sampled chapter is loaded only once for all tokens.
+	 */
+	private static void estimateBySample(final Version version, final String[] tokens, final SparseBooleanArray bookIds, final long[] estimates) {
+		int chapterCount = 0;
+		final List<Book> books = new ArrayList<>();
+		for (final Book book : version.getConsecutiveBooks()) {
+			if (bookIds.get(book.bookId, false)) {
+				books.add(book);
+				chapterCount += book.chapter_count;
+			}
+		}
+
+		// a small range is grepped quickly anyway, sampling would only add to it
+		if (chapterCount < PLAN_SAMPLE_CHAPTERS * 4) return;
+
+		final int step = chapterCount / PLAN_SAMPLE_CHAPTERS;
+		final IntArrayList hits = new IntArrayList();
+		int chapterIndex = 0;
+		for (final Book book : books) {
+			for (int chapter_1 = 1; chapter_1 <= book.chapter_count; chapter_1++, chapterIndex++) {
+				if (chapterIndex % step != step / 2) continue;
+
+				final String oneChapter = version.loadChapterTextLowercasedWithoutSplit(book, chapter_1);
+				if (oneChapter == null) continue;
+
+				for (int i = 0; i < tokens.length; i++) {
+					final boolean hasPlus = QueryTokenizer.isPlussedToken(tokens[i]);
+					hits.clear();
+					searchInChapterText(oneChapter, hasPlus ? QueryTokenizer.tokenWithoutPlus(tokens[i]) : tokens[i], hasPlus, 0, hits);
+					estimates[i] += hits.size();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Search in a version that has a {@link VersionRevIndex}. The index only tells which verses may contain the tokens,
+	 * so the chapters of those verses are then grepped exactly like {@link #searchByGrep(Version, Query)} does,
+	 * and the result is always the same as that of grep.
+	 * Falls back to grep when the index is not ready yet or the query has nothing to look up.
+	 * The results are given to the sink at once, except when falling back to grep.
+	 */
+	public static void searchByVersionRevIndex(final Version version, final Query query, final ResultSink sink, final Timing timing) {
+		final RevIndex revIndex = VersionRevIndex.get(version);
+		if (revIndex == null) {
+			AppLog.d(TAG, "revindex of the version is not ready, using grep");
+			searchByGrep(version, query, sink, timing);
+			return;
+		}
 
+		final String[] tokens = grepTokens(query.query_string);
+
+		// Every letter-or-digit piece of every token must be contained in some word of a matching verse.
+		final List<IntArrayList> ordinalsPerKey = new ArrayList<>();
+		final IntArrayList docFreqs = new IntArrayList();
 		for (final String token : tokens) {
-			final IntArrayList prev = result;
+			for (final byte[] key : VersionRevIndex.keysForToken(QueryTokenizer.tokenWithoutPlus(token))) {
+				addTokenOrdinals(revIndex, key, false, ordinalsPerKey, docFreqs);
+			}
+		}
+		timing.addSplit("lookup dictionary for " + ordinalsPerKey.size() + " key(s)");
 
-			{
-				long ms = System.currentTimeMillis();
-				result = searchByGrepInside(version, token, prev, query.bookIds);
-				AppLog.d(TAG, "search token '" + token + "' needed: " + (System.currentTimeMillis() - ms) + " ms");
+		if (ordinalsPerKey.size() == 0) {
+			searchByGrep(version, query, sink, timing);
+			return;
+		}
+
+		final Integer[] order = new Integer[ordinalsPerKey.size()];
+		for (int i = 0; i < order.length; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> Integer.compare(docFreqs.get(a), docFreqs.get(b)));
+
+		IntArrayList aris = null;
+		for (final int k : order) {
+			final IntArrayList ordinals = ordinalsPerKey.get(k);
+			if (aris == null) {
+				aris = revIndex.union(ordinals);
+			} else {
+				aris = revIndex.retainAny(aris, ordinals);
 			}
+			if (aris.size() == 0) break;
+		}
+		timing.addSplit("merge postings (" + aris.size() + ")");
 
-			if (prev != null) {
-				AppLog.d(TAG, "Will intersect " + prev.size() + " elements with " + result.size() + " elements...");
-				result = intersect(prev, result);
-				AppLog.d(TAG, "... the result is " + result.size() + " elements");
+		IntArrayList result = new IntArrayList(aris.size());
+		for (int i = 0, len = aris.size(); i < len; i++) {
+			final int ari = aris.get(i);
+			if (query.bookIds.get(Ari.toBook(ari), false)) {
+				result.add(ari);
 			}
 		}
 
-		return result;
+		// verify the candidates by grepping only their chapters, rarest token first
+		for (final String token : planTokens(version, tokens, query.bookIds)) {
+			if (result.size() == 0) break;
+			result = intersect(result, searchByGrepInside(version, token, result, query.bookIds));
+		}
+		timing.addSplit("grep candidate chapters (" + result.size() + ")");
+		timing.dumpToLog();
+
+		if (result.size() > 0 && !sink.isCancelled()) {
+			sink.onResults(result);
+		}
 	}
 
 	private static IntArrayList intersect(IntArrayList a, IntArrayList b) {
@@ -227,16 +554,27 @@ public class SearchEngine {
 		}
 
 		if (source == null) {
+			final List<Book> books = new ArrayList<>();
 			for (Book book: version.getConsecutiveBooks()) {
 				if (!bookIds.get(book.bookId, false)) {
 					continue; // the book is not included in selected books to be searched
 				}
+				books.add(book);
+			}
 
-				for (int chapter_1 = 1; chapter_1 <= book.chapter_count; chapter_1++) {
-					// try to find it wholly in a chapter
-					final int ariBc = Ari.encode(book.bookId, chapter_1, 0);
-					searchByGrepForOneChapter(version, book, chapter_1, token, hasPlus, ariBc, res);
-				}
+			final String bookToken = token;
+			final BookGrep bookGrep = (v, book) -> {
+				final IntArrayList bookRes = new IntArrayList();
+				searchByGrepForOneBook(v, book, bookToken, hasPlus, bookRes);
+				return bookRes;
+			};
+			if (grepBooksInParallel(version, books, bookGrep, new AppendingSink(res))) {
+				if (BuildConfig.DEBUG) AppLog.d(TAG, "searchByGrepInside " + books.size() + " books in parallel done. res.size = " + res.size());
+				return res;
+			}
+
+			for (Book book: books) {
+				searchByGrepForOneBook(version, book, token, hasPlus, res);
 
 				if (BuildConfig.DEBUG) AppLog.d(TAG, "searchByGrepInside book " + book.shortName + " done. res.size = " + res.size());
 			}
@@ -267,6 +605,178 @@ public class SearchEngine {
 		return res;
 	}
 
+	private static void searchByGrepForOneBook(final Version version, final Book book, final String token, final boolean hasPlus, final IntArrayList res) {
+		for (int chapter_1 = 1; chapter_1 <= book.chapter_count; chapter_1++) {
+			// try to find it wholly in a chapter
+			final int ariBc = Ari.encode(book.bookId, chapter_1, 0);
+			searchByGrepForOneChapter(version, book, chapter_1, token, hasPlus, ariBc, res);
+		}
+	}
+
+	/**
+	 * Greps one book (all of its chapters) of the given version.
+	 */
+	interface BookGrep {
+		IntArrayList grep(Version version, Book book);
+	}
+
+	/**
+	 * Greps the books with several threads, each of them reading from its own copy of the version.
+	 * The results are given to the sink in the order of the books, each as soon as the books before it are done.
+	 * @return false if the version cannot be read in parallel, in which case nothing is done.
+	 */
+	private static boolean grepBooksInParallel(final Version version, final List<Book> books, final BookGrep bookGrep, final ResultSink sink) {
+		if (grepExecutor == null || books.size() < 2 || !(version instanceof VersionImpl)) {
+			return false;
+		}
+
+		final List<VersionImpl> borrowed = borrowGrepCopies((VersionImpl) version, Math.min(GREP_THREADS, books.size()));
+		try {
+			if (borrowed.size() < 2) {
+				return false;
+			}
+
+			final BlockingQueue<VersionImpl> copies = new ArrayBlockingQueue<>(borrowed.size(), false, borrowed);
+			final AtomicBoolean stop = new AtomicBoolean();
+
+			final List<Future<IntArrayList>> futures = new ArrayList<>(books.size());
+			for (final Book book : books) {
+				futures.add(grepExecutor.submit(() -> {
+					if (stop.get()) return null;
+
+					final VersionImpl copy = copies.take();
+					try {
+						// books of the copy, since their offsets belong to the reader of the copy
+						final Book copyBook = copy.getBook(book.bookId);
+						return copyBook == null ? new IntArrayList(0) : bookGrep.grep(copy, copyBook);
+					} finally {
+						copies.add(copy);
+					}
+				}));
+			}
+
+			try {
+				for (final Future<IntArrayList> future : futures) {
+					final IntArrayList bookRes = getUninterruptibly(future);
+					if (sink.isCancelled()) break;
+					if (bookRes.size() > 0) {
+						sink.onResults(bookRes);
+					}
+				}
+			} finally {
+				// the copies can only be given back when no worker is using them anymore
+				stop.set(true);
+				for (final Future<IntArrayList> future : futures) {
+					try {
+						getUninterruptibly(future);
+					} catch (RuntimeException ignored) {
+					}
+				}
+			}
+			return true;
+		} finally {
+			returnGrepCopies((VersionImpl) version, borrowed);
+		}
+	}
+
+	private static <T> T getUninterruptibly(final Future<T> future) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					interrupted = true; // the workers are not interruptible, wait for them anyway
+				} catch (ExecutionException e) {
+					throw new RuntimeException("grep worker failed", e.getCause());
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Copies of one version (see {@link VersionImpl#openAnother()}) that no grep is using at the moment.
+	 * They are kept for the next grep of the same version and the next token of the same search,
+	 * since opening a copy reads the headers of the file again. Guarded by itself.
+	 */
+	private static final List<VersionImpl> idleGrepCopies = new ArrayList<>();
+	/**
+	 * {@link VersionImpl#getFileKey()} of the version the idle copies are of.
+	 */
+	private static String idleGrepCopiesKey;
+
+	/**
+	 * Takes idle copies of the version, and opens more if there are not enough.
+	 * The copies must be given back with {@link #returnGrepCopies(VersionImpl, List)}.
+	 */
+	private static List<VersionImpl> borrowGrepCopies(final VersionImpl version, final int count) {
+		final String key = version.getFileKey();
+		if (key == null) {
+			return new ArrayList<>(0);
+		}
+
+		final List<VersionImpl> res = new ArrayList<>(count);
+		final List<VersionImpl> stale = new ArrayList<>();
+		synchronized (idleGrepCopies) {
+			if (key.equals(idleGrepCopiesKey)) {
+				while (res.size() < count && idleGrepCopies.size() > 0) {
+					res.add(idleGrepCopies.remove(idleGrepCopies.size() - 1));
+				}
+			} else {
+				stale.addAll(idleGrepCopies);
+				idleGrepCopies.clear();
+				idleGrepCopiesKey = key;
+			}
+		}
+		closeAll(stale);
+
+		while (res.size() < count) {
+			final VersionImpl copy = version.openAnother();
+			if (copy == null) break;
+			res.add(copy);
+		}
+		return res;
+	}
+
+	private static void returnGrepCopies(final VersionImpl version, final List<VersionImpl> copies) {
+		final String key = version.getFileKey();
+		final List<VersionImpl> excess = new ArrayList<>();
+		synchronized (idleGrepCopies) {
+			for (final VersionImpl copy : copies) {
+				if (key != null && key.equals(idleGrepCopiesKey) && idleGrepCopies.size() < GREP_THREADS) {
+					idleGrepCopies.add(copy);
+				} else {
+					excess.add(copy);
+				}
+			}
+		}
+		closeAll(excess);
+	}
+
+	/**
+	 * Closes the idle copies of the version grepped last. Called when the active version changes
+	 * and when the system asks the app to trim its memory. Copies being used are closed when they are given back.
+	 */
+	public static void closeGrepCopies() {
+		final List<VersionImpl> idle;
+		synchronized (idleGrepCopies) {
+			idle = new ArrayList<>(idleGrepCopies);
+			idleGrepCopies.clear();
+			idleGrepCopiesKey = null;
+		}
+		closeAll(idle);
+	}
+
+	private static void closeAll(final List<VersionImpl> copies) {
+		for (final VersionImpl copy : copies) {
+			copy.close();
+		}
+	}
+
 	/**
 	 * @param token searched token without plusses
 	 * @param res (output) result aris
@@ -274,12 +784,78 @@ public class SearchEngine {
 	 * @param hasPlus whether the token had plus
 	 */
 	private static void searchByGrepForOneChapter(final Version version, final Book book, final int chapter_1, final String token, final boolean hasPlus, final int ariBc, final IntArrayList res) {
+		// Whole-word tokens need to look at the chars around each match, so only plain tokens are searched in the bytes.
+		if (!hasPlus && version instanceof VersionImpl) {
+			final GrepBuffers buffers = grepBuffers.get();
+			if (((VersionImpl) version).loadChapterTextLowercasedBytes(book, chapter_1, buffers.text)) {
+				searchInChapterBytes(buffers.text, buffers.patternFor(token), ariBc, res);
+				return;
+			}
+		}
+
 		// This is a string of one chapter with verses joined by 0x0a ('\n')
 		final String oneChapter = version.loadChapterTextLowercasedWithoutSplit(book, chapter_1);
 		if (oneChapter == null) {
 			return;
 		}
 
+		searchInChapterText(oneChapter, token, hasPlus, ariBc, res);
+	}
+
+	/**
+	 * Buffers of each grep thread, so that grepping a whole version does not allocate for every chapter.
+	 */
+	static class GrepBuffers {
+		final Utf8Search.Text text = new Utf8Search.Text();
+		Utf8Search.Pattern pattern;
+
+		Utf8Search.Pattern patternFor(final String token) {
+			if (pattern == null || !pattern.token.equals(token)) {
+				pattern = new Utf8Search.Pattern(token);
+			}
+			return pattern;
+		}
+	}
+
+	private static final ThreadLocal<GrepBuffers> grepBuffers = new ThreadLocal<GrepBuffers>() {
+		@Override
+		protected GrepBuffers initialValue() {
+			return new GrepBuffers();
+		}
+	};
+
+	/**
+	 * Same as {@link #searchInChapterText(String, String, boolean, int, IntArrayList)} for tokens without plus,
+	 * on the lowercased UTF-8 bytes of the chapter.
+	 */
+	private static void searchInChapterBytes(final Utf8Search.Text text, final Utf8Search.Pattern pattern, final int ariBc, final IntArrayList res) {
+		final int[] verseEnds = text.verseEnds;
+		final int n = pattern.length();
+
+		int verse_0 = 0;
+		int pos = pattern.indexOf(text, 0);
+		while (pos != -1) {
+			while (verseEnds[verse_0] <= pos) {
+				verse_0++;
+			}
+
+			final int verseEnd = verseEnds[verse_0];
+			if (pos + n > verseEnd) {
+				// spans two verses, which would have been separated by '\n'
+				pos = pattern.indexOf(text, pos + 1);
+			} else {
+				res.add(ariBc + verse_0 + 1); // +1 to make it verse_1
+				// the rest of this verse does not matter anymore
+				pos = pattern.indexOf(text, verseEnd);
+			}
+		}
+	}
+
+	/**
+	 * @param oneChapter lowercased text of one chapter with verses joined by 0x0a ('\n')
+	 * @see #searchByGrepForOneChapter(Version, Book, int, String, boolean, int, IntArrayList)
+	 */
+	private static void searchInChapterText(final String oneChapter, final String token, final boolean hasPlus, final int ariBc, final IntArrayList res) {
 		int verse_0 = 0;
 		int lastV = -1;
 
@@ -347,7 +923,10 @@ public class SearchEngine {
 	}
 
 	public static IntArrayList searchByRevIndex(final Version version, final Query query) {
-		TimingLogger timing = new TimingLogger("RevIndex", "searchByRevIndex");
+		return searchByRevIndex(version, query, new Timing("searchByRevIndex"));
+	}
+
+	public static IntArrayList searchByRevIndex(final Version version, final Query query, final Timing timing) {
 		RevIndex revIndex;
 		revIndexLoading.acquireUninterruptibly();
 		try {
@@ -361,10 +940,6 @@ public class SearchEngine {
 		}
 		timing.addSplit("Load rev index");
 
-		boolean[] passBitmapOr = new boolean[32768];
-		boolean[] passBitmapAnd = new boolean[32768];
-		Arrays.fill(passBitmapAnd, true);
-
 		final ReadyTokens rt = new ReadyTokens(QueryTokenizer.tokenize(query.query_string));
 
 		if (BuildConfig.DEBUG) {
@@ -395,62 +970,51 @@ public class SearchEngine {
 			}
 		}
 
+		// For each token, find the words in the dictionary that satisfy it.
+		// Multiword tokens are verified by loading the text below, but each of their pure-letter words
+		// must still be contained in some indexed word, so they can narrow down the candidates too.
+		final List<IntArrayList> ordinalsPerToken = new ArrayList<>();
+		final IntArrayList docFreqs = new IntArrayList();
 		for (int i = 0; i < rt.token_count; i++) {
-			if (rt.multiwords_tokens[i] != null) {
-				// This is multiword token, handled separately below
-				continue;
-			}
-
-			final String token_bare = rt.tokens[i];
-			final boolean plussed = rt.hasPlusses[i];
-
-			Arrays.fill(passBitmapOr, false);
-
-			for (Map.Entry<String, int[]> e : revIndex.entrySet()) {
-				String word = e.getKey();
-
-				boolean match = false;
-				if (plussed) {
-					if (word.equals(token_bare)) match = true;
-				} else {
-					if (word.contains(token_bare)) match = true;
-				}
-
-				if (match) {
-					int[] lids = e.getValue();
-					for (int lid : lids) {
-						passBitmapOr[lid] = true; // OR operation
+			final String[] multiword = rt.multiwords_tokens[i];
+			if (multiword != null) {
+				for (final String word : multiword) {
+					if (isIndexableLetters(word)) {
+						addTokenOrdinals(revIndex, RevIndex.toKey(word), false, ordinalsPerToken, docFreqs);
 					}
 				}
+			} else {
+				addTokenOrdinals(revIndex, RevIndex.toKey(rt.tokens[i]), rt.hasPlusses[i], ordinalsPerToken, docFreqs);
 			}
-
-			int c = 0;
-			for (boolean b : passBitmapOr) {
-				if (b) c++;
-			}
-			timing.addSplit("gather lid for token '" + token_bare + "' (" + c + ")");
-
-			// AND operation with existing word(s)
-			for (int j = passBitmapOr.length - 1; j >= 0; j--) {
-				passBitmapAnd[j] &= passBitmapOr[j];
+		}
+		timing.addSplit("lookup dictionary for " + ordinalsPerToken.size() + " token(s)");
+
+		// AND the tokens, starting from the one with the fewest lids, so that later tokens
+		// only need to be probed at the remaining candidates.
+		final Integer[] order = new Integer[ordinalsPerToken.size()];
+		for (int i = 0; i < order.length; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> Integer.compare(docFreqs.get(a), docFreqs.get(b)));
+
+		IntArrayList lids = null;
+		for (final int t : order) {
+			final IntArrayList ordinals = ordinalsPerToken.get(t);
+			if (lids == null) {
+				lids = revIndex.union(ordinals);
+			} else {
+				lids = revIndex.retainAny(lids, ordinals);
 			}
-			timing.addSplit("AND operation");
+			timing.addSplit("merge postings of " + ordinals.size() + " word(s) (" + lids.size() + ")");
+			if (lids.size() == 0) break;
 		}
 
 		IntArrayList res = new IntArrayList();
-		for (int i = 0, len = passBitmapAnd.length; i < len; i++) {
-			if (passBitmapAnd[i]) {
-				if (wholeBibleSearched) {
-					int ari = LidToAri.lidToAri(i);
-					if (ari > 0) res.add(ari);
-				} else {
-					// check first if this lid is in the searched portion
-					int bookId = LidToAri.bookIdForLid(i);
-					if (bookId >= 0 && searchedBookIds[bookId]) {
-						int ari = LidToAri.lidToAri(i);
-						if (ari > 0) res.add(ari);
-					}
-				}
+		if (lids == null) { // no usable tokens at all, every verse is a candidate
+			for (int lid = 1; lid <= 31102; lid++) {
+				addLidIfSearched(lid, wholeBibleSearched, searchedBookIds, res);
+			}
+		} else {
+			for (int i = 0, len = lids.size(); i < len; i++) {
+				addLidIfSearched(lids.get(i), wholeBibleSearched, searchedBookIds, res);
 			}
 		}
 		timing.addSplit("convert matching lids to aris (" + res.size() + ")");
@@ -517,9 +1081,59 @@ public class SearchEngine {
 		return res;
 	}
 
+	/**
+	 * Looks up the dictionary words satisfying one token and records them along with their total document frequency.
+	 * A token that matches no words at all is still recorded, so that the AND operation results in nothing.
+	 * @param key the token as returned by {@link RevIndex#toKey(String)}, or null if it cannot be in the index
+	 */
+	private static void addTokenOrdinals(final RevIndex revIndex, @Nullable final byte[] key, final boolean plussed, final List<IntArrayList> ordinalsPerToken, final IntArrayList docFreqs) {
+		final IntArrayList ordinals = new IntArrayList();
+		if (key != null) {
+			if (plussed) {
+				final int ordinal = revIndex.findExact(key);
+				if (ordinal >= 0) ordinals.add(ordinal);
+			} else {
+				revIndex.findContaining(key, ordinals);
+			}
+		}
+
+		int docFreq = 0;
+		for (int i = 0, len = ordinals.size(); i < len; i++) {
+			docFreq += revIndex.docFreq(ordinals.get(i));
+		}
+
+		ordinalsPerToken.add(ordinals);
+		docFreqs.add(docFreq);
+	}
+
+	/**
+	 * Whether the word consists only of the characters that the revindex words are made of (lowercased a-z).
+	 */
+	private static boolean isIndexableLetters(final String word) {
+		for (int i = 0, len = word.length(); i < len; i++) {
+			final char c = word.charAt(i);
+			if (c < 'a' || c > 'z') return false;
+		}
+		return word.length() > 0;
+	}
+
+	private static void addLidIfSearched(final int lid, final boolean wholeBibleSearched, final boolean[] searchedBookIds, final IntArrayList res) {
+		if (wholeBibleSearched) {
+			int ari = LidToAri.lidToAri(lid);
+			if (ari > 0) res.add(ari);
+		} else {
+			// check first if this lid is in the searched portion
+			int bookId = LidToAri.bookIdForLid(lid);
+			if (bookId >= 0 && searchedBookIds[bookId]) {
+				int ari = LidToAri.lidToAri(lid);
+				if (ari > 0) res.add(ari);
+			}
+		}
+	}
+
 	public static void preloadRevIndex() {
 		Background.run(() -> {
-			TimingLogger timing = new TimingLogger("RevIndex", "preloadRevIndex");
+			final Timing timing = new Timing("preloadRevIndex");
 			revIndexLoading.acquireUninterruptibly();
 			try {
 				loadRevIndex();
@@ -535,7 +1149,10 @@ public class SearchEngine {
 	 * Revindex: an index used for searching quickly.
 	 * The index is keyed on the word for searching, and the value is the list of verses' lid (KJV verse number, 1..31102).
 	 *
-	 * Format of the Revindex file:
+	 * The preferred asset is "*_revindex2_bt.bt", in the packed format of {@link RevIndex}, which is memory-mapped
+	 * and queried in place. When that is not available, the legacy asset is parsed and packed in memory.
+	 *
+	 * Format of the legacy Revindex file:
 	 *   int total_word_count
 	 *   {
 	 *      uint8 word_len
@@ -558,12 +1175,74 @@ public class SearchEngine {
 	 */
 	private static RevIndex loadRevIndex() {
 		if (cache_revIndex != null) {
-			RevIndex res = cache_revIndex.get();
-			if (res != null) {
-				return res;
+			return cache_revIndex;
+		}
+
+		RevIndex res = openPackedRevIndex("internal/" + AppConfig.get().internalPrefix + "_revindex2_bt.bt");
+		if (res == null) {
+			res = parseLegacyRevIndex();
+		}
+
+		cache_revIndex = res;
+		return res;
+	}
+
+	/**
+	 * Maps the asset directly from the apk when it is stored uncompressed, otherwise reads it whole in bulk.
+	 * @return null if the asset is not available or not valid.
+	 */
+	@Nullable
+	private static RevIndex openPackedRevIndex(final String assetPath) {
+		final AssetManager assets = App.context.getAssets();
+
+		ByteBuffer buf = null;
+		try {
+			final AssetFileDescriptor afd = assets.openFd(assetPath);
+			try {
+				final FileInputStream fis = afd.createInputStream();
+				try {
+					buf = fis.getChannel().map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength());
+				} finally {
+					fis.close();
+				}
+			} finally {
+				afd.close();
+			}
+		} catch (IOException e) {
+			// compressed in the apk, or not there at all
+		}
+
+		if (buf == null) {
+			try {
+				final InputStream is = assets.open(assetPath);
+				try {
+					final ByteArrayOutputStream baos = new ByteArrayOutputStream(Math.max(is.available(), 4096));
+					final byte[] chunk = new byte[65536];
+					while (true) {
+						final int read = is.read(chunk);
+						if (read < 0) break;
+						baos.write(chunk, 0, read);
+					}
+					buf = ByteBuffer.wrap(baos.toByteArray());
+				} finally {
+					is.close();
+				}
+			} catch (IOException e) {
+				AppLog.d(TAG, "Packed RevIndex is not available");
+				return null;
 			}
 		}
 
+		try {
+			return RevIndex.open(buf);
+		} catch (IOException e) {
+			AppLog.e(TAG, "Packed RevIndex is not valid", e);
+			return null;
+		}
+	}
+
+	@Nullable
+	private static RevIndex parseLegacyRevIndex() {
 		final InputStream assetInputStream;
 		try {
 			assetInputStream = App.context.getAssets().open("internal/" + AppConfig.get().internalPrefix + "_revindex_bt.bt");
@@ -572,12 +1251,10 @@ public class SearchEngine {
 			return null;
 		}
 
-		final RevIndex res = new RevIndex();
-		final InputStream raw = new BufferedInputStream(assetInputStream, 65536);
-
+		final RevIndex.Builder builder = new RevIndex.Builder(RevIndex.KEY_KIND_LID);
 		byte[] buf = new byte[256];
 		try {
-			BintexReader br = new BintexReader(raw);
+			BintexReader br = new BintexReader(assetInputStream, 65536);
 
 			int total_word_count = br.readInt();
 			int word_count = 0;
@@ -607,7 +1284,7 @@ public class SearchEngine {
 						lids[pos++] = lid;
 					}
 
-					res.put(word, lids);
+					builder.add(word, lids);
 				}
 
 				word_count += word_by_len_count;
@@ -621,8 +1298,7 @@ public class SearchEngine {
 			return null;
 		}
 
-		cache_revIndex = new SoftReference<>(res);
-		return res;
+		return builder.build();
 	}
 
 	/**
@@ -0,0 +1,434 @@
+package yuku.alkitab.base.util;
+
+import android.os.Process;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import yuku.alkitab.base.model.VersionImpl;
+import yuku.alkitab.io.RevIndex;
+import yuku.alkitab.model.Book;
+import yuku.alkitab.model.Version;
+import yuku.alkitab.util.Ari;
+import yuku.alkitab.util.IntArrayList;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Reverse index for versions other than the internal one. The postings are aris instead of lids,
+ * so any book/chapter/verse layout can be indexed.
+ *
+ * The index is built in the background the first time a version is opened, one book at a time,
+ * from a copy of the version (see {@link VersionImpl#openAnother()}), so that the reader does not wait for the lock of the version.
+ * The words of each finished book are appended to a progress file (suffix {@link #PROGRESS_FILE_SUFFIX}),
+ * so a build that is interrupted, for example because the process is killed, continues from the next book.
+ * The finished index is stored next to the yes file with the suffix {@link #FILE_SUFFIX}, in the format of {@link RevIndex}.
+ *
+ * Words are the maximal runs of letters or digits in the lowercased verse text, formatting codes included,
+ * encoded in UTF-8. Any piece of a query token made of letters or digits is therefore contained in
+ * some word of every verse that grep search would find, so the index gives a superset of the grep results.
+ * {@link SearchEngine#searchByVersionRevIndex(Version, SearchEngine.Query)} uses it to narrow down the chapters to grep.
+ */
+public class VersionRevIndex {
+	static final String TAG = VersionRevIndex.class.getSimpleName();
+
+	public static final String FILE_SUFFIX = ".revindex";
+	public static final String PROGRESS_FILE_SUFFIX = ".revindex.part";
+	static final int PROGRESS_MAGIC = 0x52495031; // "RIP1"
+
+	/**
+	 * Runs longer than the dictionary allows are stored as chunks that start every {@link #CHUNK_STEP} bytes,
+	 * so any piece up to this length is still contained in one chunk.
+	 */
+	public static final int MAX_KEY_BYTES = 127;
+	static final int CHUNK_STEP = 128;
+	static final int CHUNK_SIZE = 255;
+
+	static final Charset utf8 = Charset.forName("UTF-8");
+
+	/**
+	 * One version is indexed at a time, so opening many versions at once does not hog the CPU.
+	 */
+	static final Executor executor = Executors.newSingleThreadExecutor();
+
+	static final Map<Version, RevIndex> loaded = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * Yes filename to the versions of that file that wait for the index being prepared.
+	 * Guarded by itself.
+	 */
+	static final Map<String, List<Version>> pending = new HashMap<>();
+
+	public static File indexFileFor(@NonNull final String yesFilename) {
+		return new File(yesFilename + FILE_SUFFIX);
+	}
+
+	static File progressFileFor(@NonNull final String yesFilename) {
+		return new File(yesFilename + PROGRESS_FILE_SUFFIX);
+	}
+
+	/**
+	 * Makes the index of the version available, building it in the background if it does not exist yet
+	 * or is older than the yes file.
+	 */
+	public static void onVersionOpened(@NonNull final String yesFilename, @NonNull final Version version) {
+		if (loaded.containsKey(version)) return;
+
+		synchronized (pending) {
+			final List<Version> waiting = pending.get(yesFilename);
+			if (waiting != null) {
+				// being prepared for another instance of the same file, this one gets it too
+				if (!waiting.contains(version)) waiting.add(version);
+				return;
+			}
+			pending.put(yesFilename, new ArrayList<>(Collections.singletonList(version)));
+		}
+
+		executor.execute(() -> {
+			Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+			RevIndex revIndex = null;
+			try {
+				revIndex = prepare(yesFilename, version);
+			} catch (Exception e) {
+				AppLog.e(TAG, "Failed to prepare revindex for " + yesFilename, e);
+			} finally {
+				final List<Version> waiting;
+				synchronized (pending) {
+					waiting = pending.remove(yesFilename);
+				}
+				if (revIndex != null) {
+					for (final Version v : waiting) {
+						loaded.put(v, revIndex);
+					}
+				}
+			}
+		});
+	}
+
+	@Nullable
+	static RevIndex prepare(final String yesFilename, final Version version) throws IOException {
+		final File yesFile = new File(yesFilename);
+		final File indexFile = indexFileFor(yesFilename);
+
+		if (indexFile.exists() && indexFile.lastModified() >= yesFile.lastModified()) {
+			final RevIndex revIndex = open(indexFile);
+			if (revIndex != null && revIndex.getKeyKind() == RevIndex.KEY_KIND_ARI) {
+				return revIndex;
+			}
+		}
+
+		// read from a copy, so that the version in use is not locked while indexing
+		final VersionImpl copy = version instanceof VersionImpl ? ((VersionImpl) version).openAnother() : null;
+		final File progressFile = progressFileFor(yesFilename);
+		final long startTime = System.currentTimeMillis();
+		final RevIndex built;
+		try {
+			built = build(copy != null ? copy : version, yesFile, progressFile);
+		} finally {
+			if (copy != null) {
+				copy.close();
+			}
+		}
+		AppLog.d(TAG, "Built revindex for " + yesFilename + " with " + built.getWordCount() + " words in " + (System.currentTimeMillis() - startTime) + " ms");
+
+		if (!write(built, indexFile)) {
+			// cannot store next to the yes file, but it can still be used for this session
+			return built;
+		}
+
+		//noinspection ResultOfMethodCallIgnored
+		progressFile.delete();
+
+		final RevIndex mapped = open(indexFile);
+		return mapped != null ? mapped : built;
+	}
+
+	/**
+	 * @return null if the index of the version is not ready (yet)
+	 */
+	@Nullable
+	public static RevIndex get(@NonNull final Version version) {
+		return loaded.get(version);
+	}
+
+	/**
+	 * Deletes the stored index when the yes file is deleted.
+	 */
+	public static void delete(@NonNull final String yesFilename) {
+		//noinspection ResultOfMethodCallIgnored
+		indexFileFor(yesFilename).delete();
+		//noinspection ResultOfMethodCallIgnored
+		progressFileFor(yesFilename).delete();
+	}
+
+	@Nullable
+	static RevIndex open(final File indexFile) {
+		try {
+			final RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+			try {
+				final ByteBuffer buf = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+				return RevIndex.open(buf);
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			AppLog.e(TAG, "Cannot open revindex " + indexFile, e);
+			return null;
+		}
+	}
+
+	static boolean write(final RevIndex revIndex, final File indexFile) {
+		final File tmpFile = new File(indexFile.getPath() + ".tmp");
+		try {
+			final OutputStream os = new BufferedOutputStream(new FileOutputStream(tmpFile), 65536);
+			try {
+				revIndex.writeTo(os);
+			} finally {
+				os.close();
+			}
+			if (!tmpFile.renameTo(indexFile)) {
+				throw new IOException("rename failed");
+			}
+			return true;
+		} catch (IOException e) {
+			AppLog.w(TAG, "Cannot write revindex " + indexFile, e);
+			//noinspection ResultOfMethodCallIgnored
+			tmpFile.delete();
+			return false;
+		}
+	}
+
+	/**
+	 * Indexes the books that are not in the progress file yet, appending each of them to it when done,
+	 * then builds the index of all books.
+	 */
+	static RevIndex build(final Version version, final File yesFile, final File progressFile) throws IOException {
+		final Map<String, IntArrayList> words = new HashMap<>();
+
+		try (RandomAccessFile progress = new RandomAccessFile(progressFile, "rw")) {
+			final Set<Integer> doneBookIds = readProgress(progress, yesFile, words);
+
+			// index in ari order, so that the posting lists of each book are already sorted
+			final Book[] books = version.getConsecutiveBooks().clone();
+			Arrays.sort(books, (a, b) -> Integer.compare(a.bookId, b.bookId));
+
+			for (final Book book : books) {
+				if (doneBookIds.contains(book.bookId)) continue;
+
+				final Map<String, IntArrayList> bookWords = new HashMap<>();
+				for (int chapter_1 = 1; chapter_1 <= book.chapter_count; chapter_1++) {
+					// verses joined by '\n'
+					final String oneChapter = version.loadChapterTextLowercasedWithoutSplit(book, chapter_1);
+					if (oneChapter == null) continue;
+
+					int verse_1 = 1;
+					int start = 0;
+					while (true) {
+						int end = oneChapter.indexOf('\n', start);
+						if (end == -1) end = oneChapter.length();
+
+						addWords(oneChapter, start, end, Ari.encode(book.bookId, chapter_1, verse_1), bookWords);
+
+						if (end == oneChapter.length()) break;
+						start = end + 1;
+						verse_1++;
+					}
+				}
+
+				appendProgress(progress, book.bookId, bookWords);
+
+				for (final Map.Entry<String, IntArrayList> e : bookWords.entrySet()) {
+					final IntArrayList aris = words.get(e.getKey());
+					if (aris == null) {
+						words.put(e.getKey(), e.getValue());
+					} else {
+						final IntArrayList bookAris = e.getValue();
+						for (int i = 0, len = bookAris.size(); i < len; i++) {
+							aris.add(bookAris.get(i));
+						}
+					}
+				}
+			}
+		}
+
+		final RevIndex.Builder builder = new RevIndex.Builder(RevIndex.KEY_KIND_ARI);
+		for (final Map.Entry<String, IntArrayList> e : words.entrySet()) {
+			// books from the progress file may come in any order
+			final int[] aris = e.getValue().toArray();
+			Arrays.sort(aris);
+			builder.add(e.getKey(), aris);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Progress file format:
+	 * <pre>
+	 *   int magic, long yes file length, long yes file last modified
+	 *   then for each indexed book:
+	 *     int size of the rest of the book entry, int bookId, int word count
+	 *     then for each word: ubyte length, byte[] word in UTF-8, int ari count, int[] aris
+	 * </pre>
+	 * Reads the books of the progress file into words, and leaves the file pointer after the last complete book,
+	 * cutting off a book that was not completely written. A progress file of another yes file is emptied.
+	 * @return the bookIds read.
+	 */
+	static Set<Integer> readProgress(final RandomAccessFile progress, final File yesFile, final Map<String, IntArrayList> words) throws IOException {
+		final Set<Integer> res = new HashSet<>();
+
+		boolean valid = false;
+		long end = 0;
+		if (progress.length() >= 20) {
+			progress.seek(0);
+			valid = progress.readInt() == PROGRESS_MAGIC && progress.readLong() == yesFile.length() && progress.readLong() == yesFile.lastModified();
+			end = progress.getFilePointer();
+		}
+
+		if (!valid) {
+			progress.setLength(0);
+			progress.writeInt(PROGRESS_MAGIC);
+			progress.writeLong(yesFile.length());
+			progress.writeLong(yesFile.lastModified());
+			return res;
+		}
+
+		while (end + 4 <= progress.length()) {
+			final int size = progress.readInt();
+			if (size < 8 || end + 4 + size > progress.length()) break; // not completely written
+
+			final byte[] entry = new byte[size];
+			progress.readFully(entry);
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+			final int bookId = in.readInt();
+			for (int i = 0, wordCount = in.readInt(); i < wordCount; i++) {
+				final byte[] run = new byte[in.readUnsignedByte()];
+				in.readFully(run);
+				@SuppressWarnings("deprecation") final String word = new String(run, 0, 0, run.length);
+
+				IntArrayList aris = words.get(word);
+				if (aris == null) {
+					aris = new IntArrayList(4);
+					words.put(word, aris);
+				}
+				for (int j = 0, ariCount = in.readInt(); j < ariCount; j++) {
+					aris.add(in.readInt());
+				}
+			}
+
+			res.add(bookId);
+			end = progress.getFilePointer();
+		}
+
+		progress.setLength(end);
+		progress.seek(end);
+		return res;
+	}
+
+	static void appendProgress(final RandomAccessFile progress, final int bookId, final Map<String, IntArrayList> bookWords) throws IOException {
+		final ByteArrayOutputStream entry = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(entry);
+		out.writeInt(bookId);
+		out.writeInt(bookWords.size());
+		for (final Map.Entry<String, IntArrayList> e : bookWords.entrySet()) {
+			final String word = e.getKey(); // one char per UTF-8 byte
+			out.writeByte(word.length());
+			for (int i = 0, len = word.length(); i < len; i++) {
+				out.writeByte(word.charAt(i));
+			}
+			final IntArrayList aris = e.getValue();
+			out.writeInt(aris.size());
+			for (int i = 0, len = aris.size(); i < len; i++) {
+				out.writeInt(aris.get(i));
+			}
+		}
+		out.flush();
+
+		// size first, so that an entry cut off by a kill is recognized when reading
+		progress.writeInt(entry.size());
+		progress.write(entry.toByteArray());
+	}
+
+	/**
+	 * Adds every run of letters or digits in text[start..end) as a word located at the ari.
+	 */
+	static void addWords(final String text, final int start, final int end, final int ari, final Map<String, IntArrayList> words) {
+		int runStart = -1;
+		for (int i = start; i <= end; i++) {
+			final boolean letter = i < end && Character.isLetterOrDigit(text.charAt(i));
+			if (letter) {
+				if (runStart == -1) runStart = i;
+			} else if (runStart != -1) {
+				final byte[] run = text.substring(runStart, i).getBytes(utf8);
+				if (run.length <= CHUNK_SIZE) {
+					addWord(run, 0, run.length, ari, words);
+				} else {
+					for (int off = 0; ; off += CHUNK_STEP) {
+						final int len = Math.min(CHUNK_SIZE, run.length - off);
+						addWord(run, off, len, ari, words);
+						if (off + len == run.length) break;
+					}
+				}
+				runStart = -1;
+			}
+		}
+	}
+
+	/**
+	 * The word is kept in the map as one char per UTF-8 byte, which is what {@link RevIndex.Builder} expects.
+	 */
+	private static void addWord(final byte[] run, final int off, final int len, final int ari, final Map<String, IntArrayList> words) {
+		@SuppressWarnings("deprecation") final String word = new String(run, 0, off, len);
+		IntArrayList aris = words.get(word);
+		if (aris == null) {
+			aris = new IntArrayList(4);
+			words.put(word, aris);
+		}
+		if (aris.size() == 0 || aris.get(aris.size() - 1) != ari) {
+			aris.add(ari);
+		}
+	}
+
+	/**
+	 * Splits a lowercased query token into the pieces that can be looked up in the index:
+	 * its runs of letters or digits, in UTF-8, that are not longer than {@link #MAX_KEY_BYTES}.
+	 * Every verse that contains the token contains a word that contains each of these pieces.
+	 */
+	public static List<byte[]> keysForToken(final String token) {
+		final List<byte[]> res = new ArrayList<>();
+		int runStart = -1;
+		for (int i = 0, len = token.length(); i <= len; i++) {
+			final boolean letter = i < len && Character.isLetterOrDigit(token.charAt(i));
+			if (letter) {
+				if (runStart == -1) runStart = i;
+			} else if (runStart != -1) {
+				final byte[] key = token.substring(runStart, i).getBytes(utf8);
+				if (key.length <= MAX_KEY_BYTES) {
+					res.add(key);
+				}
+				runStart = -1;
+			}
+		}
+		return res;
+	}
+}
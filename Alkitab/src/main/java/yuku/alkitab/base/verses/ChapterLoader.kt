@@ -0,0 +1,132 @@
+package yuku.alkitab.base.verses
+
+import android.content.ContentResolver
+import android.os.Process
+import yuku.alkitab.base.S
+import yuku.alkitab.base.util.AppLog
+import yuku.alkitab.model.Book
+import yuku.alkitab.model.PericopeBlock
+import yuku.alkitab.model.Version
+import yuku.alkitab.util.Ari
+import java.util.concurrent.CancellationException
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.FutureTask
+
+private const val TAG = "ChapterLoader"
+
+/**
+ * Builds [VersesDataModel]s (verse text, pericopes and verse attributes) of the chapters around the displayed ones
+ * in the background, so that flipping to the previous or next chapter only needs to swap in a model that is already built.
+ *
+ * Each pane (the verses controller of each split) keeps its own window of prepared chapters.
+ * When a pane moves, the chapters that are no longer adjacent are dropped, and their loads are cancelled if they have not started.
+ *
+ * All methods must be called from the main thread.
+ */
+class ChapterLoader(private val contentResolver: ContentResolver) {
+    private data class Key(val version: Version, val versionId: String, val ari_bc: Int)
+
+    private class Load(val key: Key, val task: FutureTask<VersesDataModel?>)
+
+    private val windows = mutableMapOf<Any, List<Load>>()
+
+    /**
+     * Takes the prepared model of a chapter out of the window of the pane.
+     * If the load has been queued but has not started, it is run on the calling thread instead of waiting for the queue.
+     * If it is running, this waits for it to finish, which is not longer than loading it again.
+     *
+     * @return null if the chapter is not in the window, or could not be loaded.
+     */
+    fun take(pane: Any, version: Version, versionId: String, book: Book, chapter_1: Int): VersesDataModel? {
+        val key = Key(version, versionId, Ari.encode(book.bookId, chapter_1, 0))
+        val window = windows[pane] ?: return null
+        val load = window.find { it.key == key } ?: return null
+
+        windows[pane] = window - load
+
+        load.task.run() // no-op if already run or running
+        return try {
+            load.task.get()
+        } catch (e: CancellationException) {
+            null
+        } catch (e: ExecutionException) {
+            AppLog.e(TAG, "Error preparing chapter ${book.reference(chapter_1)}", e)
+            null
+        }
+    }
+
+    /**
+     * Makes the window of the pane the chapters just before and after [chapter_1] in [book].
+     */
+    fun prefetchAround(pane: Any, version: Version, versionId: String, book: Book, chapter_1: Int) {
+        val old = windows[pane].orEmpty()
+        val new = mutableListOf<Load>()
+
+        for (c in intArrayOf(chapter_1 + 1, chapter_1 - 1)) {
+            if (c < 1 || c > book.chapter_count) continue
+
+            val key = Key(version, versionId, Ari.encode(book.bookId, c, 0))
+            val existing = old.find { it.key == key }
+            if (existing != null) {
+                new += existing
+            } else {
+                val task = FutureTask<VersesDataModel?> { build(contentResolver, version, versionId, book, c) }
+                executor.execute(task)
+                new += Load(key, task)
+            }
+        }
+
+        // stale loads, e.g. after flipping quickly several chapters
+        for (load in old) {
+            if (load !in new) load.task.cancel(false)
+        }
+
+        windows[pane] = new
+    }
+
+    /**
+     * Drops everything that has been prepared, for example when the verse attributes have changed.
+     */
+    fun invalidate() {
+        for (window in windows.values) {
+            for (load in window) load.task.cancel(false)
+        }
+        windows.clear()
+    }
+
+    companion object {
+        /**
+         * One chapter at a time, so that prefetching does not compete much with the main thread for the version.
+         */
+        private val executor = Executors.newSingleThreadExecutor { r ->
+            Thread(Runnable {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND)
+                r.run()
+            }, TAG).apply { isDaemon = true }
+        }
+
+        /**
+         * Loads the verse text, pericopes and verse attributes of a chapter. Can be called from any thread.
+         *
+         * @return null if the chapter does not exist in the version.
+         */
+        @JvmStatic
+        fun build(cr: ContentResolver, version: Version, versionId: String, book: Book, chapter_1: Int): VersesDataModel? {
+            val verses = version.loadChapterText(book, chapter_1) ?: return null
+
+            //# max is set to 30 (one chapter has a max of 30 blocks. Already almost impossible)
+            val max = 30
+            val tmp_pericope_aris = IntArray(max)
+            val tmp_pericope_blocks = arrayOfNulls<PericopeBlock>(max)
+            val nblock = version.loadPericope(book.bookId, chapter_1, tmp_pericope_aris, tmp_pericope_blocks, max)
+            val pericope_aris = tmp_pericope_aris.copyOf(nblock)
+            val pericope_blocks = tmp_pericope_blocks.copyOf(nblock).map { block -> block!! }.toTypedArray()
+
+            val ariBc = Ari.encode(book.bookId, chapter_1, 0)
+            val versesAttributes = VerseAttributeLoader.load(S.getDb(), cr, ariBc, verses)
+
+            return VersesDataModel(ariBc, verses, nblock, pericope_aris, pericope_blocks, version, versionId, versesAttributes)
+        }
+    }
+}
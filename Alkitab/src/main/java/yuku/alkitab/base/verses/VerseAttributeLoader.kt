@@ -7,43 +7,90 @@ import yuku.alkitab.base.storage.InternalDb
 import yuku.alkitab.base.util.AppLog
 import yuku.alkitab.base.util.Highlights
 import yuku.alkitab.base.widget.AttributeView
+import yuku.alkitab.model.Marker
 import yuku.alkitab.model.SingleChapterVerses
 import yuku.alkitab.util.Ari
 
 private const val TAG = "VerseAttributeLoader"
 
 object VerseAttributeLoader {
+    /**
+     * Number of books whose markers are kept, enough for both splits and flipping across a book boundary.
+     */
+    private const val CACHED_BOOK_COUNT = 4
+
+    /**
+     * Markers and progress marks of recently shown books, so that showing a chapter does not query the database
+     * as long as the markers have not changed (see [InternalDb.getMarkerGeneration]).
+     */
+    private val bookCache = object : LinkedHashMap<Int, InternalDb.BookAttributes>(CACHED_BOOK_COUNT * 2, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Int, InternalDb.BookAttributes>) = size > CACHED_BOOK_COUNT
+    }
+
+    private fun getBookAttributes(db: InternalDb, bookId: Int): InternalDb.BookAttributes {
+        synchronized(bookCache) {
+            val cached = bookCache[bookId]
+            if (cached != null && cached.generation == InternalDb.getMarkerGeneration()) {
+                return cached
+            }
+        }
+
+        // not holding the lock while querying, so the main thread does not wait for a background load of another book
+        val res = db.getBookAttributes(bookId)
+        synchronized(bookCache) {
+            bookCache[bookId] = res
+        }
+        return res
+    }
+
     @JvmStatic
     fun load(db: InternalDb, contentResolver: ContentResolver, ari_bc: Int, verses: SingleChapterVerses): VersesAttributes {
         // book_ can be empty when the selected (book, chapter) is not available in this version
         if (ari_bc == 0) return VersesAttributes.createEmpty(verses.verseCount)
         val verseCount = verses.verseCount
 
+        val bookAttributes = getBookAttributes(db, Ari.toBook(ari_bc))
+        val chapter_1 = Ari.toChapter(ari_bc)
+
         // 1/3: Bookmarks/Notes/Highlights
         val bookmarkCountMap = IntArray(verseCount)
         val noteCountMap = IntArray(verseCount)
         val highlightColorMap: Array<Highlights.Info?> = arrayOfNulls(verseCount)
 
-        if (db.countMarkersForBookChapter(ari_bc) > 0) {
-            db.putAttributes(ari_bc, bookmarkCountMap, noteCountMap, highlightColorMap)
-        }
+        bookAttributes.markersByChapter[chapter_1]?.let { rows ->
+            for (row in rows) {
+                val mapOffset = Ari.toVerse(row.ari) - 1
+                if (mapOffset >= verseCount) {
+                    AppLog.e(TAG, "mapOffset too many " + mapOffset + " happens on ari 0x" + Integer.toHexString(row.ari))
+                    continue
+                }
 
-        val ariMin = ari_bc and 0xffff00
-        val ariMax = ari_bc or 0x0000ff
+                when (row.kind) {
+                    Marker.Kind.bookmark.code -> bookmarkCountMap[mapOffset] += 1
+                    Marker.Kind.note.code -> noteCountMap[mapOffset] += 1
+                    Marker.Kind.highlight.code -> {
+                        // traverse as far as verseCount, but not past number of verses in this chapter
+                        for (i in mapOffset until minOf(mapOffset + row.verseCount, verseCount)) {
+                            highlightColorMap[i] = row.highlightInfo
+                        }
+                    }
+                }
+            }
+        }
 
         // 2/3: Progress marks
         val progressMarkBitsMap = IntArray(verseCount)
-        for (progressMark in db.listAllProgressMarks()) {
-            val ari = progressMark.ari
-            if (ari < ariMin || ari >= ariMax) {
+        for (i in 0 until bookAttributes.progressMarkAris.size()) {
+            val ari = bookAttributes.progressMarkAris.get(i)
+            if (Ari.toChapter(ari) != chapter_1) {
                 continue
             }
 
             val mapOffset = Ari.toVerse(ari) - 1
-            if (mapOffset >= progressMarkBitsMap.size) {
+            if (mapOffset < 0 || mapOffset >= progressMarkBitsMap.size) {
                 AppLog.e(TAG, "(for progressMarkBitsMap:) mapOffset out of bounds: " + mapOffset + " happened on ari 0x" + Integer.toHexString(ari))
             } else {
-                progressMarkBitsMap[mapOffset] = progressMarkBitsMap[mapOffset] or (1 shl progressMark.preset_id + AttributeView.PROGRESS_MARK_BITS_START)
+                progressMarkBitsMap[mapOffset] = progressMarkBitsMap[mapOffset] or (1 shl bookAttributes.progressMarkPresetIds.get(i) + AttributeView.PROGRESS_MARK_BITS_START)
             }
         }
 
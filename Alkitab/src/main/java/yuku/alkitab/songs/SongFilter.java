@@ -7,6 +7,7 @@ import yuku.kpri.model.Verse;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -14,6 +15,12 @@ import java.util.regex.Pattern;
 public class SongFilter {
 	public static class CompiledFilter {
 		Pattern[] ps;
+		/** The tokens without the '+', lowercased with {@link Locale#ROOT}. Any text that matches contains all of them. */
+		String[] words;
+
+		public String[] getWords() {
+			return words;
+		}
 	}
 
 	public static CompiledFilter compileFilter(String filter_string) {
@@ -21,18 +28,24 @@ public class SongFilter {
 
 		if (filter_string == null || filter_string.trim().length() == 0) {
 			res.ps = null;
+			res.words = new String[0];
 		} else {
-			String[] tokens = QueryTokenizer.tokenize(filter_string);
+			// same locale as searchTextOf, which may have been stored under another default locale
+			String[] tokens = QueryTokenizer.tokenize(filter_string, Locale.ROOT);
 			Pattern[] ps = new Pattern[tokens.length];
+			String[] words = new String[tokens.length];
 			for (int i = 0; i < tokens.length; i++) {
 				String token = tokens[i];
 				if (QueryTokenizer.isPlussedToken(token)) {
-					ps[i] = Pattern.compile("\\b" + Pattern.quote(QueryTokenizer.tokenWithoutPlus(token)) + "\\b", Pattern.CASE_INSENSITIVE);
+					words[i] = QueryTokenizer.tokenWithoutPlus(token);
+					ps[i] = Pattern.compile("\\b" + Pattern.quote(words[i]) + "\\b", Pattern.CASE_INSENSITIVE);
 				} else {
+					words[i] = token;
 					ps[i] = Pattern.compile(Pattern.quote(token), Pattern.CASE_INSENSITIVE);
 				}
 			}
 			res.ps = ps;
+			res.words = words;
 		}
 
 		return res;
@@ -76,6 +89,56 @@ public class SongFilter {
 		return matches == ps.length;
 	}
 
+	/**
+	 * Same as {@link #match(Song, CompiledFilter)}, but on the text returned by {@link #searchTextOf(Song)},
+	 * so that the song does not need to be unmarshalled.
+	 */
+	public static boolean matchSearchText(String searchText, CompiledFilter cf) {
+		Pattern[] ps = cf.ps;
+		if (ps == null) return true; // empty filter? consider it passes
+
+		for (final Pattern p : ps) {
+			if (!p.matcher(searchText).find()) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * All the fields that {@link #match(Song, CompiledFilter)} looks at, lowercased with {@link Locale#ROOT} like the filter tokens,
+	 * one per line. The text is stored in the database, so it must not depend on the default locale at the time. Tokens never contain a line break, so a token cannot match across two fields,
+	 * and the line breaks count as word boundaries just like the start and end of a field.
+	 */
+	public static String searchTextOf(Song song) {
+		final StringBuilder sb = new StringBuilder();
+
+		appendLine(sb, song.code);
+		appendLine(sb, song.title);
+		appendLine(sb, song.title_original);
+		if (song.authors_lyric != null) for (String author_lyric : song.authors_lyric) {
+			appendLine(sb, author_lyric);
+		}
+		if (song.authors_music != null) for (String author_music : song.authors_music) {
+			appendLine(sb, author_music);
+		}
+		appendLine(sb, song.tune);
+
+		for (Lyric lyric : song.lyrics) {
+			for (Verse verse : lyric.verses) {
+				for (String line : verse.lines) {
+					appendLine(sb, line);
+				}
+			}
+		}
+
+		return sb.toString().toLowerCase(Locale.ROOT);
+	}
+
+	private static void appendLine(StringBuilder sb, String s) {
+		if (s == null) return;
+		if (sb.length() > 0) sb.append('\n');
+		sb.append(s);
+	}
+
 	private static boolean match(SongInfo song, Pattern p) {
 		Matcher m = p.matcher("");
 
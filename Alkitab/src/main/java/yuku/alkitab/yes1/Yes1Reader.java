@@ -12,12 +12,12 @@ import yuku.alkitab.model.XrefEntry;
 import yuku.alkitab.util.Ari;
 import yuku.bintex.BintexReader;
 
-import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.Arrays;
 
-public class Yes1Reader implements BibleReader {
+public class Yes1Reader implements BibleReader, Closeable {
 	private static final String TAG = Yes1Reader.class.getSimpleName();
 
 	private RandomAccessFile f;
@@ -41,6 +41,10 @@ public class Yes1Reader implements BibleReader {
 		this.f = new RandomAccessFile(filename, "r");
 	}
 
+	@Override public void close() throws IOException {
+		f.close();
+	}
+
 	/**
 	 * @return size of section
 	 */
@@ -124,7 +128,7 @@ public class Yes1Reader implements BibleReader {
 			int size = skipUntilSection("infoEdisi___");
 			byte[] buf = new byte[size];
 			f.read(buf);
-			BintexReader in = new BintexReader(new ByteArrayInputStream(buf));
+			BintexReader in = new BintexReader(buf);
 
 			String nama = null;
 			label:
@@ -194,7 +198,7 @@ public class Yes1Reader implements BibleReader {
 			int ukuran = skipUntilSection("infoKitab___");
 			byte[] buf = new byte[ukuran];
 			f.read(buf);
-			BintexReader in = new BintexReader(new ByteArrayInputStream(buf));
+			BintexReader in = new BintexReader(buf);
 
 			AppLog.d(TAG, "akan membaca " + this.book_count + " kitab");
 			for (int kitabIndex = 0; kitabIndex < this.book_count; kitabIndex++) {
@@ -0,0 +1,75 @@
+package yuku.alkitab.test;
+
+import junit.framework.TestCase;
+import yuku.alkitab.songs.SongFilter;
+import yuku.kpri.model.Lyric;
+import yuku.kpri.model.Song;
+import yuku.kpri.model.Verse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+public class SongFilterTest extends TestCase {
+	static Song song() {
+		final Song song = new Song();
+		song.code = "KJ 012";
+		song.title = "Amazing Grace";
+		song.title_original = null;
+		song.authors_lyric = Arrays.asList("John Newton");
+		song.authors_music = null;
+		song.tune = "NEW BRITAIN";
+		song.lyrics = new ArrayList<>();
+
+		final Lyric lyric = new Lyric();
+		lyric.verses = new ArrayList<>();
+		final Verse verse = new Verse();
+		verse.lines = Arrays.asList("Amazing grace! How sweet the sound", "That saved a wretch like me!");
+		lyric.verses.add(verse);
+		song.lyrics.add(lyric);
+		return song;
+	}
+
+	public void testSearchTextMatchesLikeSong() throws Exception {
+		final Song song = song();
+		final String searchText = SongFilter.searchTextOf(song);
+
+		for (final String filter : new String[] {
+			"", "grace", "GRACE", "race", "\"race\"", "\"grace\"", "012", "newton", "britain", "wretch sweet",
+			"\"sweet the sound\"", "\"sound that\"", "grace xyz", "\"me\"", "me!", "\"saved\" +like", "%", "_",
+		}) {
+			final SongFilter.CompiledFilter cf = SongFilter.compileFilter(filter);
+			assertEquals(filter, SongFilter.match(song, cf), SongFilter.matchSearchText(searchText, cf));
+
+			// every word of a matching filter is contained in the search text, which the database relies on
+			if (SongFilter.matchSearchText(searchText, cf)) {
+				for (final String word : cf.getWords()) {
+					assertTrue(filter, searchText.contains(word));
+				}
+			}
+		}
+	}
+
+	public void testSearchTextIndependentOfDefaultLocale() throws Exception {
+		final Locale defaultLocale = Locale.getDefault();
+		try {
+			// lowercasing 'I' in Turkish gives a dotless i
+			Locale.setDefault(new Locale("tr", "TR"));
+			final String searchText = SongFilter.searchTextOf(song());
+			assertTrue(SongFilter.matchSearchText(searchText, SongFilter.compileFilter("BRITAIN")));
+
+			Locale.setDefault(Locale.US);
+			assertTrue(SongFilter.matchSearchText(searchText, SongFilter.compileFilter("BRITAIN")));
+			assertTrue(SongFilter.matchSearchText(SongFilter.searchTextOf(song()), SongFilter.compileFilter("britain")));
+
+			Locale.setDefault(new Locale("tr", "TR"));
+			final SongFilter.CompiledFilter cf = SongFilter.compileFilter("BRITAIN");
+			assertEquals(searchText, SongFilter.searchTextOf(song()));
+			for (final String word : cf.getWords()) {
+				assertTrue(word, searchText.contains(word));
+			}
+		} finally {
+			Locale.setDefault(defaultLocale);
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package yuku.alkitab.test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import yuku.alkitab.base.sync.Sync;
+import yuku.alkitab.base.sync.SyncCodec;
+import yuku.alkitab.base.sync.Sync_Mabel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+public class SyncCodecTest extends TestCase {
+	static final Charset UTF_8 = Charset.forName("utf-8");
+	static final Gson gson = new Gson();
+
+	HttpServer server;
+	volatile String lastRequestBody;
+
+	/**
+	 * A local mock sync server: records the request and answers with an append delta of
+	 * the given number of markers, gzipped when the client accepts it.
+	 */
+	void startServer(final int operationCount) throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/sync/api/sync", exchange -> {
+			final ByteArrayOutputStream request = new ByteArrayOutputStream();
+			try (InputStream is = exchange.getRequestBody()) {
+				final byte[] buf = new byte[8192];
+				for (int n; (n = is.read(buf)) > 0; ) {
+					request.write(buf, 0, n);
+				}
+			}
+			lastRequestBody = new String(request.toByteArray(), UTF_8);
+
+			final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+			final boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+			if (gzip) {
+				exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+			}
+			exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+			exchange.sendResponseHeaders(200, 0); // chunked
+
+			try (OutputStream os = gzip ? new GZIPOutputStream(exchange.getResponseBody()) : exchange.getResponseBody(); Writer w = new OutputStreamWriter(os, UTF_8)) {
+				w.write("{\"success\":true,\"unknown\":{\"a\":[1,2]},\"append_delta\":{\"operations\":[");
+				for (int i = 0; i < operationCount; i++) {
+					if (i != 0) w.write(',');
+					w.write("{\"opkind\":\"add\",\"kind\":\"Marker\",\"gid\":\"g" + i + "\",\"creator_id\":\"c\",\"content\":{\"ari\":" + (0x010101 + i) + ",\"kind\":1,\"caption\":\"caption " + i + "\"}}");
+				}
+				w.write("]},\"final_revno\":" + operationCount + "}");
+			}
+		});
+		server.start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (server != null) {
+			server.stop(0);
+		}
+		super.tearDown();
+	}
+
+	static Sync.ClientState<Sync_Mabel.Content> clientState() {
+		final Sync.Delta<Sync_Mabel.Content> delta = new Sync.Delta<>();
+		final Sync_Mabel.Content content = new Sync_Mabel.Content();
+		content.title = "label é中";
+		content.ordering = 3;
+		delta.operations.add(new Sync.Operation<>(Sync.Opkind.add, Sync.Entity.KIND_LABEL, "gl", content));
+		delta.operations.add(new Sync.Operation<>(Sync.Opkind.del, Sync.Entity.KIND_MARKER, "gm", null));
+		return new Sync.ClientState<>(12, delta);
+	}
+
+	public void testClientStateBody() throws Exception {
+		final Sync.ClientState<Sync_Mabel.Content> clientState = clientState();
+		final RequestBody body = SyncCodec.clientStateBody(gson, clientState, Sync_Mabel.Content.class);
+
+		final String expected = gson.toJson(clientState);
+		assertEquals(expected.getBytes(UTF_8).length, body.contentLength());
+
+		// can be written more than once, e.g. when the request is retried
+		for (int i = 0; i < 2; i++) {
+			final Buffer sink = new Buffer();
+			body.writeTo(sink);
+			assertEquals(expected, sink.readUtf8());
+		}
+	}
+
+	public void testSyncWithMockServer() throws Exception {
+		final int operationCount = 20000;
+		startServer(operationCount);
+
+		final Sync.ClientState<Sync_Mabel.Content> clientState = clientState();
+		final RequestBody requestBody = new MultipartBody.Builder()
+			.setType(MultipartBody.FORM)
+			.addFormDataPart("syncSetName", "mabel")
+			.addFormDataPart("clientState", null, SyncCodec.clientStateBody(gson, clientState, Sync_Mabel.Content.class))
+			.build();
+
+		final Request request = new Request.Builder()
+			.url("http://127.0.0.1:" + server.getAddress().getPort() + "/sync/api/sync")
+			.post(requestBody)
+			.build();
+
+		final Sync.SyncResponseJson<Sync_Mabel.Content> response;
+		try (Response httpResponse = new OkHttpClient().newCall(request).execute()) {
+			// okhttp asked for gzip, so it has removed the header and decompresses while the codec reads
+			assertNull(httpResponse.header("Content-Encoding"));
+			response = SyncCodec.readSyncResponse(gson, httpResponse.body().charStream(), Sync_Mabel.Content.class);
+		}
+
+		assertTrue(lastRequestBody.contains("Content-Disposition: form-data; name=\"clientState\"\r\nContent-Length: "));
+		assertTrue(lastRequestBody.contains(gson.toJson(clientState)));
+
+		assertTrue(response.success);
+		assertEquals(operationCount, response.final_revno);
+		assertEquals(operationCount, response.append_delta.operations.size());
+
+		final Sync.Operation<Sync_Mabel.Content> last = response.append_delta.operations.get(operationCount - 1);
+		assertEquals(Sync.Opkind.add, last.opkind);
+		assertEquals(Sync.Entity.KIND_MARKER, last.kind);
+		assertEquals("g" + (operationCount - 1), last.gid);
+		assertEquals("c", last.creator_id);
+		assertEquals(Integer.valueOf(0x010101 + operationCount - 1), last.content.ari);
+		assertEquals("caption " + (operationCount - 1), last.content.caption);
+	}
+
+	public void testReadNotSuccess() throws Exception {
+		final Sync.SyncResponseJson<Sync_Mabel.Content> response = SyncCodec.readSyncResponse(gson, new StringReader("{\"success\":false,\"message\":\"not logged in\",\"append_delta\":null}"), Sync_Mabel.Content.class);
+		assertFalse(response.success);
+		assertEquals("not logged in", response.message);
+		assertNull(response.append_delta);
+	}
+
+	public void testReadSameAsGson() throws Exception {
+		final String json = "{\"final_revno\":5,\"success\":true,\"append_delta\":{\"operations\":[{\"opkind\":\"mod\",\"kind\":\"Label\",\"gid\":\"x\",\"content\":{\"title\":\"t\",\"ordering\":2}},{\"opkind\":\"del\",\"kind\":\"Marker\",\"gid\":\"y\"}]}}";
+
+		final Sync.SyncResponseJson<Sync_Mabel.Content> expected = gson.fromJson(json, com.google.gson.reflect.TypeToken.getParameterized(Sync.SyncResponseJson.class, Sync_Mabel.Content.class).getType());
+		final Sync.SyncResponseJson<Sync_Mabel.Content> actual = SyncCodec.readSyncResponse(gson, new StringReader(json), Sync_Mabel.Content.class);
+
+		assertEquals(expected.success, actual.success);
+		assertEquals(expected.final_revno, actual.final_revno);
+		assertEquals(expected.append_delta.operations.size(), actual.append_delta.operations.size());
+		for (int i = 0; i < expected.append_delta.operations.size(); i++) {
+			final Sync.Operation<Sync_Mabel.Content> e = expected.append_delta.operations.get(i);
+			final Sync.Operation<Sync_Mabel.Content> a = actual.append_delta.operations.get(i);
+			assertEquals(e.opkind, a.opkind);
+			assertEquals(e.kind, a.kind);
+			assertEquals(e.gid, a.gid);
+			assertEquals(e.content, a.content);
+		}
+	}
+
+	public void testReadMalformed() throws Exception {
+		for (final String json : new String[] {"", "[]", "{\"success\":true,\"append_delta\":{\"operations\":[{\"opkind\":", "{\"final_revno\":\"x\"}"}) {
+			try {
+				SyncCodec.readSyncResponse(gson, new StringReader(json), Sync_Mabel.Content.class);
+				fail("no exception for " + json);
+			} catch (JsonSyntaxException expected) {
+				// ok
+			}
+		}
+	}
+}
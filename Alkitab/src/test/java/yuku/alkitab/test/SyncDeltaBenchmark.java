@@ -0,0 +1,47 @@
+package yuku.alkitab.test;
+
+import yuku.alkitab.base.sync.Sync;
+import yuku.alkitab.base.sync.SyncUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times {@link SyncUtils#computeDelta(List, List)} for 10k and 100k entities. Not a test, run its main method by hand;
+ * with hashed indexes, ten times as many entities should take about ten times as long.
+ */
+public class SyncDeltaBenchmark {
+	static List<Sync.Entity<String>> entities(final int n, final Random r) {
+		final List<Sync.Entity<String>> res = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			res.add(new Sync.Entity<>(SyncDeltaTest.kindOf(i), "gid" + r.nextInt(n * 2), "content" + r.nextInt(10)));
+		}
+		return res;
+	}
+
+	static long timeDelta(final int n) {
+		final Random r = new Random(n);
+		final List<Sync.Entity<String>> srcs = entities(n, r);
+		final List<Sync.Entity<String>> dsts = entities(n, r);
+
+		final long startTime = System.nanoTime();
+		SyncUtils.computeDelta(srcs, dsts);
+		return System.nanoTime() - startTime;
+	}
+
+	public static void main(String[] args) {
+		for (int i = 0; i < 5; i++) { // warm up
+			timeDelta(10000);
+		}
+
+		long small = Long.MAX_VALUE;
+		long large = Long.MAX_VALUE;
+		for (int i = 0; i < 3; i++) {
+			small = Math.min(small, timeDelta(10000));
+			large = Math.min(large, timeDelta(100000));
+		}
+
+		System.out.println("computeDelta 10k entities: " + small / 1000000.0 + " ms, 100k entities: " + large / 1000000.0 + " ms");
+	}
+}
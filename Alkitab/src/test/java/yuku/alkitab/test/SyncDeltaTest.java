@@ -0,0 +1,106 @@
+package yuku.alkitab.test;
+
+import junit.framework.TestCase;
+import yuku.alkitab.base.sync.Sync;
+import yuku.alkitab.base.sync.SyncUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class SyncDeltaTest extends TestCase {
+	static Sync.Entity<String> e(final String kind, final String gid, final String content) {
+		return new Sync.Entity<>(kind, gid, content);
+	}
+
+	static String str(final Sync.Delta<String> delta) {
+		final StringBuilder sb = new StringBuilder();
+		for (final Sync.Operation<String> op : delta.operations) {
+			sb.append(op.opkind).append(' ').append(op.kind).append(' ').append(op.gid).append(' ').append(op.content).append('\n');
+		}
+		return sb.toString();
+	}
+
+	public void testDelta() throws Exception {
+		final List<Sync.Entity<String>> srcs = new ArrayList<>();
+		srcs.add(e(Sync.Entity.KIND_MARKER, "a", "1"));
+		srcs.add(e(Sync.Entity.KIND_MARKER, "b", "2"));
+		srcs.add(e(Sync.Entity.KIND_LABEL, "a", "3"));
+		srcs.add(e(Sync.Entity.KIND_LABEL, "c", "4"));
+
+		final List<Sync.Entity<String>> dsts = new ArrayList<>();
+		dsts.add(e(Sync.Entity.KIND_MARKER, "d", "5"));
+		dsts.add(e(Sync.Entity.KIND_LABEL, "a", "3"));
+		dsts.add(e(Sync.Entity.KIND_MARKER, "b", "22"));
+		dsts.add(e(Sync.Entity.KIND_LABEL, "b", "6"));
+
+		assertEquals(
+			"add Marker d 5\n" +
+			"mod Marker b 22\n" +
+			"add Label b 6\n" +
+			"del Marker a null\n" +
+			"del Label c null\n",
+			str(SyncUtils.computeDelta(srcs, dsts)));
+
+		assertEquals("", str(SyncUtils.computeDelta(dsts, dsts)));
+		assertEquals("", str(SyncUtils.computeDelta(Collections.emptyList(), Collections.emptyList())));
+	}
+
+	static String kindOf(final int i) {
+		return i % 3 == 0 ? Sync.Entity.KIND_MARKER : i % 3 == 1 ? Sync.Entity.KIND_LABEL : Sync.Entity.KIND_MARKER_LABEL;
+	}
+
+	/**
+	 * Every 7th entity deleted, every 10th (that is not deleted) modified, and some added.
+	 */
+	public void testLarge() throws Exception {
+		final int n = 100000;
+		final int added = 1000;
+
+		final List<Sync.Entity<String>> srcs = new ArrayList<>(n);
+		final List<Sync.Entity<String>> dsts = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			srcs.add(e(kindOf(i), "gid" + i, "content" + i));
+			if (i % 7 == 0) continue;
+			dsts.add(e(kindOf(i), "gid" + i, i % 10 == 0 ? "changed" + i : "content" + i));
+		}
+		for (int j = 0; j < added; j++) {
+			dsts.add(e(kindOf(j), "new" + j, "content" + j));
+		}
+
+		int adds = 0, mods = 0, dels = 0;
+		for (final Sync.Operation<String> op : SyncUtils.computeDelta(srcs, dsts).operations) {
+			switch (op.opkind) {
+				case add: {
+					final int j = Integer.parseInt(op.gid.substring("new".length()));
+					assertEquals(kindOf(j), op.kind);
+					assertEquals("content" + j, op.content);
+					adds++;
+				} break;
+				case mod: {
+					final int i = Integer.parseInt(op.gid.substring("gid".length()));
+					assertTrue(i % 10 == 0 && i % 7 != 0);
+					assertEquals(kindOf(i), op.kind);
+					assertEquals("changed" + i, op.content);
+					mods++;
+				} break;
+				case del: {
+					final int i = Integer.parseInt(op.gid.substring("gid".length()));
+					assertEquals(0, i % 7);
+					assertEquals(kindOf(i), op.kind);
+					dels++;
+				} break;
+			}
+		}
+
+		int expectedMods = 0, expectedDels = 0;
+		for (int i = 0; i < n; i++) {
+			if (i % 7 == 0) expectedDels++;
+			else if (i % 10 == 0) expectedMods++;
+		}
+
+		assertEquals(added, adds);
+		assertEquals(expectedMods, mods);
+		assertEquals(expectedDels, dels);
+	}
+}
@@ -0,0 +1,197 @@
+package yuku.alkitab.test;
+
+import androidx.annotation.Nullable;
+import junit.framework.TestCase;
+import yuku.alkitab.base.cp.VerseRangeRows;
+import yuku.alkitab.model.Book;
+import yuku.alkitab.model.FootnoteEntry;
+import yuku.alkitab.model.PericopeBlock;
+import yuku.alkitab.model.SingleChapterVerses;
+import yuku.alkitab.model.Version;
+import yuku.alkitab.model.XrefEntry;
+import yuku.alkitab.util.IntArrayList;
+
+import java.util.List;
+
+public class VerseRangeRowsTest extends TestCase {
+	static final int[] GENESIS_VERSE_COUNTS = {31, 25, 24};
+	static final int[] EXODUS_VERSE_COUNTS = {22, 25};
+
+	/**
+	 * Genesis and Exodus only, and {@link Version#loadChapterText(Book, int)} must not be called.
+	 */
+	Version fakeVersion() {
+		return new Version() {
+			@Override
+			public String getShortName() {
+				return null;
+			}
+
+			@Override
+			public String getLongName() {
+				return null;
+			}
+
+			@Override
+			public String getLocale() {
+				return null;
+			}
+
+			@Override
+			public int getMaxBookIdPlusOne() {
+				return 2;
+			}
+
+			@Override
+			public Book[] getConsecutiveBooks() {
+				return new Book[]{getBook(0), getBook(1)};
+			}
+
+			@Override
+			public Book getBook(final int bookId) {
+				final Book res = new Book();
+				res.bookId = bookId;
+				if (bookId == 0) {
+					res.shortName = "Genesis";
+					res.chapter_count = GENESIS_VERSE_COUNTS.length;
+					res.verse_counts = GENESIS_VERSE_COUNTS;
+				} else if (bookId == 1) {
+					res.shortName = "Exodus";
+					res.chapter_count = EXODUS_VERSE_COUNTS.length;
+					res.verse_counts = EXODUS_VERSE_COUNTS;
+				} else {
+					return null;
+				}
+				return res;
+			}
+
+			@Override
+			public Book getFirstBook() {
+				return getBook(0);
+			}
+
+			@Nullable
+			@Override
+			public String loadVerseText(final int ari) {
+				throw new AssertionError("verse text loaded");
+			}
+
+			@Nullable
+			@Override
+			public String loadVerseText(final Book book, final int chapter_1, final int verse_1) {
+				throw new AssertionError("verse text loaded");
+			}
+
+			@Override
+			public int loadVersesByAriRanges(final IntArrayList ariRanges, final IntArrayList result_aris, final List<String> result_verses) {
+				throw new AssertionError("verse text loaded");
+			}
+
+			@Override
+			public int loadPericope(final int bookId, final int chapter_1, final int[] aris, final PericopeBlock[] pericopeBlocks, final int max) {
+				return 0;
+			}
+
+			@Override
+			public SingleChapterVerses loadChapterText(final Book book, final int chapter_1) {
+				throw new AssertionError("chapter text loaded");
+			}
+
+			@Override
+			public SingleChapterVerses loadChapterTextLowercased(final Book book, final int chapter_1) {
+				throw new AssertionError("chapter text loaded");
+			}
+
+			@Override
+			public String loadChapterTextLowercasedWithoutSplit(final Book book, final int chapter_1) {
+				throw new AssertionError("chapter text loaded");
+			}
+
+			@Override
+			public XrefEntry getXrefEntry(final int arif) {
+				return null;
+			}
+
+			@Override
+			public FootnoteEntry getFootnoteEntry(final int arif) {
+				return null;
+			}
+		};
+	}
+
+	static IntArrayList ranges(final int... aris) {
+		final IntArrayList res = new IntArrayList();
+		for (final int ari : aris) {
+			res.add(ari);
+		}
+		return res;
+	}
+
+	VerseRangeRows rows(final int... aris) {
+		return VerseRangeRows.of(fakeVersion(), ranges(aris));
+	}
+
+	public void testSingleVerses() {
+		final VerseRangeRows rows = rows(0x000101, 0x000101, 0x000203, 0x000203, 0x000199, 0x000199, 0x050101, 0x050101, 0x000101, 0x000101);
+		assertEquals(3, rows.getCount()); // Genesis 1:153 and book 5 do not exist
+		assertEquals(0x000101, rows.getAri(0));
+		assertEquals(0x000203, rows.getAri(1));
+		assertEquals(0x000101, rows.getAri(2));
+	}
+
+	public void testWithinChapter() {
+		final VerseRangeRows rows = rows(0x000105, 0x000109, 0x000214, 0x0002ff); // verse bytes are hex: 2:20 to the end
+		assertEquals(5 + 6, rows.getCount());
+		assertEquals(2, rows.getRunCount());
+		assertEquals(0x000109, rows.getAri(4));
+		assertEquals(0x000214, rows.getAri(5));
+		assertEquals(0x000219, rows.getAri(10));
+	}
+
+	public void testAcrossChaptersAndBooks() {
+		final VerseRangeRows rows = rows(0x00011e, 0x010102);
+		// Genesis 1:30-31, all of Genesis 2 and 3, Exodus 1:1-2
+		assertEquals(2 + 25 + 24 + 2, rows.getCount());
+		assertEquals(4, rows.getRunCount());
+
+		final int[] expected = new int[rows.getCount()];
+		int p = 0;
+		for (int v = 30; v <= 31; v++) expected[p++] = 0x000100 | v;
+		for (int v = 1; v <= 25; v++) expected[p++] = 0x000200 | v;
+		for (int v = 1; v <= 24; v++) expected[p++] = 0x000300 | v;
+		for (int v = 1; v <= 2; v++) expected[p++] = 0x010100 | v;
+
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], rows.getAri(i));
+		}
+	}
+
+	public void testWholeBible() {
+		final VerseRangeRows rows = rows(0x000101, 0x4cffff);
+		int expected = 0;
+		for (final int n : GENESIS_VERSE_COUNTS) expected += n;
+		for (final int n : EXODUS_VERSE_COUNTS) expected += n;
+		assertEquals(expected, rows.getCount());
+		assertEquals(GENESIS_VERSE_COUNTS.length + EXODUS_VERSE_COUNTS.length, rows.getRunCount());
+		assertEquals(0x010219, rows.getAri(expected - 1));
+	}
+
+	public void testFindRun() {
+		final VerseRangeRows rows = rows(0x000101, 0x000101, 0x000101, 0x0003ff, 0x000203, 0x000203);
+		for (int run = 0; run < rows.getRunCount(); run++) {
+			final int first = rows.getRunFirstRow(run);
+			for (int i = 0; i < rows.getRunVerseCount(run); i++) {
+				assertEquals(run, rows.findRun(first + i));
+			}
+		}
+		assertEquals(rows.getCount(), rows.getRunFirstRow(rows.getRunCount() - 1) + rows.getRunVerseCount(rows.getRunCount() - 1));
+	}
+
+	public void testSkipped() {
+		assertEquals(0, rows().getCount());
+		assertEquals(0, rows(0, 0x000105, 0x000105, 0).getCount());
+		assertEquals(0, rows(0x000109, 0x000105).getCount()); // backwards
+		assertEquals(0, rows(0x000501, 0x0005ff).getCount()); // no such chapter
+		assertEquals(31, rows(0x000100, 0x0001ff).getCount()); // verse 0 means from the first verse
+	}
+}
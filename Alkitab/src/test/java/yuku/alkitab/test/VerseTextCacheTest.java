@@ -0,0 +1,49 @@
+package yuku.alkitab.test;
+
+import junit.framework.TestCase;
+import yuku.alkitab.base.model.VerseTextCache;
+
+public class VerseTextCacheTest extends TestCase {
+	public void testGetPut() throws Exception {
+		final VerseTextCache cache = new VerseTextCache(100);
+		assertNull(cache.get("a", 0x010101));
+
+		cache.put("a", 0x010101, "In the beginning");
+		assertEquals("In the beginning", cache.get("a", 0x010101));
+		assertNull(cache.get("b", 0x010101)); // other version
+		assertNull(cache.get("a", 0x010102)); // other verse
+	}
+
+	public void testEvictsLeastRecentlyUsed() throws Exception {
+		final VerseTextCache cache = new VerseTextCache(30);
+		cache.put("a", 1, "0123456789");
+		cache.put("a", 2, "0123456789");
+		cache.put("a", 3, "0123456789");
+
+		// use 1, so that 2 is the eldest
+		assertNotNull(cache.get("a", 1));
+
+		cache.put("a", 4, "0123456789");
+		assertNotNull(cache.get("a", 1));
+		assertNull(cache.get("a", 2));
+		assertNotNull(cache.get("a", 3));
+		assertNotNull(cache.get("a", 4));
+	}
+
+	public void testReplaceAndShrink() throws Exception {
+		final VerseTextCache cache = new VerseTextCache(30);
+		cache.put("a", 1, "0123456789");
+		cache.put("a", 1, "01234567890123456789"); // replacing must not count the old text
+		cache.put("a", 2, "0123456789");
+		assertNotNull(cache.get("a", 1));
+		assertNotNull(cache.get("a", 2));
+
+		cache.setMaxChars(10);
+		assertNull(cache.get("a", 1));
+		assertNotNull(cache.get("a", 2));
+
+		cache.put("a", 3, "01234567890"); // longer than the whole cache
+		assertNull(cache.get("a", 3));
+		assertNotNull(cache.get("a", 2));
+	}
+}
@@ -0,0 +1,15 @@
+package yuku.alkitab.io;
+
+import yuku.alkitab.model.Book;
+
+/**
+ * Implemented by {@link BibleReader}s that can give the lowercased text of a chapter as UTF-8 bytes,
+ * for searching with {@link Utf8Search} without decoding the text to Strings.
+ */
+public interface LowercasedTextReader {
+	/**
+	 * @param out receives the text; its contents are replaced
+	 * @return false if the chapter is not available
+	 */
+	boolean loadLowercasedText(Book book, int chapter_1, Utf8Search.Text out);
+}
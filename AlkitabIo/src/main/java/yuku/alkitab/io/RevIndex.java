@@ -0,0 +1,862 @@
+package yuku.alkitab.io;
+
+import yuku.alkitab.util.IntArrayList;
+import yuku.bintex.BintexWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compressed reverse index: maps words to the sorted list of verse ids (lids) containing them.
+ * The index is queried in place over its packed regions, which may come from a memory-mapped file
+ * (see {@link #open(ByteBuffer)}), so nothing is materialized per word.
+ *
+ * The vocabulary is stored sorted and front-coded in blocks of {@link #DICT_BLOCK_SIZE} words.
+ * Exact lookups are binary searches over the block heads; substring lookups go through a trigram table
+ * that maps every 3-byte sequence to the sorted ordinals of the words containing it.
+ *
+ * Each posting list is delta-encoded as varuints in blocks of {@link #POSTING_BLOCK_SIZE} entries.
+ * Lists longer than one block start with a skip table of (first lid, data offset) per block,
+ * so that {@link Postings#advance(int)} can jump over blocks without decoding them.
+ *
+ * Layout of a posting list:
+ *   varuint count
+ *   { int first_lid; int data_offset }[block_count] // only when block_count > 1
+ *   { varuint first_lid; varuint delta[block_size - 1] }[block_count]
+ *
+ * Layout of a dictionary block:
+ *   uint8 word_len; byte[word_len] word // first word of the block
+ *   { uint8 prefix_len; uint8 suffix_len; byte[suffix_len] suffix }[] // the rest of the words
+ *
+ * Layout of the file written by {@link #writeTo(OutputStream)}, all ints big-endian:
+ *   int magic // {@link #MAGIC}
+ *   int format_version // {@link #FORMAT_VERSION}
+ *   int key_kind // what the posting entries are, {@link #KEY_KIND_LID}
+ *   int word_count
+ *   int dict_block_count
+ *   int trigram_count
+ *   int trigram_ordinal_count
+ *   int dict_size
+ *   int postings_size
+ *   int[dict_block_count] dict_block_offsets
+ *   int[word_count] posting_offsets
+ *   int[trigram_count] trigram_keys
+ *   int[trigram_count + 1] trigram_offsets
+ *   int[trigram_ordinal_count] trigram_ordinals
+ *   byte[dict_size] dict
+ *   byte[postings_size] postings
+ * The int tables come first so that they stay 4-byte aligned in the file.
+ */
+public class RevIndex {
+	public static final int MAGIC = 0x52495832; // "RIX2"
+	public static final int FORMAT_VERSION = 1;
+	static final int HEADER_SIZE = 9 * 4;
+
+	/** Posting entries are KJV verse numbers (lid), 1..31102. */
+	public static final int KEY_KIND_LID = 1;
+	/** Posting entries are aris, so any versification can be indexed. */
+	public static final int KEY_KIND_ARI = 2;
+
+	public static final int DICT_BLOCK_SIZE = 16;
+	public static final int POSTING_BLOCK_SIZE = 64;
+
+	/**
+	 * When OR-ing more posting lists than this, concatenating and sorting is faster than a k-way merge.
+	 */
+	static final int UNION_MERGE_MAX_LISTS = 32;
+
+	/**
+	 * When checking candidates against more posting lists than this, it is cheaper to build the union first.
+	 */
+	static final int RETAIN_ADVANCE_MAX_LISTS = 16;
+
+	final int keyKind;
+	final int wordCount;
+	final ByteBuffer dict;
+	final IntBuffer dictBlockOffsets;
+	final ByteBuffer postings;
+	final IntBuffer postingOffsets;
+	final IntBuffer trigramKeys;
+	final IntBuffer trigramOffsets;
+	final IntBuffer trigramOrdinals;
+
+	RevIndex(final int keyKind, final int wordCount, final ByteBuffer dict, final IntBuffer dictBlockOffsets, final ByteBuffer postings, final IntBuffer postingOffsets, final IntBuffer trigramKeys, final IntBuffer trigramOffsets, final IntBuffer trigramOrdinals) {
+		this.keyKind = keyKind;
+		this.wordCount = wordCount;
+		this.dict = dict;
+		this.dictBlockOffsets = dictBlockOffsets;
+		this.postings = postings;
+		this.postingOffsets = postingOffsets;
+		this.trigramKeys = trigramKeys;
+		this.trigramOffsets = trigramOffsets;
+		this.trigramOrdinals = trigramOrdinals;
+	}
+
+	/**
+	 * Opens an index written by {@link #writeTo(OutputStream)} without copying or parsing it.
+	 * The regions are views of the buffer, so a {@link java.nio.MappedByteBuffer} can be used
+	 * to keep the index off the heap.
+	 */
+	public static RevIndex open(final ByteBuffer buf) throws IOException {
+		final ByteBuffer b = buf.duplicate();
+		b.order(ByteOrder.BIG_ENDIAN);
+
+		if (b.remaining() < HEADER_SIZE) {
+			throw new IOException("revindex too short: " + b.remaining());
+		}
+
+		final int start = b.position();
+		final int magic = b.getInt(start);
+		if (magic != MAGIC) {
+			throw new IOException(String.format("revindex magic mismatch: %08x", magic));
+		}
+		final int formatVersion = b.getInt(start + 4);
+		if (formatVersion != FORMAT_VERSION) {
+			throw new IOException("revindex format version not supported: " + formatVersion);
+		}
+
+		final int keyKind = b.getInt(start + 8);
+		final int wordCount = b.getInt(start + 12);
+		final int dictBlockCount = b.getInt(start + 16);
+		final int trigramCount = b.getInt(start + 20);
+		final int trigramOrdinalCount = b.getInt(start + 24);
+		final int dictSize = b.getInt(start + 28);
+		final int postingsSize = b.getInt(start + 32);
+
+		int pos = start + HEADER_SIZE;
+		final IntBuffer dictBlockOffsets = intRegion(b, pos, dictBlockCount);
+		pos += dictBlockCount * 4;
+		final IntBuffer postingOffsets = intRegion(b, pos, wordCount);
+		pos += wordCount * 4;
+		final IntBuffer trigramKeys = intRegion(b, pos, trigramCount);
+		pos += trigramCount * 4;
+		final IntBuffer trigramOffsets = intRegion(b, pos, trigramCount + 1);
+		pos += (trigramCount + 1) * 4;
+		final IntBuffer trigramOrdinals = intRegion(b, pos, trigramOrdinalCount);
+		pos += trigramOrdinalCount * 4;
+		final ByteBuffer dict = byteRegion(b, pos, dictSize);
+		pos += dictSize;
+		final ByteBuffer postings = byteRegion(b, pos, postingsSize);
+
+		return new RevIndex(keyKind, wordCount, dict, dictBlockOffsets, postings, postingOffsets, trigramKeys, trigramOffsets, trigramOrdinals);
+	}
+
+	private static ByteBuffer byteRegion(final ByteBuffer b, final int pos, final int size) throws IOException {
+		if (pos < 0 || size < 0 || pos + size > b.limit()) {
+			throw new IOException("revindex truncated at " + pos);
+		}
+		final ByteBuffer d = b.duplicate();
+		d.limit(pos + size);
+		d.position(pos);
+		return d.slice();
+	}
+
+	private static IntBuffer intRegion(final ByteBuffer b, final int pos, final int count) throws IOException {
+		return byteRegion(b, pos, count * 4).order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+	}
+
+	/**
+	 * Writes this index in the format that {@link #open(ByteBuffer)} reads.
+	 */
+	public void writeTo(final OutputStream os) throws IOException {
+		final BintexWriter bw = new BintexWriter(os);
+
+		bw.writeInt(MAGIC);
+		bw.writeInt(FORMAT_VERSION);
+		bw.writeInt(keyKind);
+		bw.writeInt(wordCount);
+		bw.writeInt(dictBlockOffsets.limit());
+		bw.writeInt(trigramKeys.limit());
+		bw.writeInt(trigramOrdinals.limit());
+		bw.writeInt(dict.limit());
+		bw.writeInt(postings.limit());
+
+		writeInts(bw, dictBlockOffsets);
+		writeInts(bw, postingOffsets);
+		writeInts(bw, trigramKeys);
+		writeInts(bw, trigramOffsets);
+		writeInts(bw, trigramOrdinals);
+		writeBytes(bw, dict);
+		writeBytes(bw, postings);
+	}
+
+	private static void writeInts(final BintexWriter bw, final IntBuffer ints) throws IOException {
+		for (int i = 0, len = ints.limit(); i < len; i++) {
+			bw.writeInt(ints.get(i));
+		}
+	}
+
+	private static void writeBytes(final BintexWriter bw, final ByteBuffer bytes) throws IOException {
+		final byte[] buf = new byte[bytes.limit()];
+		final ByteBuffer d = bytes.duplicate();
+		d.position(0);
+		d.get(buf);
+		bw.writeRaw(buf);
+	}
+
+	public int getKeyKind() {
+		return keyKind;
+	}
+
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	/**
+	 * Converts a lowercased token to the 8-bit form used by the dictionary.
+	 * @return null if the token has characters that can never be in the dictionary.
+	 */
+	public static byte[] toKey(final String token) {
+		final int len = token.length();
+		if (len == 0 || len > 0xff) return null;
+
+		final byte[] res = new byte[len];
+		for (int i = 0; i < len; i++) {
+			final char c = token.charAt(i);
+			if (c > 0xff) return null;
+			res[i] = (byte) c;
+		}
+		return res;
+	}
+
+	/**
+	 * Decodes the word with the specified ordinal into buf (must be at least 255 bytes long).
+	 * @return length of the word
+	 */
+	int wordAt(final int ordinal, final byte[] buf) {
+		final int block = ordinal / DICT_BLOCK_SIZE;
+		int pos = dictBlockOffsets.get(block);
+		final ByteBuffer dict = this.dict;
+
+		int len = dict.get(pos++) & 0xff;
+		for (int i = 0; i < len; i++) {
+			buf[i] = dict.get(pos++);
+		}
+
+		for (int i = block * DICT_BLOCK_SIZE; i < ordinal; i++) {
+			final int prefixLen = dict.get(pos++) & 0xff;
+			final int suffixLen = dict.get(pos++) & 0xff;
+			for (int j = 0; j < suffixLen; j++) {
+				buf[prefixLen + j] = dict.get(pos++);
+			}
+			len = prefixLen + suffixLen;
+		}
+
+		return len;
+	}
+
+	/**
+	 * @return ordinal of the word exactly matching the key, or -1 if not found.
+	 */
+	public int findExact(final byte[] key) {
+		if (wordCount == 0) return -1;
+
+		final byte[] buf = new byte[256];
+
+		// find the last block whose first word is <= key
+		int lo = 0;
+		int hi = (wordCount + DICT_BLOCK_SIZE - 1) / DICT_BLOCK_SIZE - 1;
+		while (lo < hi) {
+			final int mid = (lo + hi + 1) >>> 1;
+			final int len = wordAt(mid * DICT_BLOCK_SIZE, buf);
+			if (compare(buf, len, key, key.length) <= 0) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+
+		final int end = Math.min(wordCount, (lo + 1) * DICT_BLOCK_SIZE);
+		for (int ordinal = lo * DICT_BLOCK_SIZE; ordinal < end; ordinal++) {
+			final int len = wordAt(ordinal, buf);
+			final int c = compare(buf, len, key, key.length);
+			if (c == 0) return ordinal;
+			if (c > 0) break;
+		}
+		return -1;
+	}
+
+	/**
+	 * Appends to out, in ascending order, the ordinals of all words that contain the key.
+	 */
+	public void findContaining(final byte[] key, final IntArrayList out) {
+		final byte[] buf = new byte[256];
+
+		if (key.length < 3) {
+			// too short for the trigram table, so scan the whole dictionary, decoding each block only once
+			final ByteBuffer dict = this.dict;
+			for (int block = 0, blockCount = dictBlockOffsets.limit(); block < blockCount; block++) {
+				int pos = dictBlockOffsets.get(block);
+				final int end = Math.min(wordCount, (block + 1) * DICT_BLOCK_SIZE);
+				int len = 0;
+				for (int ordinal = block * DICT_BLOCK_SIZE; ordinal < end; ordinal++) {
+					final int prefixLen = ordinal == block * DICT_BLOCK_SIZE ? 0 : dict.get(pos++) & 0xff;
+					final int suffixLen = dict.get(pos++) & 0xff;
+					for (int j = 0; j < suffixLen; j++) {
+						buf[prefixLen + j] = dict.get(pos++);
+					}
+					len = prefixLen + suffixLen;
+
+					if (indexOf(buf, len, key) >= 0) {
+						out.add(ordinal);
+					}
+				}
+			}
+			return;
+		}
+
+		// intersect the ordinal lists of all trigrams in the key, starting from the shortest
+		IntArrayList candidates = null;
+		for (int i = 0; i + 3 <= key.length; i++) {
+			final int t = trigramIndex(trigram(key, i));
+			if (t < 0) return; // some trigram is in no word at all
+
+			final int start = trigramOffsets.get(t);
+			final int count = trigramOffsets.get(t + 1) - start;
+
+			if (candidates == null) {
+				candidates = new IntArrayList(count);
+				for (int j = 0; j < count; j++) {
+					candidates.add(trigramOrdinals.get(start + j));
+				}
+			} else {
+				candidates = intersectWithTrigram(candidates, start, count);
+			}
+
+			if (candidates.size() == 0) return;
+		}
+
+		if (candidates == null) return;
+
+		// trigrams can match out of order, so verify each candidate
+		if (key.length == 3) {
+			for (int i = 0, len = candidates.size(); i < len; i++) {
+				out.add(candidates.get(i));
+			}
+		} else {
+			for (int i = 0, len = candidates.size(); i < len; i++) {
+				final int ordinal = candidates.get(i);
+				final int wordLen = wordAt(ordinal, buf);
+				if (indexOf(buf, wordLen, key) >= 0) {
+					out.add(ordinal);
+				}
+			}
+		}
+	}
+
+	private IntArrayList intersectWithTrigram(final IntArrayList a, final int start, final int count) {
+		final IntArrayList res = new IntArrayList(Math.min(a.size(), count) + 1);
+		final int[] aa = a.buffer();
+		final int alen = a.size();
+		int apos = 0;
+		int bpos = 0;
+		while (apos < alen && bpos < count) {
+			final int av = aa[apos];
+			final int bv = trigramOrdinals.get(start + bpos);
+			if (av == bv) {
+				res.add(av);
+				apos++;
+				bpos++;
+			} else if (av > bv) {
+				bpos++;
+			} else {
+				apos++;
+			}
+		}
+		return res;
+	}
+
+	private int trigramIndex(final int trigram) {
+		int lo = 0;
+		int hi = trigramKeys.limit() - 1;
+		while (lo <= hi) {
+			final int mid = (lo + hi) >>> 1;
+			final int v = trigramKeys.get(mid);
+			if (v < trigram) {
+				lo = mid + 1;
+			} else if (v > trigram) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	static int trigram(final byte[] b, final int off) {
+		return ((b[off] & 0xff) << 16) | ((b[off + 1] & 0xff) << 8) | (b[off + 2] & 0xff);
+	}
+
+	static int compare(final byte[] a, final int alen, final byte[] b, final int blen) {
+		final int n = Math.min(alen, blen);
+		for (int i = 0; i < n; i++) {
+			final int c = (a[i] & 0xff) - (b[i] & 0xff);
+			if (c != 0) return c;
+		}
+		return alen - blen;
+	}
+
+	static int indexOf(final byte[] haystack, final int haystackLen, final byte[] needle) {
+		final int needleLen = needle.length;
+		final byte first = needle[0];
+		outer:
+		for (int i = 0, max = haystackLen - needleLen; i <= max; i++) {
+			if (haystack[i] != first) continue;
+			for (int j = 1; j < needleLen; j++) {
+				if (haystack[i + j] != needle[j]) continue outer;
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Number of lids in the posting list of the word, without decoding the list.
+	 */
+	public int docFreq(final int ordinal) {
+		return readVarUint(postings, postingOffsets.get(ordinal), null);
+	}
+
+	public Postings postings(final int ordinal) {
+		return new Postings(postings, postingOffsets.get(ordinal));
+	}
+
+	/**
+	 * OR operation: all lids that are in at least one of the posting lists of the words.
+	 * @param ordinals word ordinals, as returned by {@link #findExact(byte[])} or {@link #findContaining(byte[], IntArrayList)}.
+	 * @return sorted lids without duplicates
+	 */
+	public IntArrayList union(final IntArrayList ordinals) {
+		final int k = ordinals.size();
+
+		if (k == 0) {
+			return new IntArrayList(1);
+		}
+
+		if (k == 1) {
+			final int ordinal = ordinals.get(0);
+			final IntArrayList res = new IntArrayList(docFreq(ordinal) + 1);
+			final Postings p = postings(ordinal);
+			for (int lid = p.next(); lid != Postings.NO_MORE; lid = p.next()) {
+				res.add(lid);
+			}
+			return res;
+		}
+
+		if (k > UNION_MERGE_MAX_LISTS) {
+			int total = 0;
+			for (int i = 0; i < k; i++) {
+				total += docFreq(ordinals.get(i));
+			}
+
+			final int[] all = new int[total];
+			int n = 0;
+			for (int i = 0; i < k; i++) {
+				final Postings p = postings(ordinals.get(i));
+				for (int lid = p.next(); lid != Postings.NO_MORE; lid = p.next()) {
+					all[n++] = lid;
+				}
+			}
+			Arrays.sort(all, 0, n);
+
+			final IntArrayList res = new IntArrayList(n + 1);
+			int last = -1;
+			for (int i = 0; i < n; i++) {
+				if (all[i] != last) {
+					res.add(all[i]);
+					last = all[i];
+				}
+			}
+			return res;
+		}
+
+		// k-way merge using a binary min-heap of postings keyed by their current lid
+		final Postings[] heap = new Postings[k];
+		int heapSize = 0;
+		for (int i = 0; i < k; i++) {
+			final Postings p = postings(ordinals.get(i));
+			if (p.next() != Postings.NO_MORE) {
+				heap[heapSize] = p;
+				siftUp(heap, heapSize++);
+			}
+		}
+
+		final IntArrayList res = new IntArrayList();
+		int last = -1;
+		while (heapSize > 0) {
+			final Postings top = heap[0];
+			final int lid = top.current;
+			if (lid != last) {
+				res.add(lid);
+				last = lid;
+			}
+
+			if (top.next() == Postings.NO_MORE) {
+				heap[0] = heap[--heapSize];
+				heap[heapSize] = null;
+			}
+			if (heapSize > 0) {
+				siftDown(heap, heapSize);
+			}
+		}
+		return res;
+	}
+
+	private static void siftUp(final Postings[] heap, int i) {
+		final Postings p = heap[i];
+		while (i > 0) {
+			final int parent = (i - 1) >>> 1;
+			if (heap[parent].current <= p.current) break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = p;
+	}
+
+	private static void siftDown(final Postings[] heap, final int size) {
+		final Postings p = heap[0];
+		int i = 0;
+		while (true) {
+			int child = (i << 1) + 1;
+			if (child >= size) break;
+			if (child + 1 < size && heap[child + 1].current < heap[child].current) child++;
+			if (p.current <= heap[child].current) break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = p;
+	}
+
+	/**
+	 * AND operation: keeps the candidates that are in at least one of the posting lists of the words.
+	 * When there are few lists, the lists are probed using their skip tables instead of being decoded fully.
+	 * @param candidates sorted lids
+	 * @return sorted lids, subset of candidates
+	 */
+	public IntArrayList retainAny(final IntArrayList candidates, final IntArrayList ordinals) {
+		final int k = ordinals.size();
+
+		if (k > RETAIN_ADVANCE_MAX_LISTS) {
+			return intersect(candidates, union(ordinals));
+		}
+
+		final Postings[] ps = new Postings[k];
+		for (int i = 0; i < k; i++) {
+			ps[i] = postings(ordinals.get(i));
+		}
+
+		final IntArrayList res = new IntArrayList(candidates.size());
+		final int[] cc = candidates.buffer();
+		for (int i = 0, len = candidates.size(); i < len; i++) {
+			final int lid = cc[i];
+			for (final Postings p : ps) {
+				if (p.advance(lid) == lid) {
+					res.add(lid);
+					break;
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Intersection of two sorted lists.
+	 */
+	public static IntArrayList intersect(final IntArrayList a, final IntArrayList b) {
+		final IntArrayList res = new IntArrayList(Math.min(a.size(), b.size()) + 1);
+
+		final int[] aa = a.buffer();
+		final int[] bb = b.buffer();
+		final int alen = a.size();
+		final int blen = b.size();
+
+		int apos = 0;
+		int bpos = 0;
+
+		while (apos < alen && bpos < blen) {
+			final int av = aa[apos];
+			final int bv = bb[bpos];
+
+			if (av == bv) {
+				res.add(av);
+				apos++;
+				bpos++;
+			} else if (av > bv) {
+				bpos++;
+			} else { // av < bv
+				apos++;
+			}
+		}
+
+		return res;
+	}
+
+	/**
+	 * Reads a bintex varuint from the buffer at the absolute position.
+	 * @param ppos if not null, ppos[0] is set to the position after the varuint.
+	 */
+	static int readVarUint(final ByteBuffer buf, int pos, final int[] ppos) {
+		final int first = buf.get(pos++) & 0xff;
+		final int res;
+		if ((first & 0x80) == 0) { // 0xxxxxxx
+			res = first;
+		} else if ((first & 0xc0) == 0x80) { // 10xxxxxx
+			res = ((first & 0x3f) << 8) | (buf.get(pos++) & 0xff);
+		} else if ((first & 0xe0) == 0xc0) { // 110xxxxx
+			res = ((first & 0x1f) << 16) | ((buf.get(pos++) & 0xff) << 8) | (buf.get(pos++) & 0xff);
+		} else if ((first & 0xf0) == 0xe0) { // 1110xxxx
+			res = ((first & 0x0f) << 24) | ((buf.get(pos++) & 0xff) << 16) | ((buf.get(pos++) & 0xff) << 8) | (buf.get(pos++) & 0xff);
+		} else if (first == 0xf0) { // 11110000
+			res = ((buf.get(pos++) & 0xff) << 24) | ((buf.get(pos++) & 0xff) << 16) | ((buf.get(pos++) & 0xff) << 8) | (buf.get(pos++) & 0xff);
+		} else {
+			throw new RuntimeException("unknown first byte in varuint: " + first);
+		}
+		if (ppos != null) ppos[0] = pos;
+		return res;
+	}
+
+	/**
+	 * Forward-only iterator over one posting list.
+	 */
+	public static class Postings {
+		public static final int NO_MORE = Integer.MAX_VALUE;
+
+		final ByteBuffer buf;
+		final int count;
+		final int blockCount;
+		/** Absolute position of the skip table, only valid when blockCount > 1 */
+		final int skipStart;
+		/** Absolute position of the first block */
+		final int dataStart;
+
+		final int[] ppos = {0};
+
+		/** Index of the current lid, -1 before the first call to {@link #next()}. */
+		int index = -1;
+		int current = -1;
+		int pos;
+
+		Postings(final ByteBuffer buf, final int offset) {
+			this.buf = buf;
+			this.count = readVarUint(buf, offset, ppos);
+			this.blockCount = (count + POSTING_BLOCK_SIZE - 1) / POSTING_BLOCK_SIZE;
+			this.skipStart = ppos[0];
+			this.dataStart = blockCount > 1 ? skipStart + blockCount * 8 : skipStart;
+			this.pos = dataStart;
+		}
+
+		public int size() {
+			return count;
+		}
+
+		/**
+		 * @return the next lid, or {@link #NO_MORE}.
+		 */
+		public int next() {
+			final int index = ++this.index;
+			if (index >= count) {
+				this.index = count;
+				return current = NO_MORE;
+			}
+
+			final int v = readVarUint(buf, pos, ppos);
+			pos = ppos[0];
+			if (index % POSTING_BLOCK_SIZE == 0) {
+				current = v;
+			} else {
+				current += v;
+			}
+			return current;
+		}
+
+		/**
+		 * Moves to the first lid that is greater than or equal to the target.
+		 * Does not move if the current lid already satisfies that.
+		 * @return the lid moved to, or {@link #NO_MORE}.
+		 */
+		public int advance(final int target) {
+			if (index >= 0 && current >= target) return current;
+
+			if (blockCount > 1) {
+				// find the last block whose first lid is <= target
+				final int currentBlock = index < 0 ? -1 : index / POSTING_BLOCK_SIZE;
+				int lo = currentBlock + 1;
+				int hi = blockCount - 1;
+				int found = -1;
+				while (lo <= hi) {
+					final int mid = (lo + hi) >>> 1;
+					if (buf.getInt(skipStart + mid * 8) <= target) {
+						found = mid;
+						lo = mid + 1;
+					} else {
+						hi = mid - 1;
+					}
+				}
+
+				if (found >= 0) {
+					index = found * POSTING_BLOCK_SIZE - 1;
+					pos = dataStart + buf.getInt(skipStart + found * 8 + 4);
+				}
+			}
+
+			while (true) {
+				final int v = next();
+				if (v >= target) return v;
+			}
+		}
+	}
+
+	/**
+	 * Collects words and their lids, then packs them into a {@link RevIndex}.
+	 */
+	public static class Builder {
+		final TreeMap<String, int[]> words = new TreeMap<>();
+		final int keyKind;
+
+		/**
+		 * @param keyKind what the posting entries are, for example {@link #KEY_KIND_LID}
+		 */
+		public Builder(final int keyKind) {
+			this.keyKind = keyKind;
+		}
+
+		/**
+		 * @param word 8-bit lowercased word. String comparison on 8-bit chars gives the same order as unsigned bytes.
+		 * @param lids sorted ascending, without duplicates
+		 */
+		public void add(final String word, final int[] lids) {
+			words.put(word, lids);
+		}
+
+		public RevIndex build() {
+			try {
+				final int wordCount = words.size();
+				final int blockCount = (wordCount + DICT_BLOCK_SIZE - 1) / DICT_BLOCK_SIZE;
+
+				final ByteArrayOutputStream dictOs = new ByteArrayOutputStream();
+				final BintexWriter dictBw = new BintexWriter(dictOs);
+				final int[] dictBlockOffsets = new int[blockCount];
+
+				final ByteArrayOutputStream postingsOs = new ByteArrayOutputStream();
+				final BintexWriter postingsBw = new BintexWriter(postingsOs);
+				final int[] postingOffsets = new int[wordCount];
+
+				final Map<Integer, IntArrayList> trigrams = new HashMap<>();
+
+				byte[] prev = null;
+				int ordinal = 0;
+				for (final Map.Entry<String, int[]> e : words.entrySet()) {
+					final byte[] word = toKey(e.getKey());
+					if (word == null) {
+						throw new IllegalArgumentException("word is not 8-bit or too long: " + e.getKey());
+					}
+
+					// dictionary
+					if (ordinal % DICT_BLOCK_SIZE == 0) {
+						dictBlockOffsets[ordinal / DICT_BLOCK_SIZE] = dictBw.getPos();
+						dictBw.writeUint8(word.length);
+						dictBw.writeRaw(word);
+					} else {
+						int prefixLen = 0;
+						final int max = Math.min(prev.length, word.length);
+						while (prefixLen < max && prev[prefixLen] == word[prefixLen]) prefixLen++;
+						dictBw.writeUint8(prefixLen);
+						dictBw.writeUint8(word.length - prefixLen);
+						dictBw.writeRaw(word, prefixLen, word.length - prefixLen);
+					}
+					prev = word;
+
+					// postings
+					postingOffsets[ordinal] = postingsBw.getPos();
+					writePostings(postingsBw, e.getValue());
+
+					// trigrams
+					for (int i = 0; i + 3 <= word.length; i++) {
+						final int t = trigram(word, i);
+						IntArrayList list = trigrams.get(t);
+						if (list == null) {
+							list = new IntArrayList(4);
+							trigrams.put(t, list);
+						}
+						if (list.size() == 0 || list.get(list.size() - 1) != ordinal) {
+							list.add(ordinal);
+						}
+					}
+
+					ordinal++;
+				}
+
+				final int[] trigramKeys = new int[trigrams.size()];
+				{
+					int i = 0;
+					for (final Integer t : trigrams.keySet()) {
+						trigramKeys[i++] = t;
+					}
+				}
+				Arrays.sort(trigramKeys);
+
+				final int[] trigramOffsets = new int[trigramKeys.length + 1];
+				final IntArrayList trigramOrdinals = new IntArrayList(trigramKeys.length * 8);
+				for (int i = 0; i < trigramKeys.length; i++) {
+					trigramOffsets[i] = trigramOrdinals.size();
+					final IntArrayList list = trigrams.get(trigramKeys[i]);
+					for (int j = 0, len = list.size(); j < len; j++) {
+						trigramOrdinals.add(list.get(j));
+					}
+				}
+				trigramOffsets[trigramKeys.length] = trigramOrdinals.size();
+
+				return new RevIndex(
+					keyKind,
+					wordCount,
+					ByteBuffer.wrap(dictOs.toByteArray()),
+					IntBuffer.wrap(dictBlockOffsets),
+					ByteBuffer.wrap(postingsOs.toByteArray()),
+					IntBuffer.wrap(postingOffsets),
+					IntBuffer.wrap(trigramKeys),
+					IntBuffer.wrap(trigramOffsets),
+					IntBuffer.wrap(trigramOrdinals.toArray())
+				);
+			} catch (IOException e) {
+				throw new RuntimeException(e); // should not happen on byte array streams
+			}
+		}
+
+		static void writePostings(final BintexWriter bw, final int[] lids) throws IOException {
+			final int count = lids.length;
+			final int blockCount = (count + POSTING_BLOCK_SIZE - 1) / POSTING_BLOCK_SIZE;
+
+			bw.writeVarUint(count);
+
+			// encode the blocks first, because the skip table needs their offsets
+			final ByteArrayOutputStream dataOs = new ByteArrayOutputStream();
+			final BintexWriter dataBw = new BintexWriter(dataOs);
+			final int[] blockOffsets = new int[blockCount];
+			for (int i = 0; i < count; i++) {
+				if (i % POSTING_BLOCK_SIZE == 0) {
+					blockOffsets[i / POSTING_BLOCK_SIZE] = dataBw.getPos();
+					dataBw.writeVarUint(lids[i]);
+				} else {
+					dataBw.writeVarUint(lids[i] - lids[i - 1]);
+				}
+			}
+
+			if (blockCount > 1) {
+				for (int b = 0; b < blockCount; b++) {
+					bw.writeInt(lids[b * POSTING_BLOCK_SIZE]);
+					bw.writeInt(blockOffsets[b]);
+				}
+			}
+
+			bw.writeRaw(dataOs.toByteArray());
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package yuku.alkitab.io;
+
+import yuku.alkitab.model.Book;
+
+/**
+ * Implemented by {@link BibleReader}s that can read one verse without decoding the whole chapter,
+ * for showing single verses such as xref targets, markers, and content provider queries.
+ */
+public interface SingleVerseReader {
+	/**
+	 * @return null if the verse is not available
+	 */
+	String loadSingleVerseText(Book book, int chapter_1, int verse_1);
+}
@@ -5,66 +5,120 @@ import yuku.bintex.BintexReader;
 import java.io.IOException;
 
 /**
- * This class is an intentionally incomplete UTF-8 decoder that only supports up to U+FFFF.
+ * This class is a lenient UTF-8 decoder for verse texts. Code points above U+FFFF are decoded to surrogate pairs.
+ * Malformed input does not throw: a truncated sequence at the end is dropped, and other invalid bytes are decoded loosely.
+ *
+ * All methods can be called from several threads at once. The buffers they need are either given by the caller
+ * or confined to the calling thread.
+ *
+ * UTF-8 never needs more chars than bytes, so a char buffer as long as the input is always enough.
  */
 public class Utf8Decoder {
-	public static char[] buf = new char[1000];
-
-	static ThreadLocal<byte[]> byte_buf_ = new ThreadLocal<byte[]>() {
+	static final ThreadLocal<byte[]> byte_buf_ = new ThreadLocal<byte[]>() {
 		@Override
 		protected byte[] initialValue() {
 			return new byte[1000];
 		}
 	};
 
-	static ThreadLocal<char[]> char_buf_ = new ThreadLocal<char[]>() {
+	static final ThreadLocal<char[]> char_buf_ = new ThreadLocal<char[]>() {
 		@Override
 		protected char[] initialValue() {
 			return new char[8000];
 		}
 	};
 
-	public static String toString(byte[] ba) {
-		return toString(ba, 0, ba.length);
+	/**
+	 * @return a char buffer of the calling thread that has at least the given length. The contents are not preserved.
+	 */
+	static char[] charBuf(final int length) {
+		char[] res = char_buf_.get();
+		if (res.length < length) {
+			res = new char[length + 1000];
+			char_buf_.set(res);
+		}
+		return res;
 	}
 
-	public static String toString(byte[] ba, int start, int length) {
-		if (buf.length < ba.length) {
-			buf = new char[ba.length + 1000];
+	static byte[] byteBuf(final int length) {
+		byte[] res = byte_buf_.get();
+		if (res.length < length) {
+			res = new byte[length + 100];
+			byte_buf_.set(res);
 		}
+		return res;
+	}
 
-		int pos = 0;
-
-		try {
-			for (int i = start; i < start + length; i++) {
-				int c0 = ba[i] & 0xff;
-
-				if (c0 < 0x80) {
-					// input 1 byte, output 7 bit
-					buf[pos++] = (char) c0;
-					continue;
+	/**
+	 * Decodes ba[start..start+length) into out from outPos.
+	 * @param out must have room for length chars after outPos
+	 * @return the position in out after the last decoded char
+	 */
+	public static int decode(final byte[] ba, final int start, final int length, final boolean lowercased, final char[] out, int outPos) {
+		final int end = start + length;
+
+		int i = start;
+		while (i < end) {
+			final int c0 = ba[i] & 0xff;
+
+			if (c0 < 0x80) {
+				// input 1 byte, output 7 bit
+				if (lowercased && c0 >= 'A' && c0 <= 'Z') {
+					out[outPos++] = (char) (c0 | 0x20);
+				} else {
+					out[outPos++] = (char) c0;
 				}
-
 				i++;
-				int c1 = ba[i] & 0xff;
-
-				if (c0 < 0xe0) {
-					// input 2 byte, output 5+6 = 11 bit
-					buf[pos++] = (char) (((c0 & 0x1f) << 6) | (c1 & 0x3f));
-					continue;
-				}
+				continue;
+			}
 
-				i++;
-				int c2 = ba[i] & 0xff;
+			if (c0 < 0xe0) {
+				// input 2 byte, output 5+6 = 11 bit
+				if (i + 1 >= end) break;
+				final int c = ((c0 & 0x1f) << 6) | (ba[i + 1] & 0x3f);
+				out[outPos++] = lowercased ? Character.toLowerCase((char) c) : (char) c;
+				i += 2;
+				continue;
+			}
 
+			if (c0 < 0xf0) {
 				// input 3 byte, output 4+6+6 = 16 bit
-				buf[pos++] = (char) (((c0 & 0x0f) << 12) | ((c1 & 0x3f) << 6) | (c2 & 0x3f));
+				if (i + 2 >= end) break;
+				final int c = ((c0 & 0x0f) << 12) | ((ba[i + 1] & 0x3f) << 6) | (ba[i + 2] & 0x3f);
+				out[outPos++] = lowercased ? Character.toLowerCase((char) c) : (char) c;
+				i += 3;
+				continue;
+			}
+
+			{
+				// input 4 byte, output 3+6+6+6 = 21 bit, as a surrogate pair
+				if (i + 3 >= end) break;
+				int cp = ((c0 & 0x07) << 18) | ((ba[i + 1] & 0x3f) << 12) | ((ba[i + 2] & 0x3f) << 6) | (ba[i + 3] & 0x3f);
+				if (lowercased) {
+					cp = Character.toLowerCase(cp);
+				}
+				if (cp >= Character.MIN_SUPPLEMENTARY_CODE_POINT && cp <= Character.MAX_CODE_POINT) {
+					// Character.highSurrogate and lowSurrogate are only available from API 19
+					final int u = cp - Character.MIN_SUPPLEMENTARY_CODE_POINT;
+					out[outPos++] = (char) (Character.MIN_HIGH_SURROGATE + (u >>> 10));
+					out[outPos++] = (char) (Character.MIN_LOW_SURROGATE + (u & 0x3ff));
+				} else {
+					out[outPos++] = (char) cp;
+				}
+				i += 4;
 			}
-		} catch (ArrayIndexOutOfBoundsException e) {
-			// biarin
 		}
 
-		return new String(buf, 0, pos);
+		return outPos;
+	}
+
+	public static String toString(byte[] ba) {
+		return toString(ba, 0, ba.length);
+	}
+
+	public static String toString(byte[] ba, int start, int length) {
+		final char[] chars = charBuf(length);
+		return new String(chars, 0, decode(ba, start, length, false, chars, 0));
 	}
 
 	public static String toStringLowerCase(byte[] ba) {
@@ -72,119 +126,33 @@ public class Utf8Decoder {
 	}
 
 	public static String toStringLowerCase(byte[] ba, int start, int length) {
-		if (buf.length < ba.length) {
-			buf = new char[ba.length + 1000];
-		}
-
-		int pos = 0;
-
-		try {
-			for (int i = start; i < start + length; i++) {
-				int c0 = ba[i] & 0xff;
-
-				if (c0 < 0x80) {
-					// input 1 byte, output 7 bit
-
-					if (c0 >= 'A' && c0 <= 'Z') {
-						buf[pos++] = (char) (c0 | 0x20);
-					} else {
-						buf[pos++] = (char) c0;
-					}
-
-					continue;
-				}
-
-				i++;
-				int c1 = ba[i] & 0xff;
-
-				if (c0 < 0xe0) {
-					// input 2 byte, output 5+6 = 11 bit
-					final int c = ((c0 & 0x1f) << 6) | (c1 & 0x3f);
-					buf[pos++] = (char) Character.toLowerCase(c);
-					continue;
-				}
-
-				i++;
-				int c2 = ba[i] & 0xff;
-
-				{
-					// input 3 byte, output 4+6+6 = 16 bit
-					final int c = ((c0 & 0x0f) << 12) | ((c1 & 0x3f) << 6) | (c2 & 0x3f);
-					buf[pos++] = (char) Character.toLowerCase(c);
-				}
-			}
-		} catch (ArrayIndexOutOfBoundsException e) {
-			// biarin
-		}
-
-		return new String(buf, 0, pos);
+		final char[] chars = charBuf(length);
+		return new String(chars, 0, decode(ba, start, length, true, chars, 0));
 	}
 
+	/**
+	 * @return verses joined by '\n', with a '\n' after the last verse too.
+	 */
 	public static String toStringFromVersesWithPrependedLengths(BintexReader br, int verse_count, boolean lowercased) throws IOException {
-		byte[] byte_buf = byte_buf_.get();
 		char[] char_buf = char_buf_.get();
 
 		int char_pos = 0;
 		for (int v = 0; v < verse_count; v++) {
 			int verse_len = br.readVarUint();
 
-			if (verse_len > byte_buf.length) {
-				byte_buf = new byte[verse_len + 100];
-				byte_buf_.set(byte_buf);
-			}
+			final byte[] byte_buf = byteBuf(verse_len);
 
 			int will_need_char_len = char_pos + verse_len + 1 /*for separator*/;
 			if (will_need_char_len > char_buf.length) {
 				final char[] new_char_buf = new char[will_need_char_len + 1000];
-				System.arraycopy(char_buf, 0, new_char_buf, 0, char_buf.length);
+				System.arraycopy(char_buf, 0, new_char_buf, 0, char_pos);
 				char_buf = new_char_buf;
 				char_buf_.set(char_buf);
 			}
 
 			br.readRaw(byte_buf, 0, verse_len);
 
-			for (int i = 0; i < verse_len; i++) {
-				int c0 = byte_buf[i] & 0xff;
-
-				if (c0 < 0x80) {
-					// input 1 byte, output 7 bit
-
-					if (lowercased && (c0 >= 'A' && c0 <= 'Z')) {
-						char_buf[char_pos++] = (char) (c0 | 0x20);
-					} else {
-						char_buf[char_pos++] = (char) c0;
-					}
-
-					continue;
-				}
-
-				i++;
-				int c1 = byte_buf[i] & 0xff;
-
-				if (c0 < 0xe0) {
-					// input 2 byte, output 5+6 = 11 bit
-					final int c = (((c0 & 0x1f) << 6) | (c1 & 0x3f));
-					if (!lowercased) {
-						char_buf[char_pos++] = (char) c;
-					} else {
-						char_buf[char_pos++] = (char) Character.toLowerCase(c);
-					}
-					continue;
-				}
-
-				i++;
-				int c2 = byte_buf[i] & 0xff;
-
-				{
-					// input 3 byte, output 4+6+6 = 16 bit
-					final int c = ((c0 & 0x0f) << 12) | ((c1 & 0x3f) << 6) | (c2 & 0x3f);
-					if (!lowercased) {
-						char_buf[char_pos++] = (char) c;
-					} else {
-						char_buf[char_pos++] = (char) Character.toLowerCase(c);
-					}
-				}
-			}
+			char_pos = decode(byte_buf, 0, verse_len, lowercased, char_buf, char_pos);
 
 			// verse separator
 			char_buf[char_pos++] = '\n';
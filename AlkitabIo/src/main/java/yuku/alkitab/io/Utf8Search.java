@@ -0,0 +1,234 @@
+package yuku.alkitab.io;
+
+import yuku.bintex.BintexReader;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Substring search on the UTF-8 bytes of verse texts, without decoding them to Strings.
+ *
+ * The text is lowercased into a {@link Text} with the same case mapping as {@link Utf8Decoder#toStringLowerCase(byte[], int, int)},
+ * so a lowercased token is found in the bytes exactly where it would be found in the decoded String.
+ * Since UTF-8 is self-synchronizing, a match of the bytes of a whole token always starts and ends at character boundaries.
+ */
+public class Utf8Search {
+	static final Charset utf8 = Charset.forName("UTF-8");
+
+	/**
+	 * Lowercase of every char that is encoded in 1 or 2 bytes, where almost all cased letters are.
+	 */
+	private static final char[] lower2 = new char[0x800];
+
+	static {
+		for (int c = 0; c < lower2.length; c++) {
+			lower2[c] = Character.toLowerCase((char) c);
+		}
+	}
+
+	/**
+	 * Lowercased UTF-8 text of one chapter. Reused for many chapters, so that the buffers are allocated only once.
+	 */
+	public static class Text {
+		public byte[] bytes = new byte[16000];
+		public int length;
+
+		/** End offset (exclusive) in {@link #bytes} of each verse. */
+		public int[] verseEnds = new int[200];
+		public int verseCount;
+
+		private byte[] raw = new byte[4000];
+
+		public void clear() {
+			length = 0;
+			verseCount = 0;
+		}
+
+		/**
+		 * Reads verse_count verses, each prepended by its length as varuint, lowercasing them.
+		 * @param ascii whether the text is known to be in ASCII, which only needs A-Z to be lowercased
+		 */
+		public void readVersesWithPrependedLengths(final BintexReader br, final int verse_count, final boolean ascii) throws IOException {
+			clear();
+
+			for (int v = 0; v < verse_count; v++) {
+				final int verse_len = br.readVarUint();
+
+				// lowercasing a char of 2 bytes can need 3 bytes, but never more than twice the original length
+				ensureBytes(length + verse_len * 2);
+
+				if (ascii) {
+					br.readRaw(bytes, length, verse_len);
+					final byte[] bytes = this.bytes;
+					for (int i = length, end = length + verse_len; i < end; i++) {
+						final byte b = bytes[i];
+						if (b >= 'A' && b <= 'Z') {
+							bytes[i] = (byte) (b | 0x20);
+						}
+					}
+					length += verse_len;
+				} else {
+					if (raw.length < verse_len) {
+						raw = new byte[verse_len + 1000];
+					}
+					br.readRaw(raw, 0, verse_len);
+					length = lowercaseUtf8(raw, verse_len, bytes, length);
+				}
+
+				if (verseCount == verseEnds.length) {
+					final int[] newVerseEnds = new int[verseEnds.length * 2];
+					System.arraycopy(verseEnds, 0, newVerseEnds, 0, verseCount);
+					verseEnds = newVerseEnds;
+				}
+				verseEnds[verseCount++] = length;
+			}
+		}
+
+		private void ensureBytes(final int capacity) {
+			if (bytes.length < capacity) {
+				final byte[] newBytes = new byte[capacity + 4000];
+				System.arraycopy(bytes, 0, newBytes, 0, length);
+				bytes = newBytes;
+			}
+		}
+	}
+
+	/**
+	 * Lowercases the UTF-8 in src[0..srcLen) into dst from dstPos, which must have room for srcLen * 2 bytes.
+	 * Malformed sequences are copied as they are.
+	 * @return the new dstPos
+	 */
+	static int lowercaseUtf8(final byte[] src, final int srcLen, final byte[] dst, int dstPos) {
+		int i = 0;
+		while (i < srcLen) {
+			final int c0 = src[i] & 0xff;
+
+			if (c0 < 0x80) {
+				// input 1 byte, output 7 bit
+				dst[dstPos++] = (byte) (c0 >= 'A' && c0 <= 'Z' ? c0 | 0x20 : c0);
+				i++;
+				continue;
+			}
+
+			if (c0 >= 0xc0 && c0 < 0xe0 && i + 1 < srcLen) {
+				// input 2 byte, output 5+6 = 11 bit
+				final int c = ((c0 & 0x1f) << 6) | (src[i + 1] & 0x3f);
+				dstPos = putChar(lower2[c], dst, dstPos);
+				i += 2;
+				continue;
+			}
+
+			if (c0 >= 0xe0 && c0 < 0xf0 && i + 2 < srcLen) {
+				// input 3 byte, output 4+6+6 = 16 bit
+				final int c = ((c0 & 0x0f) << 12) | ((src[i + 1] & 0x3f) << 6) | (src[i + 2] & 0x3f);
+				final char lower = Character.toLowerCase((char) c);
+				if (lower == c) {
+					dst[dstPos++] = src[i];
+					dst[dstPos++] = src[i + 1];
+					dst[dstPos++] = src[i + 2];
+				} else {
+					dstPos = putChar(lower, dst, dstPos);
+				}
+				i += 3;
+				continue;
+			}
+
+			if (c0 >= 0xf0 && c0 < 0xf8 && i + 3 < srcLen) {
+				// input 4 byte, output 3+6+6+6 = 21 bit. Lowercase of a supplementary code point is supplementary too.
+				final int cp = ((c0 & 0x07) << 18) | ((src[i + 1] & 0x3f) << 12) | ((src[i + 2] & 0x3f) << 6) | (src[i + 3] & 0x3f);
+				final int lower = Character.toLowerCase(cp);
+				if (lower == cp || lower < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+					dst[dstPos++] = src[i];
+					dst[dstPos++] = src[i + 1];
+					dst[dstPos++] = src[i + 2];
+					dst[dstPos++] = src[i + 3];
+				} else {
+					dst[dstPos++] = (byte) (0xf0 | (lower >> 18));
+					dst[dstPos++] = (byte) (0x80 | ((lower >> 12) & 0x3f));
+					dst[dstPos++] = (byte) (0x80 | ((lower >> 6) & 0x3f));
+					dst[dstPos++] = (byte) (0x80 | (lower & 0x3f));
+				}
+				i += 4;
+				continue;
+			}
+
+			dst[dstPos++] = src[i++];
+		}
+		return dstPos;
+	}
+
+	private static int putChar(final char c, final byte[] dst, int dstPos) {
+		if (c < 0x80) {
+			dst[dstPos++] = (byte) c;
+		} else if (c < 0x800) {
+			dst[dstPos++] = (byte) (0xc0 | (c >> 6));
+			dst[dstPos++] = (byte) (0x80 | (c & 0x3f));
+		} else {
+			dst[dstPos++] = (byte) (0xe0 | (c >> 12));
+			dst[dstPos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+			dst[dstPos++] = (byte) (0x80 | (c & 0x3f));
+		}
+		return dstPos;
+	}
+
+	/**
+	 * A token prepared for Boyer-Moore-Horspool search. Prepare it once for all the chapters to be searched.
+	 */
+	public static class Pattern {
+		public final String token;
+		final byte[] needle;
+		final int[] shift = new int[256];
+
+		/**
+		 * @param token lowercased
+		 */
+		public Pattern(final String token) {
+			this.token = token;
+			this.needle = token.getBytes(utf8);
+
+			final int n = needle.length;
+			for (int i = 0; i < 256; i++) {
+				shift[i] = n;
+			}
+			for (int i = 0; i < n - 1; i++) {
+				shift[needle[i] & 0xff] = n - 1 - i;
+			}
+		}
+
+		public int length() {
+			return needle.length;
+		}
+
+		/**
+		 * @return the offset of the first occurrence of the token in text at or after from, or -1
+		 */
+		public int indexOf(final Text text, final int from) {
+			final byte[] haystack = text.bytes;
+			final byte[] needle = this.needle;
+			final int[] shift = this.shift;
+			final int n = needle.length;
+			final int end = text.length;
+
+			if (n == 0) return from < end ? from : -1;
+
+			final byte last = needle[n - 1];
+			int i = from + n - 1;
+			while (i < end) {
+				final byte b = haystack[i];
+				if (b == last) {
+					int j = n - 2;
+					int k = i - 1;
+					while (j >= 0 && haystack[k] == needle[j]) {
+						j--;
+						k--;
+					}
+					if (j < 0) {
+						return k + 1;
+					}
+				}
+				i += shift[b & 0xff];
+			}
+			return -1;
+		}
+	}
+}
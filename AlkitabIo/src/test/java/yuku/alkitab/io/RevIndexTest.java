@@ -0,0 +1,125 @@
+package yuku.alkitab.io;
+
+import junit.framework.TestCase;
+import yuku.alkitab.util.IntArrayList;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class RevIndexTest extends TestCase {
+	RevIndex revIndex;
+	int[] longLids;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		longLids = new int[500];
+		for (int i = 0; i < longLids.length; i++) {
+			longLids[i] = 3 + i * 61;
+		}
+
+		final RevIndex.Builder builder = new RevIndex.Builder(RevIndex.KEY_KIND_LID);
+		builder.add("lord", new int[]{1, 5, 9, 200});
+		builder.add("lords", new int[]{5, 300});
+		builder.add("lord's", new int[]{7});
+		builder.add("word", new int[]{1, 2, 3});
+		builder.add("sword", new int[]{9, 200, 31102});
+		builder.add("and", longLids);
+		for (int i = 0; i < 100; i++) { // enough words to fill several dictionary blocks
+			builder.add("filler" + (char) ('a' + i / 26) + (char) ('a' + i % 26), new int[]{i + 1});
+		}
+		revIndex = builder.build();
+	}
+
+	public void testWriteAndOpen() throws Exception {
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		revIndex.writeTo(os);
+		final byte[] bytes = os.toByteArray();
+
+		final RevIndex opened = RevIndex.open(ByteBuffer.wrap(bytes));
+		assertEquals(RevIndex.KEY_KIND_LID, opened.getKeyKind());
+		assertEquals(revIndex.getWordCount(), opened.getWordCount());
+
+		final IntArrayList ordinals = new IntArrayList();
+		opened.findContaining(RevIndex.toKey("lord"), ordinals);
+		assertEquals("[1, 5, 7, 9, 200, 300]", opened.union(ordinals).toString());
+		assertEquals(500, opened.docFreq(opened.findExact(RevIndex.toKey("and"))));
+
+		// rewriting an opened index gives the same bytes
+		final ByteArrayOutputStream os2 = new ByteArrayOutputStream();
+		opened.writeTo(os2);
+		assertTrue(Arrays.equals(bytes, os2.toByteArray()));
+
+		bytes[0] = 0;
+		try {
+			RevIndex.open(ByteBuffer.wrap(bytes));
+			fail("bad magic must be rejected");
+		} catch (IOException expected) {
+		}
+	}
+
+	IntArrayList contain(String token) {
+		final IntArrayList res = new IntArrayList();
+		revIndex.findContaining(RevIndex.toKey(token), res);
+		return res;
+	}
+
+	public void testFindExact() {
+		assertTrue(revIndex.findExact(RevIndex.toKey("lord")) >= 0);
+		assertTrue(revIndex.findExact(RevIndex.toKey("lord's")) >= 0);
+		assertTrue(revIndex.findExact(RevIndex.toKey("fillerdv")) >= 0);
+		assertTrue(revIndex.findExact(RevIndex.toKey("and")) >= 0);
+		assertEquals(-1, revIndex.findExact(RevIndex.toKey("lor")));
+		assertEquals(-1, revIndex.findExact(RevIndex.toKey("zzz")));
+		assertEquals(-1, revIndex.findExact(RevIndex.toKey("a")));
+	}
+
+	public void testFindContaining() {
+		assertEquals(3, contain("lord").size());
+		assertEquals(2, contain("word").size());
+		assertEquals(5, contain("ord").size());
+		assertEquals(1, contain("swo").size());
+		assertEquals(100, contain("filler").size());
+		assertEquals(0, contain("drow").size());
+		assertEquals(1, contain("'").size());
+		// short tokens scan the dictionary
+		assertEquals(1, contain("sw").size());
+	}
+
+	public void testUnion() {
+		assertEquals("[1, 5, 7, 9, 200, 300]", revIndex.union(contain("lord")).toString());
+		assertEquals("[1, 2, 3, 9, 200, 31102]", revIndex.union(contain("word")).toString());
+	}
+
+	public void testRetainAny() {
+		final IntArrayList lords = revIndex.union(contain("lord"));
+		assertEquals("[9, 200]", revIndex.retainAny(lords, contain("sword")).toString());
+
+		final IntArrayList candidates = new IntArrayList();
+		candidates.add(3);
+		candidates.add(4);
+		candidates.add(3 + 61 * 300);
+		candidates.add(3 + 61 * 499);
+		candidates.add(3 + 61 * 500);
+		assertEquals("[3, " + (3 + 61 * 300) + ", " + (3 + 61 * 499) + "]", revIndex.retainAny(candidates, contain("and")).toString());
+	}
+
+	public void testPostingsAdvance() {
+		final RevIndex.Postings p = revIndex.postings(revIndex.findExact(RevIndex.toKey("and")));
+		assertEquals(500, p.size());
+		assertEquals(3 + 61 * 200, p.advance(3 + 61 * 200));
+		assertEquals(3 + 61 * 201, p.advance(3 + 61 * 200 + 1));
+		assertEquals(3 + 61 * 201, p.advance(5));
+		assertEquals(3 + 61 * 202, p.next());
+		assertEquals(RevIndex.Postings.NO_MORE, p.advance(Integer.MAX_VALUE - 1));
+
+		final RevIndex.Postings all = revIndex.postings(revIndex.findExact(RevIndex.toKey("and")));
+		for (final int lid : longLids) {
+			assertEquals(lid, all.next());
+		}
+		assertEquals(RevIndex.Postings.NO_MORE, all.next());
+	}
+}
@@ -0,0 +1,95 @@
+package yuku.alkitab.io;
+
+import junit.framework.TestCase;
+import yuku.bintex.BintexReader;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class Utf8DecoderTest extends TestCase {
+	static final Charset utf8 = Charset.forName("UTF-8");
+
+	/** Code points of 1 to 4 bytes, with the Deseret capital and small letter long I. */
+	static final int[] codePoints = {'a', 'A', 'Z', ' ', 'é', 'É', 'Σ', 'Ж', '中', 0x10400, 0x10428, 0x1f600};
+
+	static String randomString(final Random r, final int len) {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < len; i++) {
+			sb.appendCodePoint(codePoints[r.nextInt(codePoints.length)]);
+		}
+		return sb.toString();
+	}
+
+	static String lowerCodePoints(final String s) {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < s.length(); ) {
+			final int cp = s.codePointAt(i);
+			sb.appendCodePoint(Character.toLowerCase(cp));
+			i += Character.charCount(cp);
+		}
+		return sb.toString();
+	}
+
+	public void testSameAsJdk() throws Exception {
+		final Random r = new Random(119);
+		for (int round = 0; round < 1000; round++) {
+			final String s = randomString(r, r.nextInt(50));
+			final byte[] bytes = s.getBytes(utf8);
+
+			assertEquals(s, Utf8Decoder.toString(bytes));
+			assertEquals(lowerCodePoints(s), Utf8Decoder.toStringLowerCase(bytes));
+		}
+	}
+
+	public void testSurrogatePair() throws Exception {
+		final byte[] bytes = "a𐐀b".getBytes(utf8);
+		assertEquals(6, bytes.length);
+		assertEquals("a𐐀b", Utf8Decoder.toString(bytes));
+		assertEquals("a𐐨b", Utf8Decoder.toStringLowerCase(bytes));
+	}
+
+	public void testTruncatedAtEnd() throws Exception {
+		final byte[] bytes = "ab𐐀".getBytes(utf8);
+		for (int len = 3; len < bytes.length; len++) {
+			assertEquals("ab", Utf8Decoder.toString(bytes, 0, len));
+		}
+	}
+
+	public void testVersesWithPrependedLengths() throws Exception {
+		final String[] verses = {"In the beginning", "", "Σ𐐀", "中文"};
+		final byte[] data = Utf8SearchTest.versesWithPrependedLengths(verses);
+
+		assertEquals("In the beginning\n\nΣ𐐀\n中文\n", Utf8Decoder.toStringFromVersesWithPrependedLengths(new BintexReader(data), verses.length, false));
+		assertEquals("in the beginning\n\nσ𐐨\n中文\n", Utf8Decoder.toStringFromVersesWithPrependedLengths(new BintexReader(data), verses.length, true));
+	}
+
+	public void testConcurrent() throws Exception {
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final Thread[] threads = new Thread[8];
+
+		for (int t = 0; t < threads.length; t++) {
+			final long seed = t;
+			threads[t] = new Thread(() -> {
+				try {
+					final Random r = new Random(seed);
+					for (int round = 0; round < 2000; round++) {
+						final String s = randomString(r, r.nextInt(200));
+						assertEquals(s, Utf8Decoder.toString(s.getBytes(utf8)));
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			});
+			threads[t].start();
+		}
+
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+	}
+}
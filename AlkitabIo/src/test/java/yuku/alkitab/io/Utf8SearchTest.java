@@ -0,0 +1,101 @@
+package yuku.alkitab.io;
+
+import junit.framework.TestCase;
+import yuku.bintex.BintexReader;
+import yuku.bintex.BintexWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+public class Utf8SearchTest extends TestCase {
+	static final Charset utf8 = Charset.forName("UTF-8");
+
+	static final String alphabet = "aAbBzZ éÉßİΣσЖжȺⱥK中文";
+
+	static byte[] versesWithPrependedLengths(final String[] verses) throws Exception {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final BintexWriter bw = new BintexWriter(baos);
+		for (final String verse : verses) {
+			final byte[] bytes = verse.getBytes(utf8);
+			bw.writeVarUint(bytes.length);
+			bw.writeRaw(bytes);
+		}
+		bw.close();
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Verses (0-based) that contain the token, found with the String decoder.
+	 */
+	static String expectedVerses(final byte[] data, final int verse_count, final String token) throws Exception {
+		final String oneChapter = Utf8Decoder.toStringFromVersesWithPrependedLengths(new BintexReader(data), verse_count, true);
+		final String[] verses = oneChapter.split("\n", -1);
+		final StringBuilder sb = new StringBuilder();
+		for (int v = 0; v < verse_count; v++) {
+			if (verses[v].contains(token)) sb.append(v).append(',');
+		}
+		return sb.toString();
+	}
+
+	static String actualVerses(final Utf8Search.Text text, final String token) {
+		final Utf8Search.Pattern pattern = new Utf8Search.Pattern(token);
+		final StringBuilder sb = new StringBuilder();
+		int v = 0;
+		int from = 0;
+		while (true) {
+			final int pos = pattern.indexOf(text, from);
+			if (pos == -1) break;
+			while (text.verseEnds[v] <= pos) v++;
+			if (pos + pattern.length() > text.verseEnds[v]) {
+				from = pos + 1;
+			} else {
+				sb.append(v).append(',');
+				from = text.verseEnds[v];
+			}
+		}
+		return sb.toString();
+	}
+
+	public void testSameAsDecodedString() throws Exception {
+		final Random r = new Random(119);
+		final Utf8Search.Text text = new Utf8Search.Text();
+
+		for (int round = 0; round < 300; round++) {
+			final String[] verses = new String[1 + r.nextInt(30)];
+			for (int v = 0; v < verses.length; v++) {
+				final StringBuilder sb = new StringBuilder();
+				final int len = r.nextInt(40);
+				for (int i = 0; i < len; i++) {
+					sb.append(alphabet.charAt(r.nextInt(alphabet.length())));
+				}
+				verses[v] = sb.toString();
+			}
+			final byte[] data = versesWithPrependedLengths(verses);
+
+			text.readVersesWithPrependedLengths(new BintexReader(data), verses.length, false);
+			assertEquals(verses.length, text.verseCount);
+
+			for (int t = 0; t < 20; t++) {
+				final StringBuilder token = new StringBuilder();
+				final int len = 1 + r.nextInt(3);
+				for (int i = 0; i < len; i++) {
+					token.append(Character.toLowerCase(alphabet.charAt(r.nextInt(alphabet.length()))));
+				}
+				assertEquals(token.toString(), expectedVerses(data, verses.length, token.toString()), actualVerses(text, token.toString()));
+			}
+		}
+	}
+
+	public void testAscii() throws Exception {
+		final byte[] data = versesWithPrependedLengths(new String[] {"In the Beginning", "", "God CREATED", "the heaven"});
+		final Utf8Search.Text text = new Utf8Search.Text();
+		text.readVersesWithPrependedLengths(new BintexReader(data), 4, true);
+
+		assertEquals("0,", actualVerses(text, "beginning"));
+		assertEquals("2,", actualVerses(text, "created"));
+		assertEquals("0,3,", actualVerses(text, "the"));
+		assertEquals("", actualVerses(text, "ggod")); // not across verses
+		assertEquals("", actualVerses(text, "ngg"));
+	}
+}
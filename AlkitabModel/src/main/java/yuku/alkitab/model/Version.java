@@ -48,6 +48,19 @@ public abstract class Version {
 	 */
 	@Nullable public abstract String loadVerseText(Book book, int chapter_1, int verse_1);
 
+	/**
+	 * Load many single verses from this version at once.
+	 * Implementations can do this faster than loading the verses one by one, for example by loading every chapter only once.
+	 * @return the texts in the same order as the aris, with null for the verses that are not available.
+	 */
+	public String[] loadVerseTexts(int[] aris) {
+		final String[] res = new String[aris.length];
+		for (int i = 0; i < aris.length; i++) {
+			res[i] = loadVerseText(aris[i]);
+		}
+		return res;
+	}
+
 	/**
 	 * @param ariRanges list of aris where even-indexed elements are start and odd-indexed elements are end (inclusive) aris
 	 * @param result_aris (non-null, will be cleared first) list of aris loaded
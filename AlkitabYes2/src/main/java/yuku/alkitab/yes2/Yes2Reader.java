@@ -2,13 +2,16 @@ package yuku.alkitab.yes2;
 
 import android.util.Log;
 import yuku.alkitab.io.BibleReader;
+import yuku.alkitab.io.LowercasedTextReader;
+import yuku.alkitab.io.SingleVerseReader;
+import yuku.alkitab.io.Utf8Search;
 import yuku.alkitab.model.Book;
 import yuku.alkitab.model.FootnoteEntry;
 import yuku.alkitab.model.PericopeBlock;
 import yuku.alkitab.model.XrefEntry;
 import yuku.alkitab.util.Ari;
+import yuku.alkitab.yes2.compress.DictionaryFramesInputStream;
 import yuku.alkitab.yes2.compress.SnappyInputStream;
-import yuku.alkitab.yes2.io.RandomAccessFileRandomInputStream;
 import yuku.alkitab.yes2.io.RandomInputStream;
 import yuku.alkitab.yes2.io.Yes2VerseTextDecoder;
 import yuku.alkitab.yes2.model.SectionIndex;
@@ -22,14 +25,16 @@ import yuku.alkitab.yes2.section.XrefsSection;
 import yuku.bintex.BintexReader;
 import yuku.bintex.ValueMap;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
 
-public class Yes2Reader implements BibleReader {
+public class Yes2Reader implements BibleReader, LowercasedTextReader, SingleVerseReader, Closeable {
 	private static final String TAG = Yes2Reader.class.getSimpleName();
 
-	private RandomAccessFileRandomInputStream file_;
+	private RandomInputStream file_;
 	private SectionIndex sectionIndex_;
 
 	// cached in memory
@@ -45,24 +50,27 @@ public class Yes2Reader implements BibleReader {
 	 * and also understands the text section attributes (compression, encryption etc.)
 	 */
 	static class TextSectionReader {
-		private final RandomAccessFileRandomInputStream file_;
+		private final RandomInputStream file_;
 		private final Yes2VerseTextDecoder decoder_;
 		private final long sectionContentOffset_;
 		private BintexReader br_;
 		
 		private SnappyInputStream snappyInputStream;  // null means no compression
+		private DictionaryFramesInputStream framesInputStream; // null means not compressed as dict-frames
 		
-		public TextSectionReader(RandomAccessFileRandomInputStream file, Yes2VerseTextDecoder decoder, ValueMap sectionAttributes, long sectionContentOffset) throws Exception {
+		public TextSectionReader(RandomInputStream file, Yes2VerseTextDecoder decoder, ValueMap sectionAttributes, long sectionContentOffset) throws Exception {
 			file_ = file;
 			decoder_ = decoder;
 			sectionContentOffset_ = sectionContentOffset;
-			br_ = new BintexReader(null);
+			br_ = new BintexReader((InputStream) null);
 			
 			if (sectionAttributes != null) {
 				String compressionName = sectionAttributes.getString("compression.name");
 				if (compressionName != null) {
 					if ("snappy-blocks".equals(compressionName)) {
 						snappyInputStream = SnappyInputStream.getInstanceFromAttributes(file_, sectionAttributes, sectionContentOffset);
+					} else if (DictionaryFramesInputStream.COMPRESSION_NAME.equals(compressionName)) {
+						framesInputStream = DictionaryFramesInputStream.getInstanceFromAttributes(file_, sectionAttributes, sectionContentOffset);
 					} else {
 						throw new Exception("Compression " + compressionName + " is not supported");
 					}
@@ -70,18 +78,24 @@ public class Yes2Reader implements BibleReader {
 			}
 		}
 
-		public Yes2SingleChapterVerses loadVerseText(Yes2Book yes2Book, int chapter_1, boolean dontSeparateVerses, boolean lowercase) throws Exception {
+		private BintexReader seekToChapter(Yes2Book yes2Book, int chapter_1) throws IOException {
 			int contentOffset = yes2Book.offset; 
 			contentOffset += yes2Book.chapter_offsets[chapter_1 - 1];
 			
-			BintexReader br;
-			if (snappyInputStream != null) {
+			if (framesInputStream != null) {
+				framesInputStream.seek(contentOffset);
+				return br_.reuse(framesInputStream);
+			} else if (snappyInputStream != null) {
 				snappyInputStream.seek(contentOffset);
-				br = br_.reuse(snappyInputStream);
+				return br_.reuse(snappyInputStream);
 			} else {
 				file_.seek(sectionContentOffset_ + contentOffset);
-				br = br_.reuse(file_);
+				return br_.reuse(file_);
 			}
+		}
+
+		public Yes2SingleChapterVerses loadVerseText(Yes2Book yes2Book, int chapter_1, boolean dontSeparateVerses, boolean lowercase) throws Exception {
+			BintexReader br = seekToChapter(yes2Book, chapter_1);
 
 			int verse_count = yes2Book.verse_counts[chapter_1 - 1];
 			if (dontSeparateVerses) {
@@ -92,12 +106,39 @@ public class Yes2Reader implements BibleReader {
 				return new Yes2SingleChapterVerses(decoder_.separateIntoVerses(br, verse_count, lowercase));
 			}
 		}
+
+		public void loadLowercasedText(Yes2Book yes2Book, int chapter_1, Utf8Search.Text out) throws Exception {
+			BintexReader br = seekToChapter(yes2Book, chapter_1);
+			decoder_.readLowercasedText(br, yes2Book.verse_counts[chapter_1 - 1], out);
+		}
+
+		public String loadSingleVerseText(Yes2Book yes2Book, int chapter_1, int verse_1) throws Exception {
+			final BintexReader br;
+			final long verseOffset = framesInputStream == null ? -1 : framesInputStream.getVerseOffset(yes2Book.offset + yes2Book.chapter_offsets[chapter_1 - 1], verse_1 - 1);
+			if (verseOffset >= 0) {
+				// only the frame of the verse is decompressed
+				framesInputStream.seek(verseOffset);
+				br = br_.reuse(framesInputStream);
+			} else {
+				br = seekToChapter(yes2Book, chapter_1);
+				// skip the verses before without decoding them
+				for (int v = 1; v < verse_1; v++) {
+					br.skip(br.readVarUint());
+				}
+			}
+
+			return decoder_.separateIntoVerses(br, 1, false)[0];
+		}
 	}
 	
-	public Yes2Reader(RandomAccessFileRandomInputStream input) {
+	public Yes2Reader(RandomInputStream input) {
 		this.file_ = input;
 	}
 
+	@Override public void close() throws IOException {
+		file_.close();
+	}
+
 	/** Read section index */
 	private synchronized void loadSectionIndex() throws IOException {
 		if (sectionIndex_ != null) { // we have read it previously.
@@ -109,7 +150,8 @@ public class Yes2Reader implements BibleReader {
 		{ // check header
 			byte[] buf = new byte[8];
 			file_.read(buf);
-			if (!Arrays.equals(buf, new byte[] { (byte) 0x98, 0x58, 0x0d, 0x0a, 0x00, 0x5d, (byte) 0xe0, 0x02 /* yes version 2 */})) {
+			// yes version 3 has the same layout as version 2, only with sections that version 2 readers cannot read
+			if (!Arrays.equals(Arrays.copyOf(buf, 7), new byte[] { (byte) 0x98, 0x58, 0x0d, 0x0a, 0x00, 0x5d, (byte) 0xe0 }) || (buf[7] != 0x02 && buf[7] != 0x03)) {
 				throw new RuntimeException("YES2: Header is incorrect. Found: " + Arrays.toString(buf));
 			}
 		}
@@ -208,31 +250,65 @@ public class Yes2Reader implements BibleReader {
 				return null;
 			}
 
-			if (textSectionReader_ == null) {
-				// init text decoder 
-				Yes2VerseTextDecoder decoder;
-				int textEncoding = versionInfo_.textEncoding;
-				if (textEncoding == 1) {
-					decoder = new Yes2VerseTextDecoder.Ascii();
-				} else if (textEncoding == 2) {
-					decoder = new Yes2VerseTextDecoder.Utf8();
-				} else {
-					Log.e(TAG, "Text encoding " + textEncoding + " not supported! Fallback to ascii.");
-					decoder = new Yes2VerseTextDecoder.Ascii();
-				}
-				
-				ValueMap sectionAttributes = sectionIndex_.getSectionAttributes(TextSection.SECTION_NAME, file_);
-				long sectionContentOffset = sectionIndex_.getAbsoluteOffsetForSectionContent(TextSection.SECTION_NAME);
-				textSectionReader_ = new TextSectionReader(file_, decoder, sectionAttributes, sectionContentOffset);
-			}
-			
-			return textSectionReader_.loadVerseText(yes2Book, chapter_1, dontSeparateVerses, lowercase);
+			return getTextSectionReader().loadVerseText(yes2Book, chapter_1, dontSeparateVerses, lowercase);
 		} catch (Exception e) {
 			Log.e(TAG, "@@loadVerseText error book=" + book + " chapter_1=" + chapter_1 + " dontSeparateVerses=" + dontSeparateVerses + " lowercase=" + lowercase, e);
 			return null;
 		}
 	}
 
+	@Override public String loadSingleVerseText(Book book, int chapter_1, int verse_1) {
+		Yes2Book yes2Book = (Yes2Book) book;
+
+		try {
+			if (chapter_1 <= 0 || chapter_1 > yes2Book.chapter_count || verse_1 <= 0 || verse_1 > yes2Book.verse_counts[chapter_1 - 1]) {
+				return null;
+			}
+
+			return getTextSectionReader().loadSingleVerseText(yes2Book, chapter_1, verse_1);
+		} catch (Exception e) {
+			Log.e(TAG, "@@loadSingleVerseText error book=" + book + " chapter_1=" + chapter_1 + " verse_1=" + verse_1, e);
+			return null;
+		}
+	}
+
+	@Override public boolean loadLowercasedText(Book book, int chapter_1, Utf8Search.Text out) {
+		Yes2Book yes2Book = (Yes2Book) book;
+
+		try {
+			if (chapter_1 <= 0 || chapter_1 > yes2Book.chapter_count) {
+				return false;
+			}
+
+			getTextSectionReader().loadLowercasedText(yes2Book, chapter_1, out);
+			return true;
+		} catch (Exception e) {
+			Log.e(TAG, "@@loadLowercasedText error book=" + book + " chapter_1=" + chapter_1, e);
+			return false;
+		}
+	}
+
+	private TextSectionReader getTextSectionReader() throws Exception {
+		if (textSectionReader_ == null) {
+			// init text decoder 
+			Yes2VerseTextDecoder decoder;
+			int textEncoding = versionInfo_.textEncoding;
+			if (textEncoding == 1) {
+				decoder = new Yes2VerseTextDecoder.Ascii();
+			} else if (textEncoding == 2) {
+				decoder = new Yes2VerseTextDecoder.Utf8();
+			} else {
+				Log.e(TAG, "Text encoding " + textEncoding + " not supported! Fallback to ascii.");
+				decoder = new Yes2VerseTextDecoder.Ascii();
+			}
+			
+			ValueMap sectionAttributes = sectionIndex_.getSectionAttributes(TextSection.SECTION_NAME, file_);
+			long sectionContentOffset = sectionIndex_.getAbsoluteOffsetForSectionContent(TextSection.SECTION_NAME);
+			textSectionReader_ = new TextSectionReader(file_, decoder, sectionAttributes, sectionContentOffset);
+		}
+		return textSectionReader_;
+	}
+
 	@Override public int loadPericope(int bookId, int chapter_1, int[] aris, PericopeBlock[] blocks, int max) {
 		try {
 			loadVersionInfo();
@@ -268,6 +344,31 @@ public class Yes2Reader implements BibleReader {
 
 	@Override
 	public XrefEntry getXrefEntry(int arif) {
+		final XrefsSection section = loadXrefsSection();
+		if (section == null) {
+			return null;
+		}
+
+		// the section reads with its own positioned reads, not through the file pointer of file_
+		return section.getXrefEntry(arif);
+	}
+
+	@Override
+	public FootnoteEntry getFootnoteEntry(final int arif) {
+		final FootnotesSection section = loadFootnotesSection();
+		if (section == null) {
+			return null;
+		}
+
+		// the section reads with its own positioned reads, not through the file pointer of file_
+		return section.getFootnoteEntry(arif);
+	}
+
+	/**
+	 * Only reads the header of the section; the index is read as entries are looked up.
+	 * @return null if the section is not available.
+	 */
+	private synchronized XrefsSection loadXrefsSection() {
 		if (xrefsSection_ == null) { // not yet loaded!
 			try {
 				final RandomInputStream sectionInput = prepareLoadSection(XrefsSection.SECTION_NAME);
@@ -282,11 +383,14 @@ public class Yes2Reader implements BibleReader {
 			}
 		}
 
-		return xrefsSection_.getXrefEntry(arif);
+		return xrefsSection_;
 	}
 
-	@Override
-	public FootnoteEntry getFootnoteEntry(final int arif) {
+	/**
+	 * Only reads the header of the section; the index is read as entries are looked up.
+	 * @return null if the section is not available.
+	 */
+	private synchronized FootnotesSection loadFootnotesSection() {
 		if (footnotesSection_ == null) { // not yet loaded!
 			try {
 				final RandomInputStream sectionInput = prepareLoadSection(FootnotesSection.SECTION_NAME);
@@ -301,7 +405,7 @@ public class Yes2Reader implements BibleReader {
 			}
 		}
 
-		return footnotesSection_.getFootnoteEntry(arif);
+		return footnotesSection_;
 	}
 
 	/**
@@ -18,7 +18,7 @@ import java.util.List;
  * Note: int is 32-bit integer
  * 
  * {
- * | uint8[8] header = 0x98 0x58 0x0d 0x0a 0x00 0x5d 0xe0 0x02 // version 2
+ * | uint8[8] header = 0x98 0x58 0x0d 0x0a 0x00 0x5d 0xe0 yes_version // 0x02 or 0x03
  * | int sectionIndex.size
  * | uint8 sectionIndexVersion = 1
  * | int section_count
@@ -36,12 +36,14 @@ import java.util.List;
  * | }[section_count] sections
  * | uint8 footer = 0
  * }
+ *
+ * Version 3 has the same layout, and is written only when a section cannot be read by version 2 readers
+ * (see {@link SectionContent#getRequiredYesVersion()}), so that those readers reject the file instead of misreading it.
  */
 public class Yes2Writer {
 	private static final String TAG = Yes2Writer.class.getSimpleName();
 
-	private static final byte YES_VERSION = 0x02;
-	private static final byte[] YES_HEADER = { (byte) 0x98, 0x58, 0x0d, 0x0a, 0x00, 0x5d, (byte) 0xe0, YES_VERSION };
+	private static final byte[] YES_HEADER_WITHOUT_VERSION = { (byte) 0x98, 0x58, 0x0d, 0x0a, 0x00, 0x5d, (byte) 0xe0 };
 
 	private static Boolean androidLogPossible = null;
 
@@ -82,8 +84,14 @@ public class Yes2Writer {
 		
 		////////// HEADERS //////////
 		
-		alog(output.getFilePointer(), "write yes header");
-		bw.writeRaw(YES_HEADER);
+		int yesVersion = 2;
+		for (SectionContent section: sections) {
+			yesVersion = Math.max(yesVersion, section.getRequiredYesVersion());
+		}
+
+		alog(output.getFilePointer(), "write yes header, version " + yesVersion);
+		bw.writeRaw(YES_HEADER_WITHOUT_VERSION);
+		bw.writeUint8(yesVersion);
 		
 		///////// SECTION INDEX ///////////
 		
@@ -0,0 +1,285 @@
+package yuku.alkitab.yes2.compress;
+
+import yuku.snappy.codec.SnappyEncoder;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compression of small frames against a dictionary that is shared by all frames of a section.
+ *
+ * A compressed frame is a sequence of Snappy elements (literals, and copies with 1- or 2-byte offsets,
+ * written with the element writers of {@link SnappyEncoder}),
+ * without the uncompressed length preamble of Snappy. A copy may refer back into the dictionary,
+ * as if the dictionary were right before the frame. So a frame of a few hundred bytes
+ * can still be compressed well, and can be decompressed without its neighbours.
+ *
+ * The dictionary is trained from the text to be compressed with {@link #trainDictionary(byte[], int, int, int)}.
+ */
+public class DictionaryCodec {
+	/** Copies have 16-bit offsets, which must reach the start of the dictionary from the end of a frame. */
+	public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+	static final int MAX_OFFSET = 0xffff;
+
+	static final int HASH_BITS = 15;
+	static final int MIN_MATCH = 4;
+	static final int MAX_CHAIN = 32;
+
+	/**
+	 * @return the maximum length of a compressed frame, for allocating the output of {@link Compressor#compress}
+	 */
+	public static int maxCompressedLength(final int length) {
+		return 32 + length + length / 6;
+	}
+
+	static int hash(final byte[] b, final int p) {
+		return SnappyEncoder.hash(b, p, HASH_BITS);
+	}
+
+	/**
+	 * Compresses frames with one dictionary. The positions of the dictionary are indexed once, for all frames.
+	 * Not thread-safe.
+	 */
+	public static class Compressor {
+		private final byte[] dict;
+		private final int[] dictHead = new int[1 << HASH_BITS];
+		private final int[] dictPrev;
+
+		// for the frame being compressed, covering the dictionary and the frame
+		private byte[] window = new byte[0];
+		private final int[] head = new int[1 << HASH_BITS];
+		private int[] prev = new int[0];
+
+		public Compressor(final byte[] dict) {
+			if (dict.length > MAX_DICTIONARY_SIZE) {
+				throw new IllegalArgumentException("dictionary is larger than " + MAX_DICTIONARY_SIZE + " bytes");
+			}
+
+			this.dict = dict;
+			this.dictPrev = new int[dict.length];
+
+			Arrays.fill(dictHead, -1);
+			for (int p = 0; p + MIN_MATCH <= dict.length; p++) {
+				final int h = hash(dict, p);
+				dictPrev[p] = dictHead[h];
+				dictHead[h] = p;
+			}
+		}
+
+		/**
+		 * @param out must have room for {@link #maxCompressedLength(int)} bytes after outOffset
+		 * @return the length of the compressed frame
+		 */
+		public int compress(final byte[] in, final int inOffset, final int length, final byte[] out, final int outOffset) {
+			final int d = dict.length;
+			final int end = d + length;
+
+			if (window.length < end) {
+				window = new byte[end + 4096];
+				prev = new int[end + 4096];
+				System.arraycopy(dict, 0, window, 0, d);
+				System.arraycopy(dictPrev, 0, prev, 0, d);
+			}
+			System.arraycopy(in, inOffset, window, d, length);
+			System.arraycopy(dictHead, 0, head, 0, head.length);
+
+			final byte[] window = this.window;
+			final int[] head = this.head;
+			final int[] prev = this.prev;
+
+			int o = outOffset;
+			int literalStart = d;
+			int p = d;
+			while (p + MIN_MATCH <= end) {
+				final int h = hash(window, p);
+
+				int bestLen = 0;
+				int bestOffset = 0;
+				int chain = 0;
+				for (int cand = head[h]; cand >= 0 && chain < MAX_CHAIN; cand = prev[cand], chain++) {
+					final int offset = p - cand;
+					if (offset > MAX_OFFSET) break; // the chain only gets further
+
+					int len = 0;
+					while (p + len < end && window[cand + len] == window[p + len]) {
+						len++;
+					}
+					if (len > bestLen) {
+						bestLen = len;
+						bestOffset = offset;
+					}
+				}
+
+				prev[p] = head[h];
+				head[h] = p;
+
+				if (bestLen >= MIN_MATCH) {
+					if (literalStart < p) {
+						o = SnappyEncoder.emitLiteral(window, literalStart, p - literalStart, out, o);
+					}
+					o = SnappyEncoder.emitCopy(bestOffset, bestLen, out, o);
+
+					for (int q = p + 1, qEnd = p + bestLen; q < qEnd && q + MIN_MATCH <= end; q++) {
+						final int hq = hash(window, q);
+						prev[q] = head[hq];
+						head[hq] = q;
+					}
+
+					p += bestLen;
+					literalStart = p;
+				} else {
+					p++;
+				}
+			}
+
+			if (literalStart < end) {
+				o = SnappyEncoder.emitLiteral(window, literalStart, end - literalStart, out, o);
+			}
+			return o - outOffset;
+		}
+	}
+
+	/**
+	 * Decompresses a frame that was compressed with the same dictionary.
+	 * @param out must have room for the whole uncompressed frame after outOffset
+	 * @return the length of the uncompressed frame
+	 */
+	public static int decompress(final byte[] dict, final byte[] in, final int inOffset, final int length, final byte[] out, final int outOffset) throws IOException {
+		final int d = dict.length;
+		final int end = inOffset + length;
+
+		int i = inOffset;
+		int o = outOffset;
+		try {
+			while (i < end) {
+				final int tag = in[i++] & 0xff;
+				int len;
+				int offset;
+
+				if ((tag & 3) == 0) { // literal
+					len = tag >>> 2;
+					if (len >= 60) {
+						final int extra = len - 59;
+						len = 0;
+						for (int k = 0; k < extra; k++) {
+							len |= (in[i++] & 0xff) << (k * 8);
+						}
+					}
+					len++;
+					System.arraycopy(in, i, out, o, len);
+					i += len;
+					o += len;
+					continue;
+				}
+
+				if ((tag & 3) == 1) { // copy with 1-byte offset
+					len = ((tag >>> 2) & 7) + 4;
+					offset = ((tag & 0xe0) << 3) | (in[i++] & 0xff);
+				} else if ((tag & 3) == 2) { // copy with 2-byte offset
+					len = (tag >>> 2) + 1;
+					offset = (in[i] & 0xff) | ((in[i + 1] & 0xff) << 8);
+					i += 2;
+				} else {
+					throw new IOException("Unsupported element in compressed frame: " + tag);
+				}
+
+				final int src = o - offset;
+				if (offset == 0 || src < outOffset - d) {
+					throw new IOException("Copy offset out of range: " + offset);
+				}
+
+				if (src >= outOffset && offset >= len) {
+					System.arraycopy(out, src, out, o, len);
+					o += len;
+				} else {
+					// overlapping, or starting in the dictionary
+					for (int k = 0; k < len; k++, o++) {
+						final int s = o - offset;
+						out[o] = s >= outOffset ? out[s] : dict[d - (outOffset - s)];
+					}
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Corrupt compressed frame", e);
+		}
+
+		return o - outOffset;
+	}
+
+	static final int DMER = 8;
+	static final int SEGMENT = 64;
+	static final int FREQ_BITS = 20;
+
+	static int dmerHash(final byte[] b, final int p) {
+		long v = 0;
+		for (int k = 0; k < DMER; k++) {
+			v = (v << 8) | (b[p + k] & 0xff);
+		}
+		return (int) ((v * 0x9e3779b97f4a7c15L) >>> (64 - FREQ_BITS));
+	}
+
+	/**
+	 * Picks the segments of the text whose byte sequences occur the most, in the manner of the COVER algorithm of zstd.
+	 * The text is split into as many epochs as there are segments to pick, and the best segment of each epoch
+	 * is taken. The sequences of a picked segment do not count any more for the following ones, so that
+	 * the dictionary has little repetition in it.
+	 *
+	 * @return a dictionary of at most maxSize bytes, possibly empty if the text is too small to need one
+	 */
+	public static byte[] trainDictionary(final byte[] text, final int offset, final int length, final int maxSize) {
+		final int size = Math.min(maxSize, MAX_DICTIONARY_SIZE);
+		if (length < SEGMENT * 4 || size < SEGMENT) {
+			return new byte[0];
+		}
+
+		final int[] freq = new int[1 << FREQ_BITS];
+		final int[] hashes = new int[length - DMER + 1];
+		for (int p = 0; p < hashes.length; p++) {
+			final int h = dmerHash(text, offset + p);
+			hashes[p] = h;
+			freq[h]++;
+		}
+
+		final int dmersPerSegment = SEGMENT - DMER + 1;
+		final int epochs = Math.max(1, Math.min(size / SEGMENT, length / (SEGMENT * 4)));
+		final int epochSize = length / epochs;
+
+		final byte[] res = new byte[epochs * SEGMENT];
+		int resLen = 0;
+
+		for (int e = 0; e < epochs; e++) {
+			final int start = e * epochSize;
+			final int stop = Math.min(start + epochSize, length) - SEGMENT; // last possible segment start
+			if (stop < start) continue;
+
+			long score = 0;
+			for (int k = 0; k < dmersPerSegment; k++) {
+				score += freq[hashes[start + k]];
+			}
+
+			long bestScore = score;
+			int best = start;
+			for (int s = start + 1; s <= stop; s++) {
+				score += freq[hashes[s + dmersPerSegment - 1]] - freq[hashes[s - 1]];
+				if (score > bestScore) {
+					bestScore = score;
+					best = s;
+				}
+			}
+
+			// sequences that occur only once are not worth having
+			if (bestScore <= dmersPerSegment) continue;
+
+			System.arraycopy(text, offset + best, res, resLen, SEGMENT);
+			resLen += SEGMENT;
+
+			for (int k = 0; k < dmersPerSegment; k++) {
+				freq[hashes[best + k]] = 0;
+			}
+		}
+
+		final byte[] dict = new byte[resLen];
+		System.arraycopy(res, 0, dict, 0, resLen);
+		return dict;
+	}
+}
@@ -0,0 +1,168 @@
+package yuku.alkitab.yes2.compress;
+
+import yuku.alkitab.yes2.io.RandomInputStream;
+import yuku.alkitab.yes2.section.FramedTextSection;
+import yuku.bintex.BintexReader;
+import yuku.bintex.ValueMap;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads a text section written by {@link FramedTextSection} as if it were not compressed,
+ * so the offsets in the books info can be used as they are.
+ * Only the frame that contains the position being read is decompressed, which is usually a few verses.
+ */
+public class DictionaryFramesInputStream extends RandomInputStream {
+	public static final String COMPRESSION_NAME = "dict-frames";
+	public static final int COMPRESSION_VERSION = 1;
+
+	private final RandomInputStream input;
+	private final long framesOffset;
+	private final byte[] dict;
+	private final int[] verseOffsets; // uncompressed offset of each verse, and the total length at the end
+	private final int[] frameOffsets; // uncompressed offset of each frame, and the total length at the end
+	private final int[] compressedFrameOffsets; // from framesOffset, and the total length at the end
+
+	private long pos;
+	private int frameIndex = -1;
+	private byte[] compressedBuf = new byte[2048];
+	private byte[] frameBuf = new byte[2048];
+
+	private DictionaryFramesInputStream(final RandomInputStream input, final long framesOffset, final byte[] dict, final int[] verseOffsets, final int[] frameOffsets, final int[] compressedFrameOffsets) {
+		this.input = input;
+		this.framesOffset = framesOffset;
+		this.dict = dict;
+		this.verseOffsets = verseOffsets;
+		this.frameOffsets = frameOffsets;
+		this.compressedFrameOffsets = compressedFrameOffsets;
+	}
+
+	public static DictionaryFramesInputStream getInstanceFromAttributes(final RandomInputStream input, final ValueMap sectionAttributes, final long sectionContentOffset) throws IOException {
+		final int compressionVersion = sectionAttributes.getInt("compression.version", 0);
+		if (compressionVersion > COMPRESSION_VERSION) {
+			throw new IOException("Compression version " + compressionVersion + " is not supported");
+		}
+
+		input.seek(sectionContentOffset);
+		final BintexReader br = new BintexReader(input, 8192);
+
+		final byte[] dict = new byte[br.readInt()];
+		br.readRaw(dict);
+
+		final int verse_count = br.readInt();
+		final int[] verseOffsets = new int[verse_count + 1];
+		for (int i = 0; i < verse_count; i++) {
+			verseOffsets[i + 1] = verseOffsets[i] + br.readVarUint();
+		}
+
+		final int frame_count = br.readInt();
+		final int[] frameOffsets = new int[frame_count + 1];
+		for (int i = 0, v = 0; i < frame_count; i++) {
+			v += br.readVarUint();
+			frameOffsets[i + 1] = verseOffsets[v];
+		}
+		final int[] compressedFrameOffsets = new int[frame_count + 1];
+		for (int i = 0; i < frame_count; i++) {
+			compressedFrameOffsets[i + 1] = compressedFrameOffsets[i] + br.readVarUint();
+		}
+
+		return new DictionaryFramesInputStream(input, sectionContentOffset + br.getPos(), dict, verseOffsets, frameOffsets, compressedFrameOffsets);
+	}
+
+	/**
+	 * @param chapterOffset the offset of the chapter, from the start of the (uncompressed) text
+	 * @return the offset of the verse record, or -1 if the chapter does not start there or does not have the verse
+	 */
+	public long getVerseOffset(final long chapterOffset, final int verse_0) {
+		final int verse_count = verseOffsets.length - 1;
+		final int first = Arrays.binarySearch(verseOffsets, 0, verse_count, (int) chapterOffset);
+		if (first < 0 || verse_0 < 0 || first + verse_0 >= verse_count) {
+			return -1;
+		}
+		return verseOffsets[first + verse_0];
+	}
+
+	private int length() {
+		return frameOffsets[frameOffsets.length - 1];
+	}
+
+	/**
+	 * Makes the frame that contains pos the current one, decompressing it if needed.
+	 */
+	private void prepareFrame() throws IOException {
+		if (frameIndex >= 0 && pos >= frameOffsets[frameIndex] && pos < frameOffsets[frameIndex + 1]) {
+			return;
+		}
+
+		int index = Arrays.binarySearch(frameOffsets, (int) pos);
+		if (index < 0) {
+			index = -index - 2; // the frame before the insertion point
+		}
+
+		final int compressedLength = compressedFrameOffsets[index + 1] - compressedFrameOffsets[index];
+		final int frameLength = frameOffsets[index + 1] - frameOffsets[index];
+		if (compressedBuf.length < compressedLength) {
+			compressedBuf = new byte[compressedLength + 1024];
+		}
+		if (frameBuf.length < frameLength) {
+			frameBuf = new byte[frameLength + 1024];
+		}
+
+		frameIndex = -1; // in case decompression fails
+		if (input.readAt(framesOffset + compressedFrameOffsets[index], compressedBuf, 0, compressedLength) != compressedLength) {
+			throw new IOException("Unexpected end of compressed frame " + index);
+		}
+		final int len = DictionaryCodec.decompress(dict, compressedBuf, 0, compressedLength, frameBuf, 0);
+		if (len != frameLength) {
+			throw new IOException("Error in decompressing frame " + index + ": length " + len + ", expected " + frameLength);
+		}
+		frameIndex = index;
+	}
+
+	@Override public int read() throws IOException {
+		if (pos >= length()) {
+			return -1; // EOF
+		}
+
+		prepareFrame();
+		return 0xff & frameBuf[(int) (pos++ - frameOffsets[frameIndex])];
+	}
+
+	@Override public int read(final byte[] buffer, int offset, final int length) throws IOException {
+		final int total = length();
+		if (length > 0 && pos >= total) {
+			return -1; // EOF
+		}
+
+		int res = 0;
+		while (res < length && pos < total) {
+			prepareFrame();
+			final int skip = (int) (pos - frameOffsets[frameIndex]);
+			final int will_read = Math.min(length - res, frameOffsets[frameIndex + 1] - frameOffsets[frameIndex] - skip);
+			System.arraycopy(frameBuf, skip, buffer, offset, will_read);
+			pos += will_read;
+			offset += will_read;
+			res += will_read;
+		}
+		return res;
+	}
+
+	@Override public int read(final byte[] buffer) throws IOException {
+		return read(buffer, 0, buffer.length);
+	}
+
+	@Override public void seek(final long n) throws IOException {
+		pos = n;
+	}
+
+	@Override public long getFilePointer() throws IOException {
+		return pos;
+	}
+
+	@Override public long skip(final long n) throws IOException {
+		final long res = Math.max(0, Math.min(n, length() - pos));
+		pos += res;
+		return res;
+	}
+}
@@ -0,0 +1,206 @@
+package yuku.alkitab.yes2.compress;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decompressed blocks of {@link SnappyInputStream}s, shared by all readers of all yes files,
+ * so that going back and forth between chapters, or reading the same file with several readers
+ * (split screen, search, xref previews), does not decompress the same block again.
+ *
+ * The blocks are evicted in least-recently-used order when the total size exceeds {@link #getMaxBytes()}.
+ * The cached arrays must not be modified.
+ *
+ * A block returned by {@link #get} or {@link #put} is in use until it is given back with {@link #release(Block)}.
+ * The array of an evicted block is kept for decompressing another block once nobody uses it,
+ * see {@link #obtainBuffer(int)}.
+ */
+public class SnappyBlockCache {
+	public static final int DEFAULT_MAX_BYTES = 2 * 1024 * 1024;
+	static final int MAX_SPARE_BUFFERS = 4;
+
+	private static final SnappyBlockCache instance = new SnappyBlockCache(DEFAULT_MAX_BYTES);
+
+	public static SnappyBlockCache getInstance() {
+		return instance;
+	}
+
+	public static class Block {
+		public final byte[] data;
+		public final int length;
+
+		// guarded by the cache
+		int users;
+		boolean evicted;
+
+		public Block(final byte[] data, final int length) {
+			this.data = data;
+			this.length = length;
+		}
+	}
+
+	static class Key {
+		final String fileKey;
+		final long sectionOffset;
+		final int blockIndex;
+
+		Key(final String fileKey, final long sectionOffset, final int blockIndex) {
+			this.fileKey = fileKey;
+			this.sectionOffset = sectionOffset;
+			this.blockIndex = blockIndex;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+
+			final Key key = (Key) o;
+			return blockIndex == key.blockIndex && sectionOffset == key.sectionOffset && fileKey.equals(key.fileKey);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = fileKey.hashCode();
+			result = 31 * result + (int) (sectionOffset ^ (sectionOffset >>> 32));
+			result = 31 * result + blockIndex;
+			return result;
+		}
+	}
+
+	private final LinkedHashMap<Key, Block> blocks = new LinkedHashMap<>(64, 0.75f, true);
+	private final ArrayList<byte[]> spareBuffers = new ArrayList<>();
+	private int maxBytes;
+	private int totalBytes;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	public SnappyBlockCache(final int maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Identifies the contents of a file, so that a file replaced under the same name does not get the blocks of the old one.
+	 */
+	public static String fileKey(final String filename) {
+		final File file = new File(filename);
+		return file.getAbsolutePath() + "@" + file.length() + "@" + file.lastModified();
+	}
+
+	/**
+	 * @return null if the block is not cached, otherwise the block, which is in use until {@link #release(Block)}
+	 */
+	public synchronized Block get(final String fileKey, final long sectionOffset, final int blockIndex) {
+		final Block res = blocks.get(new Key(fileKey, sectionOffset, blockIndex));
+		if (res != null) {
+			res.users++;
+			hitCount++;
+		} else {
+			missCount++;
+		}
+		return res;
+	}
+
+	/**
+	 * @param data decompressed block, which is owned by the cache afterwards
+	 * @return the block, which is in use until {@link #release(Block)}
+	 */
+	public synchronized Block put(final String fileKey, final long sectionOffset, final int blockIndex, final byte[] data, final int length) {
+		final Block block = new Block(data, length);
+		block.users = 1;
+		if (data.length > maxBytes) { // would evict everything else
+			block.evicted = true;
+			return block;
+		}
+
+		final Block old = blocks.put(new Key(fileKey, sectionOffset, blockIndex), block);
+		if (old != null) {
+			totalBytes -= old.data.length;
+			evict(old);
+		}
+		totalBytes += data.length;
+		trimTo(maxBytes);
+		return block;
+	}
+
+	/**
+	 * Gives back a block returned by {@link #get} or {@link #put}. It must not be read afterwards.
+	 */
+	public synchronized void release(final Block block) {
+		block.users--;
+		if (block.users == 0 && block.evicted) {
+			addSpareBuffer(block.data);
+		}
+	}
+
+	/**
+	 * @return an array of exactly the size to decompress a block into, from an evicted block if there is one
+	 */
+	public synchronized byte[] obtainBuffer(final int size) {
+		for (int i = spareBuffers.size() - 1; i >= 0; i--) {
+			if (spareBuffers.get(i).length == size) {
+				return spareBuffers.remove(i);
+			}
+		}
+		return new byte[size];
+	}
+
+	private void evict(final Block block) {
+		block.evicted = true;
+		if (block.users == 0) {
+			addSpareBuffer(block.data);
+		}
+		evictionCount++;
+	}
+
+	private void addSpareBuffer(final byte[] buf) {
+		if (spareBuffers.size() < MAX_SPARE_BUFFERS && buf.length <= maxBytes) {
+			spareBuffers.add(buf);
+		}
+	}
+
+	private void trimTo(final int bytes) {
+		final Iterator<Map.Entry<Key, Block>> it = blocks.entrySet().iterator();
+		while (totalBytes > bytes && it.hasNext()) {
+			final Block eldest = it.next().getValue();
+			it.remove();
+			totalBytes -= eldest.data.length;
+			evict(eldest);
+		}
+	}
+
+	public synchronized void setMaxBytes(final int maxBytes) {
+		this.maxBytes = maxBytes;
+		trimTo(maxBytes);
+	}
+
+	public synchronized int getMaxBytes() {
+		return maxBytes;
+	}
+
+	public synchronized void clear() {
+		for (final Block block : blocks.values()) {
+			block.evicted = true; // the ones in use become spare when released
+		}
+		blocks.clear();
+		spareBuffers.clear();
+		totalBytes = 0;
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "SnappyBlockCache{blocks=" + blocks.size() + ", bytes=" + totalBytes + "/" + maxBytes + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+	}
+}
@@ -1,6 +1,5 @@
 package yuku.alkitab.yes2.compress;
 
-import yuku.alkitab.yes2.io.RandomAccessFileRandomInputStream;
 import yuku.alkitab.yes2.io.RandomInputStream;
 import yuku.bintex.ValueMap;
 import yuku.snappy.codec.Snappy;
@@ -8,7 +7,7 @@ import yuku.snappy.codec.Snappy;
 import java.io.IOException;
 
 public class SnappyInputStream extends RandomInputStream {
-	private final RandomAccessFileRandomInputStream input;
+	private final RandomInputStream input;
 
 	private final Snappy snappy;
 	private final long baseOffset;
@@ -19,10 +18,14 @@ public class SnappyInputStream extends RandomInputStream {
 	private int current_block_skip = 0;
 	private byte[] compressed_buf;
 	private int uncompressed_block_index = -1;
-	private byte[] uncompressed_buf;
+	private byte[] uncompressed_buf; // may be owned by the block cache, do not modify
+	private SnappyBlockCache.Block cached_block; // the cached block uncompressed_buf belongs to, released when moving to another block
+	private byte[] decompress_buf; // reused for every block when the blocks are not cached
 	private int uncompressed_len = -1; // -1 means not initialized
+	private final SnappyBlockCache blockCache;
+	private final String fileKey; // null if the blocks are not to be cached
 
-	public SnappyInputStream(RandomAccessFileRandomInputStream input, long baseOffset, int block_size, int[] compressed_block_sizes, int[] compressed_block_offsets) throws IOException {
+	public SnappyInputStream(RandomInputStream input, long baseOffset, int block_size, int[] compressed_block_sizes, int[] compressed_block_offsets) throws IOException {
 		this.input = input;
 		this.block_size = block_size;
 		this.snappy = new Snappy.Factory().newInstance();
@@ -30,7 +33,9 @@ public class SnappyInputStream extends RandomInputStream {
 		this.compressed_block_sizes = compressed_block_sizes;
 		this.compressed_block_offsets = compressed_block_offsets;
 		this.compressed_buf = new byte[snappy.maxCompressedLength(block_size)];
-		this.uncompressed_buf = new byte[block_size];
+		this.blockCache = SnappyBlockCache.getInstance();
+		// blocks of a stream that is not a file cannot be identified in the cache
+		this.fileKey = input.getFilename() == null ? null : SnappyBlockCache.fileKey(input.getFilename());
 	}
 
 	@Override public void seek(long n) throws IOException {
@@ -49,16 +54,50 @@ public class SnappyInputStream extends RandomInputStream {
 		// if uncompressed_block_index is already equal to the requested block_index
 		// then we do not need to re-decompress again
 		if (uncompressed_block_index != block_index) {
-			input.seek(baseOffset + compressed_block_offsets[block_index]);
-			input.read(compressed_buf, 0, compressed_block_sizes[block_index]);
-			uncompressed_len = snappy.decompress(compressed_buf, 0, uncompressed_buf, 0, compressed_block_sizes[block_index]);
-			if (uncompressed_len < 0) {
-				throw new IOException("Error in decompressing: " + uncompressed_len);
+			releaseCachedBlock();
+			// not valid until decompressed, in case decompressing fails
+			uncompressed_len = -1;
+			uncompressed_block_index = -1;
+
+			if (fileKey == null) {
+				if (decompress_buf == null) {
+					decompress_buf = new byte[block_size];
+				}
+				uncompressed_len = decompress(block_index, decompress_buf);
+				uncompressed_buf = decompress_buf;
+			} else {
+				SnappyBlockCache.Block block = blockCache.get(fileKey, baseOffset, block_index);
+				if (block == null) {
+					// the array of an evicted block if possible, since the previous one of this stream may still be in the cache
+					final byte[] buf = blockCache.obtainBuffer(block_size);
+					block = blockCache.put(fileKey, baseOffset, block_index, buf, decompress(block_index, buf));
+				}
+				cached_block = block;
+				uncompressed_buf = block.data;
+				uncompressed_len = block.length;
 			}
 			uncompressed_block_index = block_index;
 		}
 	}
 
+	private int decompress(final int block_index, final byte[] buf) throws IOException {
+		// does not move the file pointer of the input, which may be shared with other sections
+		input.readAt(baseOffset + compressed_block_offsets[block_index], compressed_buf, 0, compressed_block_sizes[block_index]);
+		final int len = snappy.decompress(compressed_buf, 0, buf, 0, compressed_block_sizes[block_index]);
+		if (len < 0) {
+			throw new IOException("Error in decompressing: " + len);
+		}
+		return len;
+	}
+
+	private void releaseCachedBlock() {
+		if (cached_block != null) {
+			blockCache.release(cached_block);
+			cached_block = null;
+			uncompressed_buf = null;
+		}
+	}
+
 	@Override public int read() throws IOException {
 		if (uncompressed_len == -1) {
 			prepareBuffer();
@@ -126,8 +165,17 @@ public class SnappyInputStream extends RandomInputStream {
 		seek(getFilePointer() + n);
 		return n;
 	}
+
+	/**
+	 * Gives the current block back to the block cache. The input is not closed, since it may be shared with other sections.
+	 */
+	@Override public void close() throws IOException {
+		releaseCachedBlock();
+		uncompressed_len = -1;
+		uncompressed_block_index = -1;
+	}
 	
-	public static SnappyInputStream getInstanceFromAttributes(RandomAccessFileRandomInputStream input, ValueMap sectionAttributes, long sectionContentOffset) throws IOException {
+	public static SnappyInputStream getInstanceFromAttributes(RandomInputStream input, ValueMap sectionAttributes, long sectionContentOffset) throws IOException {
 		int compressionVersion = sectionAttributes.getInt("compression.version", 0);
 		if (compressionVersion > 1) {
 			throw new IOException("Compression version " + compressionVersion + " is not supported");
@@ -4,7 +4,15 @@ import yuku.snappy.codec.Snappy;
 
 import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class SnappyOutputStream extends FilterOutputStream {
 	private final Snappy snappy;
@@ -15,12 +23,45 @@ public class SnappyOutputStream extends FilterOutputStream {
 	private int[] compressed_block_sizes = new int[100];
 	private int compressed_block_sizes_length = 0;
 
+	// for compressing in parallel
+	private final int threads;
+	private BlockingQueue<Snappy> idleSnappies; // a Snappy instance must not be used by two threads at once
+	private ExecutorService executor; // created when the first block is compressed, shut down on flush
+	private final ArrayDeque<Future<CompressedBlock>> pending = new ArrayDeque<>(); // in the order the blocks are to be written
+
+	static class CompressedBlock {
+		final byte[] data;
+		final int length;
+
+		CompressedBlock(final byte[] data, final int length) {
+			this.data = data;
+			this.length = length;
+		}
+	}
+
 	public SnappyOutputStream(OutputStream out, int block_size) {
+		this(out, block_size, 1);
+	}
+
+	/**
+	 * @param threads When more than 1, up to that many blocks are compressed at the same time on background threads.
+	 * The blocks are still written in order, so the output is the same as when compressing on the calling thread.
+	 */
+	public SnappyOutputStream(OutputStream out, int block_size, int threads) {
 		super(out);
 		this.snappy = new Snappy.Factory().newInstance();
 		this.block_size = block_size;
+		this.threads = threads;
 		this.uncompressed_buf = new byte[block_size];
 		this.compressed_buf = new byte[snappy.maxCompressedLength(uncompressed_buf.length)];
+
+		if (threads > 1) {
+			idleSnappies = new ArrayBlockingQueue<>(threads);
+			idleSnappies.add(snappy);
+			for (int i = 1; i < threads; i++) {
+				idleSnappies.add(new Snappy.Factory().newInstance());
+			}
+		}
 	}
 
 	@Override public void write(int b) throws IOException {
@@ -54,24 +95,99 @@ public class SnappyOutputStream extends FilterOutputStream {
 	
 	private void dump() throws IOException {
 		if (uncompressed_offset > 0) {
-			int compressed_len = snappy.compress(uncompressed_buf, 0, compressed_buf, 0, uncompressed_offset);
-			out.write(compressed_buf, 0, compressed_len);
-			// check for need of expanding compressed_block_sizes array
-			while (compressed_block_sizes_length >= compressed_block_sizes.length) {
-				final int[] newArray = new int[compressed_block_sizes.length << 1];
-				System.arraycopy(compressed_block_sizes, 0, newArray, 0, compressed_block_sizes_length);
-				compressed_block_sizes = newArray;
+			if (threads > 1) {
+				submit(uncompressed_buf, uncompressed_offset);
+				uncompressed_buf = new byte[block_size]; // the submitted one now belongs to the task
+			} else {
+				int compressed_len = snappy.compress(uncompressed_buf, 0, compressed_buf, 0, uncompressed_offset);
+				writeBlock(compressed_buf, compressed_len);
 			}
-			compressed_block_sizes[compressed_block_sizes_length] = compressed_len;
-			compressed_block_sizes_length++;
 			uncompressed_offset = 0;
 		}
 	}
 	
+	private void submit(final byte[] buf, final int len) throws IOException {
+		// do not let the compressed blocks pile up in memory when the output is slower than the compression
+		try {
+			while (pending.size() >= threads * 2) {
+				writePending();
+			}
+		} catch (IOException e) {
+			shutdownExecutor();
+			throw e;
+		}
+
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(threads, r -> {
+				final Thread thread = new Thread(r, "SnappyOutputStream");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		pending.add(executor.submit(() -> {
+			final Snappy s = idleSnappies.take();
+			try {
+				final byte[] compressed = new byte[s.maxCompressedLength(len)];
+				return new CompressedBlock(compressed, s.compress(buf, 0, compressed, 0, len));
+			} finally {
+				idleSnappies.add(s);
+			}
+		}));
+	}
+
+	/**
+	 * Waits for the oldest submitted block and writes it.
+	 */
+	private void writePending() throws IOException {
+		final CompressedBlock block;
+		try {
+			block = pending.remove().get();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while compressing");
+		} catch (ExecutionException e) {
+			throw new IOException("Error in compressing", e.getCause());
+		}
+		writeBlock(block.data, block.length);
+	}
+
+	private void writeBlock(byte[] buf, int compressed_len) throws IOException {
+		out.write(buf, 0, compressed_len);
+		// check for need of expanding compressed_block_sizes array
+		while (compressed_block_sizes_length >= compressed_block_sizes.length) {
+			final int[] newArray = new int[compressed_block_sizes.length << 1];
+			System.arraycopy(compressed_block_sizes, 0, newArray, 0, compressed_block_sizes_length);
+			compressed_block_sizes = newArray;
+		}
+		compressed_block_sizes[compressed_block_sizes_length] = compressed_len;
+		compressed_block_sizes_length++;
+	}
+
 	@Override public void flush() throws IOException {
-		dump();
+		try {
+			dump();
+			while (!pending.isEmpty()) {
+				writePending();
+			}
+		} finally {
+			shutdownExecutor();
+		}
 		out.flush();
 	}
+
+	/**
+	 * Also drops the blocks that are not written yet, for when writing fails.
+	 */
+	private void shutdownExecutor() {
+		for (final Future<CompressedBlock> future : pending) {
+			future.cancel(true);
+		}
+		pending.clear();
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
 	
 	public int[] getCompressedBlockSizes() {
 		int[] res = new int[compressed_block_sizes_length];
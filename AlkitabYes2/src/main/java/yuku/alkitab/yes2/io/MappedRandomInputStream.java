@@ -0,0 +1,89 @@
+package yuku.alkitab.yes2.io;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a whole file that is mapped into memory, so that reading, even one byte at a time, does not need a system call.
+ * The file is only unmapped when this object is garbage-collected.
+ */
+public class MappedRandomInputStream extends RandomInputStream {
+	private final ByteBuffer buf;
+	private final String filename;
+
+	public MappedRandomInputStream(String filename) throws IOException {
+		final RandomAccessFile f = new RandomAccessFile(filename, "r");
+		try {
+			this.buf = f.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, f.length());
+		} finally {
+			// the mapping stays valid after the file is closed
+			f.close();
+		}
+		this.filename = filename;
+	}
+
+	@Override public int read() throws IOException {
+		if (!buf.hasRemaining()) return -1;
+		return buf.get() & 0xff;
+	}
+
+	@Override public int read(byte[] buffer) throws IOException {
+		return read(buffer, 0, buffer.length);
+	}
+
+	@Override public int read(byte[] buffer, int offset, int length) throws IOException {
+		if (length == 0) return 0;
+
+		final int remaining = buf.remaining();
+		if (remaining == 0) return -1;
+
+		final int will_read = length > remaining? remaining: length;
+		buf.get(buffer, offset, will_read);
+		return will_read;
+	}
+
+	@Override public long skip(long n) throws IOException {
+		if (n <= 0) return 0;
+
+		final int will_skip = (int) Math.min(n, buf.remaining());
+		buf.position(buf.position() + will_skip);
+		return will_skip;
+	}
+
+	@Override public int available() throws IOException {
+		return buf.remaining();
+	}
+
+	/**
+	 * Like {@link RandomAccessFile#seek(long)}, seeking beyond the end of the file is allowed, and the next read returns EOF.
+	 */
+	@Override public void seek(long n) throws IOException {
+		if (n < 0) throw new IOException("Negative seek offset: " + n);
+		buf.position((int) Math.min(n, buf.limit()));
+	}
+
+	/**
+	 * Reads from a duplicate of the mapped buffer, which has its own position,
+	 * so this can be done by many threads at once.
+	 */
+	@Override public int readAt(long position, byte[] buffer, int offset, int length) throws IOException {
+		if (position < 0) throw new IOException("Negative read position: " + position);
+		if (position >= buf.limit()) return 0;
+
+		final ByteBuffer dup = buf.duplicate();
+		dup.position((int) position);
+		final int will_read = Math.min(length, dup.remaining());
+		dup.get(buffer, offset, will_read);
+		return will_read;
+	}
+
+	@Override public long getFilePointer() throws IOException {
+		return buf.position();
+	}
+
+	@Override public String getFilename() {
+		return filename;
+	}
+}
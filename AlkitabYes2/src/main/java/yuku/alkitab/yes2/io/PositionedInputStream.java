@@ -0,0 +1,45 @@
+package yuku.alkitab.yes2.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a {@link RandomInputStream} from a position with {@link RandomInputStream#readAt(long, byte[], int, int)},
+ * keeping its own position, so that many of these can read the same stream at once
+ * without moving the file pointer that other readers use.
+ */
+public class PositionedInputStream extends InputStream {
+	private final RandomInputStream input;
+	private long pos;
+
+	public PositionedInputStream(final RandomInputStream input, final long pos) {
+		this.input = input;
+		this.pos = pos;
+	}
+
+	@Override public int read() throws IOException {
+		final byte[] b = new byte[1];
+		if (input.readAt(pos, b, 0, 1) != 1) return -1;
+		pos++;
+		return b[0] & 0xff;
+	}
+
+	@Override public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+		if (length == 0) return 0;
+
+		final int read = input.readAt(pos, buffer, offset, length);
+		if (read <= 0) return -1;
+		pos += read;
+		return read;
+	}
+
+	@Override public long skip(final long n) throws IOException {
+		if (n <= 0) return 0;
+		pos += n;
+		return n;
+	}
+
+	public long getPosition() {
+		return pos;
+	}
+}
@@ -2,12 +2,16 @@ package yuku.alkitab.yes2.io;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 public class RandomAccessFileRandomInputStream extends RandomInputStream {
 	private final RandomAccessFile f;
+	private final String filename;
 
 	public RandomAccessFileRandomInputStream(String filename) throws IOException {
 		this.f = new RandomAccessFile(filename, "r");
+		this.filename = filename;
 	}
 
 	@Override public int read() throws IOException {
@@ -34,6 +38,20 @@ public class RandomAccessFileRandomInputStream extends RandomInputStream {
 		return f.getFilePointer();
 	}
 
+	/**
+	 * Reads with {@link FileChannel#read(ByteBuffer, long)}, which does not move the file pointer
+	 * and can be done by many threads at once.
+	 */
+	@Override public int readAt(long position, byte[] buffer, int offset, int length) throws IOException {
+		final FileChannel channel = f.getChannel();
+		final ByteBuffer dst = ByteBuffer.wrap(buffer, offset, length);
+		while (dst.hasRemaining()) {
+			final int read = channel.read(dst, position + dst.position() - offset);
+			if (read <= 0) break;
+		}
+		return dst.position() - offset;
+	}
+
 	@Override public void close() throws IOException {
 		f.close();
 	}
@@ -41,4 +59,8 @@ public class RandomAccessFileRandomInputStream extends RandomInputStream {
 	public RandomAccessFile getFile() {
 		return f;
 	}
+
+	@Override public String getFilename() {
+		return filename;
+	}
 }
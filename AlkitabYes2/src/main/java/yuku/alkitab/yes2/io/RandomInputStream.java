@@ -11,4 +11,33 @@ public abstract class RandomInputStream extends InputStream {
 	public abstract void seek(long n) throws IOException;
 
 	public abstract long getFilePointer() throws IOException;
+
+	/**
+	 * Reads bytes starting at the given position, until length bytes are read or the end of the stream is reached.
+	 * Subclasses that can do this without moving the file pointer (see {@link RandomAccessFileRandomInputStream},
+	 * {@link MappedRandomInputStream}) override this, so that many threads can read at once without disturbing
+	 * the readers that use {@link #seek(long)}. This default implementation seeks, so it must only be used
+	 * on streams that are not read in any other way.
+	 *
+	 * @return the number of bytes read, which is less than length only at the end of the stream
+	 */
+	public int readAt(long position, byte[] buffer, int offset, int length) throws IOException {
+		synchronized (this) {
+			seek(position);
+			int total = 0;
+			while (total < length) {
+				final int read = read(buffer, offset + total, length - total);
+				if (read <= 0) break;
+				total += read;
+			}
+			return total;
+		}
+	}
+
+	/**
+	 * @return the file this stream reads from, or null if it is not a file.
+	 */
+	public String getFilename() {
+		return null;
+	}
 }
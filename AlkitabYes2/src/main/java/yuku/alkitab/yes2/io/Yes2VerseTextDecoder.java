@@ -1,11 +1,13 @@
 package yuku.alkitab.yes2.io;
 
 import yuku.alkitab.io.Utf8Decoder;
+import yuku.alkitab.io.Utf8Search;
 import yuku.bintex.BintexReader;
 
 public interface Yes2VerseTextDecoder {
 	String[] separateIntoVerses(BintexReader br, int verse_count, boolean lowercased) throws Exception;
 	String makeIntoSingleString(BintexReader br, int verse_count, boolean lowercased) throws Exception;
+	void readLowercasedText(BintexReader br, int verse_count, Utf8Search.Text out) throws Exception;
 	
 	class Ascii implements Yes2VerseTextDecoder {
 		final ThreadLocal<byte[]> verseBuf_ = new ThreadLocal<byte[]>() {
@@ -49,6 +51,10 @@ public interface Yes2VerseTextDecoder {
 			}
 			return sb.toString();
 		}
+
+		@Override public void readLowercasedText(BintexReader br, int verse_count, Utf8Search.Text out) throws Exception {
+			out.readVersesWithPrependedLengths(br, verse_count, true);
+		}
 	}
 	
 	class Utf8 implements Yes2VerseTextDecoder {
@@ -89,5 +95,9 @@ public interface Yes2VerseTextDecoder {
 		@Override public String makeIntoSingleString(BintexReader br, int verse_count, boolean lowercased) throws Exception {
 			return Utf8Decoder.toStringFromVersesWithPrependedLengths(br, verse_count, lowercased);
 		}
+
+		@Override public void readLowercasedText(BintexReader br, int verse_count, Utf8Search.Text out) throws Exception {
+			out.readVersesWithPrependedLengths(br, verse_count, false);
+		}
 	}
 }
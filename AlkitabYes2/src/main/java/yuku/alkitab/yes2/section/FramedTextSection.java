@@ -0,0 +1,174 @@
+package yuku.alkitab.yes2.section;
+
+import yuku.alkitab.yes2.compress.DictionaryCodec;
+import yuku.alkitab.yes2.compress.DictionaryFramesInputStream;
+import yuku.alkitab.yes2.io.RandomOutputStream;
+import yuku.alkitab.yes2.model.Yes2Book;
+import yuku.alkitab.yes2.section.base.SectionContent;
+import yuku.bintex.BintexReader;
+import yuku.bintex.BintexWriter;
+import yuku.bintex.ValueMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The text section compressed as frames of whole verses, each of them compressed on its own
+ * against a dictionary trained from the text (see {@link DictionaryCodec}).
+ * A frame never crosses a chapter boundary, so a chapter or a single verse can be read by decompressing
+ * only its own frames. The uncompressed text is the same as in an uncompressed text section,
+ * so the offsets in the books info section stay the same.
+ *
+ * Readers that only know yes version 2 would misread this section, so a file with it is written as yes version 3.
+ *
+ * Section attributes:
+ *   compression.name = "dict-frames"
+ *   compression.version = 1
+ *
+ * Section format:
+ * {
+ *   int dictionary_length
+ *   byte[dictionary_length] dictionary
+ *   int verse_count
+ *   varuint verse_lengths[verse_count] // including the varuint length in front of each verse text
+ *   int frame_count
+ *   varuint frame_verse_counts[frame_count]
+ *   varuint compressed_frame_lengths[frame_count]
+ *   byte[] compressed_frames
+ * }
+ */
+public class FramedTextSection extends SectionContent implements SectionContent.Writer {
+	public static final int DEFAULT_FRAME_SIZE = 512;
+	public static final int DEFAULT_DICTIONARY_SIZE = DictionaryCodec.MAX_DICTIONARY_SIZE;
+
+	private final byte[] text;
+	private final int textLength;
+	private final int[] chapterOffsets;
+	private final int frameSize;
+	private final int dictionarySize;
+
+	/**
+	 * @param text all verses of all books, each prepended by its length as varuint, the same as in an uncompressed text section
+	 * @param books the books info of the text, to know where each chapter starts
+	 */
+	public FramedTextSection(final byte[] text, final int textLength, final List<Yes2Book> books) {
+		this(text, textLength, books, DEFAULT_FRAME_SIZE, DEFAULT_DICTIONARY_SIZE);
+	}
+
+	/**
+	 * @param frameSize the uncompressed size a frame is filled up to; a frame with one long verse can be larger
+	 */
+	public FramedTextSection(final byte[] text, final int textLength, final List<Yes2Book> books, final int frameSize, final int dictionarySize) {
+		super(TextSection.SECTION_NAME);
+		this.text = text;
+		this.textLength = textLength;
+		this.frameSize = frameSize;
+		this.dictionarySize = dictionarySize;
+
+		int chapter_count = 0;
+		for (final Yes2Book book : books) {
+			chapter_count += book.chapter_count;
+		}
+		final int[] chapterOffsets = new int[chapter_count];
+		int c = 0;
+		for (final Yes2Book book : books) {
+			for (int chapter_0 = 0; chapter_0 < book.chapter_count; chapter_0++) {
+				chapterOffsets[c++] = book.offset + book.chapter_offsets[chapter_0];
+			}
+		}
+		Arrays.sort(chapterOffsets);
+		this.chapterOffsets = chapterOffsets;
+	}
+
+	@Override public ValueMap getAttributes() {
+		final ValueMap res = new ValueMap();
+		res.put("compression.name", DictionaryFramesInputStream.COMPRESSION_NAME);
+		res.put("compression.version", DictionaryFramesInputStream.COMPRESSION_VERSION);
+		return res;
+	}
+
+	@Override public int getRequiredYesVersion() {
+		return 3;
+	}
+
+	@Override public void write(final RandomOutputStream output) throws IOException {
+		// verse boundaries, from the length in front of each verse
+		int[] verseLengths = new int[32768];
+		boolean[] startsChapter = new boolean[32768];
+		int verse_count = 0;
+		int nextChapter = 0;
+		final BintexReader br = new BintexReader(text, 0, textLength);
+		while (br.getPos() < textLength) {
+			final int pos = br.getPos();
+			br.skip(br.readVarUint());
+			if (verse_count == verseLengths.length) {
+				verseLengths = Arrays.copyOf(verseLengths, verse_count * 2);
+				startsChapter = Arrays.copyOf(startsChapter, verse_count * 2);
+			}
+			while (nextChapter < chapterOffsets.length && chapterOffsets[nextChapter] < pos) {
+				nextChapter++;
+			}
+			startsChapter[verse_count] = nextChapter < chapterOffsets.length && chapterOffsets[nextChapter] == pos;
+			verseLengths[verse_count++] = br.getPos() - pos;
+		}
+
+		final byte[] dict = DictionaryCodec.trainDictionary(text, 0, textLength, dictionarySize);
+		final DictionaryCodec.Compressor compressor = new DictionaryCodec.Compressor(dict);
+
+		// frames of whole verses, starting at every chapter
+		final ByteArrayOutputStream compressedFrames = new ByteArrayOutputStream(textLength / 2);
+		int[] frameVerseCounts = new int[4096];
+		int[] compressedFrameLengths = new int[4096];
+		int frame_count = 0;
+		byte[] compressedBuf = new byte[0];
+
+		int v = 0;
+		int pos = 0;
+		while (v < verse_count) {
+			final int frameStart = pos;
+			final int firstVerse = v;
+			do {
+				pos += verseLengths[v++];
+			} while (v < verse_count && !startsChapter[v] && pos - frameStart + verseLengths[v] <= frameSize);
+
+			final int frameLength = pos - frameStart;
+			if (compressedBuf.length < DictionaryCodec.maxCompressedLength(frameLength)) {
+				compressedBuf = new byte[DictionaryCodec.maxCompressedLength(frameLength)];
+			}
+			final int compressedLength = compressor.compress(text, frameStart, frameLength, compressedBuf, 0);
+			compressedFrames.write(compressedBuf, 0, compressedLength);
+
+			if (frame_count == frameVerseCounts.length) {
+				frameVerseCounts = Arrays.copyOf(frameVerseCounts, frame_count * 2);
+				compressedFrameLengths = Arrays.copyOf(compressedFrameLengths, frame_count * 2);
+			}
+			frameVerseCounts[frame_count] = v - firstVerse;
+			compressedFrameLengths[frame_count] = compressedLength;
+			frame_count++;
+		}
+
+		// the tables are written to memory first, so that the many small writes do not go to the file one by one
+		final ByteArrayOutputStream tables = new ByteArrayOutputStream(dict.length + verse_count * 2 + frame_count * 3 + 16);
+		final BintexWriter bw = new BintexWriter(tables);
+		bw.writeInt(dict.length);
+		bw.writeRaw(dict);
+
+		bw.writeInt(verse_count);
+		for (int i = 0; i < verse_count; i++) {
+			bw.writeVarUint(verseLengths[i]);
+		}
+
+		bw.writeInt(frame_count);
+		for (int i = 0; i < frame_count; i++) {
+			bw.writeVarUint(frameVerseCounts[i]);
+		}
+		for (int i = 0; i < frame_count; i++) {
+			bw.writeVarUint(compressedFrameLengths[i]);
+		}
+
+		tables.writeTo(output);
+		compressedFrames.writeTo(output);
+	}
+}
@@ -2,12 +2,13 @@ package yuku.alkitab.yes2.section;
 
 import android.util.Log;
 import yuku.alkitab.model.XrefEntry;
+import yuku.alkitab.yes2.io.PositionedInputStream;
 import yuku.alkitab.yes2.io.RandomInputStream;
+import yuku.alkitab.yes2.section.base.ArifIndex;
 import yuku.alkitab.yes2.section.base.SectionContent;
 import yuku.bintex.BintexReader;
 
 import java.io.IOException;
-import java.util.Arrays;
 
 // The writer is in another class (not here to save code amount for Alkitab app)
 // Section format:
@@ -25,50 +26,42 @@ public class XrefsSection extends SectionContent {
 
 	// for reading:
 	RandomInputStream input_;
-	int entry_count;
-	int[] index_arifs; // ari to pos
-	int[] index_offset; // pos to content offset
-	int content_start_offset; // file offset of the start of content
+	ArifIndex index_; // arif to content offset, read only as needed
+	long content_start_offset; // file offset of the start of content
 
 	XrefsSection(final RandomInputStream input) throws IOException {
 		super(SECTION_NAME);
 
-		final BintexReader br = new BintexReader(input);
+		// only the header is read here, the index is read page by page when entries are looked up
+		final long start = input.getFilePointer();
+		final byte[] header = new byte[5];
+		if (input.readAt(start, header, 0, header.length) != header.length) {
+			throw new IOException("Xrefs section is truncated");
+		}
 
-		final int version = br.readUint8();
+		final int version = header[0] & 0xff;
 		if (version != 1) {
 			throw new RuntimeException("Xrefs section version not supported: " + version);
 		}
 
-		this.entry_count = br.readInt();
-
-		this.index_arifs = new int[entry_count];
-		for (int i = 0, len = entry_count; i < len; i++) {
-			this.index_arifs[i] = br.readInt();
-		}
-		this.index_offset = new int[entry_count];
-		for (int i = 0, len = entry_count; i < len; i++) {
-			this.index_offset[i] = br.readInt();
-		}
+		final int entry_count = (header[1] & 0xff) << 24 | (header[2] & 0xff) << 16 | (header[3] & 0xff) << 8 | (header[4] & 0xff);
 
-		this.content_start_offset = (int) input.getFilePointer();
+		this.index_ = new ArifIndex(input, entry_count, start + header.length);
+		this.content_start_offset = index_.getEndOffset();
 		this.input_ = input;
 	}
 
 	public XrefEntry getXrefEntry(final int arif) {
-		final int pos = Arrays.binarySearch(index_arifs, arif);
-		if (pos < 0) {
-			return null;
-		}
-
-		final int offset = index_offset[pos];
-		final int abs_offset = content_start_offset + offset;
 		try {
+			final int offset = index_.getOffset(arif);
+			if (offset < 0) {
+				return null;
+			}
+
 			final XrefEntry res = new XrefEntry();
-			input_.seek(abs_offset);
-			final BintexReader br = new BintexReader(input_);
+			// a stream of our own, so lookups do not disturb each other nor the other readers of the input
+			final BintexReader br = new BintexReader(new PositionedInputStream(input_, content_start_offset + offset), 1024);
 			res.content = br.readValueString();
-			// do not close br, input is still needed elsewhere
 			return res;
 		} catch (IOException e) {
 			Log.e(TAG, "load xref failed", e);
@@ -0,0 +1,100 @@
+package yuku.alkitab.yes2.section.base;
+
+import yuku.alkitab.yes2.io.RandomInputStream;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The index of the sections whose entries are looked up by arif (xrefs and footnotes):
+ * <pre>
+ *   int arifs[entry_count] // sorted
+ *   int offsets[entry_count]
+ * </pre>
+ *
+ * Nothing is read when this is created. The arifs are read in pages of {@link #PAGE_ENTRIES} entries
+ * only when the binary search needs them, so the first lookup reads about log2(entry_count / PAGE_ENTRIES) pages
+ * instead of the whole index, however many entries the section has. Offsets are read one by one for the entries found.
+ *
+ * All reads are done with {@link RandomInputStream#readAt(long, byte[], int, int)}, so lookups may be done from many threads at once.
+ */
+public class ArifIndex {
+	public static final int PAGE_ENTRIES = 256;
+
+	private final RandomInputStream input;
+	private final int entry_count;
+	private final long arifs_offset;
+	private final long offsets_offset;
+	private final AtomicReferenceArray<int[]> pages; // page index to arifs, null when not read yet
+
+	/**
+	 * @param arifs_offset position in the input of arifs[0]; the offsets follow the arifs.
+	 */
+	public ArifIndex(final RandomInputStream input, final int entry_count, final long arifs_offset) {
+		this.input = input;
+		this.entry_count = entry_count;
+		this.arifs_offset = arifs_offset;
+		this.offsets_offset = arifs_offset + 4L * entry_count;
+		this.pages = new AtomicReferenceArray<>((entry_count + PAGE_ENTRIES - 1) / PAGE_ENTRIES);
+	}
+
+	public int getEntryCount() {
+		return entry_count;
+	}
+
+	/**
+	 * @return position in the input right after the index, where the section content starts.
+	 */
+	public long getEndOffset() {
+		return offsets_offset + 4L * entry_count;
+	}
+
+	/**
+	 * @return the content offset of the entry with the arif, or -1 if there is no such entry.
+	 */
+	public int getOffset(final int arif) throws IOException {
+		int low = 0;
+		int high = entry_count - 1;
+
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final int midArif = getArif(mid);
+
+			if (midArif < arif) {
+				low = mid + 1;
+			} else if (midArif > arif) {
+				high = mid - 1;
+			} else {
+				return readInts(offsets_offset + 4L * mid, 1)[0];
+			}
+		}
+
+		return -1;
+	}
+
+	int getArif(final int pos) throws IOException {
+		final int pageIndex = pos / PAGE_ENTRIES;
+		int[] page = pages.get(pageIndex);
+		if (page == null) {
+			// two threads may read the same page at once, but they read the same thing
+			final int start = pageIndex * PAGE_ENTRIES;
+			page = readInts(arifs_offset + 4L * start, Math.min(PAGE_ENTRIES, entry_count - start));
+			pages.set(pageIndex, page);
+		}
+		return page[pos % PAGE_ENTRIES];
+	}
+
+	private int[] readInts(final long position, final int count) throws IOException {
+		final byte[] b = new byte[count << 2];
+		if (input.readAt(position, b, 0, b.length) != b.length) {
+			throw new IOException("Unexpected end of arif index at " + position);
+		}
+
+		// big-endian, as written by BintexWriter.writeInt
+		final int[] res = new int[count];
+		for (int i = 0, j = 0; i < count; i++, j += 4) {
+			res[i] = (b[j] & 0xff) << 24 | (b[j + 1] & 0xff) << 16 | (b[j + 2] & 0xff) << 8 | (b[j + 3] & 0xff);
+		}
+		return res;
+	}
+}
@@ -48,6 +48,13 @@ public class SectionContent {
 		return attributes;
 	}
 
+	/**
+	 * @return the lowest yes version whose readers can read this section. The file is written with the highest one of its sections.
+	 */
+	public int getRequiredYesVersion() {
+		return 2;
+	}
+
 	public interface Writer {
 		void write(RandomOutputStream output) throws IOException;
 	}
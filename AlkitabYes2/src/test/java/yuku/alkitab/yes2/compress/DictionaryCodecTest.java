@@ -0,0 +1,176 @@
+package yuku.alkitab.yes2.compress;
+
+import junit.framework.TestCase;
+import yuku.alkitab.yes2.io.MemoryRandomOutputStream;
+import yuku.alkitab.yes2.io.RandomInputStream;
+import yuku.alkitab.yes2.model.VerseBytes;
+import yuku.alkitab.yes2.model.Yes2Book;
+import yuku.alkitab.yes2.section.FramedTextSection;
+import yuku.bintex.BintexReader;
+import yuku.bintex.ValueMap;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class DictionaryCodecTest extends TestCase {
+	static final String[] words = {"the", "and", "of", "LORD", "to", "he", "in", "that", "unto", "shall", "his", "God", "said", "them", "was", "for", "they", "is", "with", "all", "be", "thou", "thy", "which", "children", "Israel", "king", "people", "land", "son", "house", "day", "man", "hand", "came", "heart", "word", "earth", "Jerusalem", "πνεῦμα", "אֱלֹהִים"};
+
+	static String randomVerse(final Random r) {
+		final StringBuilder sb = new StringBuilder();
+		final int n = 5 + r.nextInt(40);
+		for (int i = 0; i < n; i++) {
+			if (i > 0) sb.append(' ');
+			// more frequent words first
+			sb.append(words[(int) (words.length * Math.pow(r.nextDouble(), 2))]);
+		}
+		return sb.append('.').toString();
+	}
+
+	static class MemoryRandomInputStream extends RandomInputStream {
+		final byte[] buf;
+		int pos;
+
+		MemoryRandomInputStream(final byte[] buf) {
+			this.buf = buf;
+		}
+
+		@Override public void seek(final long n) {
+			pos = (int) n;
+		}
+
+		@Override public long getFilePointer() {
+			return pos;
+		}
+
+		@Override public int read() {
+			return pos < buf.length ? buf[pos++] & 0xff : -1;
+		}
+
+		@Override public int read(final byte[] b, final int off, final int len) {
+			if (pos >= buf.length) return -1;
+			final int n = Math.min(len, buf.length - pos);
+			System.arraycopy(buf, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+	}
+
+	public void testRoundTrip() throws Exception {
+		final Random r = new Random(119);
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		for (int i = 0; i < 2000; i++) {
+			final byte[] b = randomVerse(r).getBytes("utf-8");
+			baos.write(b, 0, b.length);
+		}
+		final byte[] text = baos.toByteArray();
+
+		final byte[] dict = DictionaryCodec.trainDictionary(text, 0, text.length, 4096);
+		assertTrue(dict.length > 0 && dict.length <= 4096);
+
+		final DictionaryCodec.Compressor compressor = new DictionaryCodec.Compressor(dict);
+		final byte[] compressed = new byte[DictionaryCodec.maxCompressedLength(text.length)];
+		final byte[] decompressed = new byte[text.length];
+
+		int pos = 0;
+		int totalCompressed = 0;
+		while (pos < text.length) {
+			final int len = Math.min(text.length - pos, 1 + r.nextInt(600));
+			final int clen = compressor.compress(text, pos, len, compressed, 0);
+			assertEquals(len, DictionaryCodec.decompress(dict, compressed, 0, clen, decompressed, pos));
+			totalCompressed += clen;
+			pos += len;
+		}
+
+		assertTrue(Arrays.equals(text, decompressed));
+		assertTrue("compressed to " + totalCompressed + " of " + text.length, totalCompressed < text.length / 2);
+	}
+
+	public void testRepeatsAndEmpty() throws Exception {
+		final byte[] dict = "abcdefgh".getBytes("ascii");
+		final DictionaryCodec.Compressor compressor = new DictionaryCodec.Compressor(dict);
+
+		final byte[] in = new byte[1000];
+		Arrays.fill(in, (byte) 'x');
+		System.arraycopy(dict, 0, in, 500, dict.length);
+
+		final byte[] compressed = new byte[DictionaryCodec.maxCompressedLength(in.length)];
+		final int clen = compressor.compress(in, 0, in.length, compressed, 0);
+		assertTrue(clen < 100);
+
+		final byte[] out = new byte[in.length];
+		assertEquals(in.length, DictionaryCodec.decompress(dict, compressed, 0, clen, out, 0));
+		assertTrue(Arrays.equals(in, out));
+
+		assertEquals(0, DictionaryCodec.decompress(dict, compressed, 0, compressor.compress(in, 0, 0, compressed, 0), out, 0));
+	}
+
+	public void testFramedTextSection() throws Exception {
+		final Random r = new Random(3);
+		final List<Yes2Book> books = new ArrayList<>();
+		final List<String> verses = new ArrayList<>();
+		final ByteArrayOutputStream text = new ByteArrayOutputStream();
+
+		for (int bookId = 0; bookId < 3; bookId++) {
+			final Yes2Book book = new Yes2Book();
+			book.bookId = bookId;
+			book.offset = text.size();
+			book.chapter_count = 2 + r.nextInt(10);
+			book.verse_counts = new int[book.chapter_count];
+			book.chapter_offsets = new int[book.chapter_count + 1];
+			for (int chapter_0 = 0; chapter_0 < book.chapter_count; chapter_0++) {
+				book.chapter_offsets[chapter_0] = text.size() - book.offset;
+				book.verse_counts[chapter_0] = chapter_0 == 1 ? 0 : 1 + r.nextInt(40); // one empty chapter
+				for (int v = 0; v < book.verse_counts[chapter_0]; v++) {
+					final String verse = randomVerse(r);
+					verses.add(verse);
+					final byte[] b = VerseBytes.bytesForAVerse(verse);
+					text.write(b, 0, b.length);
+				}
+			}
+			book.chapter_offsets[book.chapter_count] = text.size() - book.offset;
+			books.add(book);
+		}
+
+		final FramedTextSection section = new FramedTextSection(text.toByteArray(), text.size(), books, 256, 4096);
+		final MemoryRandomOutputStream mem = new MemoryRandomOutputStream();
+		mem.write(new byte[7]); // the section does not start at the beginning of the file
+		section.write(mem);
+		final byte[] file = Arrays.copyOf(mem.getBuffer(), mem.getBufferLength());
+
+		final ValueMap attributes = section.getAttributes();
+		assertEquals(DictionaryFramesInputStream.COMPRESSION_NAME, attributes.getString("compression.name"));
+
+		final DictionaryFramesInputStream in = DictionaryFramesInputStream.getInstanceFromAttributes(new MemoryRandomInputStream(file), attributes, 7);
+
+		// the whole text, read sequentially
+		final byte[] all = new byte[text.size()];
+		assertEquals(all.length, in.read(all));
+		assertTrue(Arrays.equals(text.toByteArray(), all));
+		assertEquals(-1, in.read());
+
+		// every verse, by its offset
+		int i = 0;
+		for (final Yes2Book book : books) {
+			for (int chapter_0 = 0; chapter_0 < book.chapter_count; chapter_0++) {
+				final long chapterOffset = book.offset + book.chapter_offsets[chapter_0];
+				for (int v = 0; v < book.verse_counts[chapter_0]; v++) {
+					final long offset = in.getVerseOffset(chapterOffset, v);
+					assertTrue(offset >= 0);
+					in.seek(offset);
+					final BintexReader br = new BintexReader(in);
+					final byte[] b = new byte[br.readVarUint()];
+					br.readRaw(b);
+					assertEquals(verses.get(i++), new String(b, "utf-8"));
+				}
+				if (book.verse_counts[chapter_0] > 0) {
+					// not at the start of a verse
+					assertEquals(-1, in.getVerseOffset(chapterOffset + 1, 0));
+				}
+			}
+		}
+		assertEquals(verses.size(), i);
+	}
+}
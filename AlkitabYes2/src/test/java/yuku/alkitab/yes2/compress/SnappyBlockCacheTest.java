@@ -0,0 +1,59 @@
+package yuku.alkitab.yes2.compress;
+
+import junit.framework.TestCase;
+
+public class SnappyBlockCacheTest extends TestCase {
+	public void testEvictedBufferIsReused() throws Exception {
+		final SnappyBlockCache cache = new SnappyBlockCache(2048);
+
+		final byte[] a = cache.obtainBuffer(1024);
+		cache.release(cache.put("f", 0, 0, a, 1024));
+		cache.release(cache.put("f", 0, 1, cache.obtainBuffer(1024), 1024));
+		cache.release(cache.put("f", 0, 2, cache.obtainBuffer(1024), 1024)); // evicts block 0
+
+		assertNull(cache.get("f", 0, 0));
+		assertSame(a, cache.obtainBuffer(1024));
+		assertNotSame(a, cache.obtainBuffer(1024));
+	}
+
+	public void testBufferInUseIsNotReused() throws Exception {
+		final SnappyBlockCache cache = new SnappyBlockCache(2048);
+
+		final byte[] a = cache.obtainBuffer(1024);
+		final SnappyBlockCache.Block inUse = cache.put("f", 0, 0, a, 1024);
+		cache.release(cache.put("f", 0, 1, cache.obtainBuffer(1024), 1024));
+		cache.release(cache.put("f", 0, 2, cache.obtainBuffer(1024), 1024)); // evicts block 0, which is still in use
+
+		assertNotSame(a, cache.obtainBuffer(1024));
+
+		cache.release(inUse);
+		assertSame(a, cache.obtainBuffer(1024));
+	}
+
+	public void testHitIsInUse() throws Exception {
+		final SnappyBlockCache cache = new SnappyBlockCache(2048);
+
+		final byte[] a = cache.obtainBuffer(1024);
+		cache.release(cache.put("f", 0, 0, a, 1024));
+		final SnappyBlockCache.Block hit = cache.get("f", 0, 0);
+		assertSame(a, hit.data);
+
+		cache.release(cache.put("f", 0, 1, cache.obtainBuffer(1024), 1024));
+		cache.release(cache.put("f", 0, 2, cache.obtainBuffer(1024), 1024)); // evicts block 0
+		assertNotSame(a, cache.obtainBuffer(1024));
+
+		cache.release(hit);
+		assertSame(a, cache.obtainBuffer(1024));
+	}
+
+	public void testOtherSizeIsNotReused() throws Exception {
+		final SnappyBlockCache cache = new SnappyBlockCache(1024);
+
+		final byte[] a = cache.obtainBuffer(1024);
+		cache.release(cache.put("f", 0, 0, a, 1024));
+		cache.release(cache.put("f", 0, 1, cache.obtainBuffer(1000), 1000)); // evicts block 0
+
+		assertEquals(512, cache.obtainBuffer(512).length);
+		assertSame(a, cache.obtainBuffer(1024));
+	}
+}
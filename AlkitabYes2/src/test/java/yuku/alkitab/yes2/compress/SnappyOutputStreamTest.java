@@ -0,0 +1,63 @@
+package yuku.alkitab.yes2.compress;
+
+import junit.framework.TestCase;
+import yuku.snappy.codec.Snappy;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+public class SnappyOutputStreamTest extends TestCase {
+	static byte[] text(final int len) throws Exception {
+		final Random r = new Random(17);
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		while (baos.size() < len) {
+			final byte[] b = DictionaryCodecTest.randomVerse(r).getBytes("utf-8");
+			baos.write(b, 0, b.length);
+		}
+		return Arrays.copyOf(baos.toByteArray(), len);
+	}
+
+	static SnappyOutputStream write(final byte[] text, final int threads, final ByteArrayOutputStream out) throws Exception {
+		final SnappyOutputStream sos = new SnappyOutputStream(out, 4096, threads);
+		final Random r = new Random(1);
+		int pos = 0;
+		while (pos < text.length) {
+			if (r.nextInt(10) == 0) {
+				sos.write(text[pos++]);
+			} else {
+				final int n = Math.min(text.length - pos, r.nextInt(3000));
+				sos.write(text, pos, n);
+				pos += n;
+			}
+		}
+		sos.flush();
+		return sos;
+	}
+
+	public void testParallelSameAsSerial() throws Exception {
+		final byte[] text = text(200000);
+
+		final ByteArrayOutputStream serial = new ByteArrayOutputStream();
+		final int[] serialSizes = write(text, 1, serial).getCompressedBlockSizes();
+
+		final ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+		final int[] parallelSizes = write(text, 4, parallel).getCompressedBlockSizes();
+
+		assertTrue(Arrays.equals(serialSizes, parallelSizes));
+		assertTrue(Arrays.equals(serial.toByteArray(), parallel.toByteArray()));
+		assertEquals((text.length + 4095) / 4096, parallelSizes.length);
+
+		// every block decompresses back to its part of the text
+		final Snappy snappy = new Snappy.Factory().newInstanceJava();
+		final byte[] compressed = parallel.toByteArray();
+		final byte[] block = new byte[4096];
+		int offset = 0;
+		for (int i = 0; i < parallelSizes.length; i++) {
+			final int len = snappy.decompress(compressed, offset, block, 0, parallelSizes[i]);
+			assertTrue(Arrays.equals(Arrays.copyOfRange(text, i * 4096, i * 4096 + len), Arrays.copyOf(block, len)));
+			offset += parallelSizes[i];
+		}
+		assertEquals(compressed.length, offset);
+	}
+}
@@ -0,0 +1,110 @@
+package yuku.alkitab.yes2.section;
+
+import junit.framework.TestCase;
+import yuku.alkitab.model.XrefEntry;
+import yuku.alkitab.yes2.io.RandomInputStream;
+import yuku.alkitab.yes2.section.base.ArifIndex;
+import yuku.bintex.BintexWriter;
+
+import java.io.ByteArrayOutputStream;
+
+public class XrefsSectionTest extends TestCase {
+	static final int ENTRY_COUNT = 100000;
+	static final int SECTION_START = 7; // as if there is something else before the section
+
+	static class CountingRandomInputStream extends RandomInputStream {
+		final byte[] buf;
+		int pos;
+		long bytesRead;
+
+		CountingRandomInputStream(final byte[] buf) {
+			this.buf = buf;
+		}
+
+		@Override public void seek(final long n) {
+			pos = (int) n;
+		}
+
+		@Override public long getFilePointer() {
+			return pos;
+		}
+
+		@Override public int read() {
+			if (pos >= buf.length) return -1;
+			bytesRead++;
+			return buf[pos++] & 0xff;
+		}
+
+		@Override public int read(final byte[] b, final int off, final int len) {
+			if (pos >= buf.length) return -1;
+			final int n = Math.min(len, buf.length - pos);
+			System.arraycopy(buf, pos, b, off, n);
+			pos += n;
+			bytesRead += n;
+			return n;
+		}
+	}
+
+	static int arif(final int i) {
+		// every other verse has 1 or 2 xrefs
+		final int ari = 0x010101 + (i / 2) * 2;
+		return ari << 8 | (1 + i % 2);
+	}
+
+	static CountingRandomInputStream section() throws Exception {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final BintexWriter bw = new BintexWriter(baos);
+		for (int i = 0; i < SECTION_START; i++) {
+			bw.writeUint8(0xff);
+		}
+
+		bw.writeUint8(1);
+		bw.writeInt(ENTRY_COUNT);
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			bw.writeInt(arif(i));
+		}
+
+		final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+		final BintexWriter contentsBw = new BintexWriter(contents);
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			bw.writeInt(contentsBw.getPos());
+			contentsBw.writeValueString("xref #" + i);
+		}
+		bw.writeRaw(contents.toByteArray());
+
+		final CountingRandomInputStream res = new CountingRandomInputStream(baos.toByteArray());
+		res.seek(SECTION_START);
+		return res;
+	}
+
+	public void testLookup() throws Exception {
+		final XrefsSection section = new XrefsSection.Reader().read(section());
+
+		for (int i = 0; i < ENTRY_COUNT; i += 997) {
+			final XrefEntry entry = section.getXrefEntry(arif(i));
+			assertNotNull(entry);
+			assertEquals("xref #" + i, entry.content);
+		}
+		final XrefEntry last = section.getXrefEntry(arif(ENTRY_COUNT - 1));
+		assertNotNull(last);
+		assertEquals("xref #" + (ENTRY_COUNT - 1), last.content);
+
+		assertNull(section.getXrefEntry(arif(0) - 1));
+		assertNull(section.getXrefEntry(arif(1) + 1)); // no third xref
+		assertNull(section.getXrefEntry(arif(ENTRY_COUNT - 1) + 1));
+	}
+
+	public void testFirstLookupReadsFewPages() throws Exception {
+		final CountingRandomInputStream input = section();
+		final XrefsSection section = new XrefsSection.Reader().read(input);
+		assertTrue(input.bytesRead < 16);
+
+		assertEquals("xref #12345", section.getXrefEntry(arif(12345)).content);
+
+		final int pages = (ENTRY_COUNT + ArifIndex.PAGE_ENTRIES - 1) / ArifIndex.PAGE_ENTRIES;
+		final int maxProbes = 32 - Integer.numberOfLeadingZeros(pages) + 1;
+		// pages of arifs, one offset and the content, which is read ahead in a small buffer
+		assertTrue("read " + input.bytesRead, input.bytesRead <= maxProbes * ArifIndex.PAGE_ENTRIES * 4 + 4 + 1024);
+		assertTrue(input.bytesRead < 8L * ENTRY_COUNT / 10);
+	}
+}
@@ -4,6 +4,7 @@ import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public class BintexReader implements Closeable {
 	private static final int[] SUPPORTED_TYPE_MAP = { // 1 = int; 2 = string; 3 = int[]; 4 = simple map
@@ -30,6 +31,14 @@ public class BintexReader implements Closeable {
 
 	private int pos_ = 0;
 
+	/**
+	 * Bytes that are not consumed yet, either given directly or read ahead from is_.
+	 * When null, every byte is read from is_ on demand, so the stream is never read further than what has been consumed.
+	 */
+	private byte[] win_;
+	private int winPos_;
+	private int winEnd_;
+
 	private static ThreadLocal<byte[]> buf_byte_ = new ThreadLocal<byte[]>() {
 		@Override
 		protected byte[] initialValue() {
@@ -44,10 +53,78 @@ public class BintexReader implements Closeable {
 		}
 	};
 
+	/**
+	 * Reads from the stream only what is consumed, so the stream can still be used (e.g. seeked) by others.
+	 */
 	public BintexReader(InputStream is) {
 		this.is_ = is;
 	}
 
+	/**
+	 * Reads ahead from the stream into a buffer of the given size, and decodes from the buffer.
+	 * Use this only when the stream is not read by anything else afterwards.
+	 */
+	public BintexReader(InputStream is, int bufferSize) {
+		this.is_ = is;
+		this.win_ = new byte[bufferSize];
+	}
+
+	/**
+	 * Decodes directly from the array, without any stream.
+	 */
+	public BintexReader(byte[] buf, int off, int len) {
+		this.win_ = buf;
+		this.winPos_ = off;
+		this.winEnd_ = off + len;
+	}
+
+	public BintexReader(byte[] buf) {
+		this(buf, 0, buf.length);
+	}
+
+	/**
+	 * Decodes the remaining bytes of the buffer. The position of the buffer is not changed.
+	 */
+	public BintexReader(ByteBuffer buf) {
+		if (buf.hasArray()) {
+			this.win_ = buf.array();
+			this.winPos_ = buf.arrayOffset() + buf.position();
+			this.winEnd_ = this.winPos_ + buf.remaining();
+		} else {
+			this.is_ = new ByteBufferInputStream(buf.duplicate());
+			this.win_ = new byte[8192];
+		}
+	}
+
+	static class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buf;
+
+		ByteBufferInputStream(final ByteBuffer buf) {
+			this.buf = buf;
+		}
+
+		@Override
+		public int read() {
+			return buf.hasRemaining() ? buf.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) {
+			if (len == 0) return 0;
+			if (!buf.hasRemaining()) return -1;
+			final int n = Math.min(len, buf.remaining());
+			buf.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public long skip(final long n) {
+			final int k = (int) Math.max(0, Math.min(n, buf.remaining()));
+			buf.position(buf.position() + k);
+			return k;
+		}
+	}
+
 	/**
 	 * Acts as if you were instantiating this object, only without memory allocations.
 	 * Make sure that you have done with the current object before reusing this object.
@@ -57,11 +134,107 @@ public class BintexReader implements Closeable {
 	public BintexReader reuse(InputStream is) {
 		this.is_ = is;
 		this.pos_ = 0;
+		this.win_ = null;
 		return this;
 	}
 
+	/**
+	 * Same as {@link #reuse(InputStream)}, but decodes directly from the array.
+	 */
+	public BintexReader reuse(byte[] buf, int off, int len) {
+		this.is_ = null;
+		this.pos_ = 0;
+		this.win_ = buf;
+		this.winPos_ = off;
+		this.winEnd_ = off + len;
+		return this;
+	}
+
+	/**
+	 * Reads one byte, or -1 on EOF, without increasing pos.
+	 */
+	private int read1() throws IOException {
+		if (win_ == null) return is_.read();
+		if (winPos_ < winEnd_ || fill(1)) return win_[winPos_++] & 0xff;
+		return -1;
+	}
+
+	/**
+	 * @return true if the next n bytes are in the window, reading ahead from the stream if needed.
+	 */
+	private boolean have(int n) throws IOException {
+		if (win_ == null) return false;
+		return winEnd_ - winPos_ >= n || fill(n);
+	}
+
+	private boolean fill(int n) throws IOException {
+		if (is_ == null || n > win_.length) return false;
+
+		// move the unconsumed bytes to the beginning
+		final int remaining = winEnd_ - winPos_;
+		if (winPos_ > 0) {
+			System.arraycopy(win_, winPos_, win_, 0, remaining);
+			winPos_ = 0;
+			winEnd_ = remaining;
+		}
+
+		while (winEnd_ < n) {
+			final int read = is_.read(win_, winEnd_, win_.length - winEnd_);
+			if (read < 0) return false;
+			winEnd_ += read;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads len bytes without increasing pos. Like {@link InputStream#read(byte[], int, int)} on the unbuffered stream.
+	 */
+	private void readBytes(byte[] buf, int off, int len) throws IOException {
+		if (win_ == null) {
+			is_.read(buf, off, len);
+			return;
+		}
+
+		while (len > 0) {
+			if (winPos_ == winEnd_ && !fill(1)) return;
+			final int n = Math.min(len, winEnd_ - winPos_);
+			System.arraycopy(win_, winPos_, buf, off, n);
+			winPos_ += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Reads len 16-bit big-endian chars without increasing pos.
+	 */
+	private void readChars(char[] buf, int len) throws IOException {
+		if (have(len << 1)) {
+			final byte[] w = win_;
+			int p = winPos_;
+			for (int i = 0; i < len; i++, p += 2) {
+				buf[i] = (char) (((w[p] & 0xff) << 8) | (w[p + 1] & 0xff));
+			}
+			winPos_ = p;
+		} else {
+			for (int i = 0; i < len; i++) {
+				buf[i] = readCharWithoutIncreasingPos();
+			}
+		}
+	}
+
+	private int readIntWithoutIncreasingPos() throws IOException {
+		if (have(4)) {
+			final byte[] w = win_;
+			final int p = winPos_;
+			winPos_ = p + 4;
+			return ((w[p] & 0xff) << 24) | ((w[p + 1] & 0xff) << 16) | ((w[p + 2] & 0xff) << 8) | (w[p + 3] & 0xff);
+		}
+		return (read1() << 24) | (read1() << 16) | (read1() << 8) | (read1());
+	}
+
 	public String readShortString() throws IOException {
-		int len = is_.read();
+		int len = read1();
 		pos_++;
 
 		if (len < 0) {
@@ -72,9 +245,7 @@ public class BintexReader implements Closeable {
 
 		// max len = 255, maka buf pasti cukup
 		char[] _buf = buf_char_.get();
-		for (int i = 0; i < len; i++) {
-			_buf[i] = readCharWithoutIncreasingPos();
-		}
+		readChars(_buf, len);
 		pos_ += len + len;
 
 		return new String(_buf, 0, len);
@@ -92,9 +263,7 @@ public class BintexReader implements Closeable {
 			buf_char_.set(buf_char);
 		}
 
-		for (int i = 0; i < len; i++) {
-			buf_char[i] = readCharWithoutIncreasingPos();
-		}
+		readChars(buf_char, len);
 		pos_ += len + len;
 
 		return new String(buf_char, 0, len);
@@ -125,16 +294,23 @@ public class BintexReader implements Closeable {
 		}
 
 		if (kind == 0x01 || kind == 0x11) {
-			for (int i = 0; i < len; i++) {
-				buf_char[i] = (char) is_.read();
+			if (have(len)) {
+				final byte[] w = win_;
+				final int p = winPos_;
+				for (int i = 0; i < len; i++) {
+					buf_char[i] = (char) (w[p + i] & 0xff);
+				}
+				winPos_ = p + len;
+			} else {
+				for (int i = 0; i < len; i++) {
+					buf_char[i] = (char) read1();
+				}
 			}
 			pos_ += len;
 
 			return new String(buf_char, 0, len);
 		} else if (kind == 0x02 || kind == 0x12) {
-			for (int i = 0; i < len; i++) {
-				buf_char[i] = readCharWithoutIncreasingPos();
-			}
+			readChars(buf_char, len);
 			pos_ += len + len;
 
 			return new String(buf_char, 0, len);
@@ -144,35 +320,35 @@ public class BintexReader implements Closeable {
 	}
 
 	public int readInt() throws IOException {
-		int res = (is_.read() << 24) | (is_.read() << 16) | (is_.read() << 8) | (is_.read());
+		int res = readIntWithoutIncreasingPos();
 		pos_ += 4;
 		return res;
 	}
 
 	public char readChar() throws IOException {
-		char res = (char) ((is_.read() << 8) | (is_.read()));
+		char res = readCharWithoutIncreasingPos();
 		pos_ += 2;
 		return res;
 	}
 
 	private char readCharWithoutIncreasingPos() throws IOException {
-		return (char) ((is_.read() << 8) | (is_.read()));
+		return (char) ((read1() << 8) | (read1()));
 	}
 
 	public int readUint8() throws IOException {
-		int res = is_.read();
+		int res = read1();
 		pos_++;
 		return res;
 	}
 
 	public int readUint16() throws IOException {
-		int res = (is_.read() << 8) | (is_.read());
+		int res = (read1() << 8) | (read1());
 		pos_ += 2;
 		return res;
 	}
 
 	public float readFloat() throws IOException {
-		int a = (is_.read() << 24) | (is_.read() << 16) | (is_.read() << 8) | (is_.read());
+		int a = readIntWithoutIncreasingPos();
 		pos_ += 4;
 		return Float.intBitsToFloat(a);
 	}
@@ -186,6 +362,23 @@ public class BintexReader implements Closeable {
 		int _off = off;
 		int _len = len;
 
+		if (win_ != null) {
+			// first from what has been read ahead
+			final int n = Math.min(len, winEnd_ - winPos_);
+			if (n > 0) {
+				System.arraycopy(win_, winPos_, buf, off, n);
+				winPos_ += n;
+				total = n;
+				_off += n;
+				_len -= n;
+			}
+			if (is_ == null || total == len) {
+				if (total == 0 && len > 0) total = -1;
+				pos_ += total;
+				return total;
+			}
+		}
+
 		while (true) {
 			int read = is_.read(buf, _off, _len);
 			if (read < 0) {
@@ -205,30 +398,34 @@ public class BintexReader implements Closeable {
 	}
 
 	public int readVarUint() throws IOException {
-		int first = is_.read();
+		if (have(5)) {
+			return readVarUintFromWindow();
+		}
+
+		int first = read1();
 		if ((first & 0x80) == 0) { // 0xxxxxxx
 			pos_ += 1;
 			return first;
 		} else if ((first & 0xc0) == 0x80) { // 10xxxxxx
-			int next0 = is_.read();
+			int next0 = read1();
 			pos_ += 2;
 			return ((first & 0x3f) << 8) | (next0);
 		} else if ((first & 0xe0) == 0xc0) { // 110xxxxx
-			int next1 = is_.read();
-			int next0 = is_.read();
+			int next1 = read1();
+			int next0 = read1();
 			pos_ += 3;
 			return ((first & 0x1f) << 16) | (next1 << 8) | (next0);
 		} else if ((first & 0xf0) == 0xe0) { // 1110xxxx
-			int next2 = is_.read();
-			int next1 = is_.read();
-			int next0 = is_.read();
+			int next2 = read1();
+			int next1 = read1();
+			int next0 = read1();
 			pos_ += 4;
 			return ((first & 0x0f) << 24) | (next2 << 16) | (next1 << 8) | (next0);
 		} else if (first == 0xf0) { // 11110000
-			int next3 = is_.read();
-			int next2 = is_.read();
-			int next1 = is_.read();
-			int next0 = is_.read();
+			int next3 = read1();
+			int next2 = read1();
+			int next1 = read1();
+			int next0 = read1();
 			pos_ += 5;
 			return (next3 << 24) | (next2 << 16) | (next1 << 8) | (next0);
 		} else {
@@ -237,8 +434,42 @@ public class BintexReader implements Closeable {
 		}
 	}
 
+	/**
+	 * Same as the byte-by-byte decoding in {@link #readVarUint()}, when at least 5 bytes are in the window.
+	 */
+	private int readVarUintFromWindow() {
+		final byte[] w = win_;
+		final int p = winPos_;
+		final int first = w[p] & 0xff;
+		if ((first & 0x80) == 0) { // 0xxxxxxx
+			winPos_ = p + 1;
+			pos_ += 1;
+			return first;
+		} else if ((first & 0xc0) == 0x80) { // 10xxxxxx
+			winPos_ = p + 2;
+			pos_ += 2;
+			return ((first & 0x3f) << 8) | (w[p + 1] & 0xff);
+		} else if ((first & 0xe0) == 0xc0) { // 110xxxxx
+			winPos_ = p + 3;
+			pos_ += 3;
+			return ((first & 0x1f) << 16) | ((w[p + 1] & 0xff) << 8) | (w[p + 2] & 0xff);
+		} else if ((first & 0xf0) == 0xe0) { // 1110xxxx
+			winPos_ = p + 4;
+			pos_ += 4;
+			return ((first & 0x0f) << 24) | ((w[p + 1] & 0xff) << 16) | ((w[p + 2] & 0xff) << 8) | (w[p + 3] & 0xff);
+		} else if (first == 0xf0) { // 11110000
+			winPos_ = p + 5;
+			pos_ += 5;
+			return ((w[p + 1] & 0xff) << 24) | ((w[p + 2] & 0xff) << 16) | ((w[p + 3] & 0xff) << 8) | (w[p + 4] & 0xff);
+		} else {
+			winPos_ = p + 1;
+			pos_ += 1;
+			throw new RuntimeException("unknown first byte in varuint: " + first);
+		}
+	}
+
 	public int readValueInt() throws IOException {
-		int t = is_.read();
+		int t = read1();
 		pos_++;
 		return _readValueInt(t);
 	}
@@ -259,25 +490,25 @@ public class BintexReader implements Closeable {
 				return -1;
 			case 0x10:
 			case 0x11: {
-				int a = is_.read();
+				int a = read1();
 				pos_++;
 				return t == 0x11 ? ~a : a;
 			}
 			case 0x20:
 			case 0x21: {
-				int a = (is_.read() << 8) | (is_.read());
+				int a = (read1() << 8) | (read1());
 				pos_ += 2;
 				return t == 0x21 ? ~a : a;
 			}
 			case 0x30:
 			case 0x31: {
-				int a = (is_.read() << 16) | (is_.read() << 8) | (is_.read());
+				int a = (read1() << 16) | (read1() << 8) | (read1());
 				pos_ += 3;
 				return t == 0x31 ? ~a : a;
 			}
 			case 0x40:
 			case 0x41: {
-				int a = (is_.read() << 24) | (is_.read() << 16) | (is_.read() << 8) | (is_.read());
+				int a = (read1() << 24) | (read1() << 16) | (read1() << 8) | (read1());
 				pos_ += 4;
 				return t == 0x41 ? ~a : a;
 			}
@@ -288,7 +519,7 @@ public class BintexReader implements Closeable {
 	}
 
 	public String readValueString() throws IOException {
-		int t = is_.read();
+		int t = read1();
 		pos_++;
 		return _readValueString(t);
 	}
@@ -336,12 +567,12 @@ public class BintexReader implements Closeable {
 				return _read16BitString(len);
 			}
 			case 0x70: { // 8-bit string with len < 256
-				int len = is_.read();
+				int len = read1();
 				pos_++;
 				return _read8BitString(len);
 			}
 			case 0x71: { // 16-bit string with len < 256
-				int len = is_.read();
+				int len = read1();
 				pos_++;
 				return _read16BitString(len);
 			}
@@ -365,7 +596,7 @@ public class BintexReader implements Closeable {
 			buf_byte_.set(buf1);
 		}
 
-		is_.read(buf1, 0, len);
+		readBytes(buf1, 0, len);
 		pos_ += len;
 		return new String(buf1, 0x00, 0, len);
 	}
@@ -378,15 +609,13 @@ public class BintexReader implements Closeable {
 			buf_char_.set(buf2);
 		}
 
-		for (int i = 0; i < len; i++) {
-			buf2[i] = readCharWithoutIncreasingPos();
-		}
+		readChars(buf2, len);
 		pos_ += bytes;
 		return new String(buf2, 0, len);
 	}
 
 	public int[] readValueUint8Array() throws IOException {
-		int t = is_.read();
+		int t = read1();
 		pos_++;
 		return _readValueUint8Array(t);
 	}
@@ -394,7 +623,7 @@ public class BintexReader implements Closeable {
 	private int[] _readValueUint8Array(int t) throws IOException {
 		int len;
 		if (t == 0xc0) { // len < 256
-			len = is_.read();
+			len = read1();
 			pos_++;
 		} else if (t == 0xc8) {
 			len = readInt();
@@ -408,7 +637,7 @@ public class BintexReader implements Closeable {
 			buf_byte_.set(buf1);
 		}
 
-		is_.read(buf1, 0, len);
+		readBytes(buf1, 0, len);
 		pos_ += len;
 
 		int[] res = new int[len];
@@ -419,7 +648,7 @@ public class BintexReader implements Closeable {
 	}
 
 	public int[] readValueUint16Array() throws IOException {
-		int t = is_.read();
+		int t = read1();
 		pos_++;
 		return _readValueUint16Array(t);
 	}
@@ -427,7 +656,7 @@ public class BintexReader implements Closeable {
 	private int[] _readValueUint16Array(int t) throws IOException {
 		int len;
 		if (t == 0xc1) { // len < 256
-			len = is_.read();
+			len = read1();
 			pos_++;
 		} else if (t == 0xc9) {
 			len = readInt();
@@ -436,10 +665,19 @@ public class BintexReader implements Closeable {
 		}
 
 		int[] res = new int[len];
-		byte[] buf = new byte[2];
-		for (int i = 0; i < len; i++) {
-			is_.read(buf, 0, 2);
-			res[i] = ((buf[0] & 0xff) << 8) | (buf[1] & 0xff);
+		if (have(len << 1)) {
+			final byte[] w = win_;
+			int p = winPos_;
+			for (int i = 0; i < len; i++, p += 2) {
+				res[i] = ((w[p] & 0xff) << 8) | (w[p + 1] & 0xff);
+			}
+			winPos_ = p;
+		} else {
+			byte[] buf = new byte[2];
+			for (int i = 0; i < len; i++) {
+				readBytes(buf, 0, 2);
+				res[i] = ((buf[0] & 0xff) << 8) | (buf[1] & 0xff);
+			}
 		}
 		pos_ += len + len;
 
@@ -450,7 +688,7 @@ public class BintexReader implements Closeable {
 	 * also returns correctly if the data is of type uint8 or uint16 array
 	 */
 	public int[] readValueIntArray() throws IOException {
-		int t = is_.read();
+		int t = read1();
 		pos_++;
 		return _readValueIntArray(t);
 	}
@@ -462,7 +700,7 @@ public class BintexReader implements Closeable {
 		} else if (t == 0xc1 || t == 0xc9) {
 			return _readValueUint16Array(t);
 		} else if (t == 0xc4) { // len < 256
-			len = is_.read();
+			len = read1();
 			pos_++;
 		} else if (t == 0xcc) {
 			len = readInt();
@@ -471,10 +709,19 @@ public class BintexReader implements Closeable {
 		}
 
 		int[] res = new int[len];
-		byte[] buf = new byte[4];
-		for (int i = 0; i < len; i++) {
-			is_.read(buf, 0, 4);
-			res[i] = ((buf[0] & 0xff) << 24) | ((buf[1] & 0xff) << 16) | ((buf[2] & 0xff) << 8) | (buf[3] & 0xff);
+		if (have(len << 2)) {
+			final byte[] w = win_;
+			int p = winPos_;
+			for (int i = 0; i < len; i++, p += 4) {
+				res[i] = ((w[p] & 0xff) << 24) | ((w[p + 1] & 0xff) << 16) | ((w[p + 2] & 0xff) << 8) | (w[p + 3] & 0xff);
+			}
+			winPos_ = p;
+		} else {
+			byte[] buf = new byte[4];
+			for (int i = 0; i < len; i++) {
+				readBytes(buf, 0, 4);
+				res[i] = ((buf[0] & 0xff) << 24) | ((buf[1] & 0xff) << 16) | ((buf[2] & 0xff) << 8) | (buf[3] & 0xff);
+			}
 		}
 		pos_ += len << 2;
 
@@ -482,7 +729,7 @@ public class BintexReader implements Closeable {
 	}
 
 	public ValueMap readValueSimpleMap() throws IOException {
-		int t = is_.read();
+		int t = read1();
 		pos_++;
 		return _readValueSimpleMap(t);
 	}
@@ -498,13 +745,13 @@ public class BintexReader implements Closeable {
 
 		// t must be 0x91 by here
 
-		int size = is_.read();
+		int size = read1();
 		pos_++;
 
 		ValueMap res = new ValueMap();
 
 		for (int i = 0; i < size; i++) {
-			int key_len = is_.read();
+			int key_len = read1();
 			pos_++;
 
 			String k = _read8BitString(key_len);
@@ -517,7 +764,7 @@ public class BintexReader implements Closeable {
 	}
 
 	public Object readValue() throws IOException {
-		int t = is_.read();
+		int t = read1();
 		pos_++;
 
 		// ints
@@ -536,7 +783,16 @@ public class BintexReader implements Closeable {
 	}
 
 	public long skip(long n) throws IOException {
-		long res = is_.skip(n);
+		long res = 0;
+		if (win_ != null) {
+			// first what has been read ahead
+			final int k = (int) Math.max(0, Math.min(n, winEnd_ - winPos_));
+			winPos_ += k;
+			res = k;
+		}
+		if (res < n && is_ != null) {
+			res += is_.skip(n - res);
+		}
 		pos_ += (int) res;
 		return res;
 	}
@@ -547,6 +803,8 @@ public class BintexReader implements Closeable {
 
 	@Override
 	public void close() {
+		if (is_ == null) return;
+
 		try {
 			is_.close();
 		} catch (IOException e) {
@@ -0,0 +1,113 @@
+package yuku.bintex;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class BintexReaderTest extends TestCase {
+	byte[] data;
+
+	@Override
+	protected void setUp() throws Exception {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final BintexWriter bw = new BintexWriter(baos);
+		final Random r = new Random(119);
+
+		for (int i = 0; i < 300; i++) {
+			bw.writeInt(r.nextInt());
+			bw.writeVarUint(r.nextInt(1 << (1 + r.nextInt(30))));
+			bw.writeUint8(r.nextInt(256));
+			bw.writeUint16(r.nextInt(65536));
+			bw.writeChar((char) r.nextInt(65536));
+			bw.writeFloat(r.nextFloat());
+			bw.writeShortString("short" + i);
+			bw.writeLongString("long é中 " + i);
+			bw.writeAutoString(i % 2 == 0 ? "auto" + i : "auto 中" + i);
+			bw.writeValueInt(r.nextInt() >> r.nextInt(32));
+			bw.writeValueString(i % 3 == 0 ? "v中" + i : "value" + i);
+			bw.writeValueUint8Array(new int[] {1, 2, 255});
+			bw.writeValueUint16Array(new int[] {1, 65535, i});
+			bw.writeValueIntArray(new int[] {-1, i, Integer.MAX_VALUE, r.nextInt()});
+
+			final Map<String, Object> map = new LinkedHashMap<>();
+			map.put("n", i);
+			map.put("s", "x" + i);
+			bw.writeValueSimpleMap(map);
+
+			final byte[] raw = new byte[r.nextInt(50)];
+			r.nextBytes(raw);
+			bw.writeUint8(raw.length);
+			bw.writeRaw(raw);
+		}
+		bw.close();
+
+		data = baos.toByteArray();
+	}
+
+	/**
+	 * Reads everything that was written, in a form that can be compared.
+	 */
+	List<Object> readAll(final BintexReader br) throws Exception {
+		final List<Object> res = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			res.add(br.readInt());
+			res.add(br.readVarUint());
+			res.add(br.readUint8());
+			res.add(br.readUint16());
+			res.add(br.readChar());
+			res.add(br.readFloat());
+			res.add(br.readShortString());
+			res.add(br.readLongString());
+			res.add(br.readAutoString());
+			res.add(br.readValueInt());
+			res.add(br.readValueString());
+			res.add(java.util.Arrays.toString(br.readValueUint8Array()));
+			res.add(java.util.Arrays.toString(br.readValueUint16Array()));
+			res.add(java.util.Arrays.toString(br.readValueIntArray()));
+			res.add(new java.util.TreeMap<>(br.readValueSimpleMap()).toString());
+
+			final byte[] raw = new byte[br.readUint8()];
+			res.add(br.readRaw(raw));
+			res.add(java.util.Arrays.toString(raw));
+			res.add(br.getPos());
+		}
+		res.add(br.readUint8()); // EOF
+		return res;
+	}
+
+	public void testWindowedReadsSameAsUnbuffered() throws Exception {
+		final List<Object> expected = readAll(new BintexReader(new ByteArrayInputStream(data)));
+		assertEquals(-1, expected.get(expected.size() - 1));
+
+		assertEquals(expected, readAll(new BintexReader(data)));
+		assertEquals(expected, readAll(new BintexReader(new ByteArrayInputStream(data), 8192)));
+		// small buffers make most reads cross the end of the window
+		for (int bufferSize = 1; bufferSize <= 9; bufferSize++) {
+			assertEquals(expected, readAll(new BintexReader(new ByteArrayInputStream(data), bufferSize)));
+		}
+
+		final ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+		direct.put(data);
+		direct.flip();
+		assertEquals(expected, readAll(new BintexReader(direct)));
+		assertEquals(0, direct.position());
+	}
+
+	public void testSkip() throws Exception {
+		final BintexReader a = new BintexReader(new ByteArrayInputStream(data));
+		final BintexReader b = new BintexReader(new ByteArrayInputStream(data), 16);
+		a.readInt();
+		b.readInt();
+		assertEquals(100, a.skip(100));
+		assertEquals(100, b.skip(100));
+		assertEquals(a.getPos(), b.getPos());
+		assertEquals(a.readInt(), b.readInt());
+	}
+}
@@ -0,0 +1,125 @@
+package yuku.snappy.codec;
+
+import java.util.Arrays;
+
+/**
+ * Pure-java snappy decoder that writes straight into the caller's buffer.
+ *
+ * Unlike {@link de.jarnbjo.jsnappy.SnappyDecompressor}, no intermediate buffer is allocated,
+ * literals are copied with {@link System#arraycopy}, and overlapping copies (where the offset is
+ * smaller than the length, e.g. runs of spaces) are expanded in strides that double every round
+ * instead of byte by byte.
+ */
+public final class SnappyDecoder {
+	private SnappyDecoder() {
+	}
+
+	/**
+	 * Decompresses one snappy block.
+	 *
+	 * @return Decompressed data length
+	 * @throws IllegalArgumentException "SNAPPY_BUFFER_TOO_SMALL" when out cannot hold the uncompressed data,
+	 * or "SNAPPY_INVALID_INPUT" when the input is not a valid snappy block.
+	 */
+	public static int decompress(final byte[] in, final int inOffset, final int len, final byte[] out, final int outOffset) {
+		final int inEnd = inOffset + len;
+		int ip = inOffset;
+
+		// preamble: uncompressed length as a little-endian varint
+		int targetLength = 0;
+		for (int shift = 0; ; shift += 7) {
+			if (ip >= inEnd || shift > 28) throw invalidInput();
+			final int b = in[ip++];
+			targetLength |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) break;
+		}
+
+		if (targetLength < 0) throw invalidInput();
+		if (out.length - outOffset < targetLength) {
+			throw new IllegalArgumentException("SNAPPY_BUFFER_TOO_SMALL");
+		}
+
+		final int outEnd = outOffset + targetLength;
+		int op = outOffset;
+
+		try {
+			while (ip < inEnd) {
+				final int tag = in[ip++] & 0xff;
+				final int length;
+				final int offset;
+
+				switch (tag & 3) {
+					case 0: { // literal
+						int n = tag >>> 2;
+						if (n >= 60) {
+							final int extra = n - 59;
+							n = 0;
+							for (int i = 0; i < extra; i++) {
+								n |= (in[ip++] & 0xff) << (i << 3);
+							}
+						}
+						n++;
+						if (n <= 0 || n > outEnd - op || n > inEnd - ip) throw invalidInput();
+						System.arraycopy(in, ip, out, op, n);
+						ip += n;
+						op += n;
+						continue;
+					}
+					case 1: // copy with 1-byte offset
+						length = 4 + ((tag >>> 2) & 7);
+						offset = ((tag & 0xe0) << 3) | (in[ip] & 0xff);
+						ip += 1;
+						break;
+					case 2: // copy with 2-byte offset
+						length = 1 + (tag >>> 2);
+						offset = (in[ip] & 0xff) | (in[ip + 1] & 0xff) << 8;
+						ip += 2;
+						break;
+					default: // copy with 4-byte offset
+						length = 1 + (tag >>> 2);
+						offset = (in[ip] & 0xff) | (in[ip + 1] & 0xff) << 8 | (in[ip + 2] & 0xff) << 16 | (in[ip + 3] & 0xff) << 24;
+						ip += 4;
+						break;
+				}
+
+				if (ip > inEnd || offset <= 0 || offset > op - outOffset || length > outEnd - op) throw invalidInput();
+				copyMatch(out, op, offset, length);
+				op += length;
+			}
+		} catch (ArrayIndexOutOfBoundsException e) { // tag bytes cut off at the end of the input
+			throw invalidInput();
+		}
+
+		if (op != outEnd) throw invalidInput();
+		return targetLength;
+	}
+
+	/**
+	 * Copies length bytes that start offset bytes before op to op.
+	 * When they overlap, the bytes between the source and op form a pattern that repeats,
+	 * so every arraycopy can take everything written so far as its source, doubling the stride.
+	 */
+	private static void copyMatch(final byte[] out, int op, final int offset, final int length) {
+		final int src = op - offset;
+		if (offset >= length) {
+			System.arraycopy(out, src, out, op, length);
+			return;
+		}
+
+		final int end = op + length;
+		if (offset == 1) {
+			Arrays.fill(out, op, end, out[src]);
+			return;
+		}
+
+		while (op < end) {
+			final int n = Math.min(op - src, end - op);
+			System.arraycopy(out, src, out, op, n);
+			op += n;
+		}
+	}
+
+	private static IllegalArgumentException invalidInput() {
+		return new IllegalArgumentException("SNAPPY_INVALID_INPUT");
+	}
+}
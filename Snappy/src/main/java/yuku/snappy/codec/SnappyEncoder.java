@@ -0,0 +1,187 @@
+package yuku.snappy.codec;
+
+import java.util.Arrays;
+
+/**
+ * Pure-java snappy compressor that keeps its match candidates in flat int arrays:
+ * a hash table of the most recent position for every 4-byte hash, and a chain
+ * that links every position to the previous one with the same hash.
+ *
+ * An instance reuses its tables from block to block, so it is not thread-safe;
+ * use one instance per thread.
+ */
+public final class SnappyEncoder {
+	static final int HASH_BITS = 14;
+	/** How many earlier positions with the same hash are tried for the longest match. */
+	static final int MAX_CHAIN = 16;
+	static final int MIN_MATCH = 4;
+	/** Farthest offset of a copy with 2-byte offset; copies with 4-byte offsets could make the output larger than the input. */
+	static final int MAX_OFFSET = 0xffff;
+
+	private final int[] head = new int[1 << HASH_BITS];
+	private int[] prev = new int[0];
+
+	public static int maxCompressedLength(final int sourceLength) {
+		return 32 + sourceLength + sourceLength / 6;
+	}
+
+	/**
+	 * Compresses one snappy block.
+	 *
+	 * @return Compressed data length
+	 * @throws IllegalArgumentException "SNAPPY_BUFFER_TOO_SMALL" when out may not be able to hold the compressed data.
+	 */
+	public int compress(final byte[] in, final int inOffset, final int len, final byte[] out, final int outOffset) {
+		if (out.length - outOffset < maxCompressedLength(len)) {
+			throw new IllegalArgumentException("SNAPPY_BUFFER_TOO_SMALL");
+		}
+
+		int op = outOffset;
+
+		// preamble: uncompressed length as a little-endian varint
+		for (int n = len; ; n >>>= 7) {
+			if (n < 0x80) {
+				out[op++] = (byte) n;
+				break;
+			}
+			out[op++] = (byte) (n | 0x80);
+		}
+
+		if (prev.length < len) {
+			prev = new int[len];
+		}
+		final int[] head = this.head;
+		final int[] prev = this.prev;
+		Arrays.fill(head, -1);
+
+		final int lastHashable = len - MIN_MATCH; // positions are relative to inOffset
+		int literalStart = 0;
+		int pos = 0;
+
+		while (pos <= lastHashable) {
+			final int h = hash(in, inOffset + pos, HASH_BITS);
+
+			// longest match among the candidates on the chain
+			int bestLength = 0;
+			int bestOffset = 0;
+			final int maxLength = len - pos;
+			for (int candidate = head[h], chain = 0; candidate >= 0 && chain < MAX_CHAIN; candidate = prev[candidate], chain++) {
+				if (pos - candidate > MAX_OFFSET) break; // the chain only gets older from here
+				final int a = inOffset + candidate;
+				final int b = inOffset + pos;
+				if (in[a + bestLength] != in[b + bestLength]) continue;
+
+				int n = 0;
+				while (n < maxLength && in[a + n] == in[b + n]) n++;
+				if (n > bestLength) {
+					bestLength = n;
+					bestOffset = pos - candidate;
+					if (n == maxLength) break;
+				}
+			}
+
+			prev[pos] = head[h];
+			head[h] = pos;
+
+			if (bestLength < MIN_MATCH) {
+				pos++;
+				continue;
+			}
+
+			if (literalStart < pos) {
+				op = emitLiteral(in, inOffset + literalStart, pos - literalStart, out, op);
+			}
+			op = emitCopy(bestOffset, bestLength, out, op);
+
+			// make the positions inside the match available as candidates too
+			final int matchEnd = pos + bestLength;
+			for (int p = pos + 1, end = Math.min(matchEnd, lastHashable + 1); p < end; p++) {
+				final int h2 = hash(in, inOffset + p, HASH_BITS);
+				prev[p] = head[h2];
+				head[h2] = p;
+			}
+
+			pos = matchEnd;
+			literalStart = pos;
+		}
+
+		if (literalStart < len) {
+			op = emitLiteral(in, inOffset + literalStart, len - literalStart, out, op);
+		}
+
+		return op - outOffset;
+	}
+
+	/*
+	 * The hash and the element writers below are also used by other encoders of snappy elements,
+	 * such as the dictionary codec of yes files.
+	 */
+
+	/**
+	 * @return the hash of the 4 bytes at p, in hashBits bits
+	 */
+	public static int hash(final byte[] in, final int p, final int hashBits) {
+		final int v = (in[p] & 0xff) | (in[p + 1] & 0xff) << 8 | (in[p + 2] & 0xff) << 16 | (in[p + 3] & 0xff) << 24;
+		return (v * 0x1e35a7bd) >>> (32 - hashBits);
+	}
+
+	/**
+	 * Writes a literal element of n bytes from in[start..], n must be at least 1.
+	 * @return the position in out after the element
+	 */
+	public static int emitLiteral(final byte[] in, final int start, final int n, final byte[] out, int op) {
+		final int n_1 = n - 1;
+		if (n_1 < 60) {
+			out[op++] = (byte) (n_1 << 2);
+		} else if (n_1 < 0x100) {
+			out[op++] = (byte) (60 << 2);
+			out[op++] = (byte) n_1;
+		} else if (n_1 < 0x10000) {
+			out[op++] = (byte) (61 << 2);
+			out[op++] = (byte) n_1;
+			out[op++] = (byte) (n_1 >>> 8);
+		} else if (n_1 < 0x1000000) {
+			out[op++] = (byte) (62 << 2);
+			out[op++] = (byte) n_1;
+			out[op++] = (byte) (n_1 >>> 8);
+			out[op++] = (byte) (n_1 >>> 16);
+		} else {
+			out[op++] = (byte) (63 << 2);
+			out[op++] = (byte) n_1;
+			out[op++] = (byte) (n_1 >>> 8);
+			out[op++] = (byte) (n_1 >>> 16);
+			out[op++] = (byte) (n_1 >>> 24);
+		}
+		System.arraycopy(in, start, out, op, n);
+		return op + n;
+	}
+
+	/**
+	 * Writes copy elements with 1- or 2-byte offsets, so offset must be at most {@link #MAX_OFFSET}, and length at least 4.
+	 * @return the position in out after the elements
+	 */
+	public static int emitCopy(final int offset, int length, final byte[] out, int op) {
+		// a copy tag holds at most 64 bytes; never leave less than 4 bytes for the last one
+		while (length >= 68) {
+			op = emitCopyUpTo64(offset, 64, out, op);
+			length -= 64;
+		}
+		if (length > 64) {
+			op = emitCopyUpTo64(offset, 60, out, op);
+			length -= 60;
+		}
+		return emitCopyUpTo64(offset, length, out, op);
+	}
+
+	private static int emitCopyUpTo64(final int offset, final int length, final byte[] out, int op) {
+		if (length < 12 && offset < 2048) { // copy with 1-byte offset
+			out[op++] = (byte) (1 | (length - 4) << 2 | (offset >>> 8) << 5);
+			out[op++] = (byte) offset;
+		} else { // copy with 2-byte offset
+			out[op++] = (byte) (2 | (length - 1) << 2);
+			out[op++] = (byte) offset;
+			out[op++] = (byte) (offset >>> 8);
+		}
+		return op;
+	}
+}
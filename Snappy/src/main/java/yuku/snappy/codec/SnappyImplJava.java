@@ -1,11 +1,9 @@
 package yuku.snappy.codec;
 
-import de.jarnbjo.jsnappy.Buffer;
-import de.jarnbjo.jsnappy.SnappyCompressor;
-import de.jarnbjo.jsnappy.SnappyDecompressor;
-
 
 class SnappyImplJava extends Snappy {
+	private final SnappyEncoder encoder = new SnappyEncoder();
+
 	public SnappyImplJava() {
 	}
 
@@ -16,25 +14,11 @@ class SnappyImplJava extends Snappy {
 
 	@Override
 	public int compress(byte[] in, int inOffset, byte[] out, int outOffset, int len) {
-		Buffer buffer = SnappyCompressor.compress(in, inOffset, len, null, 100);
-		if (out.length - outOffset < buffer.getLength()) {
-			throw new IllegalArgumentException("SNAPPY_BUFFER_TOO_SMALL");
-		}
-
-		byte[] data = buffer.getData();
-		System.arraycopy(data, 0, out, outOffset, buffer.getLength());
-		return buffer.getLength();
+		return encoder.compress(in, inOffset, len, out, outOffset);
 	}
 
 	@Override
 	public int decompress(byte[] in, int inOffset, byte[] out, int outOffset, int len) {
-		Buffer buffer = SnappyDecompressor.decompress(in, inOffset, len);
-		if (out.length - outOffset < buffer.getLength()) {
-			throw new IllegalArgumentException("SNAPPY_BUFFER_TOO_SMALL");
-		}
-
-		byte[] data = buffer.getData();
-		System.arraycopy(data, 0, out, outOffset, buffer.getLength());
-		return buffer.getLength();
+		return SnappyDecoder.decompress(in, inOffset, len, out, outOffset);
 	}
 }
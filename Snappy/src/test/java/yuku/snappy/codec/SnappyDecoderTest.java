@@ -0,0 +1,94 @@
+package yuku.snappy.codec;
+
+import de.jarnbjo.jsnappy.Buffer;
+import de.jarnbjo.jsnappy.SnappyCompressor;
+import de.jarnbjo.jsnappy.SnappyDecompressor;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class SnappyDecoderTest extends TestCase {
+	static byte[] text(final Random r, final int len) {
+		final byte[] res = new byte[len];
+		final byte[] alphabet = "  aaeeiioouu.,ntrsdlhcmbg\nABC".getBytes();
+		for (int i = 0; i < len; ) {
+			if (i > 20 && r.nextInt(4) == 0) { // repeat something recent, sometimes overlapping
+				final int offset = 1 + r.nextInt(Math.min(i, 3000));
+				final int n = Math.min(len - i, 1 + r.nextInt(80));
+				for (int k = 0; k < n; k++, i++) res[i] = res[i - offset];
+			} else {
+				res[i++] = alphabet[r.nextInt(alphabet.length)];
+			}
+		}
+		return res;
+	}
+
+	public void testSameAsJsnappy() {
+		final Random r = new Random(16);
+		for (int round = 0; round < 200; round++) {
+			final byte[] in = text(r, 64 + r.nextInt(round < 100 ? 300 : 70000)); // jsnappy cannot compress very short inputs
+			final Buffer compressed = SnappyCompressor.compress(in, 0, in.length, null, 100); // the effort used by SnappyImplJava
+
+			final Buffer expected = SnappyDecompressor.decompress(compressed.getData(), 0, compressed.getLength());
+			final byte[] out = new byte[in.length + 10];
+			assertEquals(in.length, SnappyDecoder.decompress(compressed.getData(), 0, compressed.getLength(), out, 10));
+			assertTrue(Arrays.equals(in, Arrays.copyOfRange(out, 10, out.length)));
+			assertTrue(Arrays.equals(Arrays.copyOf(expected.getData(), expected.getLength()), in));
+		}
+	}
+
+	public void testAllTagKinds() {
+		// "ab" as a literal, then a 1-byte-offset copy of 6 with offset 2,
+		// a 2-byte-offset copy of 3 with offset 1, a 4-byte-offset copy of 8 with offset 8,
+		// and a literal with its length in one extra byte
+		final byte[] lit = new byte[70];
+		Arrays.fill(lit, (byte) 'z');
+		final byte[] in = new byte[10 + 2 + 2 + 3 + 5 + 2 + lit.length];
+		int p = 0;
+		in[p++] = 2 + 6 + 3 + 8 + 70; // fits in one varint byte
+		in[p++] = (1 << 2);
+		in[p++] = 'a';
+		in[p++] = 'b';
+		in[p++] = (byte) (((6 - 4) << 2) | 1);
+		in[p++] = 2;
+		in[p++] = (byte) (((3 - 1) << 2) | 2);
+		in[p++] = 1;
+		in[p++] = 0;
+		in[p++] = (byte) (((8 - 1) << 2) | 3);
+		in[p++] = 8;
+		in[p++] = 0;
+		in[p++] = 0;
+		in[p++] = 0;
+		in[p++] = (byte) (60 << 2);
+		in[p++] = (byte) (lit.length - 1);
+		System.arraycopy(lit, 0, in, p, lit.length);
+		p += lit.length;
+
+		final byte[] out = new byte[89];
+		assertEquals(89, SnappyDecoder.decompress(in, 0, p, out, 0));
+		assertEquals("ababababbbbbababbbb" + new String(lit), new String(out));
+	}
+
+	public void testInvalid() {
+		final byte[] in = SnappyCompressor.compress("hello hello hello hello".getBytes()).getData();
+		final int len = SnappyCompressor.compress("hello hello hello hello".getBytes()).getLength();
+
+		assertFails("SNAPPY_BUFFER_TOO_SMALL", in, len, new byte[10]);
+		for (int cut = 0; cut < len; cut++) {
+			assertFails("SNAPPY_INVALID_INPUT", in, cut, new byte[100]);
+		}
+
+		// copy that refers to before the start of the output
+		assertFails("SNAPPY_INVALID_INPUT", new byte[] {5, (byte) ((1 << 2) | 1), 3}, 3, new byte[5]);
+	}
+
+	static void assertFails(final String message, final byte[] in, final int len, final byte[] out) {
+		try {
+			SnappyDecoder.decompress(in, 0, len, out, 0);
+			fail("expected " + message + " with " + len + " bytes of input");
+		} catch (IllegalArgumentException e) {
+			assertEquals(message, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package yuku.snappy.codec;
+
+import de.jarnbjo.jsnappy.Buffer;
+import de.jarnbjo.jsnappy.SnappyCompressor;
+import de.jarnbjo.jsnappy.SnappyDecompressor;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class SnappyEncoderTest extends TestCase {
+	public void testRoundTrip() {
+		final Random r = new Random(17);
+		final SnappyEncoder encoder = new SnappyEncoder();
+		for (int round = 0; round < 200; round++) {
+			final byte[] in = SnappyDecoderTest.text(r, r.nextInt(round < 100 ? 300 : 70000));
+			final byte[] compressed = new byte[SnappyEncoder.maxCompressedLength(in.length) + 5];
+			final int clen = encoder.compress(in, 0, in.length, compressed, 5);
+
+			final byte[] out = new byte[in.length];
+			assertEquals(in.length, SnappyDecoder.decompress(compressed, 5, clen, out, 0));
+			assertTrue(Arrays.equals(in, out));
+
+			// the reference decoder must accept it as well
+			final Buffer buffer = SnappyDecompressor.decompress(compressed, 5, clen);
+			assertTrue(Arrays.equals(in, Arrays.copyOf(buffer.getData(), buffer.getLength())));
+		}
+	}
+
+	public void testInputOffsetAndRuns() {
+		final byte[] in = new byte[100000];
+		Arrays.fill(in, 10, 90000, (byte) ' ');
+		final SnappyEncoder encoder = new SnappyEncoder();
+		final byte[] compressed = new byte[SnappyEncoder.maxCompressedLength(in.length)];
+		final int clen = encoder.compress(in, 7, in.length - 7, compressed, 0);
+		assertTrue(clen < 5000);
+
+		final byte[] out = new byte[in.length - 7];
+		assertEquals(out.length, SnappyDecoder.decompress(compressed, 0, clen, out, 0));
+		assertTrue(Arrays.equals(Arrays.copyOfRange(in, 7, in.length), out));
+	}
+
+	public void testCloseToJsnappy() {
+		final Random r = new Random(170);
+		final byte[] in = SnappyDecoderTest.text(r, 32768);
+		final SnappyEncoder encoder = new SnappyEncoder();
+		final byte[] compressed = new byte[SnappyEncoder.maxCompressedLength(in.length)];
+		final int clen = encoder.compress(in, 0, in.length, compressed, 0);
+
+		// effort 100 tries every earlier match; following a bounded chain should come close to that
+		final Buffer reference = SnappyCompressor.compress(in, 0, in.length, null, 100);
+		assertTrue(clen + " vs " + reference.getLength(), clen <= reference.getLength() * 105 / 100);
+	}
+
+	public void testSmallInputsAndBufferTooSmall() {
+		final SnappyEncoder encoder = new SnappyEncoder();
+		for (int len = 0; len < 10; len++) {
+			final byte[] in = new byte[len];
+			Arrays.fill(in, (byte) 'a');
+			final byte[] compressed = new byte[SnappyEncoder.maxCompressedLength(len)];
+			final int clen = encoder.compress(in, 0, len, compressed, 0);
+			final byte[] out = new byte[len];
+			assertEquals(len, SnappyDecoder.decompress(compressed, 0, clen, out, 0));
+			assertTrue(Arrays.equals(in, out));
+		}
+
+		try {
+			encoder.compress(new byte[100], 0, 100, new byte[100], 0);
+			fail("expected SNAPPY_BUFFER_TOO_SMALL");
+		} catch (IllegalArgumentException e) {
+			assertEquals("SNAPPY_BUFFER_TOO_SMALL", e.getMessage());
+		}
+	}
+}
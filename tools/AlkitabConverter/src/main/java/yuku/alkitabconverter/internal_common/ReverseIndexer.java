@@ -1,7 +1,9 @@
 package yuku.alkitabconverter.internal_common;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.text.Normalizer;
 import java.util.Comparator;
@@ -12,6 +14,7 @@ import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import yuku.alkitab.io.RevIndex;
 import yuku.alkitabconverter.util.Rec;
 import yuku.alkitabconverter.util.TextDb;
 import yuku.bintex.BintexWriter;
@@ -129,6 +132,35 @@ public class ReverseIndexer {
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
-	}			
+
+		createPackedReverseIndex(outDir, prefix, map);
+	}
+
+	/**
+	 * Writes the same words and lids in the packed format that the app can memory-map and query in place.
+	 * See {@link RevIndex} for the format.
+	 */
+	static void createPackedReverseIndex(File outDir, String prefix, Map<String, Set<Integer>> map) {
+		final RevIndex.Builder builder = new RevIndex.Builder(RevIndex.KEY_KIND_LID);
+		for (Map.Entry<String, Set<Integer>> e: map.entrySet()) {
+			final int[] lids = new int[e.getValue().size()];
+			int i = 0;
+			for (int lid: e.getValue()) {
+				lids[i++] = lid;
+			}
+			builder.add(e.getKey(), lids);
+		}
+
+		try {
+			final File outFile = new File(outDir, String.format("%s_revindex2_bt.bt", prefix));
+			final OutputStream os = new BufferedOutputStream(new FileOutputStream(outFile));
+			builder.build().writeTo(os);
+			os.close();
+
+			System.out.println("Packed revindex size = " + outFile.length());
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
 }
 
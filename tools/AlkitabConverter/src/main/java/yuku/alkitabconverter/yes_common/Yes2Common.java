@@ -12,6 +12,7 @@ import yuku.alkitab.yes2.model.VerseBytes;
 import yuku.alkitab.yes2.model.Yes2Book;
 import yuku.alkitab.yes2.section.BooksInfoSection;
 import yuku.alkitab.yes2.section.FootnotesSection;
+import yuku.alkitab.yes2.section.FramedTextSection;
 import yuku.alkitab.yes2.section.PericopesSection;
 import yuku.alkitab.yes2.section.VersionInfoSection;
 import yuku.alkitab.yes2.section.XrefsSection;
@@ -143,14 +144,29 @@ public class Yes2Common {
 	}
 
     public static void createYesFile(final File outputFile, final VersionInfo versionInfo, final TextDb textDb, PericopeData pericopeData, boolean compressed, final LinkedHashMap<Integer, XrefEntry> xrefEntries, final LinkedHashMap<Integer, FootnoteEntry> footnoteEntries) throws IOException {
+        createYesFile(outputFile, versionInfo, textDb, pericopeData, compressed, xrefEntries, footnoteEntries, false);
+    }
+
+    /**
+     * @param framedText see {@link #createYesFile(RandomOutputStream, VersionInfo, TextDb, PericopeData, boolean, LinkedHashMap, LinkedHashMap, boolean)}
+     */
+    public static void createYesFile(final File outputFile, final VersionInfo versionInfo, final TextDb textDb, PericopeData pericopeData, boolean compressed, final LinkedHashMap<Integer, XrefEntry> xrefEntries, final LinkedHashMap<Integer, FootnoteEntry> footnoteEntries, final boolean framedText) throws IOException {
         RandomAccessFile raf = new RandomAccessFile(outputFile, "rw");
         raf.setLength(0);
         RandomOutputStream output = new RandomAccessFileRandomOutputStream(raf);
-        createYesFile(output, versionInfo, textDb, pericopeData, compressed, xrefEntries, footnoteEntries);
+        createYesFile(output, versionInfo, textDb, pericopeData, compressed, xrefEntries, footnoteEntries, framedText);
         output.close();
     }
 
     public static void createYesFile(final RandomOutputStream ros, final VersionInfo versionInfo, final TextDb textDb, PericopeData pericopeData, boolean compressed, final LinkedHashMap<Integer, XrefEntry> xrefEntries, final LinkedHashMap<Integer, FootnoteEntry> footnoteEntries) throws IOException {
+        createYesFile(ros, versionInfo, textDb, pericopeData, compressed, xrefEntries, footnoteEntries, false);
+    }
+
+    /**
+     * @param framedText compress the text as dictionary-compressed frames of verses ({@link FramedTextSection}) instead of snappy blocks.
+     * This makes single verses fast to read and the file smaller, but the file can only be read by yes version 3 readers.
+     */
+    public static void createYesFile(final RandomOutputStream ros, final VersionInfo versionInfo, final TextDb textDb, PericopeData pericopeData, boolean compressed, final LinkedHashMap<Integer, XrefEntry> xrefEntries, final LinkedHashMap<Integer, FootnoteEntry> footnoteEntries, final boolean framedText) throws IOException {
         VersionInfoSection versionInfoSection = getVersionInfoSection(versionInfo, textDb, pericopeData != null);
 		BooksInfoSection booksInfoSection = getBooksInfoSection(versionInfo, textDb);
 		
@@ -160,7 +176,11 @@ public class Yes2Common {
 		if (pericopeData != null) {
 			yesWriter.sections.add(new CompressiblePericopesSection(pericopeData, compressed));
 		}
-		yesWriter.sections.add(new CompressibleLazyText(textDb, compressed));
+		if (framedText) {
+			yesWriter.sections.add(getFramedTextSection(textDb, booksInfoSection));
+		} else {
+			yesWriter.sections.add(new CompressibleLazyText(textDb, compressed));
+		}
 
 		if (xrefEntries != null) {
 			yesWriter.sections.add(new CompressibleXrefsSection(xrefEntries, compressed));
@@ -173,6 +193,19 @@ public class Yes2Common {
 		yesWriter.writeToFile(ros);
 	}
 
+	private static FramedTextSection getFramedTextSection(final TextDb textDb, final BooksInfoSection booksInfoSection) {
+		final ByteArrayOutputStream text = new ByteArrayOutputStream();
+
+		textDb.processEach(new TextDb.TextProcessor() {
+			@Override public void process(int ari, VerseState verseState) {
+				byte[] bytes = VerseBytes.bytesForAVerse(verseState.text);
+				text.write(bytes, 0, bytes.length);
+			}
+		});
+
+		return new FramedTextSection(text.toByteArray(), text.size(), booksInfoSection.yes2Books);
+	}
+
 	static class CompressionInfo {
 		final boolean compressed;
 		final int COMPRESS_BLOCK_SIZE = 32768;
@@ -187,7 +220,8 @@ public class Yes2Common {
 		OutputStream getOutputStream() {
 			outputBuffer = new ByteArrayOutputStream();
 			if (compressed) {
-				snappyOutputStream = new SnappyOutputStream(outputBuffer, COMPRESS_BLOCK_SIZE);
+				// blocks are independent of each other, so they can be compressed on all cores
+				snappyOutputStream = new SnappyOutputStream(outputBuffer, COMPRESS_BLOCK_SIZE, Runtime.getRuntime().availableProcessors());
 				return snappyOutputStream;
 			}
 			return outputBuffer;
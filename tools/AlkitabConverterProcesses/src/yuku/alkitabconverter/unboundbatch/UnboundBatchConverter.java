@@ -26,6 +26,8 @@ import java.util.Set;
 
 public class UnboundBatchConverter {
 	static String DATA_DIR = "/Users/yuku/j/operasi/unbound";
+	/** Write the text as dictionary-compressed frames (yes version 3), which older app versions cannot read. */
+	static boolean FRAMED_TEXT = false;
 	
 	List<String> appConfigEntries = new ArrayList<>();
 	
@@ -127,7 +129,7 @@ public class UnboundBatchConverter {
 
 
 		// CREATE YES FILE
-		Yes2Common.createYesFile(new File("/tmp", outputName + ".yes"), versionInfo, textDb, null, true);
+		Yes2Common.createYesFile(new File("/tmp", outputName + ".yes"), versionInfo, textDb, null, true, null, null, FRAMED_TEXT);
 
 		appConfigEntries.add(String.format("<preset locale=%-6s shortName=%-9s longName=%s filename_preset=%s url=%s />", q(versionInfo.locale), q(versionInfo.shortName), q(versionInfo.longName), q(outputName + ".yes"), q("https://alkitab-host.appspot.com/addon/yes2/" + outputName + "--1.yes.gz")));
 		
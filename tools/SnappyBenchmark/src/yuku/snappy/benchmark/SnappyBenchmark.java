@@ -0,0 +1,230 @@
+package yuku.snappy.benchmark;
+
+import de.jarnbjo.jsnappy.Buffer;
+import de.jarnbjo.jsnappy.SnappyDecompressor;
+import yuku.alkitab.yes2.io.RandomAccessFileRandomInputStream;
+import yuku.alkitab.yes2.model.SectionIndex;
+import yuku.bintex.ValueMap;
+import yuku.snappy.codec.Snappy;
+import yuku.snappy.codec.SnappyDecoder;
+import yuku.snappy.codec.SnappyEncoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the snappy decoders on the compressed blocks of the text sections of real .yes files,
+ * the way the blocks are decompressed when verses are loaded.
+ *
+ * Usage: SnappyBenchmark [-w warmupIterations] [-i measurementIterations] [-t iterationMillis] file...
+ *
+ * A file that is not a yes file with a snappy-compressed text section is compressed in blocks of
+ * 32768 bytes, the block size used by the converters, so any text can be used as input too.
+ *
+ * Like JMH, every decoder runs warmup iterations whose results are thrown away, then measurement
+ * iterations of fixed duration; the reported score is the mean throughput of uncompressed bytes
+ * with the 99.9% confidence interval.
+ */
+public class SnappyBenchmark {
+	static final int COMPRESS_BLOCK_SIZE = 32768;
+
+	interface Decoder {
+		int decompress(byte[] in, int len, byte[] out);
+	}
+
+	static class Block {
+		final byte[] compressed;
+		final int uncompressedLength;
+
+		Block(final byte[] compressed, final int uncompressedLength) {
+			this.compressed = compressed;
+			this.uncompressedLength = uncompressedLength;
+		}
+	}
+
+	static volatile long sink; // keeps the decoded bytes observable, so the work cannot be optimized away
+
+	public static void main(String[] args) throws Exception {
+		int warmupIterations = 5;
+		int measurementIterations = 10;
+		int iterationMillis = 1000;
+		final List<String> files = new ArrayList<>();
+
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "-w": warmupIterations = Integer.parseInt(args[++i]); break;
+				case "-i": measurementIterations = Integer.parseInt(args[++i]); break;
+				case "-t": iterationMillis = Integer.parseInt(args[++i]); break;
+				default: files.add(args[i]);
+			}
+		}
+
+		if (files.isEmpty()) {
+			System.err.println("Usage: SnappyBenchmark [-w warmupIterations] [-i measurementIterations] [-t iterationMillis] file...");
+			System.exit(1);
+		}
+
+		final List<Block> blocks = new ArrayList<>();
+		for (final String file : files) {
+			final List<Block> fileBlocks = readTextSectionBlocks(file);
+			System.out.println(file + ": " + (fileBlocks == null ? "not a yes file with a snappy-compressed text section, compressing it" : fileBlocks.size() + " blocks"));
+			blocks.addAll(fileBlocks == null ? compressFile(file) : fileBlocks);
+		}
+
+		long totalCompressed = 0;
+		long totalUncompressed = 0;
+		for (final Block block : blocks) {
+			totalCompressed += block.compressed.length;
+			totalUncompressed += block.uncompressedLength;
+		}
+		System.out.println(blocks.size() + " blocks, " + totalCompressed + " bytes compressed, " + totalUncompressed + " bytes uncompressed");
+		System.out.println();
+
+		final List<String> names = new ArrayList<>();
+		final List<Decoder> decoders = new ArrayList<>();
+
+		names.add("jsnappy");
+		decoders.add((in, len, out) -> {
+			final Buffer buffer = SnappyDecompressor.decompress(in, 0, len);
+			System.arraycopy(buffer.getData(), 0, out, 0, buffer.getLength());
+			return buffer.getLength();
+		});
+
+		names.add("java");
+		decoders.add((in, len, out) -> SnappyDecoder.decompress(in, 0, len, out, 0));
+
+		try {
+			final Snappy snappy = new Snappy.Factory().newInstanceNative();
+			names.add("native");
+			decoders.add((in, len, out) -> snappy.decompress(in, 0, out, 0, len));
+		} catch (LinkageError e) {
+			System.out.println("native: skipped, libsnappy cannot be loaded (" + e.getMessage() + ")");
+		}
+
+		final byte[] out = new byte[COMPRESS_BLOCK_SIZE];
+		final byte[] expected = new byte[COMPRESS_BLOCK_SIZE];
+
+		// all decoders must agree before their speed means anything
+		for (final Block block : blocks) {
+			final int len = decoders.get(0).decompress(block.compressed, block.compressed.length, expected);
+			for (int d = 1; d < decoders.size(); d++) {
+				Arrays.fill(out, (byte) 0);
+				final int len2 = decoders.get(d).decompress(block.compressed, block.compressed.length, out);
+				if (len2 != len || !Arrays.equals(Arrays.copyOf(expected, len), Arrays.copyOf(out, len))) {
+					throw new RuntimeException(names.get(d) + " decodes differently from " + names.get(0));
+				}
+			}
+		}
+
+		System.out.printf("%-10s %12s %12s %8s%n", "decoder", "MB/s", "error", "iters");
+		for (int d = 0; d < decoders.size(); d++) {
+			final Decoder decoder = decoders.get(d);
+			for (int i = 0; i < warmupIterations; i++) {
+				iteration(decoder, blocks, out, totalUncompressed, iterationMillis);
+			}
+
+			final double[] scores = new double[measurementIterations];
+			for (int i = 0; i < measurementIterations; i++) {
+				scores[i] = iteration(decoder, blocks, out, totalUncompressed, iterationMillis);
+			}
+
+			double mean = 0;
+			for (final double score : scores) mean += score;
+			mean /= scores.length;
+
+			double variance = 0;
+			for (final double score : scores) variance += (score - mean) * (score - mean);
+			variance /= Math.max(1, scores.length - 1);
+
+			// 3.29 is the two-sided z value for 99.9%; close enough to the t value for 10 or more iterations
+			final double error = 3.29 * Math.sqrt(variance / scores.length);
+
+			System.out.printf("%-10s %12.1f %12.1f %8d%n", names.get(d), mean, error, measurementIterations);
+		}
+	}
+
+	/**
+	 * @return Throughput in megabytes of uncompressed data per second
+	 */
+	static double iteration(final Decoder decoder, final List<Block> blocks, final byte[] out, final long totalUncompressed, final int iterationMillis) {
+		long ops = 0;
+		long checksum = 0;
+		final long start = System.nanoTime();
+		final long deadline = start + iterationMillis * 1000000L;
+		long now;
+		do {
+			for (final Block block : blocks) {
+				checksum += decoder.decompress(block.compressed, block.compressed.length, out) + out[0];
+			}
+			ops++;
+			now = System.nanoTime();
+		} while (now < deadline);
+		sink += checksum;
+
+		return ops * totalUncompressed / ((now - start) / 1e9) / 1e6;
+	}
+
+	/**
+	 * @return null if the file is not a yes file whose text section is snappy-compressed.
+	 */
+	static List<Block> readTextSectionBlocks(final String filename) throws IOException {
+		final byte[] header = new byte[8];
+		try (RandomAccessFile f = new RandomAccessFile(filename, "r")) {
+			if (f.read(header) != header.length) return null;
+		}
+		if (!Arrays.equals(Arrays.copyOf(header, 7), new byte[] { (byte) 0x98, 0x58, 0x0d, 0x0a, 0x00, 0x5d, (byte) 0xe0 }) || (header[7] != 0x02 && header[7] != 0x03)) {
+			return null;
+		}
+
+		final RandomAccessFileRandomInputStream input = new RandomAccessFileRandomInputStream(filename);
+		try {
+			input.seek(12); // start of sectionIndex
+			final SectionIndex sectionIndex = SectionIndex.read(input);
+			if (sectionIndex == null) return null;
+
+			final ValueMap attributes = sectionIndex.getSectionAttributes("text", input);
+			if (attributes == null || !"snappy-blocks".equals(attributes.getString("compression.name"))) return null;
+
+			final ValueMap compressionInfo = attributes.getSimpleMap("compression.info");
+			final int block_size = compressionInfo.getInt("block_size");
+			final int[] compressed_block_sizes = compressionInfo.getIntArray("compressed_block_sizes");
+			final Snappy snappy = new Snappy.Factory().newInstanceJava();
+
+			final List<Block> res = new ArrayList<>();
+			input.seek(sectionIndex.getAbsoluteOffsetForSectionContent("text"));
+			for (final int compressed_block_size : compressed_block_sizes) {
+				final byte[] compressed = new byte[compressed_block_size];
+				if (input.read(compressed, 0, compressed.length) != compressed.length) {
+					throw new IOException("Text section of " + filename + " is truncated");
+				}
+				final int uncompressedLength = snappy.uncompressedLength(compressed, 0, compressed.length);
+				if (uncompressedLength > block_size) {
+					throw new IOException("Block of " + uncompressedLength + " bytes is larger than the block size " + block_size);
+				}
+				res.add(new Block(compressed, uncompressedLength));
+			}
+			return res;
+		} finally {
+			input.close();
+		}
+	}
+
+	static List<Block> compressFile(final String filename) throws IOException {
+		final byte[] data = Files.readAllBytes(new File(filename).toPath());
+		final SnappyEncoder encoder = new SnappyEncoder();
+		final byte[] compressed = new byte[SnappyEncoder.maxCompressedLength(COMPRESS_BLOCK_SIZE)];
+
+		final List<Block> res = new ArrayList<>();
+		for (int pos = 0; pos < data.length; pos += COMPRESS_BLOCK_SIZE) {
+			final int len = Math.min(COMPRESS_BLOCK_SIZE, data.length - pos);
+			final int compressedLength = encoder.compress(data, pos, len, compressed, 0);
+			res.add(new Block(Arrays.copyOf(compressed, compressedLength), len));
+		}
+		return res;
+	}
+}
@@ -22,6 +22,8 @@ public class YetToYes2 {
 	private boolean help = false;
 	@Parameter(names = "--no-compress", description = "Disable compression on the resultant yes file")
 	private boolean nocompress = false;
+	@Parameter(names = "--framed-text", description = "Compress the text as dictionary-compressed frames of verses (yes version 3). Single verses load without decompressing a whole block, but older app versions cannot read it")
+	private boolean framedText = false;
 	@Parameter(names = "--ignore-skipped-verses", description = "Allow skipping verses, e.g. verse 1 1 4 followed directly by verse 1 1 6. However, chapters must still be consecutive and books must start with chapter 1 and verse 1.")
 	private boolean ignore_skipped_verses = false;
 
@@ -31,7 +33,7 @@ public class YetToYes2 {
 		jc.addObject(main);
 		jc.parse(args);
 
-		JCommander.getConsole().println("YetToYes2 version 2.1.0");
+		JCommander.getConsole().println("YetToYes2 version 2.2.0");
 		
 		if (main.help) {
 			jc.setProgramName("java -jar YetToYes2.jar");
@@ -57,6 +59,11 @@ public class YetToYes2 {
 			yesfile = yetfile.endsWith(".yet") ? (yetfile.substring(0, yetfile.length() - 1) + "s") : yetfile + ".yes";
 		}
 
+		if (framedText && nocompress) {
+			System.err.println("--framed-text is always compressed, it cannot be used with --no-compress");
+			return 1;
+		}
+
 		System.err.println("input:  " + yetfile);
 		System.err.println("output: " + yesfile);
 
@@ -116,7 +123,7 @@ public class YetToYes2 {
 		}
 
 		boolean compressed = !nocompress;
-		Yes2Common.createYesFile(new File(yesfile), versionInfo, textDb, result.pericopeData, compressed, result.xrefEntries, result.footnoteEntries);
+		Yes2Common.createYesFile(new File(yesfile), versionInfo, textDb, result.pericopeData, compressed, result.xrefEntries, result.footnoteEntries, framedText);
 
 		return 0;
 	}